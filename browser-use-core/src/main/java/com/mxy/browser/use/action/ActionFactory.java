@@ -0,0 +1,103 @@
+package com.mxy.browser.use.action;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 动作工厂
+ * 根据LLM返回的JSON动作描述创建动作对象
+ */
+@Slf4j
+public final class ActionFactory {
+
+    /**
+     * JSON处理器
+     */
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 工具类，禁止实例化
+     */
+    private ActionFactory() {
+    }
+
+    /**
+     * 从动作JSON节点创建动作对象
+     * 节点格式：{ "type": "动作类型", "parameters": { ... } }
+     *
+     * @param actionNode 动作JSON节点
+     * @return 动作对象，无法识别时返回null
+     */
+    public static Action fromJson(JsonNode actionNode) {
+        if (actionNode == null || !actionNode.has("type")) {
+            return null;
+        }
+        String type = actionNode.get("type").asText();
+        JsonNode parameters = actionNode.has("parameters") ? actionNode.get("parameters") : null;
+        return create(type, parameters);
+    }
+
+    /**
+     * 将动作对象转换为与LLM输出相同格式的JSON节点
+     * 节点格式：{ "type": "动作类型", "parameters": { ... } }
+     *
+     * @param action 动作对象
+     * @return 动作JSON节点
+     */
+    public static ObjectNode toJson(Action action) {
+        ObjectNode parameters = objectMapper.valueToTree(action);
+        parameters.remove("type");
+        parameters.remove("description");
+
+        ObjectNode actionNode = objectMapper.createObjectNode();
+        actionNode.put("type", action.getType());
+        actionNode.set("parameters", parameters);
+        return actionNode;
+    }
+
+    /**
+     * 创建动作对象
+     *
+     * @param type 动作类型
+     * @param parameters 动作参数
+     * @return 动作对象，无法识别时返回null
+     */
+    public static Action create(String type, JsonNode parameters) {
+        try {
+            switch (type.toLowerCase()) {
+                case "click":
+                    int clickIndex = parameters.get("index").asInt();
+                    return new ClickAction(clickIndex);
+
+                case "type":
+                    int typeIndex = parameters.get("index").asInt();
+                    String text = parameters.get("text").asText();
+                    return new TypeAction(typeIndex, text);
+
+                case "navigate":
+                    String url = parameters.get("url").asText();
+                    return new NavigateAction(url);
+
+                case "wait":
+                    int seconds = parameters.get("seconds").asInt();
+                    return new WaitAction(seconds);
+
+                case "done":
+                    boolean success = parameters == null || !parameters.has("success")
+                            || parameters.get("success").asBoolean();
+                    String message = parameters != null && parameters.has("message") ?
+                            parameters.get("message").asText() : "任务完成";
+                    return new DoneAction(success, message);
+
+                default:
+                    log.warn("未知的动作类型: {}", type);
+                    return null;
+            }
+        } catch (Exception e) {
+            log.error("创建动作对象失败: {}", e.getMessage());
+            return null;
+        }
+    }
+}
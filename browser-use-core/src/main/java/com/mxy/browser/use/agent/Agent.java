@@ -2,29 +2,40 @@ package com.mxy.browser.use.agent;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.microsoft.playwright.Page;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.microsoft.playwright.options.LoadState;
 import com.mxy.browser.use.action.*;
 import com.mxy.browser.use.browser.Browser;
 import com.mxy.browser.use.browser.BrowserContext;
-import com.mxy.browser.use.browser.BrowserSession;
+import com.mxy.browser.use.browser.BrowserContextConfig;
 import com.mxy.browser.use.browser.BrowserState;
+import com.mxy.browser.use.cache.LlmResponseCache;
 import com.mxy.browser.use.controller.Controller;
-import com.mxy.browser.use.dom.DomElement;
-import com.mxy.browser.use.dom.DomService;
-import com.mxy.browser.use.dom.DomState;
 import com.mxy.browser.use.memory.Memory;
-import com.mxy.browser.use.memory.SimpleMemory;
+import com.mxy.browser.use.memory.RingBufferMemory;
+import com.mxy.browser.use.prompt.ElementDelta;
+import com.mxy.browser.use.prompt.PromptBuilder;
+import com.mxy.browser.use.prompt.PromptTemplate;
+import com.mxy.browser.use.trajectory.PageFingerprint;
+import com.mxy.browser.use.trajectory.Trajectory;
+import com.mxy.browser.use.trajectory.TrajectoryStep;
+import com.mxy.browser.use.trajectory.TrajectoryStore;
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.core.io.ClassPathResource;
+import reactor.core.publisher.Flux;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -45,15 +56,30 @@ public class Agent implements AutoCloseable {
     private final ChatClient llm;
 
     /**
-     * 浏览器实例
+     * 浏览器实例，使用外部上下文且未指定浏览器时为null
      */
     private final Browser browser;
 
+    /**
+     * 浏览器是否由多个代理共享（共享时关闭代理不会关闭浏览器）
+     */
+    private final boolean sharedBrowser;
+
+    /**
+     * 浏览器上下文配置，为null时使用浏览器的默认配置
+     */
+    private final BrowserContextConfig contextConfig;
+
     /**
      * 浏览器上下文
      */
     private BrowserContext browserContext;
 
+    /**
+     * 浏览器上下文是否由外部提供（如从浏览器池借出），外部提供时代理不会创建或关闭上下文
+     */
+    private final boolean externalContext;
+
     /**
      * 控制器
      */
@@ -69,6 +95,11 @@ public class Agent implements AutoCloseable {
      */
     private final boolean enableMemory;
 
+    /**
+     * 历史操作在用户提示中的token预算
+     */
+    private final int memoryTokenBudget;
+
     /**
      * 每步最大动作数
      */
@@ -80,9 +111,44 @@ public class Agent implements AutoCloseable {
     private final int maxSteps;
 
     /**
-     * 系统提示模板
+     * 是否以流式方式调用LLM，并在每个动作生成完毕后立即执行
+     */
+    private final boolean streaming;
+
+    /**
+     * 轨迹存储，设置后录制成功运行的轨迹，并在后续运行中回放
+     */
+    private final TrajectoryStore trajectoryStore;
+
+    /**
+     * LLM响应缓存，为null时不使用缓存
+     */
+    private final LlmResponseCache responseCache;
+
+    /**
+     * 系统提示，进程内只加载一次，所有步骤和任务使用完全相同的内容，便于模型服务端复用前缀缓存
+     */
+    private static final String SYSTEM_PROMPT = loadSystemPrompt();
+
+    /**
+     * 用户提示构建器
+     */
+    private final PromptBuilder promptBuilder;
+
+    /**
+     * 对话历史中最多保留的步骤数
+     */
+    private final int historyTurns;
+
+    /**
+     * 对话历史（之前步骤的用户提示和LLM响应），达到上限后清空重新开始
+     */
+    private final List<Message> conversation = new ArrayList<>();
+
+    /**
+     * 对话历史中已列出的元素，之后的提示只列出新出现或有变化的元素
      */
-    private final String systemPromptTemplate;
+    private final ElementDelta elementDelta = new ElementDelta();
 
     /**
      * JSON解析器
@@ -93,26 +159,46 @@ public class Agent implements AutoCloseable {
      * 私有构造函数，使用Builder模式创建实例
      */
     @Builder
-    private Agent(String task, ChatClient llm, Browser browser, boolean enableMemory,
-                  int maxActionsPerStep, int maxSteps, Memory memory) {
+    private Agent(String task, ChatClient llm, Browser browser, boolean sharedBrowser,
+                  BrowserContext browserContext, BrowserContextConfig contextConfig, Executor executor,
+                  boolean enableMemory, int maxActionsPerStep, int maxSteps, Memory memory, boolean streaming,
+                  TrajectoryStore trajectoryStore, LlmResponseCache responseCache, PromptBuilder promptBuilder,
+                  int historyTurns, int memoryTokenBudget) {
         this.task = task;
         this.llm = llm;
-        this.browser = browser != null ? browser : new Browser();
-        this.controller = new Controller();
+        // 使用外部上下文时不需要浏览器，不再创建
+        this.browser = browser != null || browserContext != null ? browser : new Browser(null, executor);
+        this.sharedBrowser = (browser != null && sharedBrowser) || browserContext != null;
+        this.browserContext = browserContext;
+        this.externalContext = browserContext != null;
+        this.contextConfig = contextConfig;
+        this.controller = new Controller(executor != null || this.browser == null ? executor : this.browser.getExecutor());
         this.enableMemory = enableMemory;
         this.maxActionsPerStep = maxActionsPerStep > 0 ? maxActionsPerStep : 3;
         this.maxSteps = maxSteps > 0 ? maxSteps : 20;
-        this.memory = memory != null ? memory : new SimpleMemory();
-        this.systemPromptTemplate = loadSystemPromptTemplate();
+        this.memory = memory != null ? memory : RingBufferMemory.builder().build();
+        this.streaming = streaming;
+        this.trajectoryStore = trajectoryStore;
+        this.responseCache = responseCache;
+        this.promptBuilder = promptBuilder != null ? promptBuilder : PromptBuilder.builder().build();
+        this.historyTurns = historyTurns > 0 ? historyTurns : 4;
+        this.memoryTokenBudget = memoryTokenBudget > 0 ? memoryTokenBudget : this.promptBuilder.getTokenBudget() / 4;
     }
 
     /**
-     * 加载系统提示模板
+     * 加载并编译系统提示模板
+     * 系统提示不能包含每步变化的变量（任务、步骤等由用户提示末尾给出），包含变量时使用默认模板
      */
-    private String loadSystemPromptTemplate() {
+    private static String loadSystemPrompt() {
         try {
             ClassPathResource resource = new ClassPathResource("prompts/system_prompt.txt");
-            return new String(resource.getInputStream().readAllBytes());
+            PromptTemplate template = PromptTemplate.compile(
+                    new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+            if (!template.getVariableNames().isEmpty()) {
+                log.warn("系统提示模板包含变量 {}，使用默认模板", template.getVariableNames());
+                return DEFAULT_SYSTEM_PROMPT;
+            }
+            return template.render(Map.of());
         } catch (Exception e) {
             log.warn("无法加载系统提示模板，使用默认模板", e);
             return DEFAULT_SYSTEM_PROMPT;
@@ -125,9 +211,8 @@ public class Agent implements AutoCloseable {
     private static final String DEFAULT_SYSTEM_PROMPT =
             "你是一个浏览器自动化助手，可以控制浏览器执行各种任务。\n" +
                     "你将获得当前浏览器页面的状态，包括URL、标题、DOM元素等。\n" +
-                    "你的任务是：<task>\n\n" +
-                    "请根据当前状态，选择合适的下一步操作来完成任务。\n" +
-                    "当前步骤：<step>/<maxSteps>\n\n" +
+                    "任务和当前步骤在每条用户消息的末尾给出。\n\n" +
+                    "请根据当前状态，选择合适的下一步操作来完成任务。\n\n" +
                     "可用操作:\n" +
                     "1. click(index): 点击指定索引的元素\n" +
                     "2. type(index, text): 在指定索引的元素中输入文本\n" +
@@ -145,16 +230,29 @@ public class Agent implements AutoCloseable {
 
     /**
      * 运行代理
+     *
+     * @return 任务执行结果
      */
-    public void run() {
+    public AgentResult run() {
+        long startTime = System.currentTimeMillis();
         try {
             log.info("开始运行代理, 任务: {}", task);
 
             // 初始化浏览器上下文
             initializeBrowser();
 
+            // 加载可回放的轨迹，并准备录制本次运行
+            TrajectoryReplay replay = null;
+            Trajectory recording = null;
+            if (trajectoryStore != null) {
+                replay = trajectoryStore.load(task).map(TrajectoryReplay::new).orElse(null);
+                recording = Trajectory.builder().task(task).recordedAt(System.currentTimeMillis()).build();
+            }
+
             // 执行任务循环
             boolean done = false;
+            boolean success = false;
+            String message = null;
             int step = 0;
 
             while (!done && step < maxSteps) {
@@ -164,51 +262,127 @@ public class Agent implements AutoCloseable {
                 // 获取当前浏览器状态
                 BrowserState state = getBrowserState();
 
-                // 构建提示
-                String prompt = buildPrompt(state, step);
-
-                // 调用LLM获取响应
-                String llmResponse = callLLM(prompt, step);
+                // 页面与录制时一致时直接回放，否则调用LLM
+                PageFingerprint fingerprint = recording != null ? PageFingerprint.of(state) : null;
+                TrajectoryStep replayStep = replay != null ? replay.next(fingerprint) : null;
+
+                // 获取本步骤的动作：流式模式下动作边生成边执行
+                Iterator<Action> actions;
+                StreamingActionPlan streamingPlan = null;
+                String prompt = null;
+                String response = null;
+                if (replayStep != null) {
+                    log.info("回放轨迹步骤 {}，跳过LLM调用", replayStep.getStep());
+                    actions = replayStep.toActions().iterator();
+                    // 回放的页面LLM没有看到，之后重新发送完整提示
+                    resetConversation();
+                } else {
+                    // 对话历史达到上限时重新开始
+                    if (conversation.size() / 2 >= historyTurns) {
+                        resetConversation();
+                    }
 
-                // 解析LLM响应获取动作
-                List<Action> actions = parseActions(llmResponse);
+                    // 构建提示
+                    prompt = buildPrompt(state, step);
 
-                // 限制每步最大动作数
-                if (actions.size() > maxActionsPerStep) {
-                    log.warn("动作数量超过限制，截断到 {} 个", maxActionsPerStep);
-                    actions = actions.subList(0, maxActionsPerStep);
+                    if (streaming) {
+                        streamingPlan = streamLLM(prompt);
+                        actions = streamingPlan;
+                    } else {
+                        response = callLLM(prompt);
+                        actions = parseActions(response).iterator();
+                    }
                 }
 
-                // 执行动作
-                for (Action action : actions) {
-                    log.info("执行动作: {}", action.getDescription());
+                List<Action> executed = new ArrayList<>();
+                boolean replayFailed = false;
+                try {
+                    // 执行动作
+                    int executedActions = 0;
+                    while (actions.hasNext()) {
+                        // 限制每步最大动作数
+                        if (executedActions >= maxActionsPerStep) {
+                            log.warn("动作数量超过限制，截断到 {} 个", maxActionsPerStep);
+                            break;
+                        }
+                        Action action = actions.next();
+                        executedActions++;
 
-                    ActionResult result = controller.executeAction(action, browserContext).get();
+                        log.info("执行动作: {}", action.getDescription());
 
-                    // 记录执行结果到内存
-                    if (enableMemory) {
-                        String memoryKey = "action_" + step + "_" + action.getType();
-                        memory.add(memoryKey, result.isSuccess() ? "成功: " : "失败: " + result.getMessage());
-                    }
+                        ActionResult result = controller.executeAction(action, browserContext).get();
+
+                        // 记录执行结果到内存，键中带上动作在本步中的序号，避免同一步内相同类型的动作互相覆盖
+                        if (enableMemory) {
+                            String memoryKey = "action_" + step + "_" + executedActions + "_" + action.getType();
+                            memory.add(memoryKey, result.isSuccess() ? "成功: " : "失败: " + result.getMessage());
+                        }
 
-                    log.info("动作结果: {} - {}", result.isSuccess() ? "成功" : "失败", result.getMessage());
+                        log.info("动作结果: {} - {}", result.isSuccess() ? "成功" : "失败", result.getMessage());
 
-                    // 如果是完成动作或执行失败，结束任务
-                    if ("done".equals(action.getType()) || !result.isSuccess()) {
-                        done = true;
-                        break;
+                        // 回放的动作失败时停止回放，下一步改为调用LLM
+                        if (replayStep != null && !result.isSuccess()) {
+                            log.warn("回放动作失败，停止回放: {}", result.getMessage());
+                            replay = null;
+                            replayFailed = true;
+                            break;
+                        }
+                        executed.add(action);
+
+                        // 如果是完成动作或执行失败，结束任务
+                        if ("done".equals(action.getType()) || !result.isSuccess()) {
+                            done = true;
+                            if (action instanceof DoneAction) {
+                                success = ((DoneAction) action).isSuccess();
+                                message = ((DoneAction) action).getMessage();
+                            } else {
+                                message = result.getMessage();
+                            }
+                            break;
+                        }
                     }
+                } finally {
+                    // 提前结束时取消剩余的生成
+                    if (streamingPlan != null) {
+                        streamingPlan.close();
+                    }
+                }
 
-                    // 在动作之间稍作停顿
-                    Thread.sleep(500);
+                // 记录本步骤的对话，下一步的提示只需发送变化的部分
+                if (prompt != null) {
+                    conversation.add(new UserMessage(prompt));
+                    conversation.add(new AssistantMessage(assistantReply(streamingPlan, response, executed)));
+                }
+
+                // 回放中途失败时，失败前已成功执行的动作同样改变了页面，需要录制下来，
+                // 否则之后由LLM继续的步骤所基于的页面在轨迹中无法到达
+                if (recording != null && (!replayFailed || !executed.isEmpty())) {
+                    recording.addStep(fingerprint, executed);
                 }
             }
 
-            if (step >= maxSteps) {
+            if (!done && step >= maxSteps) {
                 log.warn("达到最大步骤数 {}, 停止执行", maxSteps);
+                message = "达到最大步骤数 " + maxSteps;
+            }
+
+            // 只保存成功的轨迹，避免失败的运行覆盖可用的轨迹
+            if (recording != null && success) {
+                trajectoryStore.save(recording);
+            }
+
+            if (responseCache != null) {
+                log.info("LLM响应缓存统计: {}", responseCache.getStats());
             }
 
             log.info("代理运行完成");
+            return AgentResult.builder()
+                    .task(task)
+                    .success(success)
+                    .message(message)
+                    .steps(step)
+                    .durationMillis(System.currentTimeMillis() - startTime)
+                    .build();
         } catch (Exception e) {
             log.error("代理运行失败", e);
             throw new RuntimeException("代理运行失败", e);
@@ -221,8 +395,14 @@ public class Agent implements AutoCloseable {
     private void initializeBrowser() throws ExecutionException, InterruptedException {
         log.debug("初始化浏览器");
 
+        // 外部提供的上下文只需确保会话已初始化
+        if (externalContext) {
+            browserContext.getSession().get();
+            return;
+        }
+
         // 创建浏览器上下文
-        browserContext = browser.newContext(null).get();
+        browserContext = browser.newContext(contextConfig).get();
 
         // 初始化会话
         browserContext.initializeSession().get();
@@ -231,77 +411,22 @@ public class Agent implements AutoCloseable {
 
     /**
      * 获取浏览器状态
-     */
-    /**
-     * 获取浏览器状态
+     * 页面自上次提取后没有变化时直接复用上一次的状态快照，否则重新提取
      */
     private BrowserState getBrowserState() throws ExecutionException, InterruptedException {
-        // 获取浏览器会话
-        BrowserSession session = browserContext.getSession().get();
-
-        // 检查缓存状态
-        BrowserState cachedState = session.getCachedState();
-
-        if (cachedState == null ||
-                cachedState.getUrl() == null ||
-                cachedState.getTitle() == null ||
-                cachedState.getSelectorMap() == null ||
-                cachedState.getSelectorMap().isEmpty()) {
-
-            log.info("缓存状态为空或不完整，尝试强制刷新...");
-
-            try {
-                // 获取当前页面
-                Page currentPage = browserContext.getCurrentPage();
-                if (currentPage != null
-                        && currentPage.url() != null
-                        && !currentPage.url().contains("about:blank")
-                        && currentPage.title() != null
-                        && !currentPage.title().isEmpty()) {
-
-                    // 执行一个小动作来触发页面状态更新
-                    currentPage.evaluate("window.scrollBy(0, 10);");
-
-                    // 等待页面稳定
-                    Thread.sleep(500);
-
-                    // 创建DomService实例
-                    DomService domService = new DomService(currentPage);
-
-                    // 使用DomService获取可点击元素和DOM树
-                    DomState domState = domService.getClickableElements(
-                            true,  // 高亮元素
-                            -1,    // 不设置焦点元素
-                            500    // 视口扩展
-                    ).get();
-
-                    // 创建新的BrowserState
-                    cachedState = new BrowserState();
-                    cachedState.setUrl(currentPage.url());
-                    cachedState.setTitle(currentPage.title());
-
-                    // 设置DOM树和选择器映射
-                    if (domState != null) {
-                        cachedState.setElementTree(domState.getElementTree());
-                        cachedState.setSelectorMap(domState.getSelectorMap());
-
-                        log.info("DOM分析完成: 标题={}, URL={}, 可交互元素数量={}",
-                                cachedState.getTitle(),
-                                cachedState.getUrl(),
-                                cachedState.getSelectorMap().size());
-                    } else {
-                        log.warn("DOM分析返回null");
-                    }
+        // 确保会话可用（浏览器断开后会重新初始化）
+        browserContext.getSession().get();
 
-                    // 更新缓存状态
-                    browserContext.updateCachedState(cachedState);
-                }
-            } catch (Exception e) {
-                log.error("尝试刷新状态失败", e, e);
-            }
+        try {
+            return browserContext.getState(
+                    true,  // 高亮元素
+                    -1,    // 不设置焦点元素
+                    500    // 视口扩展
+            ).get();
+        } catch (ExecutionException e) {
+            log.error("提取页面状态失败", e);
+            return browserContext.getCachedState();
         }
-
-        return cachedState;
     }
 
     /**
@@ -311,79 +436,50 @@ public class Agent implements AutoCloseable {
      * 构建LLM提示（用户部分）
      */
     private String buildPrompt(BrowserState state, int step) {
-        // 构建用户提示
-        StringBuilder userPromptBuilder = new StringBuilder();
-
-        // 检查state是否为null
-        if (state == null) {
-            // 返回默认提示或错误信息
-            userPromptBuilder.append("无法获取当前页面状态，浏览器可能未正确初始化或加载。\n");
-            userPromptBuilder.append("步骤: ").append(step).append("\n");
-            userPromptBuilder.append("任务: ").append(task).append("\n");
-            return userPromptBuilder.toString();
-        }
+        // 历史操作（如果启用记忆），只保留预算内最近的记录
+        String history = enableMemory ? memory.render(memoryTokenBudget) : null;
 
-        // 添加当前页面信息
-        userPromptBuilder.append("当前页面: ").append(state.getTitle())
-                .append(" (URL: ").append(state.getUrl()).append(")\n\n");
-
-        // 添加可交互元素列表
-        userPromptBuilder.append("可交互元素:\n");
-        if (state.getSelectorMap() != null && !state.getSelectorMap().isEmpty()) {
-            for (Map.Entry<Integer, DomElement> entry : state.getSelectorMap().entrySet()) {
-                DomElement element = entry.getValue();
-                userPromptBuilder.append("[").append(entry.getKey()).append("] ");
-                userPromptBuilder.append(element.getTagName()).append(": \"")
-                        .append(element.getAllText()).append("\"");
-
-                // 添加重要属性
-                if (element.getId() != null && !element.getId().isEmpty()) {
-                    userPromptBuilder.append(" (id=").append(element.getId()).append(")");
-                }
-                if (element.getClassName() != null && !element.getClassName().isEmpty()) {
-                    userPromptBuilder.append(" (class=").append(element.getClassName()).append(")");
-                }
-                userPromptBuilder.append("\n");
-            }
-        } else {
-            userPromptBuilder.append("(当前页面没有可交互元素)\n");
-        }
-
-        // 添加记忆内容（如果启用）
-        if (enableMemory) {
-            userPromptBuilder.append("\n历史操作:\n");
-            for (String key : memory.keys()) {
-                userPromptBuilder.append("- ").append(key).append(": ")
-                        .append(memory.get(key)).append("\n");
-            }
-        }
+        // 在token预算内按与任务的相关度选取可交互元素，对话历史中已列出且没有变化的元素只汇总
+        return promptBuilder.build(task, state, step, maxSteps, history, elementDelta);
+    }
 
-        return userPromptBuilder.toString();
+    /**
+     * 清空对话历史，下一次提示重新列出完整的元素列表
+     */
+    private void resetConversation() {
+        conversation.clear();
+        elementDelta.reset();
     }
 
     /**
      * 调用LLM
      */
-    private String callLLM(String userPrompt, int step) {
+    private String callLLM(String userPrompt) {
         try {
+            // 相同提示直接使用缓存的响应
+            String cacheKey = null;
+            if (responseCache != null) {
+                cacheKey = cacheKeyOf(userPrompt);
+                Optional<String> cached = responseCache.get(cacheKey);
+                if (cached.isPresent()) {
+                    log.debug("LLM响应缓存命中");
+                    return cached.get();
+                }
+            }
+
             log.debug("调用LLM");
 
-            // 准备系统提示模板变量
-            Map<String, Object> variables = Map.of(
-                    "task", task,
-                    "step", String.valueOf(step),
-                    "maxSteps", String.valueOf(maxSteps)
-            );
-            // 创建提示
-            SystemMessage systemMessage = new SystemMessage(this.systemPromptTemplate);
-            UserMessage userMessage = new UserMessage(userPrompt);
-            Prompt prompt = new Prompt(List.of(systemMessage, userMessage));
             // 调用LLM
-            ChatClient.CallResponseSpec response = llm.prompt(prompt).call();
+            long startTime = System.currentTimeMillis();
+            ChatClient.CallResponseSpec response = llm.prompt(createPrompt(userPrompt)).call();
             String content = response.chatResponse().getResult().getOutput().getText();
 
             log.debug("LLM响应: {}", content);
 
+            if (cacheKey != null) {
+                responseCache.put(cacheKey, content, System.currentTimeMillis() - startTime);
+            }
+
             return content;
         } catch (Exception e) {
             log.error("调用LLM失败", e);
@@ -391,6 +487,80 @@ public class Agent implements AutoCloseable {
         }
     }
 
+    /**
+     * 以流式方式调用LLM
+     * 返回的动作计划在每个动作完整生成后即可迭代
+     */
+    private StreamingActionPlan streamLLM(String userPrompt) {
+        if (responseCache == null) {
+            log.debug("流式调用LLM");
+            return new StreamingActionPlan(
+                    llm.prompt(createPrompt(userPrompt)).stream().content(),
+                    objectMapper);
+        }
+
+        // 相同提示直接使用缓存的响应
+        String cacheKey = cacheKeyOf(userPrompt);
+        Optional<String> cached = responseCache.get(cacheKey);
+        if (cached.isPresent()) {
+            log.debug("LLM响应缓存命中");
+            return new StreamingActionPlan(Flux.just(cached.get()), objectMapper);
+        }
+
+        // 仅缓存完整生成的响应；提前取消的流不会触发完成回调
+        log.debug("流式调用LLM");
+        long startTime = System.currentTimeMillis();
+        StringBuilder content = new StringBuilder();
+        Flux<String> stream = llm.prompt(createPrompt(userPrompt)).stream().content()
+                .doOnNext(content::append)
+                .doOnComplete(() -> responseCache.put(
+                        cacheKey, content.toString(), System.currentTimeMillis() - startTime));
+        return new StreamingActionPlan(stream, objectMapper);
+    }
+
+    /**
+     * 计算响应缓存键，对话历史也是提示的一部分
+     */
+    private String cacheKeyOf(String userPrompt) {
+        StringBuilder conversationText = new StringBuilder();
+        for (Message message : conversation) {
+            conversationText.append(message.getMessageType()).append('\u0000')
+                    .append(message.getText()).append('\u0000');
+        }
+        return LlmResponseCache.keyOf(SYSTEM_PROMPT, conversationText + userPrompt);
+    }
+
+    /**
+     * 创建LLM提示
+     */
+    private Prompt createPrompt(String userPrompt) {
+        // 系统提示和对话历史是不变的前缀，任务和步骤已在用户提示末尾
+        List<Message> messages = new ArrayList<>(conversation.size() + 2);
+        messages.add(new SystemMessage(SYSTEM_PROMPT));
+        messages.addAll(conversation);
+        messages.add(new UserMessage(userPrompt));
+        return new Prompt(messages);
+    }
+
+    /**
+     * 本步骤写入对话历史的助手回复
+     * 流被取消或中途出错时只收到部分计划，改为记录实际执行的动作，避免历史中出现截断的JSON
+     */
+    private String assistantReply(StreamingActionPlan streamingPlan, String response, List<Action> executed) {
+        if (streamingPlan == null) {
+            return response;
+        }
+        if (streamingPlan.isCompleted()) {
+            return streamingPlan.getReceivedText();
+        }
+        ObjectNode reply = objectMapper.createObjectNode();
+        ArrayNode actionsNode = reply.putArray("actions");
+        for (Action action : executed) {
+            actionsNode.add(ActionFactory.toJson(action));
+        }
+        return reply.toString();
+    }
+
     /**
      * 解析LLM响应中的动作
      */
@@ -422,15 +592,9 @@ public class Agent implements AutoCloseable {
                 JsonNode actionsNode = rootNode.get("actions");
 
                 for (JsonNode actionNode : actionsNode) {
-                    if (actionNode.has("type")) {
-                        String type = actionNode.get("type").asText();
-                        JsonNode parameters = actionNode.has("parameters") ?
-                                actionNode.get("parameters") : null;
-
-                        Action action = createAction(type, parameters);
-                        if (action != null) {
-                            actions.add(action);
-                        }
+                    Action action = ActionFactory.fromJson(actionNode);
+                    if (action != null) {
+                        actions.add(action);
                     }
                 }
             }
@@ -484,56 +648,16 @@ public class Agent implements AutoCloseable {
         return null;
     }
 
-    /**
-     * 创建动作对象
-     */
-    private Action createAction(String type, JsonNode parameters) {
-        try {
-            switch (type.toLowerCase()) {
-                case "click":
-                    int clickIndex = parameters.get("index").asInt();
-                    return new ClickAction(clickIndex);
-
-                case "type":
-                    int typeIndex = parameters.get("index").asInt();
-                    String text = parameters.get("text").asText();
-                    return new TypeAction(typeIndex, text);
-
-                case "navigate":
-                    String url = parameters.get("url").asText();
-                    return new NavigateAction(url);
-
-                case "wait":
-                    int seconds = parameters.get("seconds").asInt();
-                    return new WaitAction(seconds);
-
-                case "done":
-                    boolean success = parameters.has("success") ?
-                            parameters.get("success").asBoolean() : true;
-                    String message = parameters.has("message") ?
-                            parameters.get("message").asText() : "任务完成";
-                    return new DoneAction(success, message);
-
-                default:
-                    log.warn("未知的动作类型: {}", type);
-                    return null;
-            }
-        } catch (Exception e) {
-            log.error("创建动作对象失败: {}", e.getMessage());
-            return null;
-        }
-    }
-
     @Override
     public void close() {
         try {
-            // 关闭浏览器上下文
-            if (browserContext != null) {
+            // 关闭浏览器上下文（外部提供的上下文由其所有者负责归还或关闭）
+            if (browserContext != null && !externalContext) {
                 browserContext.close();
             }
 
-            // 关闭浏览器
-            if (browser != null) {
+            // 关闭浏览器（共享的浏览器由其所有者负责关闭）
+            if (browser != null && !sharedBrowser) {
                 browser.close().get();
             }
 
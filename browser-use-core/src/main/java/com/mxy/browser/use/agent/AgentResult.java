@@ -0,0 +1,42 @@
+package com.mxy.browser.use.agent;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 代理执行结果
+ * 记录一次任务运行的最终状态
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgentResult {
+
+    /**
+     * 任务描述
+     */
+    private String task;
+
+    /**
+     * 任务是否成功完成
+     */
+    private boolean success;
+
+    /**
+     * 结果消息（完成动作的消息或失败原因）
+     */
+    private String message;
+
+    /**
+     * 实际执行的步骤数
+     */
+    private int steps;
+
+    /**
+     * 运行耗时（毫秒）
+     */
+    private long durationMillis;
+}
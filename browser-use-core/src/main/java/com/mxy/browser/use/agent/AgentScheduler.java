@@ -0,0 +1,277 @@
+package com.mxy.browser.use.agent;
+
+import com.mxy.browser.use.browser.Browser;
+import com.mxy.browser.use.browser.BrowserContext;
+import com.mxy.browser.use.browser.BrowserContextConfig;
+import com.mxy.browser.use.browser.BrowserLease;
+import com.mxy.browser.use.browser.BrowserPool;
+import com.mxy.browser.use.concurrent.BrowserUseExecutors;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 代理调度器
+ *
+ * 在同一个Browser上并发运行多个代理，每个代理使用独立的BrowserContext。
+ * 同一个Browser上各上下文的Playwright调用在其驱动线程上串行执行，LLM调用等其余工作并行；
+ * 需要浏览器操作也并行时，使用由多个Browser组成的浏览器池。
+ * 并发的上下文数量有上限，超出的任务按提交顺序（FIFO）排队等待。
+ * 每个提交的任务都会返回一个独立的结果Future。
+ * 调度器为每个任务准备上下文（在共享浏览器上新建，或从浏览器池借出），再交给代理工厂创建代理，
+ * 任务结束后关闭新建的上下文或归还借出的上下文。
+ */
+@Slf4j
+public class AgentScheduler implements AutoCloseable {
+
+    /**
+     * 默认最大并发上下文数
+     */
+    private static final int DEFAULT_MAX_CONCURRENT_CONTEXTS = 4;
+
+    /**
+     * 共享的浏览器实例，设置浏览器池且未指定浏览器时为null
+     */
+    @Getter
+    private final Browser browser;
+
+    /**
+     * 浏览器是否由调度器创建（由调度器创建时关闭调度器会一并关闭浏览器）
+     */
+    private final boolean ownsBrowser;
+
+    /**
+     * 浏览器池，设置后代理使用从池中借出的预热上下文，而不是在共享浏览器上新建上下文
+     */
+    private final BrowserPool browserPool;
+
+    /**
+     * 默认LLM客户端
+     */
+    private final ChatClient llm;
+
+    /**
+     * 每个代理使用的上下文配置
+     */
+    private final BrowserContextConfig contextConfig;
+
+    /**
+     * 最大并发上下文数
+     */
+    @Getter
+    private final int maxConcurrentContexts;
+
+    /**
+     * 代理内部异步任务使用的执行器
+     */
+    private final Executor agentExecutor;
+
+    /**
+     * 每个代理的最大步骤数
+     */
+    private final int maxSteps;
+
+    /**
+     * 每步最大动作数
+     */
+    private final int maxActionsPerStep;
+
+    /**
+     * 等待队列（FIFO）
+     */
+    private final BlockingQueue<Runnable> queue;
+
+    /**
+     * 执行代理任务的工作线程池，线程数即并发上下文上限
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 正在运行的任务数
+     */
+    private final AtomicInteger runningTasks = new AtomicInteger(0);
+
+    /**
+     * 浏览器是否已启动
+     */
+    private volatile boolean browserStarted = false;
+
+    /**
+     * 创建代理调度器
+     *
+     * @param browser 共享的浏览器，为null且未设置浏览器池时由调度器创建并负责关闭
+     * @param browserPool 浏览器池，设置后代理从池中借出上下文（浏览器池由调用方负责关闭）
+     * @param llm 默认LLM客户端
+     * @param contextConfig 每个代理的上下文配置
+     * @param executor 浏览器与代理内部异步任务使用的执行器，为null时使用默认执行器
+     * @param maxConcurrentContexts 最大并发上下文数
+     * @param maxQueuedTasks 最大排队任务数，小于等于0表示不限制
+     * @param maxSteps 每个代理的最大步骤数
+     * @param maxActionsPerStep 每步最大动作数
+     */
+    @Builder
+    private AgentScheduler(Browser browser, BrowserPool browserPool, ChatClient llm, BrowserContextConfig contextConfig,
+                           Executor executor, int maxConcurrentContexts, int maxQueuedTasks,
+                           int maxSteps, int maxActionsPerStep) {
+        // 使用浏览器池时上下文都从池中借出，不需要共享浏览器
+        this.ownsBrowser = browser == null && browserPool == null;
+        this.browser = ownsBrowser ? new Browser(null, executor) : browser;
+        this.browserPool = browserPool;
+        this.agentExecutor = executor != null ? executor
+                : this.browser != null ? this.browser.getExecutor() : BrowserUseExecutors.defaultExecutor();
+        this.llm = llm;
+        this.contextConfig = contextConfig;
+        this.maxConcurrentContexts = maxConcurrentContexts > 0 ? maxConcurrentContexts : DEFAULT_MAX_CONCURRENT_CONTEXTS;
+        this.maxSteps = maxSteps;
+        this.maxActionsPerStep = maxActionsPerStep;
+        this.queue = maxQueuedTasks > 0 ? new LinkedBlockingQueue<>(maxQueuedTasks) : new LinkedBlockingQueue<>();
+
+        this.executor = new ThreadPoolExecutor(
+                this.maxConcurrentContexts,
+                this.maxConcurrentContexts,
+                60L, TimeUnit.SECONDS,
+                queue,
+                BrowserUseExecutors.daemonThreadFactory("agent-scheduler"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 提交任务，使用调度器的默认配置创建代理
+     *
+     * @param task 任务描述
+     * @return 任务结果的CompletableFuture
+     */
+    public CompletableFuture<AgentResult> submit(String task) {
+        return submit(context -> Agent.builder()
+                .task(task)
+                .llm(llm)
+                .browserContext(context)
+                .executor(agentExecutor)
+                .maxSteps(maxSteps)
+                .maxActionsPerStep(maxActionsPerStep)
+                .build());
+    }
+
+    /**
+     * 提交自定义代理任务
+     * 轮到该任务执行时，调度器准备好上下文后调用工厂创建代理；
+     * 代理必须使用传入的上下文（如通过Agent.AgentBuilder.browserContext设置），上下文由调度器负责关闭或归还
+     *
+     * @param agentFactory 代理工厂，每个任务调用一次
+     * @return 任务结果的CompletableFuture
+     */
+    public CompletableFuture<AgentResult> submit(Function<BrowserContext, Agent> agentFactory) {
+        CompletableFuture<AgentResult> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> runAgent(agentFactory, result));
+        } catch (RejectedExecutionException e) {
+            log.warn("任务队列已满或调度器已关闭，拒绝任务");
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * 在工作线程中运行代理
+     *
+     * @param agentFactory 代理工厂
+     * @param result 结果Future
+     */
+    private void runAgent(Function<BrowserContext, Agent> agentFactory, CompletableFuture<AgentResult> result) {
+        if (result.isCancelled()) {
+            return;
+        }
+        runningTasks.incrementAndGet();
+        try {
+            if (browserPool != null) {
+                try (BrowserLease lease = browserPool.lease().get();
+                     Agent agent = agentFactory.apply(lease.getContext())) {
+                    result.complete(agent.run());
+                }
+                return;
+            }
+            ensureBrowserStarted();
+            BrowserContext context = browser.newContext(contextConfig).get();
+            try (context; Agent agent = agentFactory.apply(context)) {
+                result.complete(agent.run());
+            }
+        } catch (Throwable e) {
+            log.error("代理任务执行失败", e);
+            result.completeExceptionally(e);
+        } finally {
+            runningTasks.decrementAndGet();
+        }
+    }
+
+    /**
+     * 确保共享浏览器只启动一次
+     */
+    private void ensureBrowserStarted() throws ExecutionException, InterruptedException {
+        if (browserStarted) {
+            return;
+        }
+        synchronized (this) {
+            if (!browserStarted) {
+                browser.getPlaywrightBrowser().get();
+                browserStarted = true;
+            }
+        }
+    }
+
+    /**
+     * 获取正在运行的任务数
+     *
+     * @return 正在运行的任务数
+     */
+    public int getRunningTasks() {
+        return runningTasks.get();
+    }
+
+    /**
+     * 获取排队等待的任务数
+     *
+     * @return 排队任务数
+     */
+    public int getQueuedTasks() {
+        return queue.size();
+    }
+
+    /**
+     * 关闭调度器
+     * 不再接受新任务，等待已提交的任务完成
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.info("等待代理任务完成，运行中: {}，排队中: {}", getRunningTasks(), getQueuedTasks());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+
+        if (ownsBrowser) {
+            try {
+                browser.close().get();
+            } catch (Exception e) {
+                log.error("关闭浏览器失败", e);
+            }
+        }
+        log.info("代理调度器已关闭");
+    }
+}
@@ -0,0 +1,211 @@
+package com.mxy.browser.use.agent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 增量动作解析器
+ *
+ * 逐段接收LLM的流式输出，在顶层JSON对象的"actions"数组中
+ * 每个元素完整到达时立即解析并返回，不必等待整个响应生成完毕。
+ * 顶层对象之前的文本（如说明文字或markdown代码块标记）会被忽略。
+ */
+@Slf4j
+class IncrementalActionParser {
+
+    /**
+     * 动作数组的键名
+     */
+    private static final String ACTIONS_KEY = "actions";
+
+    /**
+     * JSON解析器
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 已接收的全部文本
+     */
+    private final StringBuilder buffer = new StringBuilder();
+
+    /**
+     * 下一个待扫描字符的位置
+     */
+    private int position = 0;
+
+    /**
+     * 当前嵌套深度（0表示尚未进入顶层对象）
+     */
+    private int depth = 0;
+
+    /**
+     * 是否在字符串内
+     */
+    private boolean inString = false;
+
+    /**
+     * 上一个字符是否为转义符
+     */
+    private boolean escaped = false;
+
+    /**
+     * 当前字符串的起始位置
+     */
+    private int stringStart = -1;
+
+    /**
+     * 顶层对象中是否正等待读取键名
+     */
+    private boolean expectingKey = false;
+
+    /**
+     * 顶层对象中最近读取的键名
+     */
+    private String currentKey;
+
+    /**
+     * 是否位于actions数组内
+     */
+    private boolean inActions = false;
+
+    /**
+     * 当前动作元素的起始位置
+     */
+    private int elementStart = -1;
+
+    /**
+     * 顶层对象是否已结束
+     */
+    private boolean complete = false;
+
+    /**
+     * 创建增量动作解析器
+     *
+     * @param objectMapper JSON解析器
+     */
+    IncrementalActionParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 追加一段文本并返回其中新完成的动作节点
+     *
+     * @param chunk 文本片段
+     * @return 新完成的动作JSON节点
+     */
+    List<JsonNode> feed(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return Collections.emptyList();
+        }
+        buffer.append(chunk);
+        if (complete) {
+            return Collections.emptyList();
+        }
+
+        List<JsonNode> completed = new ArrayList<>();
+        for (; position < buffer.length() && !complete; position++) {
+            char c = buffer.charAt(position);
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                    if (depth == 1 && expectingKey) {
+                        currentKey = buffer.substring(stringStart + 1, position);
+                        expectingKey = false;
+                    }
+                }
+                continue;
+            }
+
+            if (depth == 0) {
+                if (c == '{') {
+                    depth = 1;
+                    expectingKey = true;
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '"':
+                    inString = true;
+                    stringStart = position;
+                    break;
+                case '{':
+                case '[':
+                    depth++;
+                    if (c == '[' && depth == 2 && ACTIONS_KEY.equals(currentKey)) {
+                        inActions = true;
+                    } else if (c == '{' && depth == 3 && inActions) {
+                        elementStart = position;
+                    }
+                    break;
+                case '}':
+                case ']':
+                    if (c == '}' && depth == 3 && inActions && elementStart >= 0) {
+                        JsonNode node = parseElement(buffer.substring(elementStart, position + 1));
+                        if (node != null) {
+                            completed.add(node);
+                        }
+                        elementStart = -1;
+                    } else if (c == ']' && depth == 2 && inActions) {
+                        inActions = false;
+                    }
+                    depth--;
+                    if (depth == 0) {
+                        complete = true;
+                    }
+                    break;
+                case ',':
+                    if (depth == 1) {
+                        expectingKey = true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * 解析单个动作元素
+     *
+     * @param json 动作元素JSON文本
+     * @return JSON节点，解析失败时返回null
+     */
+    private JsonNode parseElement(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (Exception e) {
+            log.warn("解析流式动作失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 顶层JSON对象是否已完整接收
+     *
+     * @return 是否完整
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * 获取已接收的全部文本
+     *
+     * @return 响应文本
+     */
+    String getText() {
+        return buffer.toString();
+    }
+}
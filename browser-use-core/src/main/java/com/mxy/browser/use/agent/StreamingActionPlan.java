@@ -0,0 +1,190 @@
+package com.mxy.browser.use.agent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mxy.browser.use.action.Action;
+import com.mxy.browser.use.action.ActionFactory;
+import com.mxy.browser.use.action.WaitAction;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 流式动作计划
+ *
+ * 订阅LLM的流式输出，每解析出一个完整动作就交给调用方执行，
+ * 使第一个动作在模型仍在生成后续内容时即可开始执行。
+ * 调用方结束迭代后应关闭计划以取消剩余的生成。
+ */
+@Slf4j
+class StreamingActionPlan implements Iterator<Action>, AutoCloseable {
+
+    /**
+     * 流结束标记
+     */
+    private static final Object END_OF_STREAM = new Object();
+
+    /**
+     * 已解析的动作、流错误或结束标记
+     */
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * 增量解析器（仅在订阅线程中访问）
+     */
+    private final IncrementalActionParser parser;
+
+    /**
+     * 流订阅
+     */
+    private final Disposable subscription;
+
+    /**
+     * 下一个待返回的动作
+     */
+    private Action nextAction;
+
+    /**
+     * 流是否已结束
+     */
+    private boolean finished = false;
+
+    /**
+     * 已返回的动作数
+     */
+    private int produced = 0;
+
+    /**
+     * 已收到的完整文本
+     */
+    private final StringBuffer received = new StringBuffer();
+
+    /**
+     * 流是否已完整结束（未被取消、未出错）
+     */
+    private volatile boolean completed = false;
+
+    /**
+     * 创建流式动作计划并开始订阅
+     *
+     * @param content LLM流式输出
+     * @param objectMapper JSON解析器
+     */
+    StreamingActionPlan(Flux<String> content, ObjectMapper objectMapper) {
+        this.parser = new IncrementalActionParser(objectMapper);
+        this.subscription = content.subscribe(
+                this::onChunk,
+                queue::add,
+                () -> {
+                    completed = true;
+                    queue.add(END_OF_STREAM);
+                });
+    }
+
+    /**
+     * 处理一段流式输出
+     *
+     * @param chunk 文本片段
+     */
+    private void onChunk(String chunk) {
+        received.append(chunk);
+        for (JsonNode node : parser.feed(chunk)) {
+            Action action = ActionFactory.fromJson(node);
+            if (action != null) {
+                queue.add(action);
+            }
+        }
+        if (parser.isComplete()) {
+            completed = true;
+            queue.add(END_OF_STREAM);
+        }
+    }
+
+    /**
+     * 阻塞等待下一个动作
+     *
+     * @return 是否还有动作
+     */
+    @Override
+    public boolean hasNext() {
+        if (nextAction != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+
+        Object item;
+        try {
+            item = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待LLM流式响应被中断", e);
+        }
+
+        if (item instanceof Action) {
+            nextAction = (Action) item;
+            return true;
+        }
+
+        finished = true;
+        if (item instanceof Throwable) {
+            if (produced == 0) {
+                throw new RuntimeException("调用LLM失败", (Throwable) item);
+            }
+            log.warn("LLM流式响应中断，已执行 {} 个动作", produced);
+            return false;
+        }
+
+        log.debug("LLM响应: {}", parser.getText());
+        if (produced == 0) {
+            // 与非流式模式一致：没有解析出动作时等待
+            log.warn("无法从LLM流式响应中解析出动作");
+            nextAction = new WaitAction(3);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Action next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Action action = nextAction;
+        nextAction = null;
+        produced++;
+        return action;
+    }
+
+    /**
+     * 获取目前已收到的文本（取消后即为取消前生成的部分）
+     *
+     * @return 已收到的文本
+     */
+    public String getReceivedText() {
+        return received.toString();
+    }
+
+    /**
+     * 流是否已完整结束，被取消或中途出错时为false，此时已收到的文本只是部分计划
+     *
+     * @return 是否完整结束
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * 取消剩余的生成
+     */
+    @Override
+    public void close() {
+        subscription.dispose();
+    }
+}
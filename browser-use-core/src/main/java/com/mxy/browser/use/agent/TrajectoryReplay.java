@@ -0,0 +1,59 @@
+package com.mxy.browser.use.agent;
+
+import com.mxy.browser.use.trajectory.PageFingerprint;
+import com.mxy.browser.use.trajectory.Trajectory;
+import com.mxy.browser.use.trajectory.TrajectoryStep;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 轨迹回放游标
+ * 按顺序提供录制的步骤，页面指纹一旦不一致即停止回放
+ */
+@Slf4j
+class TrajectoryReplay {
+
+    /**
+     * 回放的轨迹
+     */
+    private final Trajectory trajectory;
+
+    /**
+     * 下一个待回放步骤的位置
+     */
+    private int cursor = 0;
+
+    /**
+     * 是否已停止回放
+     */
+    private boolean diverged = false;
+
+    /**
+     * 创建轨迹回放游标
+     *
+     * @param trajectory 回放的轨迹
+     */
+    TrajectoryReplay(Trajectory trajectory) {
+        this.trajectory = trajectory;
+        log.info("找到已录制的轨迹（{} 步），尝试回放", trajectory.getSteps().size());
+    }
+
+    /**
+     * 获取与当前页面匹配的下一个步骤
+     *
+     * @param fingerprint 当前页面指纹
+     * @return 待回放的步骤，轨迹结束或页面不一致时返回null
+     */
+    TrajectoryStep next(PageFingerprint fingerprint) {
+        if (diverged || cursor >= trajectory.getSteps().size()) {
+            return null;
+        }
+        TrajectoryStep step = trajectory.getSteps().get(cursor);
+        if (!step.getFingerprint().matches(fingerprint)) {
+            log.info("页面与轨迹步骤 {} 不一致，改为调用LLM", step.getStep());
+            diverged = true;
+            return null;
+        }
+        cursor++;
+        return step;
+    }
+}
@@ -2,19 +2,29 @@ package com.mxy.browser.use.browser;
 
 import com.microsoft.playwright.*;
 import com.microsoft.playwright.options.Proxy;
+import com.mxy.browser.use.concurrent.ActorMailbox;
+import com.mxy.browser.use.concurrent.BrowserUseExecutors;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Browser类 - 增强版Playwright浏览器
  * 
  * 这是一个持久的浏览器工厂，可以生成多个浏览器上下文。
  * 建议每个应用只使用一个Browser实例（否则内存消耗会增加）。
+ * 每个Browser默认使用自己的Playwright驱动；配置sharedDriver后多个Browser共享同一个驱动进程（见PlaywrightDriverManager）。
+ * 同一个驱动上的所有Playwright调用（包括该Browser创建的所有上下文和页面）都在驱动的邮箱线程上串行执行。
  */
 @Slf4j
 public class Browser {
@@ -25,15 +35,49 @@ public class Browser {
     @Getter
     private final BrowserConfig config;
 
+    /**
+     * 异步任务执行器，同时供该浏览器创建的上下文使用
+     */
+    @Getter
+    private final Executor executor;
+
+    /**
+     * Playwright驱动的线程，该浏览器及其上下文的所有Playwright调用都在这里串行执行
+     * 共享驱动时与其他Browser使用同一个邮箱
+     */
+    @Getter
+    private final ActorMailbox mailbox;
+
+    /**
+     * 创建（或获取共享的）Playwright驱动
+     */
+    private final Supplier<Playwright> driverFactory;
+
     /**
      * Playwright实例
      */
-    private Playwright playwright;
+    private volatile Playwright playwright;
 
     /**
      * Playwright浏览器实例
      */
-    private com.microsoft.playwright.Browser playwrightBrowser;
+    private volatile com.microsoft.playwright.Browser playwrightBrowser;
+
+    /**
+     * 初始化任务，并发调用者共享同一次初始化
+     */
+    private CompletableFuture<com.microsoft.playwright.Browser> initFuture;
+
+    /**
+     * 远程浏览器集群，配置了WebSocket节点时使用
+     */
+    private volatile RemoteBrowserGrid grid;
+
+    /**
+     * 已被BrowserContext复用的默认上下文，每个默认上下文只能交给一个BrowserContext
+     */
+    private final Set<com.microsoft.playwright.BrowserContext> claimedDefaultContexts =
+            Collections.newSetFromMap(new IdentityHashMap<>());
 
     /**
      * 创建一个新的Browser实例
@@ -48,8 +92,38 @@ public class Browser {
      * @param config 浏览器配置
      */
     public Browser(BrowserConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * 创建一个新的Browser实例
+     * 
+     * @param config 浏览器配置
+     * @param executor 异步任务执行器，为null时使用默认执行器
+     */
+    public Browser(BrowserConfig config, Executor executor) {
+        this(config, executor, null);
+    }
+
+    /**
+     * 创建一个新的Browser实例，使用指定的方式创建Playwright驱动
+     *
+     * @param config 浏览器配置
+     * @param executor 异步任务执行器，为null时使用默认执行器
+     * @param driverFactory Playwright驱动工厂，为null时按配置创建独立驱动或获取共享驱动
+     */
+    Browser(BrowserConfig config, Executor executor, Supplier<Playwright> driverFactory) {
         log.debug("🌎 初始化新浏览器");
         this.config = config != null ? config : new BrowserConfig();
+        this.executor = BrowserUseExecutors.orDefault(executor);
+        this.mailbox = this.config.isSharedDriver()
+                ? PlaywrightDriverManager.getMailbox()
+                : new ActorMailbox("playwright-driver");
+        if (driverFactory != null) {
+            this.driverFactory = driverFactory;
+        } else {
+            this.driverFactory = this.config.isSharedDriver() ? PlaywrightDriverManager::acquire : Playwright::create;
+        }
     }
 
     /**
@@ -71,7 +145,7 @@ public class Browser {
                 log.error("创建浏览器上下文失败", e);
                 throw new RuntimeException("创建浏览器上下文失败", e);
             }
-        });
+        }, executor);
     }
 
     /**
@@ -79,36 +153,132 @@ public class Browser {
      * 
      * @return Playwright浏览器实例的CompletableFuture
      */
-    public CompletableFuture<com.microsoft.playwright.Browser> getPlaywrightBrowser() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                if (playwrightBrowser == null) {
-                    init().get(); // 等待初始化完成
-                }
-                return playwrightBrowser;
-            } catch (InterruptedException | ExecutionException e) {
-                log.error("获取Playwright浏览器实例失败", e);
-                throw new RuntimeException("获取Playwright浏览器实例失败", e);
+    public synchronized CompletableFuture<com.microsoft.playwright.Browser> getPlaywrightBrowser() {
+        // 同一时刻只有一次初始化；初始化失败或浏览器已断开时，下次调用重新初始化（远程浏览器即重新连接）
+        // 断开由onDisconnected回调清除playwrightBrowser得知，这里不在调用方线程上访问Playwright对象
+        boolean disconnected = initFuture != null && initFuture.isDone() && !initFuture.isCompletedExceptionally()
+                && playwrightBrowser == null;
+        if (initFuture == null || initFuture.isCompletedExceptionally() || disconnected) {
+            initFuture = initializeWithRetry(1, 1000);
+        }
+        return initFuture;
+    }
+
+    /**
+     * 在驱动线程上初始化浏览器，连接CDP浏览器失败时按配置重试，重试间隔从1秒开始逐次翻倍
+     * 等待重试期间不占用驱动线程
+     *
+     * @param attempt 当前尝试次数
+     * @param backoffMillis 本次失败后的重试间隔（毫秒）
+     * @return Playwright浏览器实例的CompletableFuture
+     */
+    private CompletableFuture<com.microsoft.playwright.Browser> initializeWithRetry(int attempt, long backoffMillis) {
+        return mailbox.submit(this::initialize).handle((connected, error) -> {
+            if (error == null) {
+                return CompletableFuture.completedFuture(connected);
             }
-        });
+            PlaywrightException connectError = findPlaywrightException(error);
+            if (config.getCdpUrl() == null || connectError == null
+                    || attempt > Math.max(config.getRemoteConnectRetries(), 0)) {
+                log.error("初始化浏览器会话失败", error);
+                mailbox.execute(this::releaseDriver);
+                return CompletableFuture.<com.microsoft.playwright.Browser>failedFuture(error);
+            }
+            log.warn("连接远程浏览器{}失败（第{}次），{}毫秒后重试: {}",
+                    config.getCdpUrl(), attempt, backoffMillis, connectError.getMessage());
+            Executor delayed = CompletableFuture.delayedExecutor(backoffMillis, TimeUnit.MILLISECONDS, executor);
+            return CompletableFuture.runAsync(() -> { }, delayed)
+                    .thenCompose(v -> initializeWithRetry(attempt + 1, backoffMillis * 2));
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * 初始化浏览器（在驱动线程上执行）
+     *
+     * @return Playwright浏览器实例
+     */
+    private com.microsoft.playwright.Browser initialize() {
+        try {
+            log.debug("初始化浏览器会话");
+            // 断开后重连或重试时沿用已获取的驱动
+            if (playwright == null) {
+                playwright = driverFactory.get();
+            }
+            setupBrowser();
+            watchDisconnect(playwrightBrowser);
+            return playwrightBrowser;
+        } catch (Exception e) {
+            throw new RuntimeException("初始化浏览器会话失败", e);
+        }
+    }
+
+    /**
+     * 在异常链中查找Playwright异常（连接失败）
+     *
+     * @param error 异常
+     * @return Playwright异常，不存在时返回null
+     */
+    private static PlaywrightException findPlaywrightException(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PlaywrightException) {
+                return (PlaywrightException) cause;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 为新建的上下文获取Playwright浏览器实例
+     * 连接远程浏览器集群时选择未完成上下文最少的健康节点，上下文关闭后需调用releaseForContext()释放
+     *
+     * @return Playwright浏览器实例的CompletableFuture
+     */
+    public CompletableFuture<com.microsoft.playwright.Browser> acquireForContext() {
+        return getPlaywrightBrowser().thenApplyAsync(playwrightBrowser -> {
+            RemoteBrowserGrid current = grid;
+            return current != null ? current.acquire() : playwrightBrowser;
+        }, mailbox);
+    }
+
+    /**
+     * 释放通过acquireForContext()获取的浏览器实例
+     *
+     * @param playwrightBrowser Playwright浏览器实例
+     * @param failed 是否因为在该浏览器上创建或使用上下文失败而释放，失败的远程节点会暂停调度
+     */
+    public void releaseForContext(com.microsoft.playwright.Browser playwrightBrowser, boolean failed) {
+        RemoteBrowserGrid current = grid;
+        if (current != null && playwrightBrowser != null) {
+            current.release(playwrightBrowser, failed);
+        }
+    }
+
+    /**
+     * 占用浏览器已有的默认上下文
+     *
+     * @param defaultContext 默认上下文
+     * @return 是否占用成功，已被其他BrowserContext占用时返回false
+     */
+    synchronized boolean claimDefaultContext(com.microsoft.playwright.BrowserContext defaultContext) {
+        return claimedDefaultContexts.add(defaultContext);
     }
 
     /**
-     * 初始化浏览器会话
+     * 释放通过claimDefaultContext()占用的默认上下文
+     *
+     * @param defaultContext 默认上下文
+     */
+    synchronized void releaseDefaultContext(com.microsoft.playwright.BrowserContext defaultContext) {
+        claimedDefaultContexts.remove(defaultContext);
+    }
+
+    /**
+     * 初始化浏览器会话，已初始化或正在初始化时复用同一次初始化
      * 
      * @return 初始化操作的CompletableFuture
      */
     public CompletableFuture<Void> init() {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                log.debug("初始化浏览器会话");
-                playwright = Playwright.create();
-                setupBrowser();
-            } catch (Exception e) {
-                log.error("初始化浏览器会话失败", e);
-                throw new RuntimeException("初始化浏览器会话失败", e);
-            }
-        });
+        return getPlaywrightBrowser().thenApply(browser -> null);
     }
 
     /**
@@ -118,7 +288,7 @@ public class Browser {
         try {
             if (config.getCdpUrl() != null) {
                 setupRemoteCdpBrowser();
-            } else if (config.getWssUrl() != null) {
+            } else if (config.getWssUrl() != null || !config.getWssUrls().isEmpty()) {
                 setupRemoteWssBrowser();
             } else {
                 if (config.isHeadless()) {
@@ -180,18 +350,66 @@ public class Browser {
 
     /**
      * 设置远程CDP浏览器
+     * 连接到已运行的Chrome（例如以--remote-debugging-port启动），复用其进程和HTTP缓存
      */
     private void setupRemoteCdpBrowser() {
-        // 暂未实现
-        throw new UnsupportedOperationException("暂未实现远程CDP浏览器功能");
+        log.info("通过CDP连接到已运行的浏览器: {}", config.getCdpUrl());
+        BrowserType.ConnectOverCDPOptions options = new BrowserType.ConnectOverCDPOptions()
+                .setTimeout(config.getRemoteConnectTimeoutMillis());
+        playwrightBrowser = playwright.chromium().connectOverCDP(config.getCdpUrl(), options);
+    }
+
+    /**
+     * 监听浏览器断开连接（远程浏览器关闭、网络中断或浏览器崩溃）
+     * 断开后清除当前实例，下次获取浏览器时自动重新连接或启动
+     *
+     * @param connected 当前的Playwright浏览器实例
+     */
+    private void watchDisconnect(com.microsoft.playwright.Browser connected) {
+        connected.onDisconnected(disconnected -> {
+            synchronized (this) {
+                if (disconnected != playwrightBrowser) {
+                    return;
+                }
+                log.warn("浏览器连接已断开，下次使用时将重新连接");
+                playwrightBrowser = null;
+            }
+        });
     }
 
     /**
      * 设置远程WSS浏览器
+     * 通过Playwright connect连接一个或多个远程浏览器服务，多个节点之间按负载分配上下文
      */
     private void setupRemoteWssBrowser() {
-        // 暂未实现
-        throw new UnsupportedOperationException("暂未实现远程WSS浏览器功能");
+        if (grid == null) {
+            List<String> urls = new ArrayList<>(config.getWssUrls());
+            if (config.getWssUrl() != null && !urls.contains(config.getWssUrl())) {
+                urls.add(0, config.getWssUrl());
+            }
+            log.info("连接远程浏览器集群: {}", urls);
+            grid = new RemoteBrowserGrid(getBrowserType(), urls,
+                    config.getRemoteConnectTimeoutMillis(), config.getEndpointQuarantineMillis());
+        }
+        playwrightBrowser = grid.peek();
+    }
+
+    /**
+     * 根据配置获取浏览器类型
+     *
+     * @return 浏览器类型
+     */
+    private BrowserType getBrowserType() {
+        switch (config.getBrowserClass().toLowerCase()) {
+            case "chromium":
+                return playwright.chromium();
+            case "firefox":
+                return playwright.firefox();
+            case "webkit":
+                return playwright.webkit();
+            default:
+                throw new IllegalArgumentException("不支持的浏览器类型: " + config.getBrowserClass());
+        }
     }
 
     /**
@@ -278,8 +496,14 @@ public class Browser {
                 .proxy(browserConfig.getProxy())
                 .browserBinaryPath(browserConfig.getBrowserBinaryPath())
                 .deterministicRendering(browserConfig.isDeterministicRendering())
+                .sharedDriver(browserConfig.isSharedDriver())
                 .cdpUrl(browserConfig.getCdpUrl())
+                .reuseDefaultContext(browserConfig.isReuseDefaultContext())
+                .remoteConnectRetries(browserConfig.getRemoteConnectRetries())
+                .remoteConnectTimeoutMillis(browserConfig.getRemoteConnectTimeoutMillis())
                 .wssUrl(browserConfig.getWssUrl())
+                .wssUrls(new ArrayList<>(browserConfig.getWssUrls()))
+                .endpointQuarantineMillis(browserConfig.getEndpointQuarantineMillis())
                 .newContextConfig(contextConfig)
                 .build();
         
@@ -292,20 +516,51 @@ public class Browser {
      * @return 关闭操作的CompletableFuture
      */
     public CompletableFuture<Void> close() {
-        return CompletableFuture.runAsync(() -> {
+        // 正在初始化时等初始化结束后再关闭，避免初始化完成的浏览器和驱动无人释放
+        CompletableFuture<com.microsoft.playwright.Browser> pending;
+        synchronized (this) {
+            pending = initFuture != null ? initFuture : CompletableFuture.completedFuture(null);
+            initFuture = null;
+        }
+        return pending.handle((browser, error) -> null).thenRunAsync(() -> {
             try {
-                if (playwrightBrowser != null) {
-                    playwrightBrowser.close();
-                    playwrightBrowser = null;
-                }
-                if (playwright != null) {
-                    playwright.close();
-                    playwright = null;
+                // 先清除引用，主动关闭不会被当作意外断开
+                com.microsoft.playwright.Browser closing = playwrightBrowser;
+                playwrightBrowser = null;
+                RemoteBrowserGrid closingGrid = grid;
+                grid = null;
+                if (closingGrid != null) {
+                    // 集群中的所有连接（包括当前实例）由集群统一断开
+                    closingGrid.close();
+                } else if (closing != null) {
+                    closing.close();
                 }
                 log.debug("浏览器已关闭");
             } catch (Exception e) {
                 log.error("关闭浏览器失败", e);
+            } finally {
+                releaseDriver();
             }
-        });
+        }, mailbox);
+    }
+
+    /**
+     * 释放Playwright驱动：共享驱动减少引用计数，独立驱动直接关闭
+     */
+    private void releaseDriver() {
+        if (playwright == null) {
+            return;
+        }
+        try {
+            if (config.isSharedDriver()) {
+                PlaywrightDriverManager.release(playwright);
+            } else {
+                playwright.close();
+            }
+        } catch (Exception e) {
+            log.error("关闭Playwright驱动失败", e);
+        } finally {
+            playwright = null;
+        }
     }
 } 
\ No newline at end of file
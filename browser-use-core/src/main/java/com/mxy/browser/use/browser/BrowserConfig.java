@@ -72,16 +72,60 @@ public class BrowserConfig {
     @Builder.Default
     private boolean deterministicRendering = false;
 
+    /**
+     * 是否与其他Browser共享同一个Playwright驱动进程
+     * 默认关闭，每个Browser启动独立的驱动进程，不同Browser上的浏览器操作可以并行。
+     * 开启后可以少启动驱动进程，但Playwright Java不是线程安全的，所有共享驱动的Browser
+     * （及其上下文和页面）上的Playwright调用都在同一个驱动线程上串行执行
+     */
+    @Builder.Default
+    private boolean sharedDriver = false;
+
     /**
      * CDP URL (用于连接到远程浏览器)
+     * 例如以--remote-debugging-port=9222启动的Chrome：http://localhost:9222
      */
     private String cdpUrl;
 
+    /**
+     * 通过CDP连接时是否复用浏览器已有的默认上下文（保留其Cookie、缓存和已打开的标签页）
+     * 复用时上下文配置中的视口、用户代理等创建选项不生效。默认上下文属于用户的浏览器：
+     * 代理只在自己打开的标签页中操作，重置和关闭时只关闭这些标签页，不清除Cookie和存储，也不重建或关闭该上下文。
+     * 同一个默认上下文只能交给一个BrowserContext，再次复用会失败
+     */
+    @Builder.Default
+    private boolean reuseDefaultContext = false;
+
+    /**
+     * 连接远程浏览器失败时的重试次数
+     */
+    @Builder.Default
+    private int remoteConnectRetries = 3;
+
+    /**
+     * 连接远程浏览器的超时时间（毫秒）
+     */
+    @Builder.Default
+    private double remoteConnectTimeoutMillis = 30000;
+
     /**
      * WSS URL (用于连接到远程浏览器)
      */
     private String wssUrl;
 
+    /**
+     * 多个远程浏览器的WebSocket地址（Playwright connect），与wssUrl合并使用
+     * 新建上下文时选择未完成上下文最少的健康节点
+     */
+    @Builder.Default
+    private List<String> wssUrls = new ArrayList<>();
+
+    /**
+     * 远程浏览器节点失败后暂停调度的基础时间（毫秒），连续失败时逐次翻倍
+     */
+    @Builder.Default
+    private long endpointQuarantineMillis = 30000;
+
     /**
      * 浏览器上下文配置
      */
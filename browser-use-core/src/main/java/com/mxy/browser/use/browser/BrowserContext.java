@@ -1,5 +1,7 @@
 package com.mxy.browser.use.browser;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.playwright.Browser.NewContextOptions;
 import com.microsoft.playwright.BrowserContext.*;
 import com.microsoft.playwright.BrowserContext.StorageStateOptions;
@@ -12,20 +14,24 @@ import com.microsoft.playwright.options.Geolocation;
 import com.microsoft.playwright.options.ScreenshotType;
 import com.microsoft.playwright.options.ServiceWorkerPolicy;
 import com.microsoft.playwright.options.ViewportSize;
+import com.mxy.browser.use.concurrent.ActorMailbox;
 import com.mxy.browser.use.dom.DomElement;
 import com.mxy.browser.use.dom.DomService;
 import com.mxy.browser.use.dom.DomState;
+import com.mxy.browser.use.dom.InPageScript;
+import com.mxy.browser.use.dom.IncrementalDomService;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 /**
  * 浏览器上下文
@@ -39,6 +45,17 @@ public class BrowserContext implements AutoCloseable {
      */
     private static final int BROWSER_NAVBAR_HEIGHT = 85;
 
+    /**
+     * 清除当前源的localStorage和sessionStorage
+     */
+    private static final String CLEAR_STORAGE_JS =
+            "() => { try { localStorage.clear(); sessionStorage.clear(); } catch (e) {} }";
+
+    /**
+     * JSON解析器
+     */
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
     /**
      * 关联的浏览器实例
      */
@@ -50,40 +67,76 @@ public class BrowserContext implements AutoCloseable {
     @Getter
     private final BrowserContextConfig config;
 
+    /**
+     * 所属Playwright驱动的线程，该上下文的所有Playwright调用都在这里与同一驱动上的其他调用串行执行
+     */
+    @Getter
+    private final ActorMailbox mailbox;
+
+    /**
+     * 页面稳定检测服务
+     */
+    private final PageSettleService pageSettleService;
+
     /**
      * Playwright浏览器上下文
      */
-    private com.microsoft.playwright.BrowserContext playwrightContext;
+    private volatile com.microsoft.playwright.BrowserContext playwrightContext;
 
     /**
-     * 当前页面状态
+     * 当前Playwright上下文是否可用，上下文关闭或浏览器断开时由close事件置为false
      */
-    private BrowserState cachedState;
+    private volatile boolean sessionOpen;
 
     /**
-     * 用于跟踪最后一个活动标签页
+     * Playwright上下文是否由本对象创建（复用浏览器已有的默认上下文时为false）
      */
-    private int lastActivePageId = 0;
-    
+    private boolean ownsPlaywrightContext = true;
+
     /**
-     * 标签页列表
+     * 复用默认上下文时由本对象打开的页面（及其弹出的页面），重置和关闭时只关闭这些页面（只在Playwright线程上访问）
      */
-    private final List<TabInfo> tabs = new ArrayList<>();
-    
+    private final Set<Page> ownedPages = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * 通过Browser.acquireForContext()获取的浏览器实例，关闭或重建会话时释放
+     */
+    private com.microsoft.playwright.Browser leasedPlaywrightBrowser;
+
+    /**
+     * 最近一次提取的页面状态快照
+     */
+    private final AtomicReference<BrowserState> currentState = new AtomicReference<>();
+
+    /**
+     * 页面代数：导航、框架增删、标签页变化、DOM变更或执行动作后递增
+     */
+    private final AtomicLong pageGeneration = new AtomicLong();
+
     /**
-     * 所有网络请求的计数
+     * 上一次检查时的页面版本标记（只在Playwright线程上访问）
      */
-    private final AtomicInteger pendingNetworkRequests = new AtomicInteger(0);
+    private String lastPageVersion;
+
+    /**
+     * 上一次检查时的当前页面（只在Playwright线程上访问）
+     */
+    private Page lastStatePage;
+
+    /**
+     * 用于跟踪最后一个活动标签页
+     */
+    private int lastActivePageId = 0;
     
     /**
-     * 网络处理器是否已设置标记
+     * 标签页列表
      */
-    private final AtomicBoolean networkHandlersRegistered = new AtomicBoolean(false);
+    private final List<TabInfo> tabs = new ArrayList<>();
     
     /**
-     * 上一个可点击元素哈希缓存
+     * 当前Playwright上下文的网络空闲跟踪器
      */
-    private CachedStateClickableElementsHashes lastClickableElementsHashes;
+    private volatile NetworkIdleTracker networkIdleTracker;
     
     /**
      * 正在下载的文件集合
@@ -95,21 +148,128 @@ public class BrowserContext implements AutoCloseable {
      */
     private final String contextId = UUID.randomUUID().toString();
 
-    public void updateCachedState(BrowserState newState) {
-        this.cachedState = newState;
+    /**
+     * 每个页面的增量DOM服务，保存上一次提取的DOM树
+     */
+    private final Map<Page, IncrementalDomService> incrementalDomServices = new ConcurrentHashMap<>();
+
+    /**
+     * 按稳定元素索引缓存的元素句柄
+     */
+    @Getter
+    private final ElementHandleCache elementHandleCache = new ElementHandleCache();
+
+    /**
+     * 在上下文的Playwright线程上执行任务
+     * 任务中可以直接调用Playwright对象和本上下文的其他方法
+     *
+     * @param task 任务
+     * @param <T> 结果类型
+     * @return 任务结果的CompletableFuture
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        return mailbox.submit(task);
     }
 
     /**
-     * 缓存的可点击元素哈希数据类
+     * 获取最近一次提取的页面状态，不检查是否过期
+     *
+     * @return 页面状态快照，尚未提取时为null
      */
-    private static class CachedStateClickableElementsHashes {
-        private final String url;
-        private final Set<String> hashes;
+    public BrowserState getCachedState() {
+        return currentState.get();
+    }
 
-        public CachedStateClickableElementsHashes(String url, Set<String> hashes) {
-            this.url = url;
-            this.hashes = hashes;
+    /**
+     * 获取当前页面状态
+     * 页面代数与上一次快照相同时直接返回该快照；否则等待页面稳定后重新提取并发布新的快照
+     *
+     * @param highlightElements 是否高亮元素
+     * @param focusElement 焦点元素索引
+     * @param viewportExpansion 视口扩展像素
+     * @return 页面状态快照
+     */
+    public CompletableFuture<BrowserState> getState(boolean highlightElements, int focusElement, int viewportExpansion) {
+        return mailbox.submit(() -> {
+            BrowserState current = currentState.get();
+            if (current != null && current.getGeneration() == observePageGeneration(resolveCurrentPage())) {
+                log.debug("页面未变化，复用第{}代页面状态", current.getGeneration());
+                return current;
+            }
+            return null;
+        }).thenCompose(current -> current != null
+                ? CompletableFuture.completedFuture(current)
+                // 在驱动线程之外等待页面稳定，再回到驱动线程提取
+                : waitForPageStable().thenCompose(stable -> mailbox.submit(() ->
+                        extractState(highlightElements, focusElement, viewportExpansion))));
+    }
+
+    /**
+     * 在Playwright线程上提取并发布新的页面状态快照
+     *
+     * @param highlightElements 是否高亮元素
+     * @param focusElement 焦点元素索引
+     * @param viewportExpansion 视口扩展像素
+     * @return 页面状态快照
+     */
+    private BrowserState extractState(boolean highlightElements, int focusElement, int viewportExpansion) {
+        Page page = resolveCurrentPage();
+        // 以提取前的代数标记快照，提取期间发生的变化会使其在下次检查时过期
+        long generation = observePageGeneration(page);
+        DomState domState = extractDomState(highlightElements, focusElement, viewportExpansion).join();
+        updateTabsInfo();
+        BrowserState state = BrowserState.builder()
+                .generation(generation)
+                .url(page.url())
+                .title(page.title())
+                .elementTree(domState != null ? domState.getElementTree() : null)
+                .selectorMap(domState != null ? domState.getSelectorMap() : null)
+                .tabs(tabs)
+                .build();
+        // 每次提取都计算元素指纹，供提示只发送变化的元素
+        state.getElementHashes();
+        currentState.set(state);
+        log.debug("提取第{}代页面状态: URL={}, 可交互元素数量={}",
+                generation, state.getUrl(), state.getSelectorMap().size());
+        return state;
+    }
+
+    /**
+     * 使当前页面状态过期（如执行动作后），下次获取时重新提取
+     */
+    public void invalidateState() {
+        pageGeneration.incrementAndGet();
+    }
+
+    /**
+     * 检查当前页面的版本标记，与上一次不同（或当前页面已切换）时递增页面代数
+     *
+     * @param page 当前页面
+     * @return 当前页面代数
+     */
+    private long observePageGeneration(Page page) {
+        String version = pageSettleService.readPageVersion(page);
+        if (page != lastStatePage || version == null || !version.equals(lastPageVersion)) {
+            lastStatePage = page;
+            lastPageVersion = version;
+            return pageGeneration.incrementAndGet();
         }
+        return pageGeneration.get();
+    }
+
+    /**
+     * 监听页面的导航和框架变化，使页面状态过期
+     *
+     * @param page 页面对象
+     */
+    private void watchPageChanges(Page page) {
+        page.onFrameNavigated(frame -> invalidateState());
+        page.onFrameAttached(frame -> invalidateState());
+        page.onFrameDetached(frame -> invalidateState());
+        page.onClose(closed -> {
+            ownedPages.remove(closed);
+            invalidateState();
+        });
     }
 
     /**
@@ -121,6 +281,8 @@ public class BrowserContext implements AutoCloseable {
     public BrowserContext(Browser browser, BrowserContextConfig config) {
         this.browser = browser;
         this.config = config != null ? config : new BrowserContextConfig();
+        this.mailbox = browser.getMailbox();
+        this.pageSettleService = new PageSettleService(this.config, mailbox, browser.getExecutor());
     }
     
     /**
@@ -129,60 +291,274 @@ public class BrowserContext implements AutoCloseable {
      * @return 浏览器会话
      */
     public CompletableFuture<BrowserSession> getSession() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                if (playwrightContext == null) {
-                    initializeSession().get();
-                }
-                return new BrowserSession(playwrightContext, cachedState);
-            } catch (InterruptedException | ExecutionException e) {
-                log.error("获取浏览器会话失败", e);
-                throw new RuntimeException("获取浏览器会话失败", e);
-            }
-        });
+        // 浏览器断开（如远程浏览器重启）后重新初始化会话，Browser会自动重新连接
+        if (playwrightContext != null && sessionOpen) {
+            return CompletableFuture.completedFuture(new BrowserSession(playwrightContext, currentState.get()));
+        }
+        return initializeSession()
+                .thenApply(v -> new BrowserSession(playwrightContext, currentState.get()));
     }
     
     /**
      * 初始化浏览器会话
+     * 先取得浏览器实例再进入驱动线程创建会话：连接失败后的重试同样要在驱动线程上执行，
+     * 不能在驱动线程上等待浏览器实例
      * 
      * @return 初始化操作的CompletableFuture
      */
     public CompletableFuture<Void> initializeSession() {
-        return CompletableFuture.runAsync(() -> {
+        return browser.acquireForContext().thenCompose(playwrightBrowser -> mailbox.submit(() -> {
+            releaseLeasedBrowser(false);
+            leasedPlaywrightBrowser = playwrightBrowser;
             try {
                 log.debug("初始化浏览器会话");
-                
-                // 如果已有会话，先关闭
-                if (playwrightContext != null) {
-                    playwrightContext.close();
-                    playwrightContext = null;
+                createSession(playwrightBrowser);
+            } catch (Exception e) {
+                log.error("初始化浏览器会话失败", e);
+                releaseLeasedBrowser(true);
+                throw new RuntimeException("初始化浏览器会话失败", e);
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * 释放当前占用的浏览器实例
+     *
+     * @param failed 是否因为失败而释放
+     */
+    private void releaseLeasedBrowser(boolean failed) {
+        if (leasedPlaywrightBrowser != null) {
+            browser.releaseForContext(leasedPlaywrightBrowser, failed);
+            leasedPlaywrightBrowser = null;
+        }
+    }
+
+    /**
+     * 重置上下文，使其可以交给下一个任务复用
+     * 清除Cookie和本地存储，关闭所有标签页并打开一个新的空白页（新标签页的sessionStorage也是全新的），
+     * 同时清空缓存的页面状态。无法就地清除的状态（其他源残留的localStorage、从Cookie文件加载的初始状态）
+     * 通过重建Playwright上下文恢复，仍复用已启动的浏览器。
+     * 复用浏览器默认上下文时不清除也不重建，只用新的空白页替换本对象打开的页面
+     *
+     * @return 重置操作的CompletableFuture
+     */
+    public CompletableFuture<Void> reset() {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                if (playwrightContext == null) {
+                    throw new IllegalStateException("浏览器上下文尚未初始化");
                 }
-                
-                // 获取Playwright浏览器实例
-                com.microsoft.playwright.Browser playwrightBrowser = browser.getPlaywrightBrowser().get();
-                
-                // 创建浏览器上下文
-                playwrightContext = createContext(playwrightBrowser);
-                
-                // 创建新页面
-                if (playwrightContext.pages().isEmpty()) {
-                    playwrightContext.newPage();
+                if (!ownsPlaywrightContext) {
+                    resetDefaultContextPages();
+                    return;
                 }
-                
-                // 初始化标签页列表
+                com.microsoft.playwright.Browser playwrightBrowser = playwrightContext.browser();
+                if (config.getCookiesFile() != null) {
+                    createSession(playwrightBrowser);
+                    return;
+                }
+
+                // 清除各页面当前源的本地存储，再用新的空白页替换所有旧页面
+                List<Page> oldPages = new ArrayList<>(playwrightContext.pages());
+                for (Page page : oldPages) {
+                    try {
+                        page.evaluate(CLEAR_STORAGE_JS);
+                    } catch (Exception e) {
+                        log.debug("清除页面存储失败: {}", e.getMessage());
+                    }
+                }
+                Page blankPage = playwrightContext.newPage();
+                for (Page page : oldPages) {
+                    page.close();
+                }
+                playwrightContext.clearCookies();
+
+                // 其他源的localStorage只能在访问该源时清除，此时直接重建上下文
+                JsonNode storageState = objectMapper.readTree(playwrightContext.storageState());
+                if (storageState.path("origins").size() > 0) {
+                    log.debug("上下文中残留其他源的存储，重建上下文");
+                    createSession(playwrightBrowser);
+                    return;
+                }
+
+                resetSessionState();
                 updateTabsInfo();
-                
-                // 添加标签页可见性变化监听
-                addTabForegroundingListener(playwrightContext.pages().get(0));
-                
-                // 设置网络空闲监听
-                setupNetworkIdleListener();
-                
+                addTabForegroundingListener(blankPage);
+                networkIdleTracker.clear();
             } catch (Exception e) {
-                log.error("初始化浏览器会话失败", e);
-                throw new RuntimeException("初始化浏览器会话失败", e);
+                log.error("重置浏览器上下文失败", e);
+                throw new RuntimeException("重置浏览器上下文失败", e);
+            }
+        }, mailbox);
+    }
+
+    /**
+     * 重置复用的默认上下文：默认上下文属于用户的浏览器，不清除Cookie和存储，也不重建，
+     * 只用新的空白页替换本对象打开的页面
+     */
+    private void resetDefaultContextPages() {
+        Page blankPage = openOwnedPage();
+        closeOwnedPages(blankPage);
+        resetSessionState();
+        lastActivePageId = playwrightContext.pages().indexOf(blankPage);
+        updateTabsInfo();
+        addTabForegroundingListener(blankPage);
+        networkIdleTracker.clear();
+    }
+
+    /**
+     * 在当前上下文中打开一个由本对象管理的页面
+     *
+     * @return 新页面
+     */
+    private Page openOwnedPage() {
+        Page page = playwrightContext.newPage();
+        ownedPages.add(page);
+        return page;
+    }
+
+    /**
+     * 关闭本对象打开的页面
+     *
+     * @param keep 保留的页面，可以为null
+     */
+    private void closeOwnedPages(Page keep) {
+        for (Page page : new ArrayList<>(ownedPages)) {
+            if (page == keep) {
+                continue;
+            }
+            ownedPages.remove(page);
+            try {
+                page.close();
+            } catch (Exception e) {
+                log.debug("关闭页面失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 检查上下文是否可用：浏览器仍然连接，且当前页面能够执行脚本
+     *
+     * @return 是否可用
+     */
+    public boolean isHealthy() {
+        return mailbox.call(this::checkHealth);
+    }
+
+    /**
+     * 在Playwright线程上执行健康检查
+     */
+    private boolean checkHealth() {
+        try {
+            if (playwrightContext == null || !sessionOpen) {
+                return false;
+            }
+            return Integer.valueOf(2).equals(resolveCurrentPage().evaluate("1 + 1"));
+        } catch (Exception e) {
+            log.debug("浏览器上下文健康检查失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 创建（或重建）Playwright上下文并完成初始化
+     *
+     * @param playwrightBrowser Playwright浏览器实例
+     */
+    private void createSession(com.microsoft.playwright.Browser playwrightBrowser) {
+        // 如果已有会话，先关闭（浏览器已断开时关闭会失败，直接丢弃）
+        if (playwrightContext != null) {
+            networkIdleTracker.detach();
+            try {
+                if (ownsPlaywrightContext) {
+                    playwrightContext.close();
+                } else {
+                    closeOwnedPages(null);
+                }
+            } catch (Exception e) {
+                log.debug("关闭旧的浏览器上下文失败: {}", e.getMessage());
+            }
+            if (!ownsPlaywrightContext) {
+                browser.releaseDefaultContext(playwrightContext);
+            }
+            playwrightContext = null;
+        }
+        ownedPages.clear();
+        resetSessionState();
+        
+        // 创建浏览器上下文；通过CDP连接且配置了复用时直接使用浏览器已有的默认上下文（只能交给一个BrowserContext）
+        if (browser.getConfig().isReuseDefaultContext() && !playwrightBrowser.contexts().isEmpty()) {
+            com.microsoft.playwright.BrowserContext defaultContext = playwrightBrowser.contexts().get(0);
+            if (!browser.claimDefaultContext(defaultContext)) {
+                throw new IllegalStateException("浏览器的默认上下文已被另一个BrowserContext复用");
+            }
+            log.info("复用浏览器已有的默认上下文");
+            playwrightContext = defaultContext;
+            ownsPlaywrightContext = false;
+        } else {
+            playwrightContext = createContext(playwrightBrowser);
+            ownsPlaywrightContext = true;
+        }
+        // 浏览器断开时Playwright也会触发上下文的close事件
+        com.microsoft.playwright.BrowserContext opened = playwrightContext;
+        opened.onClose(closed -> {
+            if (closed == playwrightContext) {
+                sessionOpen = false;
+            }
+        });
+        sessionOpen = true;
+
+        // 跟踪上下文中所有页面的请求，用于网络空闲判断
+        networkIdleTracker = new NetworkIdleTracker(config);
+        networkIdleTracker.attach(playwrightContext);
+
+        // 在每个文档中安装DOM变更跟踪，用于页面稳定检测
+        playwrightContext.addInitScript(PageSettleService.MUTATION_TRACKER_JS);
+
+        // 预先安装DOM提取函数，之后每次提取只需一次很短的函数调用
+        playwrightContext.addInitScript(config.isIncrementalDomExtraction()
+                ? InPageScript.INCREMENTAL_DOM_TREE.getInitScript()
+                : InPageScript.BUILD_DOM_TREE.getInitScript());
+        if (config.isFastActionExecution()) {
+            playwrightContext.addInitScript(InPageScript.PREPARE_ACTION.getInitScript());
+        }
+        
+        // 新打开的标签页和现有页面的导航、框架变化都会使页面状态过期
+        playwrightContext.onPage(page -> {
+            invalidateState();
+            watchPageChanges(page);
+            // 复用默认上下文时，本对象打开的页面弹出的新页面也由本对象管理
+            if (!ownsPlaywrightContext && ownedPages.contains(page.opener())) {
+                ownedPages.add(page);
             }
         });
+        playwrightContext.pages().forEach(this::watchPageChanges);
+
+        // 创建新页面；复用默认上下文时总是打开自己的页面，不操作用户已有的标签页
+        Page activePage = !ownsPlaywrightContext || playwrightContext.pages().isEmpty()
+                ? openOwnedPage()
+                : playwrightContext.pages().get(0);
+        lastActivePageId = playwrightContext.pages().indexOf(activePage);
+        
+        // 初始化标签页列表
+        updateTabsInfo();
+        
+        // 添加标签页可见性变化监听
+        addTabForegroundingListener(activePage);
+    }
+
+    /**
+     * 清空与具体页面相关的缓存状态
+     */
+    private void resetSessionState() {
+        lastActivePageId = 0;
+        currentState.set(null);
+        lastPageVersion = null;
+        lastStatePage = null;
+        pageGeneration.incrementAndGet();
+        incrementalDomServices.clear();
+        elementHandleCache.clear();
     }
 
     /**
@@ -348,38 +724,6 @@ public class BrowserContext implements AutoCloseable {
         return context;
     }
     
-    /**
-     * 设置网络空闲监听
-     */
-    private void setupNetworkIdleListener() {
-        if (networkHandlersRegistered.compareAndSet(false, true)) {
-            log.debug("设置网络监听");
-            
-            // 获取当前页面
-            Page page = getCurrentPage();
-            
-            // 添加请求监听器
-            page.onRequest(request -> {
-                pendingNetworkRequests.incrementAndGet();
-            });
-            
-            // 添加响应监听器
-            page.onResponse(response -> {
-                pendingNetworkRequests.decrementAndGet();
-            });
-            
-            // 添加请求失败监听器
-            page.onRequestFailed(request -> {
-                pendingNetworkRequests.decrementAndGet();
-            });
-            
-            // 添加请求完成监听器
-            page.onRequestFinished(request -> {
-                pendingNetworkRequests.decrementAndGet();
-            });
-        }
-    }
-    
     /**
      * 添加标签页可见性变化监听
      * 
@@ -422,6 +766,13 @@ public class BrowserContext implements AutoCloseable {
      * @return 当前页面对象
      */
     public Page getCurrentPage() {
+        return mailbox.call(this::resolveCurrentPage);
+    }
+
+    /**
+     * 在Playwright线程上查找当前页面
+     */
+    private Page resolveCurrentPage() {
         List<Page> pages = playwrightContext.pages();
         
         if (pages.isEmpty()) {
@@ -435,20 +786,86 @@ public class BrowserContext implements AutoCloseable {
         return pages.get(lastActivePageId);
     }
     
+    /**
+     * 等待当前页面稳定（DOM静默且网络空闲）
+     * 等待时间由配置中的最小、网络空闲和最大页面加载等待时间控制；
+     * 等待期间驱动线程只执行短暂的检查调用，不能在驱动线程上等待返回的结果
+     *
+     * @return 是否在最长等待时间内达到稳定
+     */
+    public CompletableFuture<Boolean> waitForPageStable() {
+        return mailbox.submit(() -> pageSettleService.waitForStable(resolveCurrentPage(), networkIdleTracker))
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * 等待上下文中的网络空闲：没有进行中的请求（忽略长连接、长轮询和统计请求），
+     * 且持续quietWindowMillis没有请求开始或结束
+     *
+     * @param quietWindowMillis 空闲时间窗口（毫秒）
+     * @param timeoutMillis 最长等待时间（毫秒）
+     * @return 是否在超时前达到空闲
+     */
+    public CompletableFuture<Boolean> awaitNetworkIdle(long quietWindowMillis, long timeoutMillis) {
+        return mailbox.submit(() -> pageSettleService.awaitNetworkIdle(resolveCurrentPage(), networkIdleTracker,
+                quietWindowMillis, timeoutMillis)).thenCompose(Function.identity());
+    }
+
+    /**
+     * 提取当前页面的DOM状态
+     * 配置开启增量提取时复用页面上一次提取的DOM树，只更新发生变化的子树
+     *
+     * @param highlightElements 是否高亮元素
+     * @param focusElement 焦点元素索引
+     * @param viewportExpansion 视口扩展像素
+     * @return DOM状态
+     */
+    public CompletableFuture<DomState> extractDomState(boolean highlightElements, int focusElement, int viewportExpansion) {
+        // DOM服务的异步任务提交到邮箱，在邮箱线程上直接执行
+        return mailbox.submit(() -> {
+            Page page = resolveCurrentPage();
+            if (!config.isIncrementalDomExtraction()) {
+                return new DomService(page, mailbox, config.isFlatDomRepresentation())
+                        .getClickableElements(highlightElements, focusElement, viewportExpansion).join();
+            }
+            incrementalDomServices.keySet().removeIf(Page::isClosed);
+            IncrementalDomService domService = incrementalDomServices.computeIfAbsent(page,
+                    p -> new IncrementalDomService(p, mailbox, config.getMaxDirtyFraction()));
+            return domService.getClickableElements(highlightElements, focusElement, viewportExpansion).join();
+        });
+    }
+
     /**
      * 关闭上下文
      */
     @Override
     public void close() {
+        mailbox.run(this::closeSession);
+    }
+
+    /**
+     * 在Playwright线程上关闭上下文
+     */
+    private void closeSession() {
         try {
             if (playwrightContext != null) {
                 if (config.getCookiesFile() != null) {
-                    saveCookies().get();
+                    writeCookies();
                 }
                 
                 if (!config.isKeepAlive()) {
-                    playwrightContext.close();
+                    // 复用的默认上下文属于用户的浏览器，不关闭，只关闭本对象打开的页面
+                    networkIdleTracker.detach();
+                    if (ownsPlaywrightContext) {
+                        playwrightContext.close();
+                    } else {
+                        closeOwnedPages(null);
+                        browser.releaseDefaultContext(playwrightContext);
+                    }
                     playwrightContext = null;
+                    releaseLeasedBrowser(false);
+                    incrementalDomServices.clear();
+                    elementHandleCache.clear();
                     log.debug("浏览器上下文已关闭");
                 } else {
                     log.debug("保持浏览器上下文活动状态");
@@ -465,20 +882,25 @@ public class BrowserContext implements AutoCloseable {
      * @return 保存操作的CompletableFuture
      */
     public CompletableFuture<Void> saveCookies() {
-        return CompletableFuture.runAsync(() -> {
-            if (config.getCookiesFile() == null || playwrightContext == null) {
-                return;
-            }
-            
-            try {
-                log.debug("保存Cookie到: {}", config.getCookiesFile());
-                String storageState = playwrightContext.storageState(
-                        new StorageStateOptions().setPath(Paths.get(config.getCookiesFile())));
-                log.debug("Cookie已保存");
-            } catch (Exception e) {
-                log.error("保存Cookie失败: {}", e.getMessage());
-            }
-        });
+        return CompletableFuture.runAsync(this::writeCookies, mailbox);
+    }
+
+    /**
+     * 将Cookie写入配置的文件
+     */
+    private void writeCookies() {
+        if (config.getCookiesFile() == null || playwrightContext == null) {
+            return;
+        }
+
+        try {
+            log.debug("保存Cookie到: {}", config.getCookiesFile());
+            playwrightContext.storageState(
+                    new StorageStateOptions().setPath(Paths.get(config.getCookiesFile())));
+            log.debug("Cookie已保存");
+        } catch (Exception e) {
+            log.error("保存Cookie失败: {}", e.getMessage());
+        }
     }
 
 }
\ No newline at end of file
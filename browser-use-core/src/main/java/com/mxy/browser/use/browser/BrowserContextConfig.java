@@ -1,11 +1,13 @@
 package com.mxy.browser.use.browser;
 
+import com.mxy.browser.use.pacing.PacingPolicy;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -122,6 +124,66 @@ public class BrowserContextConfig {
     @Builder.Default
     private int viewportExpansion = 0;
 
+    /**
+     * 是否增量提取DOM树
+     * 开启后只重新序列化上一次提取以来发生变化的子树
+     */
+    @Builder.Default
+    private boolean incrementalDomExtraction = true;
+
+    /**
+     * 增量提取时，变化的节点数超过上一次完整提取节点数的该比例则改为完整提取
+     */
+    @Builder.Default
+    private double maxDirtyFraction = 0.3;
+
+    /**
+     * 网络空闲判断忽略的资源类型（Playwright的Request.resourceType()）
+     * 这些请求通常长时间保持连接，不代表页面仍在加载
+     */
+    @Builder.Default
+    private List<String> networkIdleIgnoredResourceTypes = new ArrayList<>(
+            Arrays.asList("websocket", "eventsource", "media", "manifest"));
+
+    /**
+     * 网络空闲判断忽略的URL正则（部分匹配），默认包含常见的统计、广告和监控服务
+     */
+    @Builder.Default
+    private List<String> networkIdleIgnoredUrlPatterns = new ArrayList<>(Arrays.asList(
+            "google-analytics\\.com", "googletagmanager\\.com", "doubleclick\\.net",
+            "facebook\\.(com|net)/tr", "hotjar\\.(com|io)", "segment\\.(io|com)", "clarity\\.ms",
+            "sentry\\.io", "hm\\.baidu\\.com", "cnzz\\.com"));
+
+    /**
+     * 超过该时长仍未完成的请求视为长轮询，不再计入网络空闲判断（毫秒）
+     */
+    @Builder.Default
+    private long networkIdleLongRequestMillis = 5000;
+
+    /**
+     * 是否以扁平数组存储DOM树
+     * 大页面可显著减少对象数量；DOM树构建后不可修改，因此仅在关闭增量提取（incrementalDomExtraction，默认开启）时生效，
+     * 需要同时设置incrementalDomExtraction = false
+     */
+    @Builder.Default
+    private boolean flatDomRepresentation = false;
+
+    /**
+     * 是否启用快速动作执行
+     * 开启后点击和输入先通过一次页面内调用完成定位、滚动、检查和聚焦，再发送一次可信的鼠标或键盘输入，
+     * 页面内检查不通过时回退到完整的Playwright操作流程
+     */
+    @Builder.Default
+    private boolean fastActionExecution = true;
+
+    /**
+     * 动作节奏策略
+     * 决定点击前的停顿、按键间隔、是否直接填充文本以及是否高亮操作的元素，
+     * 内置human（默认）、fast和adaptive三种，见PacingPolicy
+     */
+    @Builder.Default
+    private PacingPolicy pacingPolicy = PacingPolicy.human();
+
     /**
      * 允许访问的域名列表
      * 如果为null，允许访问所有域名
@@ -0,0 +1,58 @@
+package com.mxy.browser.use.browser;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 从浏览器池借出的上下文
+ * 使用完毕后调用close()归还，归还时上下文会被重置后放回池中
+ */
+public final class BrowserLease implements AutoCloseable {
+
+    /**
+     * 所属浏览器池
+     */
+    private final BrowserPool pool;
+
+    /**
+     * 池中的条目
+     */
+    private final BrowserPool.PooledContext entry;
+
+    /**
+     * 是否已归还
+     */
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    /**
+     * 借出耗时（毫秒）
+     */
+    @Getter
+    private final long acquireMillis;
+
+    BrowserLease(BrowserPool pool, BrowserPool.PooledContext entry, long acquireMillis) {
+        this.pool = pool;
+        this.entry = entry;
+        this.acquireMillis = acquireMillis;
+    }
+
+    /**
+     * 获取借出的浏览器上下文（会话已初始化）
+     *
+     * @return 浏览器上下文
+     */
+    public BrowserContext getContext() {
+        return entry.getContext();
+    }
+
+    /**
+     * 归还上下文，重复调用无效
+     */
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            pool.release(entry);
+        }
+    }
+}
@@ -0,0 +1,480 @@
+package com.mxy.browser.use.browser;
+
+import com.mxy.browser.use.concurrent.BrowserUseExecutors;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 浏览器池
+ *
+ * 预先启动若干个浏览器并创建好上下文，借出给代理使用，归还时重置上下文（清除存储、关闭多余页面、
+ * 回到空白页）后放回池中，避免每个任务都冷启动浏览器。借出闲置上下文前做一次健康检查，
+ * 不可用的上下文会被关闭并替换。池中上下文数量介于minIdle与maxSize之间，超过minIdle的部分
+ * 闲置超过idleTimeout后关闭。池满时借出请求按FIFO顺序排队等待归还。
+ */
+@Slf4j
+public class BrowserPool implements AutoCloseable {
+
+    /**
+     * 默认最少闲置上下文数
+     */
+    private static final int DEFAULT_MIN_IDLE = 1;
+
+    /**
+     * 默认最大上下文数
+     */
+    private static final int DEFAULT_MAX_SIZE = 4;
+
+    /**
+     * 默认闲置超时
+     */
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+
+    /**
+     * 池中的浏览器，上下文分配到承载上下文最少的浏览器
+     */
+    private final List<Browser> browsers = new ArrayList<>();
+
+    /**
+     * 上下文配置
+     */
+    private final BrowserContextConfig contextConfig;
+
+    /**
+     * 异步任务执行器
+     */
+    private final Executor executor;
+
+    /**
+     * 最少闲置上下文数
+     */
+    @Getter
+    private final int minIdle;
+
+    /**
+     * 最大上下文数（含借出的）
+     */
+    @Getter
+    private final int maxSize;
+
+    /**
+     * 闲置超时
+     */
+    @Getter
+    private final Duration idleTimeout;
+
+    /**
+     * 定期关闭闲置超时上下文的调度器
+     */
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * 闲置的上下文，最近归还的在队首
+     */
+    private final Deque<PooledContext> idle = new ArrayDeque<>();
+
+    /**
+     * 等待上下文的借出请求
+     */
+    private final Deque<CompletableFuture<PooledContext>> waiters = new ArrayDeque<>();
+
+    /**
+     * 每个浏览器承载的上下文数
+     */
+    private final Map<Browser, Integer> browserLoads = new IdentityHashMap<>();
+
+    /**
+     * 上下文总数（闲置、借出和正在创建的）
+     */
+    private int total;
+
+    /**
+     * 为补足最少闲置数而正在创建的上下文数
+     */
+    private int warming;
+
+    /**
+     * 是否已关闭
+     */
+    private boolean closed;
+
+    /**
+     * 浏览器启动任务
+     */
+    private CompletableFuture<Void> browsersStarted;
+
+    /**
+     * 创建浏览器池
+     *
+     * @param browserConfig 浏览器配置
+     * @param contextConfig 上下文配置
+     * @param executor 异步任务执行器，为null时使用默认执行器
+     * @param browserCount 启动的浏览器数量，默认1
+     * @param minIdle 最少闲置上下文数，默认1
+     * @param maxSize 最大上下文数，默认4
+     * @param idleTimeout 超过最少闲置数的上下文的闲置超时，默认5分钟
+     */
+    @Builder
+    private BrowserPool(BrowserConfig browserConfig, BrowserContextConfig contextConfig, Executor executor,
+                        int browserCount, int minIdle, int maxSize, Duration idleTimeout) {
+        this.executor = BrowserUseExecutors.orDefault(executor);
+        this.contextConfig = contextConfig;
+        this.minIdle = minIdle > 0 ? minIdle : DEFAULT_MIN_IDLE;
+        this.maxSize = Math.max(maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE, this.minIdle);
+        this.idleTimeout = idleTimeout != null ? idleTimeout : DEFAULT_IDLE_TIMEOUT;
+
+        for (int i = 0; i < Math.max(browserCount, 1); i++) {
+            Browser browser = new Browser(browserConfig, this.executor);
+            browsers.add(browser);
+            browserLoads.put(browser, 0);
+        }
+
+        long period = Math.max(this.idleTimeout.toMillis() / 2, 1000);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(
+                BrowserUseExecutors.daemonThreadFactory("browser-pool-evictor"));
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 预热：启动所有浏览器并创建最少闲置数的上下文
+     *
+     * @return 预热完成的CompletableFuture
+     */
+    public CompletableFuture<Void> start() {
+        return startBrowsers().thenCompose(v -> ensureMinIdle());
+    }
+
+    /**
+     * 借出一个上下文
+     * 有闲置上下文时直接借出；否则在未达到最大数量时新建，达到时排队等待归还
+     *
+     * @return 借出的上下文
+     */
+    public CompletableFuture<BrowserLease> lease() {
+        long start = System.nanoTime();
+        return acquire().thenApply(entry -> {
+            long acquireMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.debug("借出浏览器上下文，耗时 {} ms", acquireMillis);
+            ensureMinIdle();
+            return new BrowserLease(this, entry, acquireMillis);
+        });
+    }
+
+    /**
+     * 获取闲置上下文数
+     *
+     * @return 闲置上下文数
+     */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * 获取上下文总数
+     *
+     * @return 上下文总数
+     */
+    public synchronized int getTotalCount() {
+        return total;
+    }
+
+    /**
+     * 取得一个可用的上下文
+     */
+    private CompletableFuture<PooledContext> acquire() {
+        PooledContext entry;
+        synchronized (this) {
+            if (closed) {
+                return failed(new IllegalStateException("浏览器池已关闭"));
+            }
+            entry = idle.pollFirst();
+            if (entry == null) {
+                if (total >= maxSize) {
+                    CompletableFuture<PooledContext> waiter = new CompletableFuture<>();
+                    waiters.addLast(waiter);
+                    return waiter;
+                }
+                total++;
+            }
+        }
+        if (entry == null) {
+            return createEntry();
+        }
+
+        PooledContext candidate = entry;
+        return CompletableFuture.supplyAsync(() -> candidate.getContext().isHealthy(), executor)
+                .thenCompose(healthy -> {
+                    if (healthy) {
+                        return CompletableFuture.completedFuture(candidate);
+                    }
+                    log.warn("闲置的浏览器上下文健康检查失败，替换为新的上下文");
+                    discard(candidate);
+                    return acquire();
+                });
+    }
+
+    /**
+     * 归还上下文：重置后交给等待者或放回闲置队列，重置失败则关闭并替换
+     *
+     * @param entry 池中的条目
+     */
+    void release(PooledContext entry) {
+        entry.getContext().reset().whenComplete((v, error) -> {
+            if (error != null) {
+                log.warn("重置浏览器上下文失败，关闭并替换: {}", error.getMessage());
+                discard(entry);
+                ensureMinIdle();
+            } else {
+                giveBack(entry);
+            }
+        });
+    }
+
+    /**
+     * 把可用的上下文交给等待者，没有等待者时放回闲置队列
+     */
+    private void giveBack(PooledContext entry) {
+        CompletableFuture<PooledContext> waiter;
+        synchronized (this) {
+            if (closed) {
+                waiter = null;
+            } else {
+                waiter = waiters.pollFirst();
+                if (waiter == null) {
+                    entry.idleSince = System.currentTimeMillis();
+                    idle.addFirst(entry);
+                    return;
+                }
+            }
+        }
+        if (waiter == null) {
+            closeEntry(entry);
+        } else if (!waiter.complete(entry)) {
+            // 等待者已取消，交给下一个
+            giveBack(entry);
+        }
+    }
+
+    /**
+     * 关闭并移除一个上下文，空出的名额用于满足等待者
+     */
+    private void discard(PooledContext entry) {
+        synchronized (this) {
+            total--;
+            browserLoads.merge(entry.getBrowser(), -1, Integer::sum);
+        }
+        closeEntry(entry);
+        dispatchWaiter();
+    }
+
+    /**
+     * 有名额时为队首的等待者新建上下文
+     */
+    private void dispatchWaiter() {
+        CompletableFuture<PooledContext> waiter;
+        synchronized (this) {
+            if (closed || waiters.isEmpty() || total >= maxSize) {
+                return;
+            }
+            waiter = waiters.pollFirst();
+            total++;
+        }
+        createEntry().whenComplete((entry, error) -> {
+            if (error != null) {
+                waiter.completeExceptionally(error);
+            } else if (!waiter.complete(entry)) {
+                giveBack(entry);
+            }
+        });
+    }
+
+    /**
+     * 补足最少闲置数
+     *
+     * @return 补足完成的CompletableFuture
+     */
+    private CompletableFuture<Void> ensureMinIdle() {
+        int toCreate;
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.completedFuture(null);
+            }
+            toCreate = Math.min(minIdle - idle.size() - warming, maxSize - total);
+            if (toCreate <= 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            total += toCreate;
+            warming += toCreate;
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < toCreate; i++) {
+            futures.add(createEntry()
+                    .whenComplete((entry, error) -> {
+                        synchronized (this) {
+                            warming--;
+                        }
+                    })
+                    .thenAccept(this::giveBack));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * 在承载上下文最少的浏览器上新建并初始化上下文
+     * 调用前total已经计入该上下文，失败时扣除
+     */
+    private CompletableFuture<PooledContext> createEntry() {
+        Browser browser;
+        synchronized (this) {
+            browser = browsers.get(0);
+            for (Browser candidate : browsers) {
+                if (browserLoads.get(candidate) < browserLoads.get(browser)) {
+                    browser = candidate;
+                }
+            }
+            browserLoads.merge(browser, 1, Integer::sum);
+        }
+
+        Browser target = browser;
+        CompletableFuture<PooledContext> created = startBrowsers()
+                .thenCompose(v -> target.newContext(contextConfig))
+                .thenCompose(context -> context.initializeSession().thenApply(v -> new PooledContext(target, context)));
+        created.whenComplete((entry, error) -> {
+            if (error != null) {
+                log.error("创建浏览器上下文失败", error);
+                synchronized (this) {
+                    total--;
+                    browserLoads.merge(target, -1, Integer::sum);
+                }
+                dispatchWaiter();
+            }
+        });
+        return created;
+    }
+
+    /**
+     * 启动所有浏览器，只执行一次
+     */
+    private synchronized CompletableFuture<Void> startBrowsers() {
+        if (browsersStarted == null || browsersStarted.isCompletedExceptionally()) {
+            browsersStarted = CompletableFuture.allOf(browsers.stream()
+                    .map(Browser::getPlaywrightBrowser)
+                    .toArray(CompletableFuture<?>[]::new));
+        }
+        return browsersStarted;
+    }
+
+    /**
+     * 关闭闲置超时且超过最少闲置数的上下文
+     */
+    private void evictIdle() {
+        List<PooledContext> expired = new ArrayList<>();
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() - idleTimeout.toMillis();
+            // 队尾是闲置最久的
+            Iterator<PooledContext> iterator = idle.descendingIterator();
+            while (iterator.hasNext() && idle.size() > minIdle) {
+                PooledContext entry = iterator.next();
+                if (entry.idleSince > deadline) {
+                    break;
+                }
+                iterator.remove();
+                expired.add(entry);
+                total--;
+                browserLoads.merge(entry.getBrowser(), -1, Integer::sum);
+            }
+        }
+        if (!expired.isEmpty()) {
+            log.debug("关闭 {} 个闲置超时的浏览器上下文", expired.size());
+            expired.forEach(this::closeEntry);
+        }
+    }
+
+    /**
+     * 异步关闭上下文
+     */
+    private void closeEntry(PooledContext entry) {
+        CompletableFuture.runAsync(() -> entry.getContext().close(), executor);
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    /**
+     * 关闭浏览器池
+     * 拒绝等待中的借出请求，关闭闲置上下文和所有浏览器（借出中的上下文随浏览器一起关闭）
+     */
+    @Override
+    public void close() {
+        List<PooledContext> idleEntries;
+        List<CompletableFuture<PooledContext>> pending;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            idleEntries = new ArrayList<>(idle);
+            idle.clear();
+            pending = new ArrayList<>(waiters);
+            waiters.clear();
+        }
+        evictor.shutdownNow();
+        pending.forEach(waiter -> waiter.completeExceptionally(new IllegalStateException("浏览器池已关闭")));
+        idleEntries.forEach(entry -> entry.getContext().close());
+        for (Browser browser : browsers) {
+            try {
+                browser.close().get();
+            } catch (Exception e) {
+                log.error("关闭浏览器失败", e);
+            }
+        }
+        log.info("浏览器池已关闭");
+    }
+
+    /**
+     * 池中的上下文
+     */
+    static final class PooledContext {
+
+        /**
+         * 承载该上下文的浏览器
+         */
+        @Getter
+        private final Browser browser;
+
+        /**
+         * 浏览器上下文
+         */
+        @Getter
+        private final BrowserContext context;
+
+        /**
+         * 放回闲置队列的时间
+         */
+        private volatile long idleSince;
+
+        PooledContext(Browser browser, BrowserContext context) {
+            this.browser = browser;
+            this.context = context;
+        }
+    }
+}
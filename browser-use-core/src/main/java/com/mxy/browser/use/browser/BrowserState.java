@@ -1,63 +1,185 @@
 package com.mxy.browser.use.browser;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.mxy.browser.use.dom.DomElement;
-import lombok.AllArgsConstructor;
+import com.mxy.browser.use.dom.DomTextIndex;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * 浏览器状态
- * 保存当前浏览器页面的状态，供LLM分析和操作
+ * 当前浏览器页面的不可变快照，供LLM分析和操作
+ *
+ * 每个快照带有页面代数（generation）：导航、框架变化、标签页变化或DOM变更后，
+ * BrowserContext的页面代数递增，代数不同的快照即已过期，需要重新提取。
+ * 快照按页面代数和URL比较；toString不输出DOM树、选择器映射和截图。
  */
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
-public class BrowserState {
+@Getter
+@ToString
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public final class BrowserState {
+
+    /**
+     * 参与元素指纹计算的属性
+     */
+    private static final String[] FINGERPRINT_ATTRIBUTES = {
+            "id", "name", "type", "placeholder", "aria-label", "value", "href", "title", "alt", "role"
+    };
+
+    /**
+     * 提取时的页面代数
+     */
+    @EqualsAndHashCode.Include
+    private final long generation;
 
     /**
      * 当前页面的URL
      */
-    private String url;
+    @EqualsAndHashCode.Include
+    private final String url;
 
     /**
      * 当前页面的标题
      */
-    private String title;
+    private final String title;
 
     /**
      * DOM树
      */
-    private DomElement elementTree;
+    @ToString.Exclude
+    private final DomElement elementTree;
 
     /**
-     * 元素选择器映射表
+     * 元素选择器映射表（只读）
      * 索引 -> DOM元素
      */
-    private Map<Integer, DomElement> selectorMap;
+    @ToString.Exclude
+    private final Map<Integer, DomElement> selectorMap;
 
     /**
      * 页面截图（Base64编码）
      */
-    private String screenshot;
+    @ToString.Exclude
+    private final String screenshot;
+
+    /**
+     * 当前页面可点击元素的信息（只读）
+     */
+    private final List<ElementInfo> clickableElements;
+
+    /**
+     * 浏览器打开的标签页信息（只读）
+     */
+    private final List<TabInfo> tabs;
+
+    /**
+     * 文本索引，首次使用时构建
+     */
+    @Getter(lombok.AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile DomTextIndex textIndex;
+
+    /**
+     * 元素指纹，首次使用时计算
+     */
+    @Getter(lombok.AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile Map<Integer, String> elementHashes;
+
+    /**
+     * 创建浏览器状态快照，集合参数会被复制为只读集合
+     */
+    @Builder(toBuilder = true)
+    private BrowserState(long generation, String url, String title, DomElement elementTree,
+                         Map<Integer, DomElement> selectorMap, String screenshot,
+                         List<ElementInfo> clickableElements, List<TabInfo> tabs) {
+        this.generation = generation;
+        this.url = url;
+        this.title = title;
+        this.elementTree = elementTree;
+        this.selectorMap = selectorMap != null
+                ? Collections.unmodifiableMap(new LinkedHashMap<>(selectorMap))
+                : Collections.emptyMap();
+        this.screenshot = screenshot;
+        this.clickableElements = clickableElements != null
+                ? Collections.unmodifiableList(new ArrayList<>(clickableElements))
+                : Collections.emptyList();
+        this.tabs = tabs != null
+                ? Collections.unmodifiableList(new ArrayList<>(tabs))
+                : Collections.emptyList();
+    }
+
+    /**
+     * 获取文本索引，同一页面状态只构建一次
+     * 供需要大量元素文本的场景（如构建提示、计算页面指纹）使用
+     *
+     * @return 文本索引
+     */
+    public DomTextIndex getTextIndex() {
+        DomTextIndex index = textIndex;
+        if (index == null) {
+            // 并发构建的结果相同，重复构建无害
+            index = DomTextIndex.build(elementTree);
+            textIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * 获取每个可交互元素的指纹，同一页面状态只计算一次
+     * 指纹由索引、标签名、文本和主要属性计算，不含XPath和视口位置，
+     * 因此元素本身没有变化时前后两次提取的指纹相同
+     *
+     * @return 索引 -> 指纹（只读）
+     */
+    public Map<Integer, String> getElementHashes() {
+        Map<Integer, String> hashes = elementHashes;
+        if (hashes == null) {
+            DomTextIndex index = getTextIndex();
+            Map<Integer, String> computed = new LinkedHashMap<>();
+            for (Map.Entry<Integer, DomElement> entry : selectorMap.entrySet()) {
+                computed.put(entry.getKey(), fingerprint(entry.getKey(), entry.getValue(), index));
+            }
+            hashes = Collections.unmodifiableMap(computed);
+            elementHashes = hashes;
+        }
+        return hashes;
+    }
 
     /**
-     * 当前页面可点击元素的信息
+     * 计算单个元素的指纹
      */
-    private List<ElementInfo> clickableElements;
+    private static String fingerprint(int highlightIndex, DomElement element, DomTextIndex index) {
+        Hasher hasher = Hashing.murmur3_128().newHasher().putInt(highlightIndex);
+        putField(hasher, element.getTagName());
+        putField(hasher, index.getAllText(element));
+        for (String attribute : FINGERPRINT_ATTRIBUTES) {
+            putField(hasher, element.getAttributes().get(attribute));
+        }
+        return hasher.hash().toString();
+    }
 
     /**
-     * 浏览器打开的标签页信息
+     * 写入一个字段（以长度前缀区分字段边界）
      */
-    private List<TabInfo> tabs;
+    private static void putField(Hasher hasher, String value) {
+        String field = value != null ? value : "";
+        hasher.putInt(field.length()).putString(field, StandardCharsets.UTF_8);
+    }
 
     /**
      * 获取当前页面的简短信息
-     * 
+     *
      * @return 包含URL和标题的字符串
      */
     public String getPageInfo() {
@@ -66,10 +188,10 @@ public class BrowserState {
 
     /**
      * 检查URL是否有效
-     * 
+     *
      * @return 是否有效
      */
     public boolean hasValidUrl() {
         return url != null && (url.startsWith("http://") || url.startsWith("https://"));
     }
-} 
\ No newline at end of file
+}
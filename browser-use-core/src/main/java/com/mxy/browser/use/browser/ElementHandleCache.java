@@ -0,0 +1,206 @@
+package com.mxy.browser.use.browser;
+
+import com.microsoft.playwright.ElementHandle;
+import com.microsoft.playwright.Frame;
+import com.microsoft.playwright.JSHandle;
+import com.microsoft.playwright.Page;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 元素句柄缓存
+ *
+ * DOM提取脚本在页面内维护元素注册表，同一文档内每个元素的高亮索引保持不变，
+ * 因此可以按索引缓存ElementHandle，后续动作直接使用句柄，不必再对实时DOM求值XPath。
+ * 每个页面维护一个文档代数，主框架导航（文档更替、索引重新编号）时递增，旧代数的句柄随之失效。
+ * 被替换、移除或清空的句柄都会释放，避免页面中的远程句柄表在长时间会话中不断增长；
+ * 页面的缓存被移除时同时移除导航监听，同一页面反复清空缓存不会累积监听器。
+ */
+@Slf4j
+public class ElementHandleCache {
+
+    /**
+     * 从页面内元素注册表按索引取得元素
+     */
+    private static final String RESOLVE_JS = "index => {\n"
+            + "  const registry = window.__browserUseElements;\n"
+            + "  const ref = registry ? registry.elements.get(index) : null;\n"
+            + "  const element = ref ? ref.deref() : null;\n"
+            + "  return element && element.isConnected ? element : null;\n"
+            + "}";
+
+    /**
+     * 每个页面的句柄缓存
+     */
+    private final Map<Page, PageHandles> pages = new ConcurrentHashMap<>();
+
+    /**
+     * 获取元素句柄，缓存中没有或已失效时从页面内元素注册表取得
+     *
+     * @param page 页面对象
+     * @param index 元素高亮索引
+     * @return 元素句柄，元素不存在或已从文档中移除时返回null
+     */
+    public ElementHandle get(Page page, int index) {
+        pages.entrySet().removeIf(entry -> {
+            if (!entry.getKey().isClosed()) {
+                return false;
+            }
+            entry.getValue().close();
+            return true;
+        });
+        PageHandles handles = pages.computeIfAbsent(page, PageHandles::new);
+        long generation = handles.generation.get();
+        handles.disposeStale(generation);
+
+        CachedHandle cached = handles.handles.get(index);
+        if (cached != null) {
+            return cached.handle;
+        }
+
+        JSHandle result = page.evaluateHandle(RESOLVE_JS, index);
+        ElementHandle handle = result.asElement();
+        if (handle == null) {
+            result.dispose();
+            handles.handles.remove(index);
+            return null;
+        }
+        handles.handles.put(index, new CachedHandle(handle, generation));
+        return handle;
+    }
+
+    /**
+     * 移除某个元素的句柄（例如句柄对应的元素已被移除）
+     *
+     * @param page 页面对象
+     * @param index 元素高亮索引
+     */
+    public void invalidate(Page page, int index) {
+        PageHandles handles = pages.get(page);
+        if (handles == null) {
+            return;
+        }
+        CachedHandle cached = handles.handles.remove(index);
+        if (cached != null) {
+            dispose(cached);
+        }
+    }
+
+    /**
+     * 清空所有缓存，释放句柄并移除页面上的导航监听
+     */
+    public void clear() {
+        for (PageHandles handles : pages.values()) {
+            handles.close();
+        }
+        pages.clear();
+    }
+
+    /**
+     * 释放句柄，页面已关闭或已导航时释放可能失败，忽略即可
+     *
+     * @param cached 缓存的句柄
+     */
+    private static void dispose(CachedHandle cached) {
+        try {
+            cached.handle.dispose();
+        } catch (Exception e) {
+            log.debug("释放元素句柄失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 单个页面的句柄缓存
+     */
+    private static final class PageHandles {
+
+        /**
+         * 页面对象
+         */
+        private final Page page;
+
+        /**
+         * 主框架导航监听器
+         */
+        private final Consumer<Frame> navigationListener;
+
+        /**
+         * 文档代数，主框架导航时递增
+         */
+        private final AtomicLong generation = new AtomicLong();
+
+        /**
+         * 元素高亮索引 -> 句柄
+         */
+        private final Map<Integer, CachedHandle> handles = new ConcurrentHashMap<>();
+
+        /**
+         * 最近一次清理旧句柄时的文档代数
+         */
+        private long sweptGeneration;
+
+        PageHandles(Page page) {
+            this.page = page;
+            // 导航后缓存失效，旧句柄在下次取用或清空时释放
+            this.navigationListener = frame -> {
+                if (frame == page.mainFrame()) {
+                    generation.incrementAndGet();
+                }
+            };
+            page.onFrameNavigated(navigationListener);
+        }
+
+        /**
+         * 文档代数变化后释放所有旧文档的句柄
+         *
+         * @param generation 当前文档代数
+         */
+        void disposeStale(long generation) {
+            if (generation == sweptGeneration) {
+                return;
+            }
+            handles.values().removeIf(cached -> {
+                if (cached.generation == generation) {
+                    return false;
+                }
+                dispose(cached);
+                return true;
+            });
+            sweptGeneration = generation;
+        }
+
+        /**
+         * 释放并移除所有句柄，移除导航监听
+         */
+        void close() {
+            for (CachedHandle cached : handles.values()) {
+                dispose(cached);
+            }
+            handles.clear();
+            try {
+                page.offFrameNavigated(navigationListener);
+            } catch (Exception e) {
+                log.debug("移除导航监听失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 缓存的句柄及其所属文档代数
+     */
+    private static final class CachedHandle {
+
+        private final ElementHandle handle;
+
+        private final long generation;
+
+        CachedHandle(ElementHandle handle, long generation) {
+            this.handle = handle;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.mxy.browser.use.browser;
+
+import com.microsoft.playwright.Request;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * 网络空闲跟踪器
+ *
+ * 监听Playwright上下文级别的请求事件（覆盖上下文中的所有页面，包括新打开的标签页），
+ * 按请求对象逐个记录进行中的请求：请求开始时加入，完成或失败时移除，因此计数不会出现负数。
+ * 以下请求不计入：配置忽略的资源类型（如websocket、eventsource）、匹配忽略规则的URL（统计、广告等），
+ * 以及持续时间超过阈值的请求（视为长轮询）。
+ */
+@Slf4j
+public class NetworkIdleTracker {
+
+    /**
+     * 等待网络空闲时的最短轮询间隔（毫秒）
+     */
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    /**
+     * 忽略的资源类型
+     */
+    private final Set<String> ignoredResourceTypes;
+
+    /**
+     * 忽略的URL规则
+     */
+    private final List<Pattern> ignoredUrlPatterns = new ArrayList<>();
+
+    /**
+     * 超过该时长仍未完成的请求视为长轮询（毫秒）
+     */
+    private final long longRequestMillis;
+
+    /**
+     * 进行中的请求 -> 开始时间
+     */
+    private final Map<Request, Long> inflight = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * 最后一次有请求开始或结束的时间
+     */
+    private volatile long lastActivity = System.currentTimeMillis();
+
+    /**
+     * 当前监听的Playwright上下文
+     */
+    private com.microsoft.playwright.BrowserContext context;
+
+    /**
+     * 请求开始监听器
+     */
+    private final Consumer<Request> requestListener = this::onRequestStarted;
+
+    /**
+     * 请求结束监听器（完成与失败共用）
+     */
+    private final Consumer<Request> requestDoneListener = this::onRequestDone;
+
+    /**
+     * 创建网络空闲跟踪器
+     *
+     * @param config 上下文配置，提供忽略规则和长轮询阈值
+     */
+    public NetworkIdleTracker(BrowserContextConfig config) {
+        BrowserContextConfig effective = config != null ? config : new BrowserContextConfig();
+        this.ignoredResourceTypes = effective.getNetworkIdleIgnoredResourceTypes() != null
+                ? new HashSet<>(effective.getNetworkIdleIgnoredResourceTypes())
+                : Collections.emptySet();
+        if (effective.getNetworkIdleIgnoredUrlPatterns() != null) {
+            for (String pattern : effective.getNetworkIdleIgnoredUrlPatterns()) {
+                ignoredUrlPatterns.add(Pattern.compile(pattern));
+            }
+        }
+        this.longRequestMillis = effective.getNetworkIdleLongRequestMillis();
+    }
+
+    /**
+     * 开始监听Playwright上下文的请求事件
+     *
+     * @param context Playwright浏览器上下文
+     */
+    public void attach(com.microsoft.playwright.BrowserContext context) {
+        detach();
+        this.context = context;
+        context.onRequest(requestListener);
+        context.onRequestFinished(requestDoneListener);
+        context.onRequestFailed(requestDoneListener);
+    }
+
+    /**
+     * 停止监听并清空记录
+     */
+    public void detach() {
+        if (context != null) {
+            try {
+                context.offRequest(requestListener);
+                context.offRequestFinished(requestDoneListener);
+                context.offRequestFailed(requestDoneListener);
+            } catch (Exception e) {
+                log.debug("移除网络监听失败: {}", e.getMessage());
+            }
+            context = null;
+        }
+        clear();
+    }
+
+    /**
+     * 清空进行中的请求记录（页面被关闭后其请求可能不再产生结束事件）
+     */
+    public void clear() {
+        inflight.clear();
+        lastActivity = System.currentTimeMillis();
+    }
+
+    /**
+     * 获取计入空闲判断的进行中请求数
+     *
+     * @return 请求数
+     */
+    public int getInflightCount() {
+        long now = System.currentTimeMillis();
+        synchronized (inflight) {
+            int count = 0;
+            for (long start : inflight.values()) {
+                if (now - start < longRequestMillis) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 计算距离网络空闲还需等待的时间：没有进行中的请求，且持续quietWindowMillis没有请求开始或结束时为0
+     * 请求事件只在驱动线程执行Playwright调用期间分发，调用方应在两次检查之间让驱动线程处理一次事件，
+     * 并在驱动线程之外等待返回的时间
+     *
+     * @param quietWindowMillis 空闲时间窗口（毫秒）
+     * @return 已空闲时返回0，否则返回下一次检查前应等待的时间（毫秒）
+     */
+    public long millisUntilIdle(long quietWindowMillis) {
+        long quietFor = System.currentTimeMillis() - lastActivity;
+        if (getInflightCount() == 0 && quietFor >= quietWindowMillis) {
+            return 0;
+        }
+        // 最早也要到上次活动后满一个时间窗口才可能空闲，之前无需轮询
+        return Math.max(quietWindowMillis - quietFor, POLL_INTERVAL_MILLIS);
+    }
+
+    /**
+     * 请求开始
+     */
+    private void onRequestStarted(Request request) {
+        if (isIgnored(request)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        inflight.put(request, now);
+        lastActivity = now;
+    }
+
+    /**
+     * 请求完成或失败
+     */
+    private void onRequestDone(Request request) {
+        Long start = inflight.remove(request);
+        if (start == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // 长轮询请求结束不算作页面的网络活动
+        if (now - start < longRequestMillis) {
+            lastActivity = now;
+        }
+    }
+
+    /**
+     * 判断请求是否不计入空闲判断
+     */
+    private boolean isIgnored(Request request) {
+        if (ignoredResourceTypes.contains(request.resourceType())) {
+            return true;
+        }
+        String url = request.url();
+        for (Pattern pattern : ignoredUrlPatterns) {
+            if (pattern.matcher(url).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
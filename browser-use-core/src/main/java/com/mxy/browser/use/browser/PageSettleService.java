@@ -0,0 +1,271 @@
+package com.mxy.browser.use.browser;
+
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.PlaywrightException;
+import com.mxy.browser.use.concurrent.ActorMailbox;
+import com.mxy.browser.use.concurrent.BrowserUseExecutors;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 页面稳定检测服务
+ *
+ * 替代固定时长的等待：页面在DOM变更静默且网络空闲后即视为稳定。
+ * 等待时间由上下文配置控制：
+ * minimumWaitPageLoadTime - 最少等待时间；
+ * waitForNetworkIdlePageLoadTime - DOM与网络需要保持静默的时间窗口；
+ * 网络空闲由NetworkIdleTracker按请求逐个跟踪判断，忽略长连接、长轮询和统计请求；
+ * maximumWaitPageLoadTime - 最长等待时间，超时后不再等待。
+ *
+ * 同一驱动的所有上下文共用一个驱动线程，因此只有短暂的页面脚本调用经由邮箱执行，
+ * 轮询之间的等待通过延迟执行器调度，不占用驱动线程。
+ */
+@Slf4j
+public class PageSettleService {
+
+    /**
+     * 轮询DOM静默状态的最短间隔（毫秒），页面正在导航时按此间隔重试
+     */
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    /**
+     * DOM变更跟踪脚本，通过init script在每个文档创建时安装
+     * 样式和类名变化通常来自动画或轮播图，不计入稳定检测（last、count），但仍计入页面版本（version）；
+     * 高亮容器的增删和内部变化都不计入
+     */
+    static final String MUTATION_TRACKER_JS = "(() => {\n" +
+            "  if (window.__browserUseMutations) return;\n" +
+            "  const tracker = { id: Math.random().toString(36).slice(2), last: performance.now(), count: 0, version: 0 };\n" +
+            "  Object.defineProperty(window, '__browserUseMutations', { value: tracker, enumerable: false });\n" +
+            "  const ignoredAttributes = new Set(['style', 'class']);\n" +
+            "  const isHighlight = node => node.nodeType === 1 && node.id === 'playwright-highlight-container';\n" +
+            "  new MutationObserver(records => {\n" +
+            "    let changed = false;\n" +
+            "    for (const record of records) {\n" +
+            "      const target = record.target.nodeType === 1 ? record.target : record.target.parentElement;\n" +
+            "      if (target && target.closest && target.closest('#playwright-highlight-container')) continue;\n" +
+            "      if (record.type === 'childList'\n" +
+            "          && [...record.addedNodes, ...record.removedNodes].every(isHighlight)) continue;\n" +
+            "      changed = true;\n" +
+            "      if (record.type === 'attributes' && ignoredAttributes.has(record.attributeName)) continue;\n" +
+            "      tracker.last = performance.now();\n" +
+            "      tracker.count++;\n" +
+            "      break;\n" +
+            "    }\n" +
+            "    if (changed) tracker.version++;\n" +
+            "  }).observe(document, { childList: true, subtree: true, attributes: true, characterData: true });\n" +
+            "})();";
+
+    /**
+     * 读取页面版本标记：文档标识、DOM变更版本、滚动位置和视口大小，任一变化都意味着可见内容可能变化
+     * 跟踪器尚未安装时立即安装，新的文档标识保证这一次被视为已变化
+     */
+    private static final String PAGE_VERSION_JS = "() => {\n" +
+            "  if (!window.__browserUseMutations) {\n" +
+            MUTATION_TRACKER_JS + "\n" +
+            "  }\n" +
+            "  const tracker = window.__browserUseMutations;\n" +
+            "  return [tracker.id, tracker.version, Math.round(scrollX), Math.round(scrollY), innerWidth, innerHeight].join(':');\n" +
+            "}";
+
+    /**
+     * 读取DOM已保持静默的时长（毫秒）
+     * 若跟踪器尚未安装（页面早于init script加载），则立即安装并以安装时刻作为最后一次变更
+     */
+    private static final String DOM_QUIET_FOR_JS = "() => {\n" +
+            "  if (!window.__browserUseMutations) {\n" +
+            MUTATION_TRACKER_JS + "\n" +
+            "  }\n" +
+            "  return performance.now() - window.__browserUseMutations.last;\n" +
+            "}";
+
+    /**
+     * 上下文配置
+     */
+    private final BrowserContextConfig config;
+
+    /**
+     * Playwright调用邮箱
+     */
+    private final ActorMailbox mailbox;
+
+    /**
+     * 轮询等待结束后继续执行的执行器
+     */
+    private final Executor executor;
+
+    /**
+     * 创建页面稳定检测服务
+     *
+     * @param config 上下文配置
+     * @param mailbox Playwright调用邮箱，页面脚本调用经由它执行
+     * @param executor 轮询等待结束后继续执行的执行器，为null时使用默认执行器
+     */
+    public PageSettleService(BrowserContextConfig config, ActorMailbox mailbox, Executor executor) {
+        this.config = config != null ? config : new BrowserContextConfig();
+        this.mailbox = mailbox;
+        this.executor = BrowserUseExecutors.orDefault(executor);
+    }
+
+    /**
+     * 等待页面稳定
+     * 不能在邮箱线程上等待返回的结果：轮询需要再次进入邮箱
+     *
+     * @param page 页面对象
+     * @param networkIdleTracker 网络空闲跟踪器，为null时只等待DOM静默（Playwright的networkidle是一次性的
+     *                           加载事件，页面加载完成后立即返回，不能用于判断动作之后的网络空闲）
+     * @return 是否在最长等待时间内达到稳定
+     */
+    public CompletableFuture<Boolean> waitForStable(Page page, NetworkIdleTracker networkIdleTracker) {
+        long minimumMs = toMillis(config.getMinimumWaitPageLoadTime());
+        long quietMs = toMillis(config.getWaitForNetworkIdlePageLoadTime());
+        long maximumMs = Math.max(toMillis(config.getMaximumWaitPageLoadTime()), minimumMs);
+
+        long start = System.currentTimeMillis();
+        long deadline = start + maximumMs;
+
+        // 先等待DOM静默，再等待网络空闲；网络等待期间DOM可能再次变化，因此最后复查一次
+        return waitForDomQuiet(page, quietMs, deadline)
+                .thenCompose(domQuiet -> domQuiet
+                        ? awaitNetworkIdle(page, networkIdleTracker, quietMs, deadline - System.currentTimeMillis())
+                        : CompletableFuture.completedFuture(false))
+                .thenCompose(networkIdle -> networkIdle
+                        ? waitForDomQuiet(page, quietMs, deadline)
+                        : CompletableFuture.completedFuture(false))
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    log.debug("页面稳定检测中断: {}", cause.getMessage());
+                    return false;
+                })
+                // 保证最少等待时间
+                .thenCompose(stable -> BrowserUseExecutors
+                        .delay(minimumMs - (System.currentTimeMillis() - start), executor)
+                        .thenApply(v -> {
+                            log.debug("页面稳定检测完成: stable={}, 耗时={}ms",
+                                    stable, System.currentTimeMillis() - start);
+                            return stable;
+                        }));
+    }
+
+    /**
+     * 等待网络空闲：没有进行中的请求，且持续quietMs没有请求开始或结束
+     * 每次检查经由邮箱发起一次极短的Playwright调用，让驱动线程分发已到达的请求事件
+     *
+     * @param page 页面对象
+     * @param networkIdleTracker 网络空闲跟踪器，为null时不检查网络
+     * @param quietMs 空闲时间窗口（毫秒）
+     * @param timeoutMs 最长等待时间（毫秒）
+     * @return 是否在超时前达到空闲
+     */
+    public CompletableFuture<Boolean> awaitNetworkIdle(Page page, NetworkIdleTracker networkIdleTracker,
+                                                       long quietMs, long timeoutMs) {
+        if (networkIdleTracker == null) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return pollNetworkIdle(page, networkIdleTracker, quietMs, System.currentTimeMillis() + timeoutMs);
+    }
+
+    /**
+     * 读取页面版本标记，用于判断上一次提取的页面状态是否过期
+     * 只反映主文档的变化，框架的导航和增删由Playwright事件跟踪
+     *
+     * @param page 页面对象
+     * @return 版本标记，读取失败（如页面正在导航）时返回null
+     */
+    String readPageVersion(Page page) {
+        try {
+            return String.valueOf(page.evaluate(PAGE_VERSION_JS));
+        } catch (PlaywrightException e) {
+            log.debug("读取页面版本失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 等待DOM在指定时间窗口内没有变更
+     * 读取失败（如页面正在导航）时按轮询间隔在新文档上重试
+     *
+     * @param page 页面对象
+     * @param quietMs 静默时间窗口（毫秒）
+     * @param deadline 截止时间戳
+     * @return 是否达到静默
+     */
+    private CompletableFuture<Boolean> waitForDomQuiet(Page page, long quietMs, long deadline) {
+        return mailbox.submit(() -> readDomQuietFor(page)).thenCompose(quietFor -> {
+            if (quietFor != null && quietFor >= quietMs) {
+                return CompletableFuture.completedFuture(true);
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return CompletableFuture.completedFuture(false);
+            }
+            long wait = quietFor != null ? quietMs - quietFor + 1 : POLL_INTERVAL_MILLIS;
+            return BrowserUseExecutors.delay(Math.min(wait, remaining), executor)
+                    .thenCompose(v -> waitForDomQuiet(page, quietMs, deadline));
+        });
+    }
+
+    /**
+     * 读取DOM已保持静默的时长
+     *
+     * @param page 页面对象
+     * @return 静默时长（毫秒），读取失败（如页面正在导航）时返回null
+     */
+    private Long readDomQuietFor(Page page) {
+        if (page.isClosed()) {
+            throw new PlaywrightException("页面已关闭");
+        }
+        try {
+            Object result = page.evaluate(DOM_QUIET_FOR_JS);
+            return result instanceof Number ? ((Number) result).longValue() : null;
+        } catch (PlaywrightException e) {
+            log.debug("读取DOM静默时长失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 轮询网络空闲状态，两次检查之间在驱动线程之外等待
+     *
+     * @param page 页面对象
+     * @param networkIdleTracker 网络空闲跟踪器
+     * @param quietMs 空闲时间窗口（毫秒）
+     * @param deadline 截止时间戳
+     * @return 是否在截止时间前达到空闲
+     */
+    private CompletableFuture<Boolean> pollNetworkIdle(Page page, NetworkIdleTracker networkIdleTracker,
+                                                       long quietMs, long deadline) {
+        return mailbox.submit(() -> {
+            if (page.isClosed()) {
+                return -1L;
+            }
+            // 请求事件只在Playwright调用期间分发，发起一次极短的调用处理已到达的事件
+            page.waitForTimeout(1);
+            return networkIdleTracker.millisUntilIdle(quietMs);
+        }).thenCompose(wait -> {
+            if (wait == 0) {
+                return CompletableFuture.completedFuture(true);
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (wait < 0 || remaining <= 0) {
+                return CompletableFuture.completedFuture(false);
+            }
+            return BrowserUseExecutors.delay(Math.min(wait, remaining), executor)
+                    .thenCompose(v -> pollNetworkIdle(page, networkIdleTracker, quietMs, deadline));
+        });
+    }
+
+    /**
+     * 秒转换为毫秒
+     *
+     * @param seconds 秒
+     * @return 毫秒
+     */
+    private static long toMillis(double seconds) {
+        return Math.max(0L, Math.round(seconds * 1000));
+    }
+}
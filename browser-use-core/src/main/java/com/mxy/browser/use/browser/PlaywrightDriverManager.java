@@ -0,0 +1,101 @@
+package com.mxy.browser.use.browser;
+
+import com.microsoft.playwright.Playwright;
+import com.mxy.browser.use.concurrent.ActorMailbox;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Playwright驱动管理器
+ *
+ * 每个Playwright实例对应一个独立的Node驱动进程。管理器在进程内只保留一个共享实例，
+ * 配置了sharedDriver的Browser（chromium、firefox、webkit）都复用它，按引用计数管理生命周期：
+ * 首次获取时创建（并发获取只会创建一次），最后一个使用者释放后关闭驱动进程。
+ *
+ * Playwright Java不是线程安全的，共享驱动上的所有调用（包括各Browser创建的上下文和页面）
+ * 都必须通过getMailbox()返回的同一个邮箱串行执行，acquire()和release()也应在该邮箱上调用。
+ */
+@Slf4j
+public final class PlaywrightDriverManager {
+
+    /**
+     * 保护共享实例与引用计数的锁
+     */
+    private static final Object LOCK = new Object();
+
+    /**
+     * 共享驱动的Playwright线程
+     */
+    private static final ActorMailbox MAILBOX = new ActorMailbox("playwright-driver-shared");
+
+    /**
+     * 共享的Playwright实例
+     */
+    private static Playwright playwright;
+
+    /**
+     * 引用计数
+     */
+    private static int references;
+
+    private PlaywrightDriverManager() {
+    }
+
+    /**
+     * 获取共享驱动的Playwright线程，共享驱动上的所有调用都在这里执行
+     *
+     * @return 共享驱动的邮箱
+     */
+    public static ActorMailbox getMailbox() {
+        return MAILBOX;
+    }
+
+    /**
+     * 获取共享的Playwright实例，引用计数加一
+     * 实例不存在时在锁内创建，并发调用者等待同一次创建完成
+     *
+     * @return Playwright实例
+     */
+    public static Playwright acquire() {
+        synchronized (LOCK) {
+            if (playwright == null) {
+                log.debug("启动共享的Playwright驱动");
+                playwright = Playwright.create();
+            }
+            references++;
+            return playwright;
+        }
+    }
+
+    /**
+     * 释放Playwright实例，引用计数减一，归零时关闭驱动
+     *
+     * @param instance 通过acquire()获取的实例
+     */
+    public static void release(Playwright instance) {
+        if (instance == null) {
+            return;
+        }
+        synchronized (LOCK) {
+            if (instance != playwright || references <= 0) {
+                log.warn("释放的Playwright实例不是当前共享实例，忽略");
+                return;
+            }
+            if (--references == 0) {
+                log.debug("关闭共享的Playwright驱动");
+                playwright = null;
+                instance.close();
+            }
+        }
+    }
+
+    /**
+     * 获取当前引用计数
+     *
+     * @return 引用计数
+     */
+    public static int getReferenceCount() {
+        synchronized (LOCK) {
+            return references;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.mxy.browser.use.browser;
+
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.PlaywrightException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 远程浏览器集群
+ *
+ * 管理多个Playwright connect的WebSocket节点，新建上下文时选择未完成上下文最少的健康节点。
+ * 连接失败、连接断开或在节点上创建上下文失败时，该节点被隔离一段时间，期满后重新参与调度；
+ * 连续失败时隔离时间逐次翻倍，成功连接后恢复。
+ */
+@Slf4j
+final class RemoteBrowserGrid {
+
+    /**
+     * 最长隔离时间相对基础隔离时间的倍数
+     */
+    private static final int MAX_QUARANTINE_FACTOR = 16;
+
+    /**
+     * 用于连接的浏览器类型
+     */
+    private final BrowserType browserType;
+
+    /**
+     * 连接超时（毫秒）
+     */
+    private final double connectTimeoutMillis;
+
+    /**
+     * 基础隔离时间（毫秒）
+     */
+    private final long quarantineMillis;
+
+    /**
+     * 所有节点
+     */
+    private final List<Endpoint> endpoints = new ArrayList<>();
+
+    /**
+     * 浏览器 -> 连接（断开后保留到其上的上下文全部释放，以便释放时找到节点）
+     */
+    private final Map<com.microsoft.playwright.Browser, Connection> owners = new IdentityHashMap<>();
+
+    /**
+     * 创建远程浏览器集群
+     *
+     * @param browserType 浏览器类型
+     * @param urls WebSocket节点地址
+     * @param connectTimeoutMillis 连接超时（毫秒）
+     * @param quarantineMillis 基础隔离时间（毫秒）
+     */
+    RemoteBrowserGrid(BrowserType browserType, List<String> urls, double connectTimeoutMillis, long quarantineMillis) {
+        this.browserType = browserType;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.quarantineMillis = Math.max(quarantineMillis, 0);
+        for (String url : urls) {
+            endpoints.add(new Endpoint(url));
+        }
+    }
+
+    /**
+     * 为新上下文选择节点，该节点的未完成上下文数加一
+     *
+     * @return 节点上已连接的浏览器
+     */
+    com.microsoft.playwright.Browser acquire() {
+        while (true) {
+            com.microsoft.playwright.Browser browser = connectBest();
+            synchronized (this) {
+                Connection connection = owners.get(browser);
+                // 连接后立即断开时连接记录已移除，重新选择节点
+                if (connection != null) {
+                    connection.contexts++;
+                    connection.endpoint.outstanding++;
+                    return browser;
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取一个已连接的浏览器，不计入未完成上下文数
+     *
+     * @return 节点上已连接的浏览器
+     */
+    com.microsoft.playwright.Browser peek() {
+        return connectBest();
+    }
+
+    /**
+     * 上下文关闭后释放节点，未完成上下文数减一
+     *
+     * @param browser acquire()返回的浏览器
+     * @param failed 是否因为在该节点上创建或使用上下文失败而释放
+     */
+    void release(com.microsoft.playwright.Browser browser, boolean failed) {
+        Endpoint endpoint;
+        synchronized (this) {
+            Connection connection = owners.get(browser);
+            if (connection == null) {
+                return;
+            }
+            endpoint = connection.endpoint;
+            endpoint.outstanding = Math.max(endpoint.outstanding - 1, 0);
+            connection.contexts = Math.max(connection.contexts - 1, 0);
+            if (connection.contexts == 0 && endpoint.browser != browser) {
+                // 已断开或已被重新连接替换的浏览器不再需要记录
+                owners.remove(browser);
+            }
+        }
+        if (failed) {
+            quarantine(endpoint, "上下文创建失败");
+        }
+    }
+
+    /**
+     * 断开所有节点的连接
+     */
+    void close() {
+        for (Endpoint endpoint : endpoints) {
+            com.microsoft.playwright.Browser browser;
+            synchronized (this) {
+                browser = endpoint.browser;
+                endpoint.browser = null;
+            }
+            if (browser != null) {
+                try {
+                    browser.close();
+                } catch (Exception e) {
+                    log.debug("断开远程浏览器{}失败: {}", endpoint.url, e.getMessage());
+                }
+            }
+        }
+        synchronized (this) {
+            owners.clear();
+        }
+    }
+
+    /**
+     * 按未完成上下文数从少到多尝试未被隔离的节点，返回第一个连接成功的
+     */
+    private com.microsoft.playwright.Browser connectBest() {
+        List<Endpoint> candidates = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (Endpoint endpoint : endpoints) {
+                if (endpoint.quarantinedUntil <= now) {
+                    candidates.add(endpoint);
+                }
+            }
+            candidates.sort(Comparator.comparingInt(endpoint -> endpoint.outstanding));
+        }
+
+        for (Endpoint endpoint : candidates) {
+            try {
+                return connect(endpoint);
+            } catch (PlaywrightException e) {
+                quarantine(endpoint, e.getMessage());
+            }
+        }
+        throw new RuntimeException("没有可用的远程浏览器节点");
+    }
+
+    /**
+     * 连接节点，已连接时直接返回
+     */
+    private com.microsoft.playwright.Browser connect(Endpoint endpoint) {
+        synchronized (endpoint) {
+            com.microsoft.playwright.Browser browser = endpoint.browser;
+            if (browser != null && browser.isConnected()) {
+                return browser;
+            }
+            log.debug("连接远程浏览器节点: {}", endpoint.url);
+            com.microsoft.playwright.Browser connected = browserType.connect(endpoint.url,
+                    new BrowserType.ConnectOptions().setTimeout(connectTimeoutMillis));
+            connected.onDisconnected(disconnected -> {
+                boolean unexpected;
+                synchronized (this) {
+                    unexpected = endpoint.browser == disconnected;
+                    if (unexpected) {
+                        endpoint.browser = null;
+                    }
+                    // 没有未释放的上下文时立即移除，否则在最后一个上下文释放时移除
+                    Connection connection = owners.get(disconnected);
+                    if (connection != null && connection.contexts == 0) {
+                        owners.remove(disconnected);
+                    }
+                }
+                if (unexpected) {
+                    quarantine(endpoint, "连接已断开");
+                }
+            });
+            synchronized (this) {
+                endpoint.browser = connected;
+                endpoint.failures = 0;
+                owners.put(connected, new Connection(endpoint));
+            }
+            return connected;
+        }
+    }
+
+    /**
+     * 隔离节点，连续失败时隔离时间逐次翻倍
+     */
+    private void quarantine(Endpoint endpoint, String reason) {
+        long duration;
+        synchronized (this) {
+            int factor = 1 << Math.min(endpoint.failures, Integer.numberOfTrailingZeros(MAX_QUARANTINE_FACTOR));
+            endpoint.failures++;
+            duration = quarantineMillis * factor;
+            endpoint.quarantinedUntil = System.currentTimeMillis() + duration;
+        }
+        log.warn("远程浏览器节点{}暂停调度{}毫秒: {}", endpoint.url, duration, reason);
+    }
+
+    /**
+     * 单个WebSocket节点
+     */
+    private static final class Endpoint {
+
+        /**
+         * 节点地址
+         */
+        private final String url;
+
+        /**
+         * 已连接的浏览器，未连接时为null
+         */
+        private volatile com.microsoft.playwright.Browser browser;
+
+        /**
+         * 在该节点上尚未关闭的上下文数
+         */
+        private int outstanding;
+
+        /**
+         * 连续失败次数
+         */
+        private int failures;
+
+        /**
+         * 隔离结束时间
+         */
+        private long quarantinedUntil;
+
+        Endpoint(String url) {
+            this.url = url;
+        }
+    }
+
+    /**
+     * 与节点的一次连接
+     */
+    private static final class Connection {
+
+        /**
+         * 所属节点
+         */
+        private final Endpoint endpoint;
+
+        /**
+         * 在这次连接上尚未关闭的上下文数
+         */
+        private int contexts;
+
+        Connection(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+}
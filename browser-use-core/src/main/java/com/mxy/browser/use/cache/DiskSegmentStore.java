@@ -0,0 +1,361 @@
+package com.mxy.browser.use.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 磁盘段存储
+ *
+ * 以追加写的段文件保存缓存条目，读取时使用内存映射。
+ * 启动时扫描所有段文件重建索引，末尾不完整或校验失败的记录会被截断。
+ * 段文件总大小超过上限时删除最旧的段。
+ *
+ * 记录格式：magic(int) | keyLength(int) | valueLength(int) | latencyMillis(long) | crc32(int) | key | value
+ */
+@Slf4j
+class DiskSegmentStore implements AutoCloseable {
+
+    /**
+     * 记录魔数
+     */
+    private static final int MAGIC = 0x4C4C4D43;
+
+    /**
+     * 记录头长度
+     */
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 4;
+
+    /**
+     * 段文件名前缀与后缀
+     */
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * 段文件目录
+     */
+    private final Path directory;
+
+    /**
+     * 单个段文件的最大字节数
+     */
+    private final long maxSegmentBytes;
+
+    /**
+     * 所有段文件的最大总字节数
+     */
+    private final long maxTotalBytes;
+
+    /**
+     * 键 -> 记录位置
+     */
+    private final Map<String, Location> index = new HashMap<>();
+
+    /**
+     * 段ID -> 段文件大小（按段ID排序，第一个为最旧的段）
+     */
+    private final TreeMap<Long, Long> segmentSizes = new TreeMap<>();
+
+    /**
+     * 段ID -> 只读内存映射
+     */
+    private final Map<Long, MappedByteBuffer> mappings = new HashMap<>();
+
+    /**
+     * 当前追加写的段ID
+     */
+    private long activeSegmentId;
+
+    /**
+     * 当前追加写的段文件通道
+     */
+    private FileChannel activeChannel;
+
+    /**
+     * 记录位置
+     */
+    static final class Location {
+        final long segmentId;
+        final long valueOffset;
+        final int valueLength;
+        final long latencyMillis;
+
+        Location(long segmentId, long valueOffset, int valueLength, long latencyMillis) {
+            this.segmentId = segmentId;
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+            this.latencyMillis = latencyMillis;
+        }
+    }
+
+    /**
+     * 读取到的缓存值
+     */
+    static final class Value {
+        final String response;
+        final long latencyMillis;
+
+        Value(String response, long latencyMillis) {
+            this.response = response;
+            this.latencyMillis = latencyMillis;
+        }
+    }
+
+    /**
+     * 打开磁盘段存储
+     *
+     * @param directory 段文件目录
+     * @param maxSegmentBytes 单个段文件的最大字节数
+     * @param maxTotalBytes 所有段文件的最大总字节数
+     * @throws IOException 打开或恢复段文件失败
+     */
+    DiskSegmentStore(Path directory, long maxSegmentBytes, long maxTotalBytes) throws IOException {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxTotalBytes = maxTotalBytes;
+        Files.createDirectories(directory);
+        recover();
+        openActiveSegment(segmentSizes.isEmpty() ? 1 : segmentSizes.lastKey());
+        log.debug("LLM缓存磁盘层已加载: {} 条记录, {} 个段", index.size(), segmentSizes.size());
+    }
+
+    /**
+     * 扫描已有段文件重建索引
+     */
+    private void recover() throws IOException {
+        List<Long> segmentIds = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> {
+                        try {
+                            segmentIds.add(Long.parseLong(name.substring(
+                                    SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                        } catch (NumberFormatException e) {
+                            log.warn("忽略无法识别的缓存段文件: {}", name);
+                        }
+                    });
+        }
+        segmentIds.sort(Long::compareTo);
+
+        for (long segmentId : segmentIds) {
+            segmentSizes.put(segmentId, scanSegment(segmentId));
+        }
+    }
+
+    /**
+     * 扫描单个段文件，返回有效数据的长度
+     */
+    private long scanSegment(long segmentId) throws IOException {
+        Path path = segmentPath(segmentId);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int position = 0;
+            while (position + HEADER_BYTES <= size) {
+                buffer.position(position);
+                int magic = buffer.getInt();
+                int keyLength = buffer.getInt();
+                int valueLength = buffer.getInt();
+                long latencyMillis = buffer.getLong();
+                int crc = buffer.getInt();
+                long end = (long) position + HEADER_BYTES + keyLength + valueLength;
+                if (magic != MAGIC || keyLength < 0 || valueLength < 0 || end > size) {
+                    break;
+                }
+
+                byte[] keyBytes = new byte[keyLength];
+                buffer.get(keyBytes);
+                ByteBuffer valueSlice = buffer.slice(buffer.position(), valueLength);
+                if (checksum(keyBytes, valueSlice) != crc) {
+                    break;
+                }
+
+                String key = new String(keyBytes, StandardCharsets.UTF_8);
+                index.put(key, new Location(segmentId, position + HEADER_BYTES + keyLength, valueLength, latencyMillis));
+                position = (int) end;
+            }
+
+            if (position < size) {
+                log.warn("缓存段 {} 末尾存在不完整的记录，截断到 {} 字节", path.getFileName(), position);
+                channel.truncate(position);
+            }
+            return position;
+        }
+    }
+
+    /**
+     * 读取缓存值
+     *
+     * @param key 键
+     * @return 缓存值，不存在时返回null
+     */
+    synchronized Value get(String key) {
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        try {
+            MappedByteBuffer mapping = mappingFor(location);
+            byte[] valueBytes = new byte[location.valueLength];
+            mapping.get((int) location.valueOffset, valueBytes);
+            return new Value(new String(valueBytes, StandardCharsets.UTF_8), location.latencyMillis);
+        } catch (IOException e) {
+            log.warn("读取LLM缓存失败: {}", e.getMessage());
+            index.remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * 追加写入缓存值
+     *
+     * @param key 键
+     * @param response 响应
+     * @param latencyMillis 原始调用耗时
+     */
+    synchronized void put(String key, String response, long latencyMillis) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = response.getBytes(StandardCharsets.UTF_8);
+        int recordLength = HEADER_BYTES + keyBytes.length + valueBytes.length;
+
+        try {
+            if (segmentSizes.get(activeSegmentId) + recordLength > maxSegmentBytes
+                    && segmentSizes.get(activeSegmentId) > 0) {
+                rollSegment();
+            }
+
+            ByteBuffer record = ByteBuffer.allocate(recordLength);
+            record.putInt(MAGIC)
+                    .putInt(keyBytes.length)
+                    .putInt(valueBytes.length)
+                    .putLong(latencyMillis)
+                    .putInt(checksum(keyBytes, ByteBuffer.wrap(valueBytes)))
+                    .put(keyBytes)
+                    .put(valueBytes)
+                    .flip();
+
+            long offset = segmentSizes.get(activeSegmentId);
+            while (record.hasRemaining()) {
+                activeChannel.write(record);
+            }
+            segmentSizes.put(activeSegmentId, offset + recordLength);
+            index.put(key, new Location(activeSegmentId,
+                    offset + HEADER_BYTES + keyBytes.length, valueBytes.length, latencyMillis));
+
+            enforceTotalSize();
+        } catch (IOException e) {
+            log.warn("写入LLM缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取条目数
+     */
+    synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * 获取段文件总字节数
+     */
+    synchronized long totalBytes() {
+        long total = 0;
+        for (long size : segmentSizes.values()) {
+            total += size;
+        }
+        return total;
+    }
+
+    /**
+     * 获取记录所在段的内存映射，段增长后重新映射
+     */
+    private MappedByteBuffer mappingFor(Location location) throws IOException {
+        MappedByteBuffer mapping = mappings.get(location.segmentId);
+        if (mapping == null || mapping.capacity() < location.valueOffset + location.valueLength) {
+            try (FileChannel channel = FileChannel.open(segmentPath(location.segmentId), StandardOpenOption.READ)) {
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSizes.get(location.segmentId));
+            }
+            mappings.put(location.segmentId, mapping);
+        }
+        return mapping;
+    }
+
+    /**
+     * 切换到新的段文件
+     */
+    private void rollSegment() throws IOException {
+        activeChannel.close();
+        openActiveSegment(activeSegmentId + 1);
+    }
+
+    /**
+     * 打开追加写的段文件
+     */
+    private void openActiveSegment(long segmentId) throws IOException {
+        activeSegmentId = segmentId;
+        activeChannel = FileChannel.open(segmentPath(segmentId),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentSizes.putIfAbsent(segmentId, activeChannel.size());
+    }
+
+    /**
+     * 总大小超过上限时删除最旧的段
+     */
+    private void enforceTotalSize() throws IOException {
+        while (segmentSizes.size() > 1 && totalBytes() > maxTotalBytes) {
+            long oldestId = segmentSizes.firstKey();
+            segmentSizes.remove(oldestId);
+            mappings.remove(oldestId);
+            Iterator<Location> locations = index.values().iterator();
+            while (locations.hasNext()) {
+                if (locations.next().segmentId == oldestId) {
+                    locations.remove();
+                }
+            }
+            Files.deleteIfExists(segmentPath(oldestId));
+            log.debug("删除最旧的LLM缓存段: {}", oldestId);
+        }
+    }
+
+    /**
+     * 计算记录校验和
+     */
+    private static int checksum(byte[] keyBytes, ByteBuffer value) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(keyBytes);
+        crc32.update(value.duplicate());
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * 获取段文件路径
+     */
+    private Path segmentPath(long segmentId) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mappings.clear();
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+    }
+}
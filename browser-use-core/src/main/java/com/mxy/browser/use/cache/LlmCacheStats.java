@@ -0,0 +1,82 @@
+package com.mxy.browser.use.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * LLM响应缓存统计
+ * 某一时刻的缓存命中情况快照
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LlmCacheStats {
+
+    /**
+     * 命中次数（内存与磁盘合计）
+     */
+    private long hits;
+
+    /**
+     * 内存层命中次数
+     */
+    private long memoryHits;
+
+    /**
+     * 磁盘层命中次数
+     */
+    private long diskHits;
+
+    /**
+     * 未命中次数
+     */
+    private long misses;
+
+    /**
+     * 内存层淘汰次数
+     */
+    private long evictions;
+
+    /**
+     * 内存层条目数
+     */
+    private int memoryEntries;
+
+    /**
+     * 内存层占用字节数（估算）
+     */
+    private long memoryBytes;
+
+    /**
+     * 磁盘层条目数
+     */
+    private int diskEntries;
+
+    /**
+     * 磁盘层占用字节数
+     */
+    private long diskBytes;
+
+    /**
+     * 命中所节省的模型调用耗时（毫秒，按原始调用耗时累计）
+     */
+    private long savedLatencyMillis;
+
+    /**
+     * 命中所节省的响应字符数，可用于估算节省的输出Token
+     */
+    private long savedResponseChars;
+
+    /**
+     * 获取命中率
+     *
+     * @return 命中率（0-1）
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,255 @@
+package com.mxy.browser.use.cache;
+
+import com.google.common.hash.Hashing;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LLM响应缓存
+ *
+ * 以完整提示（系统提示 + 用户提示）的SHA-256摘要为键缓存模型响应。
+ * 内存层为按字节数限制容量的LRU；可选的磁盘层使用追加写的段文件，
+ * 读取时内存映射，重启后依然有效。
+ */
+@Slf4j
+public class LlmResponseCache implements AutoCloseable {
+
+    /**
+     * 默认内存层容量（字节）
+     */
+    private static final long DEFAULT_MAX_MEMORY_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * 默认单个段文件大小（字节）
+     */
+    private static final long DEFAULT_MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * 默认磁盘层容量（字节）
+     */
+    private static final long DEFAULT_MAX_DISK_BYTES = 1024L * 1024 * 1024;
+
+    /**
+     * 每个内存条目的固定开销估算（字节）
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    /**
+     * 内存层容量（字节）
+     */
+    private final long maxMemoryBytes;
+
+    /**
+     * 内存层，按访问顺序排列
+     */
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * 内存层当前占用字节数
+     */
+    private long memoryBytes = 0;
+
+    /**
+     * 磁盘层，未配置目录时为null
+     */
+    private final DiskSegmentStore disk;
+
+    /**
+     * 统计计数
+     */
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong savedLatencyMillis = new AtomicLong();
+    private final AtomicLong savedResponseChars = new AtomicLong();
+
+    /**
+     * 内存条目
+     */
+    private static final class Entry {
+        final String response;
+        final long latencyMillis;
+        final long bytes;
+
+        Entry(String key, String response, long latencyMillis) {
+            this.response = response;
+            this.latencyMillis = latencyMillis;
+            this.bytes = 2L * (key.length() + response.length()) + ENTRY_OVERHEAD_BYTES;
+        }
+    }
+
+    /**
+     * 创建LLM响应缓存
+     *
+     * @param maxMemoryBytes 内存层容量（字节），小于等于0时使用默认值32MB
+     * @param diskDirectory 磁盘层目录，为null时不启用磁盘层
+     * @param maxSegmentBytes 单个段文件大小（字节），小于等于0时使用默认值64MB
+     * @param maxDiskBytes 磁盘层容量（字节），小于等于0时使用默认值1GB
+     */
+    @Builder
+    private LlmResponseCache(long maxMemoryBytes, Path diskDirectory, long maxSegmentBytes, long maxDiskBytes) {
+        this.maxMemoryBytes = maxMemoryBytes > 0 ? maxMemoryBytes : DEFAULT_MAX_MEMORY_BYTES;
+        DiskSegmentStore diskStore = null;
+        if (diskDirectory != null) {
+            long segmentBytes = maxSegmentBytes > 0
+                    ? Math.min(maxSegmentBytes, Integer.MAX_VALUE)
+                    : DEFAULT_MAX_SEGMENT_BYTES;
+            try {
+                diskStore = new DiskSegmentStore(diskDirectory, segmentBytes,
+                        maxDiskBytes > 0 ? maxDiskBytes : DEFAULT_MAX_DISK_BYTES);
+            } catch (IOException e) {
+                log.warn("无法打开LLM缓存磁盘层 {}，仅使用内存缓存: {}", diskDirectory, e.getMessage());
+            }
+        }
+        this.disk = diskStore;
+    }
+
+    /**
+     * 计算提示的缓存键
+     *
+     * @param systemPrompt 系统提示
+     * @param userPrompt 用户提示
+     * @return 缓存键
+     */
+    public static String keyOf(String systemPrompt, String userPrompt) {
+        return Hashing.sha256().newHasher()
+                .putString(systemPrompt != null ? systemPrompt : "", StandardCharsets.UTF_8)
+                .putChar('\u0000')
+                .putString(userPrompt != null ? userPrompt : "", StandardCharsets.UTF_8)
+                .hash()
+                .toString();
+    }
+
+    /**
+     * 查询缓存
+     *
+     * @param key 缓存键
+     * @return 缓存的响应
+     */
+    public Optional<String> get(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = memory.get(key);
+        }
+        if (entry != null) {
+            memoryHits.incrementAndGet();
+            recordSaving(entry.response, entry.latencyMillis);
+            return Optional.of(entry.response);
+        }
+
+        if (disk != null) {
+            DiskSegmentStore.Value value = disk.get(key);
+            if (value != null) {
+                diskHits.incrementAndGet();
+                recordSaving(value.response, value.latencyMillis);
+                putInMemory(key, new Entry(key, value.response, value.latencyMillis));
+                return Optional.of(value.response);
+            }
+        }
+
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param key 缓存键
+     * @param response 模型响应
+     * @param latencyMillis 模型调用耗时（毫秒），用于统计命中节省的时间
+     */
+    public void put(String key, String response, long latencyMillis) {
+        if (key == null || response == null) {
+            return;
+        }
+        putInMemory(key, new Entry(key, response, latencyMillis));
+        if (disk != null) {
+            disk.put(key, response, latencyMillis);
+        }
+    }
+
+    /**
+     * 写入内存层并按容量淘汰最久未使用的条目
+     */
+    private synchronized void putInMemory(String key, Entry entry) {
+        if (entry.bytes > maxMemoryBytes) {
+            return;
+        }
+        Entry previous = memory.put(key, entry);
+        if (previous != null) {
+            memoryBytes -= previous.bytes;
+        }
+        memoryBytes += entry.bytes;
+
+        Iterator<Map.Entry<String, Entry>> iterator = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+            memoryBytes -= iterator.next().getValue().bytes;
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * 记录一次命中节省的开销
+     */
+    private void recordSaving(String response, long latencyMillis) {
+        savedLatencyMillis.addAndGet(latencyMillis);
+        savedResponseChars.addAndGet(response.length());
+    }
+
+    /**
+     * 获取缓存统计
+     *
+     * @return 统计快照
+     */
+    public LlmCacheStats getStats() {
+        int memoryEntries;
+        long currentMemoryBytes;
+        synchronized (this) {
+            memoryEntries = memory.size();
+            currentMemoryBytes = memoryBytes;
+        }
+        return LlmCacheStats.builder()
+                .hits(memoryHits.get() + diskHits.get())
+                .memoryHits(memoryHits.get())
+                .diskHits(diskHits.get())
+                .misses(misses.get())
+                .evictions(evictions.get())
+                .memoryEntries(memoryEntries)
+                .memoryBytes(currentMemoryBytes)
+                .diskEntries(disk != null ? disk.size() : 0)
+                .diskBytes(disk != null ? disk.totalBytes() : 0)
+                .savedLatencyMillis(savedLatencyMillis.get())
+                .savedResponseChars(savedResponseChars.get())
+                .build();
+    }
+
+    /**
+     * 清空内存层
+     */
+    public synchronized void clearMemory() {
+        memory.clear();
+        memoryBytes = 0;
+    }
+
+    @Override
+    public void close() {
+        if (disk != null) {
+            try {
+                disk.close();
+            } catch (IOException e) {
+                log.warn("关闭LLM缓存磁盘层失败: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.mxy.browser.use.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单线程任务邮箱（Actor模型）
+ *
+ * Playwright Java的对象不是线程安全的，同一个Playwright驱动（及其创建的所有浏览器、上下文和页面）
+ * 上的调用不能交错。每个驱动对应一个邮箱，所有Playwright调用都按提交顺序在邮箱的专用线程上逐个执行，
+ * 调用方拿到CompletableFuture；不同驱动的邮箱互不影响，可以并行。
+ * Playwright在调用过程中分发的事件（onRequest、onResponse等）也在该线程上回调。
+ *
+ * 在邮箱线程上提交的任务直接在当前线程执行（可重入），因此任务内部调用其他会进入邮箱的方法不会死锁。
+ * 线程空闲一段时间后自动退出，有新任务时重新创建。
+ */
+public final class ActorMailbox implements Executor {
+
+    /**
+     * 邮箱线程的空闲退出时间（秒）
+     */
+    private static final long IDLE_TIMEOUT_SECONDS = 60;
+
+    /**
+     * 当前线程正在执行的邮箱
+     */
+    private static final ThreadLocal<ActorMailbox> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 单线程执行器
+     */
+    private final ThreadPoolExecutor worker;
+
+    /**
+     * 创建邮箱
+     *
+     * @param name 线程名前缀
+     */
+    public ActorMailbox(String name) {
+        this.worker = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), BrowserUseExecutors.daemonThreadFactory(name));
+        this.worker.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 当前线程是否正在执行本邮箱的任务
+     *
+     * @return 是否在邮箱线程上
+     */
+    public boolean isOwnerThread() {
+        return CURRENT.get() == this;
+    }
+
+    /**
+     * 提交任务，在邮箱线程上调用时直接执行
+     *
+     * @param command 任务
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (isOwnerThread()) {
+            command.run();
+            return;
+        }
+        worker.execute(() -> {
+            CURRENT.set(this);
+            try {
+                command.run();
+            } finally {
+                CURRENT.remove();
+            }
+        });
+    }
+
+    /**
+     * 异步执行任务
+     *
+     * @param task 任务
+     * @param <T> 结果类型
+     * @return 任务结果的CompletableFuture
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 执行任务并等待结果
+     *
+     * @param task 任务
+     * @param <T> 结果类型
+     * @return 任务结果
+     */
+    public <T> T call(Callable<T> task) {
+        try {
+            return submit(task).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * 执行任务并等待完成
+     *
+     * @param task 任务
+     */
+    public void run(Runnable task) {
+        call(() -> {
+            task.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,120 @@
+package com.mxy.browser.use.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步任务执行器工厂
+ *
+ * Browser、BrowserContext、DomService和Controller中的异步任务都会阻塞在Playwright的I/O上，
+ * 不能运行在ForkJoinPool公共池中，统一通过这里提供的执行器调度。
+ * 在JDK 21及以上版本默认使用虚拟线程，否则退化为按需创建的守护线程池。
+ */
+@Slf4j
+public final class BrowserUseExecutors {
+
+    /**
+     * 工具类，禁止实例化
+     */
+    private BrowserUseExecutors() {
+    }
+
+    /**
+     * 获取默认执行器（进程内共享）
+     *
+     * @return 默认执行器
+     */
+    public static Executor defaultExecutor() {
+        return DefaultExecutorHolder.INSTANCE;
+    }
+
+    /**
+     * 当传入的执行器为null时返回默认执行器
+     *
+     * @param executor 执行器
+     * @return 非null的执行器
+     */
+    public static Executor orDefault(Executor executor) {
+        return executor != null ? executor : defaultExecutor();
+    }
+
+    /**
+     * 延迟指定时间后完成，等待期间不占用任何线程（包括Playwright驱动线程）
+     *
+     * @param millis 延迟时间（毫秒），不大于0时立即完成
+     * @param executor 完成时使用的执行器，为null时使用默认执行器
+     * @return 延迟结束时完成的CompletableFuture
+     */
+    public static CompletableFuture<Void> delay(long millis, Executor executor) {
+        if (millis <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(millis, TimeUnit.MILLISECONDS, orDefault(executor)));
+    }
+
+    /**
+     * 创建新的执行器
+     * 优先使用虚拟线程，不可用时使用按需创建的守护线程池
+     *
+     * @param namePrefix 线程名前缀（仅平台线程使用）
+     * @return 执行器
+     */
+    public static ExecutorService newExecutor(String namePrefix) {
+        ExecutorService virtualExecutor = newVirtualThreadExecutor();
+        if (virtualExecutor != null) {
+            return virtualExecutor;
+        }
+        return Executors.newCachedThreadPool(daemonThreadFactory(namePrefix));
+    }
+
+    /**
+     * 创建守护线程工厂
+     *
+     * @param namePrefix 线程名前缀
+     * @return 线程工厂
+     */
+    public static ThreadFactory daemonThreadFactory(String namePrefix) {
+        AtomicInteger counter = new AtomicInteger(0);
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器，以保持对JDK 17的编译兼容
+     *
+     * @return 虚拟线程执行器，当前JDK不支持时返回null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 默认执行器的延迟初始化持有者
+     */
+    private static final class DefaultExecutorHolder {
+        private static final ExecutorService INSTANCE = createDefault();
+
+        private static ExecutorService createDefault() {
+            ExecutorService executor = newExecutor("browser-use");
+            log.debug("默认异步执行器: {}", executor.getClass().getName());
+            return executor;
+        }
+    }
+}
@@ -1,24 +1,36 @@
 package com.mxy.browser.use.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.playwright.ElementHandle;
+import com.microsoft.playwright.Mouse;
 import com.microsoft.playwright.Page;
+import com.microsoft.playwright.PlaywrightException;
 import com.microsoft.playwright.Page.NavigateOptions;
 import com.microsoft.playwright.Page.WaitForSelectorOptions;
-import com.microsoft.playwright.Response;
-import com.microsoft.playwright.options.LoadState;
 import com.microsoft.playwright.options.MouseButton;
 import com.microsoft.playwright.options.WaitForSelectorState;
+import com.microsoft.playwright.options.WaitUntilState;
 import com.mxy.browser.use.action.*;
 import com.mxy.browser.use.browser.BrowserContext;
 import com.mxy.browser.use.browser.BrowserState;
+import com.mxy.browser.use.concurrent.BrowserUseExecutors;
 import com.mxy.browser.use.dom.DomElement;
+import com.mxy.browser.use.dom.InPageScript;
+import com.mxy.browser.use.pacing.BotDetector;
+import com.mxy.browser.use.pacing.PacingPolicy;
+import com.mxy.browser.use.pacing.PacingProfile;
 import lombok.extern.slf4j.Slf4j;
 
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * 控制器
@@ -27,15 +39,35 @@ import java.util.function.BiFunction;
 @Slf4j
 public class Controller {
 
+    /**
+     * JSON解析器
+     */
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
     /**
      * 动作处理器映射
      */
-    private final Map<String, BiFunction<Action, BrowserContext, ActionResult>> handlers = new HashMap<>();
+    private final Map<String, BiFunction<Action, BrowserContext, CompletableFuture<ActionResult>>> handlers = new HashMap<>();
+
+    /**
+     * 异步任务执行器
+     */
+    private final Executor executor;
     
     /**
      * 创建控制器
      */
     public Controller() {
+        this(null);
+    }
+
+    /**
+     * 创建控制器
+     *
+     * @param executor 异步任务执行器，为null时使用默认执行器
+     */
+    public Controller(Executor executor) {
+        this.executor = BrowserUseExecutors.orDefault(executor);
         registerHandlers();
     }
     
@@ -46,8 +78,7 @@ public class Controller {
         handlers.put("click", this::handleClickAction);
         handlers.put("type", this::handleTypeAction);
         handlers.put("navigate", this::handleNavigateAction);
-        handlers.put("wait", this::handleWaitAction);
-        handlers.put("done", (action, context) -> new ActionResult(true, "任务完成"));
+        handlers.put("done", (action, context) -> CompletableFuture.completedFuture(new ActionResult(true, "任务完成")));
     }
     
     /**
@@ -58,189 +89,427 @@ public class Controller {
      * @return 执行结果
      */
     public CompletableFuture<ActionResult> executeAction(Action action, BrowserContext browserContext) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                log.debug("执行动作: {}", action.getDescription());
-                
-                String actionType = action.getType();
-                BiFunction<Action, BrowserContext, ActionResult> handler = handlers.get(actionType);
-                
-                if (handler == null) {
-                    return new ActionResult(false, "未知的动作类型: " + actionType);
-                }
-                
-                return handler.apply(action, browserContext);
-            } catch (Exception e) {
-                log.error("执行动作失败", e);
-                return new ActionResult(false, "执行失败: " + e.getMessage());
+        // 等待动作不需要访问页面，在Playwright线程之外计时，不阻塞同一驱动上的其他调用
+        if ("wait".equals(action.getType())) {
+            return handleWaitAction(action);
+        }
+        log.debug("执行动作: {}", action.getDescription());
+
+        String actionType = action.getType();
+        BiFunction<Action, BrowserContext, CompletableFuture<ActionResult>> handler = handlers.get(actionType);
+        if (handler == null) {
+            return CompletableFuture.completedFuture(new ActionResult(false, "未知的动作类型: " + actionType));
+        }
+
+        // 动作的Playwright调用分段提交到上下文的Playwright线程，停顿和页面稳定等待在该线程之外调度，
+        // 同一驱动上的其他上下文可以在等待期间执行；结果交回控制器执行器，调用方的后续处理不占用该线程
+        CompletableFuture<ActionResult> result;
+        try {
+            result = handler.apply(action, browserContext);
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.handle((actionResult, error) -> {
+            // 点击、输入和导航可能改变页面（包括不触发DOM变更的属性，如输入框的值），使页面状态过期
+            if (!"done".equals(actionType)) {
+                browserContext.invalidateState();
             }
-        });
+            if (error != null) {
+                return failed("执行动作失败", "执行失败: ", error);
+            }
+            return actionResult;
+        }).thenApplyAsync(Function.identity(), executor);
     }
     
     /**
      * 处理点击动作
      */
-    private ActionResult handleClickAction(Action action, BrowserContext browserContext) {
-        try {
-            ClickAction clickAction = (ClickAction) action;
-            int index = clickAction.getIndex();
-            
-            // 获取当前页面状态
-            BrowserState state = browserContext.getSession().get().getCachedState();
-            
-            // 获取元素信息
-            DomElement element = state.getSelectorMap().get(index);
-            if (element == null) {
-                return new ActionResult(false, "未找到索引为 " + index + " 的元素");
+    private CompletableFuture<ActionResult> handleClickAction(Action action, BrowserContext browserContext) {
+        int index = ((ClickAction) action).getIndex();
+        return browserContext.submit(() -> resolveTarget(browserContext, index)).thenCompose(target -> {
+            if (target.failure != null) {
+                return CompletableFuture.completedFuture(target.failure);
             }
-            
-            // 获取当前页面
-            Page page = browserContext.getCurrentPage();
-            
-            // 查找元素
-            String selector = buildSelector(element);
-            
-            // 等待元素可见
-            page.waitForSelector(selector, new WaitForSelectorOptions()
-                    .setState(WaitForSelectorState.VISIBLE)
-                    .setTimeout(5000));
-            
-            // 滚动到元素位置
-            page.evaluate("selector => document.querySelector(selector)?.scrollIntoView({behavior: 'smooth', block: 'center'})", selector);
-            
-            // 高亮元素（可选）
-            highlightElement(page, selector);
-            
-            // 延迟一小段时间，模拟人类行为
-            Thread.sleep((long) (Math.random() * 500 + 300));
-            
-            // 点击元素
-            page.click(selector, new Page.ClickOptions()
-                    .setDelay(50)
-                    .setButton(MouseButton.LEFT)
-                    .setForce(false));
-            
-            // 等待页面加载
-            page.waitForLoadState(LoadState.DOMCONTENTLOADED);
-            
-            return new ActionResult(true, "成功点击元素");
-        } catch (Exception e) {
-            log.error("点击操作失败", e);
-            return new ActionResult(false, "点击失败: " + e.getMessage());
-        }
+            PacingProfile profile = target.profile;
+            // 按节奏策略停顿
+            return BrowserUseExecutors.delay(profile.nextActionDelayMillis(), executor)
+                    .thenCompose(v -> browserContext.<Void>submit(() -> {
+                        // 快速路径：一次页面内调用完成定位和检查，再发送一次可信的鼠标点击
+                        // 不可用时按稳定索引取得缓存的元素句柄点击，最后才按选择器查找
+                        JsonNode prepared = prepareInPage(browserContext, target.page, target.element, "click", profile);
+                        if (prepared != null) {
+                            target.page.mouse().click(prepared.get("x").asDouble(), prepared.get("y").asDouble(),
+                                    new Mouse.ClickOptions().setDelay(profile.getPressDelayMillis()).setButton(MouseButton.LEFT));
+                        } else if (!clickWithHandle(browserContext, target.page, index, profile)) {
+                            clickWithPlaywright(target.page, buildSelector(target.element), profile);
+                        }
+                        return null;
+                    }))
+                    // 等待页面稳定
+                    .thenCompose(v -> browserContext.waitForPageStable())
+                    .thenCompose(stable -> browserContext.submit(() -> {
+                        observePacing(target.pacing, target.page, target.domain, false);
+                        return new ActionResult(true, "成功点击元素");
+                    }));
+        }).exceptionally(error -> failed("点击操作失败", "点击失败: ", error));
     }
     
     /**
      * 处理输入文本动作
      */
-    private ActionResult handleTypeAction(Action action, BrowserContext browserContext) {
-        try {
-            TypeAction typeAction = (TypeAction) action;
-            int index = typeAction.getIndex();
-            String text = typeAction.getText();
-            
-            // 获取当前页面状态
-            BrowserState state = browserContext.getSession().get().getCachedState();
-            
-            // 获取元素信息
-            DomElement element = state.getSelectorMap().get(index);
-            if (element == null) {
-                return new ActionResult(false, "未找到索引为 " + index + " 的元素");
+    private CompletableFuture<ActionResult> handleTypeAction(Action action, BrowserContext browserContext) {
+        TypeAction typeAction = (TypeAction) action;
+        int index = typeAction.getIndex();
+        String text = typeAction.getText();
+        return browserContext.submit(() -> resolveTarget(browserContext, index)).thenCompose(target -> {
+            if (target.failure != null) {
+                return CompletableFuture.completedFuture(target.failure);
             }
-            
-            // 获取当前页面
-            Page page = browserContext.getCurrentPage();
-            
-            // 查找元素
-            String selector = buildSelector(element);
-            
-            // 等待元素可见
-            page.waitForSelector(selector, new WaitForSelectorOptions()
-                    .setState(WaitForSelectorState.VISIBLE)
-                    .setTimeout(5000));
-            
-            // 滚动到元素位置
-            page.evaluate("selector => document.querySelector(selector)?.scrollIntoView({behavior: 'smooth', block: 'center'})", selector);
-            
-            // 高亮元素（可选）
-            highlightElement(page, selector);
-            
-            // 清除现有文本（三击全选）
-            page.click(selector, new Page.ClickOptions().setClickCount(3));
-            
-            // 等待一小段时间
-            Thread.sleep(300);
-            
-            // 输入新文本
-            page.type(selector, text, new Page.TypeOptions().setDelay(50));
-            
-            return new ActionResult(true, "成功输入文本: " + text);
-        } catch (Exception e) {
-            log.error("输入操作失败", e);
-            return new ActionResult(false, "输入失败: " + e.getMessage());
-        }
+            PacingProfile profile = target.profile;
+            return browserContext.submit(() -> focusForTyping(browserContext, target, index, text))
+                    .thenCompose(filled -> filled
+                            ? CompletableFuture.<Void>completedFuture(null)
+                            // 按节奏策略停顿后输入
+                            : BrowserUseExecutors.delay(profile.getTypeDelayMillis(), executor)
+                                    .thenCompose(v -> typeText(browserContext, target.page, text, profile)))
+                    .thenCompose(v -> browserContext.submit(() -> {
+                        observePacing(target.pacing, target.page, target.domain, false);
+                        return new ActionResult(true, "成功输入文本: " + text);
+                    }));
+        }).exceptionally(error -> failed("输入操作失败", "输入失败: ", error));
     }
     
     /**
      * 处理导航动作
      */
-    private ActionResult handleNavigateAction(Action action, BrowserContext browserContext) {
+    private CompletableFuture<ActionResult> handleNavigateAction(Action action, BrowserContext browserContext) {
+        NavigateAction navigateAction = (NavigateAction) action;
+        String url = navigateAction.getUrl();
+        
+        // 规范化URL
+        String target = url.startsWith("http://") || url.startsWith("https://") ? url : "https://" + url;
+        
+        return browserContext.submit(browserContext::getCurrentPage).thenCompose(page -> browserContext
+                // 导航提交后即返回，页面加载由稳定检测按DOM静默和网络空闲判断
+                .submit(() -> page.navigate(target, new NavigateOptions()
+                        .setWaitUntil(WaitUntilState.COMMIT)
+                        .setTimeout(30000)))
+                // 等待页面稳定
+                .thenCompose(response -> browserContext.waitForPageStable()
+                        .thenCompose(stable -> browserContext.submit(() -> {
+                            observePacing(browserContext.getConfig().getPacingPolicy(), page, domainOf(page),
+                                    response != null && BotDetector.isBlockedStatus(response.status()));
+                            
+                            if (response == null) {
+                                return new ActionResult(false, "导航无响应");
+                            }
+                            
+                            // 检查响应状态
+                            int status = response.status();
+                            if (status >= 400) {
+                                return new ActionResult(false, "导航失败，HTTP状态码: " + status);
+                            }
+                            
+                            return new ActionResult(true, "成功导航到: " + target);
+                        }))))
+                .exceptionally(error -> failed("导航操作失败", "导航失败: ", error));
+    }
+    
+    /**
+     * 处理等待动作
+     * 由延迟执行器完成结果，等待期间不占用任何线程
+     */
+    private CompletableFuture<ActionResult> handleWaitAction(Action action) {
+        WaitAction waitAction = (WaitAction) action;
+        // 限制最大等待时间
+        int seconds = Math.max(0, Math.min(waitAction.getSeconds(), 60));
+        Executor delayed = CompletableFuture.delayedExecutor(seconds, TimeUnit.SECONDS, executor);
+        return CompletableFuture.supplyAsync(() -> new ActionResult(true, "等待完成: " + seconds + "秒"), delayed);
+    }
+    
+    /**
+     * 在Playwright线程上查找动作的目标元素、当前页面及其域名的节奏参数
+     *
+     * @param browserContext 浏览器上下文
+     * @param index 元素索引
+     * @return 动作目标，页面状态尚未提取或元素不存在时包含失败结果
+     */
+    private ActionTarget resolveTarget(BrowserContext browserContext, int index) {
+        ActionTarget target = new ActionTarget();
+        // 获取当前页面状态
+        BrowserState state = browserContext.getCachedState();
+        if (state == null || state.getSelectorMap() == null) {
+            target.failure = new ActionResult(false, "页面状态尚未提取");
+            return target;
+        }
+        
+        // 获取元素信息
+        target.element = state.getSelectorMap().get(index);
+        if (target.element == null) {
+            target.failure = new ActionResult(false, "未找到索引为 " + index + " 的元素");
+            return target;
+        }
+        
+        // 获取当前页面及其域名的节奏参数
+        target.page = browserContext.getCurrentPage();
+        target.pacing = browserContext.getConfig().getPacingPolicy();
+        target.domain = domainOf(target.page);
+        target.profile = target.pacing.profileFor(target.domain);
+        return target;
+    }
+    
+    /**
+     * 记录动作失败并转换为失败结果
+     *
+     * @param logMessage 日志信息
+     * @param prefix 结果信息前缀
+     * @param error 异常
+     * @return 失败结果
+     */
+    private ActionResult failed(String logMessage, String prefix, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        log.error(logMessage, cause);
+        return new ActionResult(false, prefix + cause.getMessage());
+    }
+    
+    /**
+     * 通过页面内脚本准备动作：定位元素、滚动到视口中央、检查可见性和遮挡，输入动作还会聚焦并选中原有文本
+     * 元素优先按稳定高亮索引从页面内元素注册表取得，其次按id或XPath查找
+     * 页面内无法合成可信的输入事件，因此真正的点击和键入仍由Playwright发送
+     *
+     * @param browserContext 浏览器上下文
+     * @param page 页面对象
+     * @param element 目标元素
+     * @param actionType 动作类型（click或type）
+     * @param profile 节奏参数
+     * @return 包含元素中心坐标x、y的结果，快速路径不可用时返回null
+     */
+    private JsonNode prepareInPage(BrowserContext browserContext, Page page, DomElement element, String actionType,
+                                   PacingProfile profile) {
+        if (!browserContext.getConfig().isFastActionExecution()) {
+            return null;
+        }
         try {
-            NavigateAction navigateAction = (NavigateAction) action;
-            String url = navigateAction.getUrl();
-            
-            // 规范化URL
-            if (!url.startsWith("http://") && !url.startsWith("https://")) {
-                url = "https://" + url;
+            Map<String, Object> args = new HashMap<>();
+            if (element.getHighlightIndex() != null) {
+                args.put("index", element.getHighlightIndex());
             }
-            
-            // 获取当前页面
-            Page page = browserContext.getCurrentPage();
-            
-            // 导航到URL
-            Response response = page.navigate(url, new NavigateOptions()
-                    .setTimeout(30000));
-            
-            // 等待页面加载
-            page.waitForLoadState(LoadState.DOMCONTENTLOADED);
-            
-            if (response == null) {
-                return new ActionResult(false, "导航无响应");
+            // iframe和Shadow DOM内元素的id和XPath在主文档中无法正确解析，只能依赖注册表
+            if (isInMainDocument(element)) {
+                if (element.getId() != null && !element.getId().isEmpty()) {
+                    args.put("id", element.getId());
+                }
+                args.put("xpath", element.getXpath());
             }
-            
-            // 检查响应状态
-            int status = response.status();
-            if (status >= 400) {
-                return new ActionResult(false, "导航失败，HTTP状态码: " + status);
+            args.put("action", actionType);
+            args.put("highlight", profile.isHighlightActions());
+            JsonNode result = objectMapper.readTree(InPageScript.PREPARE_ACTION.call(page, args));
+            if (result.path("ok").asBoolean(false)) {
+                return result;
             }
-            
-            return new ActionResult(true, "成功导航到: " + url);
+            log.debug("快速执行不可用({})，回退到Playwright操作", result.path("reason").asText());
         } catch (Exception e) {
-            log.error("导航操作失败", e);
-            return new ActionResult(false, "导航失败: " + e.getMessage());
+            log.debug("快速执行失败，回退到Playwright操作: {}", e.getMessage());
         }
+        return null;
     }
     
     /**
-     * 处理等待动作
+     * 判断元素是否位于主文档中（不在iframe或Shadow DOM内）
+     */
+    private boolean isInMainDocument(DomElement element) {
+        for (DomElement ancestor = element.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+            if ("iframe".equalsIgnoreCase(ancestor.getTagName()) || ancestor.isShadowRoot()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 按稳定高亮索引取得缓存的元素句柄
+     *
+     * @return 元素句柄，页面内注册表中没有该元素时返回null
+     */
+    private ElementHandle resolveHandle(BrowserContext browserContext, Page page, int index) {
+        try {
+            return browserContext.getElementHandleCache().get(page, index);
+        } catch (Exception e) {
+            log.debug("获取元素句柄失败: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 通过元素句柄点击元素，Playwright会自动等待元素可操作并滚动到可见区域
+     *
+     * @return 是否点击成功，句柄不可用时返回false
      */
-    private ActionResult handleWaitAction(Action action, BrowserContext browserContext) {
+    private boolean clickWithHandle(BrowserContext browserContext, Page page, int index, PacingProfile profile) {
+        ElementHandle handle = resolveHandle(browserContext, page, index);
+        if (handle == null) {
+            return false;
+        }
         try {
-            WaitAction waitAction = (WaitAction) action;
-            int seconds = waitAction.getSeconds();
-            
-            // 限制最大等待时间
-            if (seconds > 60) {
-                seconds = 60;
+            handle.click(new ElementHandle.ClickOptions()
+                    .setDelay(profile.getPressDelayMillis())
+                    .setButton(MouseButton.LEFT)
+                    .setTimeout(5000));
+            return true;
+        } catch (PlaywrightException e) {
+            log.debug("通过元素句柄点击失败，回退到选择器: {}", e.getMessage());
+            browserContext.getElementHandleCache().invalidate(page, index);
+            return false;
+        }
+    }
+    
+    /**
+     * 定位元素并准备输入
+     * 快速路径在一次页面内调用中完成定位、检查、聚焦并选中原有文本；
+     * 不可用时按稳定索引取得缓存的元素句柄，最后才按选择器查找，直接填充文本或三击全选原有文本
+     *
+     * @return 是否已直接填充文本，为false时元素已获得焦点，等待键入
+     */
+    private boolean focusForTyping(BrowserContext browserContext, ActionTarget target, int index, String text) {
+        PacingProfile profile = target.profile;
+        if (prepareInPage(browserContext, target.page, target.element, "type", profile) != null) {
+            return false;
+        }
+        ElementHandle handle = resolveHandle(browserContext, target.page, index);
+        if (handle != null) {
+            try {
+                if (profile.isFillText()) {
+                    handle.fill(text, new ElementHandle.FillOptions().setTimeout(5000));
+                    return true;
+                }
+                // 清除现有文本（三击全选）
+                handle.click(new ElementHandle.ClickOptions().setClickCount(3).setTimeout(5000));
+                return false;
+            } catch (PlaywrightException e) {
+                log.debug("通过元素句柄输入失败，回退到选择器: {}", e.getMessage());
+                browserContext.getElementHandleCache().invalidate(target.page, index);
             }
-            
-            // 等待指定的时间
-            Thread.sleep(seconds * 1000L);
-            
-            return new ActionResult(true, "等待完成: " + seconds + "秒");
+        }
+        return focusWithPlaywright(target.page, buildSelector(target.element), text, profile);
+    }
+    
+    /**
+     * 向已获得焦点的元素输入文本
+     * 有按键间隔时逐字提交到Playwright线程，间隔在该线程之外等待，长文本输入期间不阻塞同一驱动上的其他调用
+     */
+    private CompletableFuture<Void> typeText(BrowserContext browserContext, Page page, String text,
+                                             PacingProfile profile) {
+        if (profile.isFillText()) {
+            return browserContext.submit(() -> {
+                page.keyboard().insertText(text);
+                return null;
+            });
+        }
+        long keystrokeDelay = profile.getKeystrokeDelayMillis();
+        if (keystrokeDelay <= 0) {
+            return browserContext.submit(() -> {
+                page.keyboard().type(text);
+                return null;
+            });
+        }
+        CompletableFuture<Void> typing = CompletableFuture.completedFuture(null);
+        int offset = 0;
+        while (offset < text.length()) {
+            int end = offset + Character.charCount(text.codePointAt(offset));
+            String key = text.substring(offset, end);
+            if (offset > 0) {
+                typing = typing.thenCompose(v -> BrowserUseExecutors.delay(keystrokeDelay, executor));
+            }
+            typing = typing.thenCompose(v -> browserContext.submit(() -> {
+                page.keyboard().type(key);
+                return null;
+            }));
+            offset = end;
+        }
+        return typing;
+    }
+    
+    /**
+     * 通过Playwright点击元素（等待可见、滚动、高亮后点击）
+     */
+    private void clickWithPlaywright(Page page, String selector, PacingProfile profile) {
+        // 等待元素可见
+        page.waitForSelector(selector, new WaitForSelectorOptions()
+                .setState(WaitForSelectorState.VISIBLE)
+                .setTimeout(5000));
+        
+        // 滚动到元素位置
+        page.evaluate("selector => document.querySelector(selector)?.scrollIntoView({behavior: 'smooth', block: 'center'})", selector);
+        
+        // 高亮元素（可选）
+        if (profile.isHighlightActions()) {
+            highlightElement(page, selector);
+        }
+        
+        // 点击元素
+        page.click(selector, new Page.ClickOptions()
+                .setDelay(profile.getPressDelayMillis())
+                .setButton(MouseButton.LEFT)
+                .setForce(false));
+    }
+    
+    /**
+     * 通过Playwright准备输入（等待可见、滚动、高亮后直接填充，或三击全选）
+     *
+     * @return 是否已直接填充文本
+     */
+    private boolean focusWithPlaywright(Page page, String selector, String text, PacingProfile profile) {
+        // 等待元素可见
+        page.waitForSelector(selector, new WaitForSelectorOptions()
+                .setState(WaitForSelectorState.VISIBLE)
+                .setTimeout(5000));
+        
+        // 滚动到元素位置
+        page.evaluate("selector => document.querySelector(selector)?.scrollIntoView({behavior: 'smooth', block: 'center'})", selector);
+        
+        // 高亮元素（可选）
+        if (profile.isHighlightActions()) {
+            highlightElement(page, selector);
+        }
+        
+        if (profile.isFillText()) {
+            page.fill(selector, text);
+            return true;
+        }
+        
+        // 清除现有文本（三击全选）
+        page.click(selector, new Page.ClickOptions().setClickCount(3));
+        return false;
+    }
+    
+    /**
+     * 获取页面的域名，用于按域名选择节奏参数
+     */
+    private String domainOf(Page page) {
+        try {
+            String host = URI.create(page.url()).getHost();
+            return host != null ? host : "";
         } catch (Exception e) {
-            log.error("等待操作失败", e);
-            return new ActionResult(false, "等待失败: " + e.getMessage());
+            return "";
+        }
+    }
+    
+    /**
+     * 动作完成后向节奏策略反馈是否出现反爬虫信号
+     *
+     * @param pacing 节奏策略
+     * @param page 页面对象
+     * @param domain 动作所在域名
+     * @param blocked 是否已知被拒绝（如导航返回403/429）
+     */
+    private void observePacing(PacingPolicy pacing, Page page, String domain, boolean blocked) {
+        if (!pacing.observesBotDetection()) {
+            return;
+        }
+        if (blocked || BotDetector.detect(page)) {
+            pacing.recordBotDetection(domain);
+        } else {
+            pacing.recordSuccess(domain);
         }
     }
     
@@ -288,4 +557,40 @@ public class Controller {
             log.warn("元素高亮失败: {}", e.getMessage());
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 动作目标：元素、所在页面及其域名的节奏参数
+     */
+    private static final class ActionTarget {
+
+        /**
+         * 查找失败时的结果
+         */
+        private ActionResult failure;
+
+        /**
+         * 目标元素
+         */
+        private DomElement element;
+
+        /**
+         * 所在页面
+         */
+        private Page page;
+
+        /**
+         * 节奏策略
+         */
+        private PacingPolicy pacing;
+
+        /**
+         * 页面域名
+         */
+        private String domain;
+
+        /**
+         * 该域名的节奏参数
+         */
+        private PacingProfile profile;
+    }
+}
@@ -1,86 +1,107 @@
 package com.mxy.browser.use.dom;
 
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * DOM元素节点
  * 表示页面中的一个HTML元素
+ *
+ * 本类只定义读取接口，不包含任何字段：可修改的对象树使用MutableDomElement（由builder()创建），
+ * 扁平DOM树使用只读视图FlatDomElement，视图不会分配对象树的字段。
  */
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
-public class DomElement implements DomNode{
-    
-    /**
-     * 元素标签名称
-     */
-    private String tagName;
+public abstract class DomElement implements DomNode {
     
     /**
-     * XPath路径
+     * 创建可修改的DOM元素
+     * 
+     * @return 构建器
      */
-    private String xpath;
+    public static MutableDomElement.MutableDomElementBuilder builder() {
+        return MutableDomElement.builder();
+    }
     
     /**
-     * 元素属性
+     * 获取元素标签名称
+     * 
+     * @return 标签名称
      */
-    @Builder.Default
-    private Map<String, String> attributes = new HashMap<>();
+    public abstract String getTagName();
     
     /**
-     * 子元素列表
+     * 获取XPath路径
+     * 
+     * @return XPath路径
      */
-    @Builder.Default
-    private List<DomNode> children = new ArrayList<>();
+    public abstract String getXpath();
     
     /**
-     * 父元素
+     * 获取元素属性
+     * 
+     * @return 属性名 -> 属性值
      */
-    private DomElement parent;
+    public abstract Map<String, String> getAttributes();
     
     /**
-     * 元素是否可见
+     * 获取子节点列表
+     * 
+     * @return 子节点列表
      */
-    private boolean isVisible;
+    public abstract List<DomNode> getChildren();
     
     /**
      * 元素是否可交互
+     * 
+     * @return 是否可交互
      */
-    private boolean isInteractive;
+    public abstract boolean isInteractive();
     
     /**
-     * 元素是否为顶层元素
+     * 元素是否为顶层元素（未被其他元素遮挡）
+     * 
+     * @return 是否为顶层元素
      */
-    private boolean isTopElement;
+    public abstract boolean isTopElement();
     
     /**
      * 元素是否在视口内
+     * 
+     * @return 是否在视口内
      */
-    private boolean isInViewport;
+    public abstract boolean isInViewport();
     
     /**
-     * 高亮索引，用于在UI中标识和后续交互
+     * 获取高亮索引，用于在UI中标识和后续交互
+     * 由页面内元素注册表分配，同一文档内多次提取之间保持不变
+     * 
+     * @return 高亮索引，没有时返回null
      */
-    private Integer highlightIndex;
+    public abstract Integer getHighlightIndex();
     
     /**
      * 元素是否有Shadow DOM
+     * 
+     * @return 是否有Shadow DOM
      */
-    private boolean shadowRoot;
+    public abstract boolean isShadowRoot();
     
     /**
-     * 视口信息
+     * 获取视口信息
+     * 
+     * @return 视口信息，没有时返回null
      */
-    private ViewportInfo viewportInfo;
+    public abstract ViewportInfo getViewportInfo();
+    
+    /**
+     * 按名称获取属性值
+     * 
+     * @param name 属性名
+     * @return 属性值，不存在时返回null
+     */
+    public String getAttribute(String name) {
+        return getAttributes().get(name);
+    }
     
     /**
      * 获取元素ID (如果有)
@@ -88,7 +109,7 @@ public class DomElement implements DomNode{
      * @return 元素ID或null
      */
     public String getId() {
-        return attributes.get("id");
+        return getAttribute("id");
     }
     
     /**
@@ -97,7 +118,7 @@ public class DomElement implements DomNode{
      * @return 元素类名或null
      */
     public String getClassName() {
-        return attributes.get("class");
+        return getAttribute("class");
     }
     
     /**
@@ -106,7 +127,7 @@ public class DomElement implements DomNode{
      * @return 元素名称或null
      */
     public String getName() {
-        return attributes.get("name");
+        return getAttribute("name");
     }
     
     /**
@@ -115,7 +136,7 @@ public class DomElement implements DomNode{
      * @return 元素类型或null
      */
     public String getType() {
-        return attributes.get("type");
+        return getAttribute("type");
     }
     
     /**
@@ -124,7 +145,7 @@ public class DomElement implements DomNode{
      * @return 元素值或null
      */
     public String getValue() {
-        return attributes.get("value");
+        return getAttribute("value");
     }
     
     /**
@@ -133,7 +154,7 @@ public class DomElement implements DomNode{
      * @return 元素ARIA标签或null
      */
     public String getAriaLabel() {
-        return attributes.get("aria-label");
+        return getAttribute("aria-label");
     }
     
     /**
@@ -142,7 +163,7 @@ public class DomElement implements DomNode{
      * @return 元素占位符或null
      */
     public String getPlaceholder() {
-        return attributes.get("placeholder");
+        return getAttribute("placeholder");
     }
     
     /**
@@ -162,7 +183,7 @@ public class DomElement implements DomNode{
      * @param sb 存储文本的StringBuilder
      */
     private void getAllTextRecursive(StringBuilder sb) {
-        for (DomNode child : children) {
+        for (DomNode child : getChildren()) {
             if (child instanceof DomTextNode) {
                 DomTextNode textNode = (DomTextNode) child;
                 if (textNode.isVisible()) {
@@ -196,7 +217,7 @@ public class DomElement implements DomNode{
     private void getAllTextTillNextClickableElementRecursive(StringBuilder sb, int maxDepth, int currentDepth) {
         if (currentDepth > maxDepth) return;
         
-        for (DomNode child : children) {
+        for (DomNode child : getChildren()) {
             if (child instanceof DomTextNode) {
                 DomTextNode textNode = (DomTextNode) child;
                 if (textNode.isVisible()) {
@@ -228,32 +249,13 @@ public class DomElement implements DomNode{
     
     /**
      * 查找包含指定文本的子元素
+     * 通过一次构建的文本索引查找，不再为每一层元素重新拼接子树文本
      * 
      * @param text 要查找的文本
      * @return 包含文本的元素列表
      */
     public List<DomElement> findElementsWithText(String text) {
-        List<DomElement> result = new ArrayList<>();
-        findElementsWithTextRecursive(text, result);
-        return result;
-    }
-    
-    /**
-     * 递归查找包含指定文本的子元素
-     * 
-     * @param text 要查找的文本
-     * @param result 结果列表
-     */
-    private void findElementsWithTextRecursive(String text, List<DomElement> result) {
-        if (containsText(text)) {
-            result.add(this);
-        }
-        
-        for (DomNode child : children) {
-            if (child instanceof DomElement) {
-                ((DomElement) child).findElementsWithTextRecursive(text, result);
-            }
-        }
+        return new ArrayList<>(DomTextIndex.build(this).findElementsWithText(text));
     }
     
     /**
@@ -263,8 +265,9 @@ public class DomElement implements DomNode{
      */
     public String getShortDescription() {
         StringBuilder sb = new StringBuilder();
-        sb.append(String.format("%s", tagName));
+        sb.append(String.format("%s", getTagName()));
         
+        Integer highlightIndex = getHighlightIndex();
         if (highlightIndex != null) {
             sb.append(String.format(" [%d]", highlightIndex));
         }
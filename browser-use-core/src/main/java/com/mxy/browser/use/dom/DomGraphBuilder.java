@@ -0,0 +1,101 @@
+package com.mxy.browser.use.dom;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 以DomElement/DomTextNode对象图存储DOM树的接收器
+ */
+class DomGraphBuilder implements DomTreeSink {
+
+    /**
+     * 节点ID -> DOM节点
+     */
+    @Getter
+    private final Map<String, DomNode> nodes = new HashMap<>();
+
+    /**
+     * 高亮索引 -> DOM元素
+     */
+    @Getter
+    private final Map<Integer, DomElement> selectorMap = new HashMap<>();
+
+    /**
+     * 有子节点的元素
+     */
+    private final List<DomElement> parents = new ArrayList<>();
+
+    /**
+     * 与parents一一对应的子节点ID
+     */
+    private final List<String[]> childIds = new ArrayList<>();
+
+    @Override
+    public void node(String id, NodeRecord record) {
+        if (record.textNode) {
+            nodes.put(id, DomTextNode.builder()
+                    .text(record.text != null ? record.text : "")
+                    .isVisible(record.isVisible)
+                    .build());
+            return;
+        }
+
+        Map<String, String> attributes = new HashMap<>();
+        for (int i = 0; i < record.attributeNames.size(); i++) {
+            attributes.put(record.attributeNames.get(i), record.attributeValues.get(i));
+        }
+        DomElement element = DomElement.builder()
+                .tagName(record.tagName)
+                .xpath(record.xpath)
+                .attributes(attributes)
+                .children(new ArrayList<>(record.childIds.size()))
+                .isVisible(record.isVisible)
+                .isInteractive(record.isInteractive)
+                .isTopElement(record.isTopElement)
+                .isInViewport(record.isInViewport)
+                .highlightIndex(record.highlightIndex)
+                .shadowRoot(record.shadowRoot)
+                .viewportInfo(record.viewportInfo)
+                .build();
+        nodes.put(id, element);
+        if (record.highlightIndex != null) {
+            selectorMap.put(record.highlightIndex, element);
+        }
+        if (!record.childIds.isEmpty()) {
+            parents.add(element);
+            childIds.add(record.childIds.toArray(new String[0]));
+        }
+    }
+
+    @Override
+    public void end() {
+        for (int i = 0; i < parents.size(); i++) {
+            DomElement parent = parents.get(i);
+            List<DomNode> children = parent.getChildren();
+            for (String childId : childIds.get(i)) {
+                DomNode child = nodes.get(childId);
+                if (child != null) {
+                    child.setParent(parent);
+                    children.add(child);
+                }
+            }
+        }
+        parents.clear();
+        childIds.clear();
+    }
+
+    /**
+     * 获取根元素
+     *
+     * @param rootId 根节点ID
+     * @return 根元素，不存在时返回null
+     */
+    DomElement getRoot(String rootId) {
+        DomNode root = rootId != null ? nodes.get(rootId) : null;
+        return root instanceof DomElement ? (DomElement) root : null;
+    }
+}
@@ -1,21 +1,18 @@
 package com.mxy.browser.use.dom;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.playwright.Locator;
 import com.microsoft.playwright.Page;
+import com.mxy.browser.use.concurrent.BrowserUseExecutors;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.util.StreamUtils;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 /**
  * DOM服务
@@ -28,6 +25,11 @@ public class DomService {
      * Playwright页面对象
      */
     private final Page page;
+
+    /**
+     * 异步任务执行器
+     */
+    private final Executor executor;
     
     /**
      * JSON处理器
@@ -35,9 +37,9 @@ public class DomService {
     private static final ObjectMapper objectMapper = new ObjectMapper();
     
     /**
-     * 构建DOM树的JavaScript代码
+     * 是否使用扁平DOM树表示
      */
-    private final String buildDomTreeJs;
+    private final boolean flatRepresentation;
 
     /**
      * 创建DOM服务
@@ -45,24 +47,30 @@ public class DomService {
      * @param page Playwright页面对象
      */
     public DomService(Page page) {
-        this.page = page;
-        this.buildDomTreeJs = loadBuildDomTreeJs();
+        this(page, null);
     }
 
     /**
-     * 加载构建DOM树的JavaScript
+     * 创建DOM服务
      * 
-     * @return JavaScript代码
+     * @param page Playwright页面对象
+     * @param executor 异步任务执行器，为null时使用默认执行器
      */
-    private String loadBuildDomTreeJs() {
-        try {
-            // 从资源目录加载JavaScript文件
-            ClassPathResource resource = new ClassPathResource("js/buildDomTree.js");
-            return StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            log.error("无法加载buildDomTree.js", e);
-            throw new RuntimeException("无法加载buildDomTree.js", e);
-        }
+    public DomService(Page page, Executor executor) {
+        this(page, executor, false);
+    }
+
+    /**
+     * 创建DOM服务
+     * 
+     * @param page Playwright页面对象
+     * @param executor 异步任务执行器，为null时使用默认执行器
+     * @param flatRepresentation 是否以扁平数组存储DOM树（DomElement为数组上的视图）
+     */
+    public DomService(Page page, Executor executor, boolean flatRepresentation) {
+        this.page = page;
+        this.executor = BrowserUseExecutors.orDefault(executor);
+        this.flatRepresentation = flatRepresentation;
     }
 
     /**
@@ -78,14 +86,7 @@ public class DomService {
             int focusElement,
             int viewportExpansion) {
         
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return buildDomTree(highlightElements, focusElement, viewportExpansion).get();
-            } catch (InterruptedException | ExecutionException e) {
-                log.error("获取可点击元素失败", e);
-                throw new RuntimeException("获取可点击元素失败", e);
-            }
-        });
+        return buildDomTree(highlightElements, focusElement, viewportExpansion);
     }
 
     /**
@@ -134,7 +135,7 @@ public class DomService {
                 log.error("获取跨域iframe失败", e);
                 throw new RuntimeException("获取跨域iframe失败", e);
             }
-        });
+        }, executor);
     }
 
     /**
@@ -200,149 +201,44 @@ public class DomService {
                     return new DomState(emptyRoot, new HashMap<>());
                 }
                 
-                // 检查页面是否能正确执行JavaScript
-                if (page.evaluate("1+1").equals(2)) {
-                    // 准备JavaScript执行参数
-                    Map<String, Object> args = new HashMap<>();
-                    args.put("doHighlightElements", highlightElements);
-                    args.put("focusHighlightIndex", focusElement);
-                    args.put("viewportExpansion", viewportExpansion);
-                    args.put("debugMode", log.isDebugEnabled());
-                    
-                    // 执行DOM树构建脚本
-                    String resultJson = page.evaluate(buildDomTreeJs, args).toString();
-                    
-                    // 解析返回的JSON
-                    JsonNode evalPage = objectMapper.readTree(resultJson);
-                    
-                    // 如果开启了调试，记录性能指标
-                    if (log.isDebugEnabled() && evalPage.has("perfMetrics")) {
-                        log.debug("DOM树构建性能指标: {}", 
-                                objectMapper.writerWithDefaultPrettyPrinter()
-                                .writeValueAsString(evalPage.get("perfMetrics")));
-                    }
-                    
-                    // 构建DOM树
-                    return constructDomTree(evalPage);
+                // 准备JavaScript执行参数
+                Map<String, Object> args = new HashMap<>();
+                args.put("doHighlightElements", highlightElements);
+                args.put("focusHighlightIndex", focusElement);
+                args.put("viewportExpansion", viewportExpansion);
+                args.put("debugMode", log.isDebugEnabled());
+
+                // 调用页面中预先安装的DOM树构建函数，结果在页面内序列化为JSON文本
+                String json = InPageScript.BUILD_DOM_TREE.call(page, args);
+
+                // 单遍流式解码，直接构建DOM树
+                DomTreeDecoder.DecodedDomTree decoded;
+                DomState domState;
+                if (flatRepresentation) {
+                    FlatDomTree.Builder builder = new FlatDomTree.Builder();
+                    decoded = DomTreeDecoder.decode(json, log.isDebugEnabled(), builder);
+                    domState = builder.build(decoded.getRootId()).toDomState();
                 } else {
-                    throw new RuntimeException("页面无法正确执行JavaScript");
+                    DomGraphBuilder builder = new DomGraphBuilder();
+                    decoded = DomTreeDecoder.decode(json, log.isDebugEnabled(), builder);
+                    domState = new DomState(builder.getRoot(decoded.getRootId()), builder.getSelectorMap());
+                }
+
+                // 如果开启了调试，记录性能指标
+                if (log.isDebugEnabled() && decoded.getPerfMetrics() != null) {
+                    log.debug("DOM树构建性能指标: {}", 
+                            objectMapper.writerWithDefaultPrettyPrinter()
+                            .writeValueAsString(decoded.getPerfMetrics()));
                 }
+
+                if (domState.getElementTree() == null) {
+                    throw new IOException("无法构建DOM树：找不到根节点");
+                }
+                return domState;
             } catch (Exception e) {
                 log.error("构建DOM树失败", e);
                 throw new RuntimeException("构建DOM树失败: " + e.getMessage(), e);
             }
-        });
-    }
-
-    /**
-     * 根据JavaScript返回的数据构建DOM树
-     * 
-     * @param evalPage JavaScript返回的数据
-     * @return DOM状态
-     */
-    private DomState constructDomTree(JsonNode evalPage) throws IOException {
-        Map<String, DomNode> nodeMap = new HashMap<>();
-        Map<Integer, DomElement> selectorMap = new HashMap<>();
-        
-        JsonNode jsNodeMap = evalPage.get("map");
-        String jsRootId = evalPage.get("rootId").asText();
-        
-        // 第一遍：解析所有节点并创建节点实例
-        jsNodeMap.fields().forEachRemaining(entry -> {
-            String id = entry.getKey();
-            JsonNode nodeData = entry.getValue();
-            
-            DomNode node = parseNode(nodeData);
-            if (node != null) {
-                nodeMap.put(id, node);
-                
-                // 如果是元素节点且有高亮索引，添加到选择器映射
-                if (node instanceof DomElement) {
-                    DomElement elementNode = (DomElement) node;
-                    Integer highlightIndex = elementNode.getHighlightIndex();
-                    if (highlightIndex != null) {
-                        selectorMap.put(highlightIndex, elementNode);
-                    }
-                }
-            }
-        });
-        
-        // 第二遍：建立节点间的父子关系
-        jsNodeMap.fields().forEachRemaining(entry -> {
-            String id = entry.getKey();
-            JsonNode nodeData = entry.getValue();
-            
-            if (nodeData.has("children") && nodeMap.containsKey(id) && nodeMap.get(id) instanceof DomElement) {
-                DomElement parentNode = (DomElement) nodeMap.get(id);
-                
-                // 添加子节点
-                nodeData.get("children").forEach(childId -> {
-                    String childIdStr = childId.asText();
-                    if (nodeMap.containsKey(childIdStr)) {
-                        DomNode childNode = nodeMap.get(childIdStr);
-                        childNode.setParent(parentNode);
-                        parentNode.getChildren().add(childNode);
-                    }
-                });
-            }
-        });
-        
-        // 获取根节点
-        DomElement rootNode = (DomElement) nodeMap.get(jsRootId);
-        if (rootNode == null) {
-            throw new IOException("无法构建DOM树：找不到根节点");
-        }
-        
-        return new DomState(rootNode, selectorMap);
-    }
-
-    /**
-     * 解析单个节点数据
-     * 
-     * @param nodeData 节点数据
-     * @return DOM节点
-     */
-    private DomNode parseNode(JsonNode nodeData) {
-        if (nodeData == null || nodeData.isEmpty()) {
-            return null;
-        }
-        
-        // 处理文本节点
-        if (nodeData.has("type") && "TEXT_NODE".equals(nodeData.get("type").asText())) {
-            return DomTextNode.builder()
-                    .text(nodeData.get("text").asText())
-                    .isVisible(nodeData.get("isVisible").asBoolean())
-                    .build();
-        }
-        
-        // 处理元素节点
-        ViewportInfo viewportInfo = null;
-        if (nodeData.has("viewport")) {
-            viewportInfo = ViewportInfo.builder()
-                    .width(nodeData.get("viewport").get("width").asInt())
-                    .height(nodeData.get("viewport").get("height").asInt())
-                    .build();
-        }
-        
-        // 构建属性映射
-        Map<String, String> attributes = new HashMap<>();
-        if (nodeData.has("attributes")) {
-            nodeData.get("attributes").fields().forEachRemaining(attr -> 
-                attributes.put(attr.getKey(), attr.getValue().asText()));
-        }
-       return DomElement.builder()
-                .tagName(nodeData.get("tagName").asText())
-                .xpath(nodeData.get("xpath").asText())
-                .attributes(attributes)
-                .children(new ArrayList<>())
-                .isVisible(nodeData.has("isVisible") ? nodeData.get("isVisible").asBoolean() : false)
-                .isInteractive(nodeData.has("isInteractive") ? nodeData.get("isInteractive").asBoolean() : false)
-                .isTopElement(nodeData.has("isTopElement") ? nodeData.get("isTopElement").asBoolean() : false)
-                .isInViewport(nodeData.has("isInViewport") ? nodeData.get("isInViewport").asBoolean() : false)
-                .highlightIndex(nodeData.has("highlightIndex") ? nodeData.get("highlightIndex").asInt() : null)
-                .shadowRoot(nodeData.has("shadowRoot") ? nodeData.get("shadowRoot").asBoolean() : false)
-                .viewportInfo(viewportInfo)
-                .build();
-
+        }, executor);
     }
-} 
\ No newline at end of file
+}
@@ -1,9 +1,13 @@
 package com.mxy.browser.use.dom;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.util.Map;
 
@@ -27,4 +31,61 @@ public class DomState {
      * 索引 -> DOM元素
      */
     private Map<Integer, DomElement> selectorMap;
+
+    /**
+     * 扁平DOM树，使用扁平表示时不为null，此时elementTree和selectorMap中的元素均为其视图
+     */
+    @ToString.Exclude
+    private FlatDomTree flatTree;
+
+    /**
+     * 文本索引，首次使用时构建
+     */
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient DomTextIndex textIndex;
+
+    /**
+     * 创建基于对象图的DOM状态
+     *
+     * @param elementTree DOM树根节点
+     * @param selectorMap 元素选择器映射
+     */
+    public DomState(DomElement elementTree, Map<Integer, DomElement> selectorMap) {
+        this(elementTree, selectorMap, null);
+    }
+
+    /**
+     * 创建DOM状态
+     *
+     * @param elementTree DOM树根节点
+     * @param selectorMap 元素选择器映射
+     * @param flatTree 扁平DOM树，可以为null
+     */
+    public DomState(DomElement elementTree, Map<Integer, DomElement> selectorMap, FlatDomTree flatTree) {
+        this(elementTree, selectorMap, flatTree, null);
+    }
+
+    /**
+     * 设置DOM树根节点，同时丢弃已构建的文本索引
+     *
+     * @param elementTree DOM树根节点
+     */
+    public void setElementTree(DomElement elementTree) {
+        this.elementTree = elementTree;
+        this.textIndex = null;
+    }
+
+    /**
+     * 获取文本索引，整个DOM状态只构建一次
+     *
+     * @return 文本索引
+     */
+    public DomTextIndex getTextIndex() {
+        if (textIndex == null) {
+            textIndex = DomTextIndex.build(elementTree);
+        }
+        return textIndex;
+    }
 } 
\ No newline at end of file
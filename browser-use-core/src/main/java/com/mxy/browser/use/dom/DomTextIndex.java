@@ -0,0 +1,238 @@
+package com.mxy.browser.use.dom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DOM文本索引
+ *
+ * 一次遍历DOM树，把所有可见文本依次写入同一个缓冲区（文本之间以空格分隔），
+ * 每个元素记录其子树文本在缓冲区中的区间。元素文本即缓冲区的一段，
+ * 不必为每个元素重新遍历子树；另保存一份逐字符转小写的副本用于不区分大小写的搜索。
+ *
+ * 索引基于构建时的DOM树，树被修改后需重新构建。
+ */
+public final class DomTextIndex {
+
+    /**
+     * 所有可见文本
+     */
+    private final String text;
+
+    /**
+     * 逐字符转小写的文本，与text位置一一对应
+     */
+    private final String folded;
+
+    /**
+     * 按先序排列的元素
+     */
+    private final List<DomElement> elements;
+
+    /**
+     * 元素 -> 先序编号（按对象标识）
+     */
+    private final Map<DomElement, Integer> slots;
+
+    /**
+     * 元素文本区间 [start, end)
+     */
+    private final int[] start;
+    private final int[] end;
+
+    /**
+     * 元素子树在elements中的结束位置（不含）
+     */
+    private final int[] subtreeEnd;
+
+    /**
+     * 构建文本索引
+     *
+     * @param root DOM树根节点
+     * @return 文本索引
+     */
+    public static DomTextIndex build(DomElement root) {
+        return new Builder().build(root);
+    }
+
+    private DomTextIndex(String text, List<DomElement> elements, Map<DomElement, Integer> slots,
+                         int[] start, int[] end, int[] subtreeEnd) {
+        this.text = text;
+        this.folded = fold(text);
+        this.elements = elements;
+        this.slots = slots;
+        this.start = start;
+        this.end = end;
+        this.subtreeEnd = subtreeEnd;
+    }
+
+    /**
+     * 获取元素内的所有可见文本，结果与DomElement.getAllText()相同
+     *
+     * @param element DOM元素
+     * @return 文本，元素不在索引中时直接遍历其子树
+     */
+    public String getAllText(DomElement element) {
+        Integer slot = slots.get(element);
+        if (slot == null) {
+            return element.getAllText();
+        }
+        return text.substring(start[slot], end[slot]).trim();
+    }
+
+    /**
+     * 检查元素文本是否包含指定内容（不区分大小写）
+     *
+     * @param element DOM元素
+     * @param query 要查找的文本
+     * @return 是否包含
+     */
+    public boolean containsText(DomElement element, String query) {
+        if (query == null || query.isEmpty()) {
+            return false;
+        }
+        Integer slot = slots.get(element);
+        if (slot == null) {
+            return element.containsText(query);
+        }
+        String needle = fold(query);
+        int found = folded.indexOf(needle, start[slot]);
+        return found >= 0 && found + needle.length() <= end[slot];
+    }
+
+    /**
+     * 查找文本包含指定内容的所有元素（不区分大小写），按先序返回
+     *
+     * @param query 要查找的文本
+     * @return 元素列表
+     */
+    public List<DomElement> findElementsWithText(String query) {
+        return findElementsWithText(0, elements.size(), query);
+    }
+
+    /**
+     * 在指定元素的子树（含自身）中查找文本包含指定内容的元素
+     *
+     * @param scope 查找范围
+     * @param query 要查找的文本
+     * @return 元素列表
+     */
+    public List<DomElement> findElementsWithText(DomElement scope, String query) {
+        Integer slot = slots.get(scope);
+        if (slot == null) {
+            return scope.findElementsWithText(query);
+        }
+        return findElementsWithText(slot, subtreeEnd[slot], query);
+    }
+
+    /**
+     * 在先序区间内查找
+     * 先找出文本的全部出现位置，再对每个元素二分查找其区间内的第一个出现位置
+     */
+    private List<DomElement> findElementsWithText(int from, int to, String query) {
+        if (query == null || query.isEmpty() || from >= to) {
+            return Collections.emptyList();
+        }
+        String needle = fold(query);
+        int[] occurrences = new int[16];
+        int count = 0;
+        for (int p = folded.indexOf(needle, start[from]); p >= 0 && p < end[from]; p = folded.indexOf(needle, p + 1)) {
+            if (count == occurrences.length) {
+                occurrences = Arrays.copyOf(occurrences, count * 2);
+            }
+            occurrences[count++] = p;
+        }
+
+        List<DomElement> result = new ArrayList<>();
+        if (count == 0) {
+            return result;
+        }
+        for (int slot = from; slot < to; slot++) {
+            int i = Arrays.binarySearch(occurrences, 0, count, start[slot]);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            if (i < count && occurrences[i] + needle.length() <= end[slot]) {
+                result.add(elements.get(slot));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 逐字符转小写，保持长度不变以便与原文位置对应
+     *
+     * @param value 原文
+     * @return 小写文本
+     */
+    private static String fold(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 索引构建器
+     */
+    private static final class Builder {
+
+        private final StringBuilder buffer = new StringBuilder();
+        private final List<DomElement> elements = new ArrayList<>();
+        private final Map<DomElement, Integer> slots = new IdentityHashMap<>();
+        private int[] start = new int[64];
+        private int[] end = new int[64];
+        private int[] subtreeEnd = new int[64];
+
+        /**
+         * 遍历DOM树并创建索引
+         *
+         * @param root 根节点
+         * @return 文本索引
+         */
+        DomTextIndex build(DomElement root) {
+            if (root != null) {
+                visit(root);
+            }
+            int size = elements.size();
+            return new DomTextIndex(buffer.toString(), elements, slots,
+                    Arrays.copyOf(start, size), Arrays.copyOf(end, size), Arrays.copyOf(subtreeEnd, size));
+        }
+
+        /**
+         * 先序遍历元素，文本拼接方式与DomElement.getAllText()一致
+         *
+         * @param element DOM元素
+         */
+        private void visit(DomElement element) {
+            int slot = elements.size();
+            if (slot == start.length) {
+                start = Arrays.copyOf(start, slot * 2);
+                end = Arrays.copyOf(end, slot * 2);
+                subtreeEnd = Arrays.copyOf(subtreeEnd, slot * 2);
+            }
+            elements.add(element);
+            slots.put(element, slot);
+            start[slot] = buffer.length();
+
+            for (DomNode child : element.getChildren()) {
+                if (child instanceof DomTextNode) {
+                    DomTextNode textNode = (DomTextNode) child;
+                    if (textNode.isVisible()) {
+                        buffer.append(textNode.getText()).append(' ');
+                    }
+                } else if (child instanceof DomElement) {
+                    visit((DomElement) child);
+                }
+            }
+
+            end[slot] = buffer.length();
+            subtreeEnd[slot] = elements.size();
+        }
+    }
+}
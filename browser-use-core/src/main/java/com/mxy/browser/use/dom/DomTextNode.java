@@ -1,34 +1,29 @@
 package com.mxy.browser.use.dom;
 
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
 /**
  * DOM文本节点
  * 表示页面中的文本内容
+ *
+ * 本类只定义读取接口，不包含任何字段：可修改的文本节点使用MutableDomTextNode（由builder()创建），
+ * 扁平DOM树使用只读视图FlatDomTextNode。
  */
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
-public class DomTextNode implements DomNode {
-    
-    /**
-     * 文本内容
-     */
-    private String text;
+public abstract class DomTextNode implements DomNode {
     
     /**
-     * 是否可见
+     * 创建可修改的文本节点
+     * 
+     * @return 构建器
      */
-    private boolean isVisible;
+    public static MutableDomTextNode.MutableDomTextNodeBuilder builder() {
+        return MutableDomTextNode.builder();
+    }
     
     /**
-     * 父节点
+     * 获取文本内容
+     * 
+     * @return 文本内容
      */
-    private DomElement parent;
+    public abstract String getText();
     
     /**
      * 获取文本内容的简短描述
@@ -36,6 +31,7 @@ public class DomTextNode implements DomNode {
      * @return 文本内容
      */
     public String getShortDescription() {
+        String text = getText();
         if (text == null || text.isEmpty()) {
             return "(empty text)";
         }
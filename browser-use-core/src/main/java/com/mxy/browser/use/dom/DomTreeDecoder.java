@@ -0,0 +1,256 @@
+package com.mxy.browser.use.dom;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DOM树数据解码器
+ *
+ * 使用Jackson的流式JsonParser单遍读取页面脚本返回的JSON文本，
+ * 每读完一个节点即交给DomTreeSink，不构建中间的JsonNode树。
+ *
+ * 数据格式：{ rootId, map: { id: node }, full?, patches?, perfMetrics? }
+ */
+final class DomTreeDecoder {
+
+    /**
+     * JSON处理器，仅用于按需读取性能指标
+     */
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 流式解析器工厂
+     */
+    private static final JsonFactory jsonFactory = objectMapper.getFactory();
+
+    /**
+     * 工具类，禁止实例化
+     */
+    private DomTreeDecoder() {
+    }
+
+    /**
+     * 解码DOM树数据
+     *
+     * @param json 页面脚本返回的JSON文本
+     * @param readPerfMetrics 是否读取性能指标（否则直接跳过）
+     * @param sink 节点接收器
+     * @return 解码结果（节点之外的字段）
+     * @throws IOException JSON格式错误
+     */
+    static DecodedDomTree decode(String json, boolean readPerfMetrics, DomTreeSink sink) throws IOException {
+        DecodedDomTree result = new DecodedDomTree();
+        DomTreeSink.NodeRecord record = new DomTreeSink.NodeRecord();
+
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("DOM树数据不是JSON对象");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "rootId":
+                        result.rootId = token == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                        break;
+                    case "full":
+                        result.full = parser.getValueAsBoolean(true);
+                        break;
+                    case "patches":
+                        result.patches = new ArrayList<>();
+                        readIdArray(parser, result.patches);
+                        break;
+                    case "map":
+                        readNodeMap(parser, record, sink);
+                        break;
+                    case "perfMetrics":
+                        if (readPerfMetrics) {
+                            result.perfMetrics = objectMapper.readTree(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+        }
+
+        sink.end();
+        return result;
+    }
+
+    /**
+     * 读取节点映射
+     */
+    private static void readNodeMap(JsonParser parser, DomTreeSink.NodeRecord record,
+                                    DomTreeSink sink) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String id = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            record.clear();
+            readNode(parser, record);
+            sink.node(id, record);
+        }
+    }
+
+    /**
+     * 读取单个节点，解析器位于节点对象的START_OBJECT
+     */
+    private static void readNode(JsonParser parser, DomTreeSink.NodeRecord record) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "type":
+                    record.textNode = "TEXT_NODE".equals(parser.getValueAsString());
+                    break;
+                case "text":
+                    record.text = parser.getValueAsString();
+                    break;
+                case "tagName":
+                    record.tagName = parser.getValueAsString();
+                    break;
+                case "xpath":
+                    record.xpath = parser.getValueAsString();
+                    break;
+                case "attributes":
+                    readAttributes(parser, record);
+                    break;
+                case "children":
+                    readIdArray(parser, record.childIds);
+                    break;
+                case "isVisible":
+                    record.isVisible = parser.getValueAsBoolean();
+                    break;
+                case "isInteractive":
+                    record.isInteractive = parser.getValueAsBoolean();
+                    break;
+                case "isTopElement":
+                    record.isTopElement = parser.getValueAsBoolean();
+                    break;
+                case "isInViewport":
+                    record.isInViewport = parser.getValueAsBoolean();
+                    break;
+                case "highlightIndex":
+                    record.highlightIndex = token == JsonToken.VALUE_NULL ? null : parser.getValueAsInt();
+                    break;
+                case "shadowRoot":
+                    record.shadowRoot = parser.getValueAsBoolean();
+                    break;
+                case "viewport":
+                    record.viewportInfo = readViewport(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 读取属性对象
+     */
+    private static void readAttributes(JsonParser parser, DomTreeSink.NodeRecord record) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (token.isStructStart()) {
+                parser.skipChildren();
+                continue;
+            }
+            record.attributeNames.add(name);
+            record.attributeValues.add(token == JsonToken.VALUE_NULL ? "null" : parser.getValueAsString());
+        }
+    }
+
+    /**
+     * 读取ID数组（ID可能是字符串或数字）
+     */
+    private static void readIdArray(JsonParser parser, List<String> ids) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token.isStructStart()) {
+                parser.skipChildren();
+            } else if (token != JsonToken.VALUE_NULL) {
+                ids.add(parser.getValueAsString());
+            }
+        }
+    }
+
+    /**
+     * 读取视口信息
+     */
+    private static ViewportInfo readViewport(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        int width = 0;
+        int height = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("width".equals(field)) {
+                width = parser.getValueAsInt();
+            } else if ("height".equals(field)) {
+                height = parser.getValueAsInt();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return ViewportInfo.builder().width(width).height(height).build();
+    }
+
+    /**
+     * 解码结果
+     */
+    @Getter
+    static final class DecodedDomTree {
+
+        /**
+         * 根节点ID，增量结果中可能为null
+         */
+        private String rootId;
+
+        /**
+         * 是否为完整DOM树（非增量结果）
+         */
+        private boolean full = true;
+
+        /**
+         * 增量结果中被替换的子树根节点ID
+         */
+        private List<String> patches = Collections.emptyList();
+
+        /**
+         * 性能指标，未读取时为null
+         */
+        private JsonNode perfMetrics;
+    }
+}
@@ -0,0 +1,124 @@
+package com.mxy.browser.use.dom;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DOM树数据接收器
+ *
+ * DomTreeDecoder每读完一个节点就交给接收器，由接收器决定DOM树的存储方式
+ * （对象图或扁平数组）。节点到达顺序不确定，子节点可能晚于父节点出现，
+ * 接收器应在end()中统一建立父子关系。
+ */
+interface DomTreeSink {
+
+    /**
+     * 接收一个节点
+     * 记录对象由解码器复用，接收器不得在方法返回后继续持有它
+     *
+     * @param id 页面节点ID
+     * @param record 节点数据
+     */
+    void node(String id, NodeRecord record);
+
+    /**
+     * 所有节点接收完毕
+     */
+    void end();
+
+    /**
+     * 可复用的节点数据
+     */
+    final class NodeRecord {
+
+        /**
+         * 是否为文本节点
+         */
+        boolean textNode;
+
+        /**
+         * 文本内容（文本节点）
+         */
+        String text;
+
+        /**
+         * 标签名称
+         */
+        String tagName;
+
+        /**
+         * XPath路径
+         */
+        String xpath;
+
+        /**
+         * 属性名，与attributeValues一一对应
+         */
+        final List<String> attributeNames = new ArrayList<>();
+
+        /**
+         * 属性值
+         */
+        final List<String> attributeValues = new ArrayList<>();
+
+        /**
+         * 子节点ID
+         */
+        final List<String> childIds = new ArrayList<>();
+
+        /**
+         * 是否可见
+         */
+        boolean isVisible;
+
+        /**
+         * 是否可交互
+         */
+        boolean isInteractive;
+
+        /**
+         * 是否为顶层元素
+         */
+        boolean isTopElement;
+
+        /**
+         * 是否在视口内
+         */
+        boolean isInViewport;
+
+        /**
+         * 高亮索引
+         */
+        Integer highlightIndex;
+
+        /**
+         * 是否有Shadow DOM
+         */
+        boolean shadowRoot;
+
+        /**
+         * 视口信息
+         */
+        ViewportInfo viewportInfo;
+
+        /**
+         * 清空数据以便读取下一个节点
+         */
+        void clear() {
+            textNode = false;
+            text = null;
+            tagName = null;
+            xpath = null;
+            attributeNames.clear();
+            attributeValues.clear();
+            childIds.clear();
+            isVisible = false;
+            isInteractive = false;
+            isTopElement = false;
+            isInViewport = false;
+            highlightIndex = null;
+            shadowRoot = false;
+            viewportInfo = null;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.mxy.browser.use.dom;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 扁平DOM树中元素节点的DomElement只读视图
+ * 所有数据都从FlatDomTree的数组中读取，视图本身只保存树和节点编号；
+ * 属性映射和子节点列表在首次访问时创建，按名称读取属性不创建任何对象。
+ * 扁平DOM树不可修改，设置父节点、修改属性映射或子节点列表都会抛出UnsupportedOperationException。
+ */
+final class FlatDomElement extends DomElement {
+
+    /**
+     * 所属扁平DOM树
+     */
+    private final FlatDomTree tree;
+
+    /**
+     * 节点编号
+     */
+    private final int node;
+
+    /**
+     * 子节点视图，首次访问时创建
+     */
+    private List<DomNode> children;
+
+    /**
+     * 属性视图，首次访问时创建
+     */
+    private Map<String, String> attributes;
+
+    FlatDomElement(FlatDomTree tree, int node) {
+        this.tree = tree;
+        this.node = node;
+    }
+
+    /**
+     * 获取节点在扁平DOM树中的编号
+     *
+     * @return 节点编号
+     */
+    int getNode() {
+        return node;
+    }
+
+    @Override
+    public String getTagName() {
+        return tree.getTagName(node);
+    }
+
+    @Override
+    public String getXpath() {
+        return tree.getXpath(node);
+    }
+
+    @Override
+    public Map<String, String> getAttributes() {
+        if (attributes == null) {
+            attributes = new AttributeMap();
+        }
+        return attributes;
+    }
+
+    @Override
+    public String getAttribute(String name) {
+        return tree.getAttribute(node, name);
+    }
+
+    @Override
+    public List<DomNode> getChildren() {
+        if (children == null) {
+            List<DomNode> list = new ArrayList<>();
+            for (int child = tree.getFirstChild(node); child != FlatDomTree.NO_NODE; child = tree.getNextSibling(child)) {
+                list.add(tree.view(child));
+            }
+            children = Collections.unmodifiableList(list);
+        }
+        return children;
+    }
+
+    @Override
+    public DomElement getParent() {
+        return (DomElement) tree.view(tree.getParent(node));
+    }
+
+    @Override
+    public boolean isVisible() {
+        return tree.isVisible(node);
+    }
+
+    @Override
+    public boolean isInteractive() {
+        return tree.isInteractive(node);
+    }
+
+    @Override
+    public boolean isTopElement() {
+        return tree.isTopElement(node);
+    }
+
+    @Override
+    public boolean isInViewport() {
+        return tree.isInViewport(node);
+    }
+
+    @Override
+    public Integer getHighlightIndex() {
+        int index = tree.getHighlightIndex(node);
+        return index == FlatDomTree.NO_HIGHLIGHT ? null : index;
+    }
+
+    @Override
+    public boolean isShadowRoot() {
+        return tree.hasShadowRoot(node);
+    }
+
+    @Override
+    public ViewportInfo getViewportInfo() {
+        return tree.getViewportInfo(node);
+    }
+
+    @Override
+    public void setParent(DomElement parent) {
+        throw new UnsupportedOperationException("扁平DOM树不可修改");
+    }
+
+    @Override
+    public String toString() {
+        return getShortDescription();
+    }
+
+    /**
+     * 只读属性视图，按名称查找时直接扫描节点的属性区间
+     */
+    private final class AttributeMap extends AbstractMap<String, String> {
+
+        @Override
+        public String get(Object key) {
+            return key instanceof String ? tree.getAttribute(node, (String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            if (!(key instanceof String)) {
+                return false;
+            }
+            for (int i = 0; i < tree.getAttributeCount(node); i++) {
+                if (key.equals(tree.getAttributeName(node, i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int size() {
+            return tree.getAttributeCount(node);
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<Entry<String, String>>() {
+                        private int i = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return i < tree.getAttributeCount(node);
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, String> entry = new SimpleImmutableEntry<>(
+                                    tree.getAttributeName(node, i), tree.getAttributeValue(node, i));
+                            i++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return tree.getAttributeCount(node);
+                }
+            };
+        }
+    }
+}
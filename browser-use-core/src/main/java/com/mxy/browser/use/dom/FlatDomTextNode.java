@@ -0,0 +1,47 @@
+package com.mxy.browser.use.dom;
+
+/**
+ * 扁平DOM树中文本节点的DomTextNode只读视图
+ */
+final class FlatDomTextNode extends DomTextNode {
+
+    /**
+     * 所属扁平DOM树
+     */
+    private final FlatDomTree tree;
+
+    /**
+     * 节点编号
+     */
+    private final int node;
+
+    FlatDomTextNode(FlatDomTree tree, int node) {
+        this.tree = tree;
+        this.node = node;
+    }
+
+    @Override
+    public String getText() {
+        return tree.getText(node);
+    }
+
+    @Override
+    public boolean isVisible() {
+        return tree.isVisible(node);
+    }
+
+    @Override
+    public DomElement getParent() {
+        return (DomElement) tree.view(tree.getParent(node));
+    }
+
+    @Override
+    public void setParent(DomElement parent) {
+        throw new UnsupportedOperationException("扁平DOM树不可修改");
+    }
+
+    @Override
+    public String toString() {
+        return getShortDescription();
+    }
+}
@@ -0,0 +1,587 @@
+package com.mxy.browser.use.dom;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 扁平DOM树
+ *
+ * 以基本类型数组（结构数组）存储整棵DOM树：父节点、第一个子节点、下一个兄弟节点、
+ * 标签、标志位和高亮索引各占一个int数组，字符串统一保存在字符串表中。
+ * 大页面不再为每个节点分配属性HashMap、子节点ArrayList和父节点引用。
+ *
+ * 需要DomElement API时通过view()获取轻量只读视图，视图按节点编号缓存，同一节点的视图只创建一次。
+ * 扁平DOM树构建后不可修改，因此只用于完整提取（BrowserContextConfig关闭增量提取并开启flatDomRepresentation时）；
+ * 增量提取需要替换上一次DOM树中的子树，仍使用可修改的MutableDomElement。
+ */
+public final class FlatDomTree {
+
+    /**
+     * 表示不存在的节点
+     */
+    public static final int NO_NODE = -1;
+
+    /**
+     * 表示没有高亮索引
+     */
+    public static final int NO_HIGHLIGHT = -1;
+
+    /**
+     * 标志位：文本节点、可见、可交互、顶层元素、在视口内、有Shadow DOM
+     */
+    static final int FLAG_TEXT = 1;
+    static final int FLAG_VISIBLE = 1 << 1;
+    static final int FLAG_INTERACTIVE = 1 << 2;
+    static final int FLAG_TOP_ELEMENT = 1 << 3;
+    static final int FLAG_IN_VIEWPORT = 1 << 4;
+    static final int FLAG_SHADOW_ROOT = 1 << 5;
+
+    /**
+     * 节点数
+     */
+    private final int size;
+
+    /**
+     * 根节点
+     */
+    private final int root;
+
+    /**
+     * 树结构：父节点、第一个子节点、下一个兄弟节点，不存在时为NO_NODE
+     */
+    private final int[] parent;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+
+    /**
+     * 元素为标签名编号，文本节点为文本编号
+     */
+    private final int[] name;
+
+    /**
+     * XPath编号（文本节点为0）
+     */
+    private final int[] xpath;
+
+    /**
+     * 标志位与高亮索引
+     */
+    private final int[] flags;
+    private final int[] highlightIndex;
+
+    /**
+     * 节点属性在attributes中的范围 [attributeStart, attributeEnd)，以名称/值对计
+     */
+    private final int[] attributeStart;
+    private final int[] attributeEnd;
+
+    /**
+     * 属性名称与值的编号，交替存放
+     */
+    private final int[] attributes;
+
+    /**
+     * 字符串表
+     */
+    private final StringTable strings;
+
+    /**
+     * 少数带视口信息的节点
+     */
+    private final Map<Integer, ViewportInfo> viewports;
+
+    /**
+     * 已创建的节点视图
+     */
+    private final DomNode[] views;
+
+    /**
+     * 由构建器创建扁平DOM树，数组按节点数截断
+     *
+     * @param builder 构建器
+     * @param size 节点数
+     * @param root 根节点
+     */
+    private FlatDomTree(Builder builder, int size, int root) {
+        this.size = size;
+        this.root = root;
+        this.parent = Arrays.copyOf(builder.parent, size);
+        this.firstChild = Arrays.copyOf(builder.firstChild, size);
+        this.nextSibling = Arrays.copyOf(builder.nextSibling, size);
+        this.name = Arrays.copyOf(builder.name, size);
+        this.xpath = Arrays.copyOf(builder.xpath, size);
+        this.flags = Arrays.copyOf(builder.flags, size);
+        this.highlightIndex = Arrays.copyOf(builder.highlightIndex, size);
+        this.attributeStart = Arrays.copyOf(builder.attributeStart, size);
+        this.attributeEnd = Arrays.copyOf(builder.attributeEnd, size);
+        this.attributes = Arrays.copyOf(builder.attributes, builder.attributeCount * 2);
+        this.strings = builder.strings;
+        this.viewports = builder.viewports;
+        this.views = new DomNode[size];
+        strings.freeze();
+    }
+
+    /**
+     * 节点数
+     *
+     * @return 节点数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 根节点
+     *
+     * @return 根节点，空树时为NO_NODE
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    /**
+     * 父节点
+     *
+     * @param node 节点
+     * @return 父节点，根节点返回NO_NODE
+     */
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * 第一个子节点
+     *
+     * @param node 节点
+     * @return 第一个子节点，没有时返回NO_NODE
+     */
+    public int getFirstChild(int node) {
+        return firstChild[node];
+    }
+
+    /**
+     * 下一个兄弟节点
+     *
+     * @param node 节点
+     * @return 下一个兄弟节点，没有时返回NO_NODE
+     */
+    public int getNextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    /**
+     * 是否为文本节点
+     *
+     * @param node 节点
+     * @return 是否为文本节点
+     */
+    public boolean isText(int node) {
+        return (flags[node] & FLAG_TEXT) != 0;
+    }
+
+    /**
+     * 是否可见
+     *
+     * @param node 节点
+     * @return 是否可见
+     */
+    public boolean isVisible(int node) {
+        return (flags[node] & FLAG_VISIBLE) != 0;
+    }
+
+    /**
+     * 是否可交互
+     *
+     * @param node 节点
+     * @return 是否可交互
+     */
+    public boolean isInteractive(int node) {
+        return (flags[node] & FLAG_INTERACTIVE) != 0;
+    }
+
+    /**
+     * 是否为顶层元素
+     *
+     * @param node 节点
+     * @return 是否为顶层元素
+     */
+    public boolean isTopElement(int node) {
+        return (flags[node] & FLAG_TOP_ELEMENT) != 0;
+    }
+
+    /**
+     * 是否在视口内
+     *
+     * @param node 节点
+     * @return 是否在视口内
+     */
+    public boolean isInViewport(int node) {
+        return (flags[node] & FLAG_IN_VIEWPORT) != 0;
+    }
+
+    /**
+     * 是否有Shadow DOM
+     *
+     * @param node 节点
+     * @return 是否有Shadow DOM
+     */
+    public boolean hasShadowRoot(int node) {
+        return (flags[node] & FLAG_SHADOW_ROOT) != 0;
+    }
+
+    /**
+     * 高亮索引
+     *
+     * @param node 节点
+     * @return 高亮索引，没有时为NO_HIGHLIGHT
+     */
+    public int getHighlightIndex(int node) {
+        return highlightIndex[node];
+    }
+
+    /**
+     * 元素标签名
+     *
+     * @param node 节点
+     * @return 标签名，文本节点返回null
+     */
+    public String getTagName(int node) {
+        return isText(node) ? null : strings.get(name[node]);
+    }
+
+    /**
+     * 文本节点的文本
+     *
+     * @param node 节点
+     * @return 文本，元素返回null
+     */
+    public String getText(int node) {
+        return isText(node) ? strings.get(name[node]) : null;
+    }
+
+    /**
+     * XPath路径
+     *
+     * @param node 节点
+     * @return XPath，文本节点返回null
+     */
+    public String getXpath(int node) {
+        return strings.get(xpath[node]);
+    }
+
+    /**
+     * 视口信息
+     *
+     * @param node 节点
+     * @return 视口信息，没有时返回null
+     */
+    public ViewportInfo getViewportInfo(int node) {
+        return viewports.get(node);
+    }
+
+    /**
+     * 属性数量
+     *
+     * @param node 节点
+     * @return 属性数量
+     */
+    public int getAttributeCount(int node) {
+        return attributeEnd[node] - attributeStart[node];
+    }
+
+    /**
+     * 第i个属性的名称
+     *
+     * @param node 节点
+     * @param i 属性序号
+     * @return 属性名
+     */
+    public String getAttributeName(int node, int i) {
+        return strings.get(attributes[(attributeStart[node] + i) * 2]);
+    }
+
+    /**
+     * 第i个属性的值
+     *
+     * @param node 节点
+     * @param i 属性序号
+     * @return 属性值
+     */
+    public String getAttributeValue(int node, int i) {
+        return strings.get(attributes[(attributeStart[node] + i) * 2 + 1]);
+    }
+
+    /**
+     * 按名称查找属性值
+     *
+     * @param node 节点
+     * @param attributeName 属性名
+     * @return 属性值，不存在时返回null
+     */
+    public String getAttribute(int node, String attributeName) {
+        for (int i = attributeStart[node]; i < attributeEnd[node]; i++) {
+            if (attributeName.equals(strings.get(attributes[i * 2]))) {
+                return strings.get(attributes[i * 2 + 1]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取节点的DomNode视图
+     *
+     * @param node 节点
+     * @return 视图，NO_NODE时返回null
+     */
+    public DomNode view(int node) {
+        if (node == NO_NODE) {
+            return null;
+        }
+        DomNode view = views[node];
+        if (view == null) {
+            view = isText(node) ? new FlatDomTextNode(this, node) : new FlatDomElement(this, node);
+            views[node] = view;
+        }
+        return view;
+    }
+
+    /**
+     * 获取根元素视图
+     *
+     * @return 根元素，空树时返回null
+     */
+    public DomElement getRootElement() {
+        DomNode view = view(root);
+        return view instanceof DomElement ? (DomElement) view : null;
+    }
+
+    /**
+     * 构建选择器映射，只为带高亮索引的元素创建视图
+     *
+     * @return 高亮索引 -> DOM元素
+     */
+    public Map<Integer, DomElement> buildSelectorMap() {
+        Map<Integer, DomElement> selectorMap = new HashMap<>();
+        for (int node = 0; node < size; node++) {
+            if (highlightIndex[node] != NO_HIGHLIGHT) {
+                selectorMap.put(highlightIndex[node], (DomElement) view(node));
+            }
+        }
+        return selectorMap;
+    }
+
+    /**
+     * 转换为DOM状态，DomElement均为本树的视图
+     *
+     * @return DOM状态
+     */
+    public DomState toDomState() {
+        return new DomState(getRootElement(), buildSelectorMap(), this);
+    }
+
+    /**
+     * 扁平DOM树构建器，作为解码器的接收器使用
+     * 节点按页面节点ID首次出现的顺序编号，未定义的节点在构建时剔除
+     */
+    static final class Builder implements DomTreeSink {
+
+        /**
+         * 字符串表
+         */
+        private final StringTable strings = new StringTable();
+
+        /**
+         * 页面节点ID -> 节点编号
+         */
+        private final Map<String, Integer> indexById = new HashMap<>();
+        private final Map<Integer, ViewportInfo> viewports = new HashMap<>();
+
+        /**
+         * 已分配的节点数（含尚未定义的节点）
+         */
+        private int count = 0;
+        private int[] parent = new int[0];
+        private int[] firstChild = new int[0];
+        private int[] nextSibling = new int[0];
+        private int[] name = new int[0];
+        private int[] xpath = new int[0];
+        private int[] flags = new int[0];
+        private int[] highlightIndex = new int[0];
+        private int[] attributeStart = new int[0];
+        private int[] attributeEnd = new int[0];
+
+        /**
+         * 节点的子节点在childRefs中的范围，以及节点是否已定义
+         */
+        private int[] childStart = new int[0];
+        private int[] childEnd = new int[0];
+        private boolean[] defined = new boolean[0];
+
+        /**
+         * 属性名称与值的编号
+         */
+        private int[] attributes = new int[64];
+        private int attributeCount = 0;
+
+        /**
+         * 子节点编号，按父节点分段存放
+         */
+        private int[] childRefs = new int[64];
+        private int childRefCount = 0;
+
+        /**
+         * 获取或分配节点编号
+         */
+        private int indexOf(String id) {
+            Integer index = indexById.get(id);
+            if (index != null) {
+                return index;
+            }
+            if (count == parent.length) {
+                grow(Math.max(256, count * 2));
+            }
+            indexById.put(id, count);
+            return count++;
+        }
+
+        /**
+         * 扩容节点数组
+         *
+         * @param capacity 新容量
+         */
+        private void grow(int capacity) {
+            parent = Arrays.copyOf(parent, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            name = Arrays.copyOf(name, capacity);
+            xpath = Arrays.copyOf(xpath, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            highlightIndex = Arrays.copyOf(highlightIndex, capacity);
+            attributeStart = Arrays.copyOf(attributeStart, capacity);
+            attributeEnd = Arrays.copyOf(attributeEnd, capacity);
+            childStart = Arrays.copyOf(childStart, capacity);
+            childEnd = Arrays.copyOf(childEnd, capacity);
+            defined = Arrays.copyOf(defined, capacity);
+        }
+
+        @Override
+        public void node(String id, NodeRecord record) {
+            int node = indexOf(id);
+            defined[node] = true;
+            highlightIndex[node] = NO_HIGHLIGHT;
+
+            if (record.textNode) {
+                name[node] = strings.intern(record.text != null ? record.text : "");
+                flags[node] = FLAG_TEXT | (record.isVisible ? FLAG_VISIBLE : 0);
+                return;
+            }
+
+            name[node] = strings.intern(record.tagName);
+            xpath[node] = strings.intern(record.xpath);
+            flags[node] = (record.isVisible ? FLAG_VISIBLE : 0)
+                    | (record.isInteractive ? FLAG_INTERACTIVE : 0)
+                    | (record.isTopElement ? FLAG_TOP_ELEMENT : 0)
+                    | (record.isInViewport ? FLAG_IN_VIEWPORT : 0)
+                    | (record.shadowRoot ? FLAG_SHADOW_ROOT : 0);
+            if (record.highlightIndex != null) {
+                highlightIndex[node] = record.highlightIndex;
+            }
+            if (record.viewportInfo != null) {
+                viewports.put(node, record.viewportInfo);
+            }
+
+            int attributeTotal = record.attributeNames.size();
+            if ((attributeCount + attributeTotal) * 2 > attributes.length) {
+                attributes = Arrays.copyOf(attributes, Math.max(attributes.length * 2, (attributeCount + attributeTotal) * 2));
+            }
+            attributeStart[node] = attributeCount;
+            for (int i = 0; i < attributeTotal; i++) {
+                attributes[attributeCount * 2] = strings.intern(record.attributeNames.get(i));
+                attributes[attributeCount * 2 + 1] = strings.intern(record.attributeValues.get(i));
+                attributeCount++;
+            }
+            attributeEnd[node] = attributeCount;
+
+            int childTotal = record.childIds.size();
+            if (childRefCount + childTotal > childRefs.length) {
+                childRefs = Arrays.copyOf(childRefs, Math.max(childRefs.length * 2, childRefCount + childTotal));
+            }
+            childStart[node] = childRefCount;
+            for (String childId : record.childIds) {
+                // 子节点可能尚未定义，先分配编号，end()中再建立链接
+                int child = indexOf(childId);
+                childRefs[childRefCount++] = child;
+            }
+            childEnd[node] = childRefCount;
+        }
+
+        @Override
+        public void end() {
+            // 剔除只被引用、从未定义的节点
+            int[] remap = new int[count];
+            int size = 0;
+            for (int node = 0; node < count; node++) {
+                remap[node] = defined[node] ? size++ : NO_NODE;
+            }
+            if (size != count) {
+                for (int node = 0; node < count; node++) {
+                    int target = remap[node];
+                    if (target == NO_NODE || target == node) {
+                        continue;
+                    }
+                    name[target] = name[node];
+                    xpath[target] = xpath[node];
+                    flags[target] = flags[node];
+                    highlightIndex[target] = highlightIndex[node];
+                    attributeStart[target] = attributeStart[node];
+                    attributeEnd[target] = attributeEnd[node];
+                    childStart[target] = childStart[node];
+                    childEnd[target] = childEnd[node];
+                    ViewportInfo viewport = viewports.remove(node);
+                    if (viewport != null) {
+                        viewports.put(target, viewport);
+                    }
+                }
+                for (int i = 0; i < childRefCount; i++) {
+                    childRefs[i] = remap[childRefs[i]];
+                }
+                for (Map.Entry<String, Integer> entry : indexById.entrySet()) {
+                    entry.setValue(remap[entry.getValue()]);
+                }
+            }
+
+            Arrays.fill(parent, 0, size, NO_NODE);
+            Arrays.fill(firstChild, 0, size, NO_NODE);
+            Arrays.fill(nextSibling, 0, size, NO_NODE);
+            for (int node = 0; node < size; node++) {
+                int previous = NO_NODE;
+                for (int i = childStart[node]; i < childEnd[node]; i++) {
+                    int child = childRefs[i];
+                    if (child == NO_NODE) {
+                        continue;
+                    }
+                    parent[child] = node;
+                    if (previous == NO_NODE) {
+                        firstChild[node] = child;
+                    } else {
+                        nextSibling[previous] = child;
+                    }
+                    previous = child;
+                }
+            }
+            count = size;
+        }
+
+        /**
+         * 创建扁平DOM树，须在end()之后调用
+         *
+         * @param rootId 根节点ID
+         * @return 扁平DOM树
+         */
+        FlatDomTree build(String rootId) {
+            Integer root = rootId != null ? indexById.get(rootId) : null;
+            return new FlatDomTree(this, count, root != null ? root : NO_NODE);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.mxy.browser.use.dom;
+
+import com.microsoft.playwright.Page;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 页面内脚本
+ *
+ * 脚本源码每个JVM只从类路径加载一次。通过init script在每个新文档中注册为window上的函数，
+ * 之后每次调用只需发送一个很短的调用表达式和参数，而不是整段脚本。
+ * 页面早于init script注册时（如上下文创建前已打开的页面），首次调用会先在页面中安装脚本。
+ */
+@Slf4j
+public final class InPageScript {
+
+    /**
+     * 完整DOM树构建脚本
+     */
+    public static final InPageScript BUILD_DOM_TREE =
+            new InPageScript("js/buildDomTree.js", "__browserUseBuildDomTree", true);
+
+    /**
+     * 增量DOM树提取脚本
+     */
+    public static final InPageScript INCREMENTAL_DOM_TREE =
+            new InPageScript("js/incrementalDomTree.js", "__browserUseIncrementalDomTree", false);
+
+    /**
+     * 动作准备脚本（定位、滚动、可见性与遮挡检查、聚焦）
+     */
+    public static final InPageScript PREPARE_ACTION =
+            new InPageScript("js/prepareAction.js", "__browserUsePrepareAction", true);
+
+    /**
+     * 函数未安装时调用表达式的返回值
+     */
+    private static final String MISSING = "__browserUseScriptMissing";
+
+    /**
+     * 脚本资源路径
+     */
+    @Getter
+    private final String resourcePath;
+
+    /**
+     * 注册在window上的函数名
+     */
+    @Getter
+    private final String functionName;
+
+    /**
+     * 调用表达式，结果在页面内序列化为JSON文本
+     */
+    private final String callExpression;
+
+    /**
+     * 脚本源码，首次使用时加载
+     */
+    private volatile String source;
+
+    /**
+     * 创建页面内脚本
+     *
+     * @param resourcePath 脚本资源路径，脚本内容须为接收一个参数的函数表达式
+     * @param functionName 注册在window上的函数名
+     * @param stringifyResult 是否在页面内将返回值序列化为JSON（脚本本身已返回JSON文本时为false）
+     */
+    private InPageScript(String resourcePath, String functionName, boolean stringifyResult) {
+        this.resourcePath = resourcePath;
+        this.functionName = functionName;
+        this.callExpression = "(args) => { const fn = window." + functionName + "; "
+                + "return fn ? " + (stringifyResult ? "JSON.stringify(fn(args))" : "fn(args)")
+                + " : '" + MISSING + "'; }";
+    }
+
+    /**
+     * 获取脚本源码
+     *
+     * @return JavaScript代码
+     */
+    public String getSource() {
+        String loaded = source;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = source;
+                if (loaded == null) {
+                    loaded = load();
+                    source = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 获取注册脚本函数的init script
+     * 函数以不可枚举属性挂在window上，已存在时不重复注册
+     *
+     * @return JavaScript代码
+     */
+    public String getInitScript() {
+        return "(() => {\n"
+                + "  if (window." + functionName + ") return;\n"
+                + "  Object.defineProperty(window, '" + functionName + "', {\n"
+                + "    value: (" + getSource() + "),\n"
+                + "    configurable: true,\n"
+                + "    enumerable: false\n"
+                + "  });\n"
+                + "})();";
+    }
+
+    /**
+     * 在页面中调用脚本函数，函数尚未安装时先安装
+     *
+     * @param page 页面对象
+     * @param args 脚本参数
+     * @return 脚本返回的JSON文本
+     */
+    public String call(Page page, Object args) {
+        Object result = page.evaluate(callExpression, args);
+        if (MISSING.equals(result)) {
+            log.debug("页面中尚未安装{}，先安装再调用", functionName);
+            page.evaluate(getInitScript());
+            result = page.evaluate(callExpression, args);
+        }
+        return String.valueOf(result);
+    }
+
+    /**
+     * 从类路径加载脚本
+     *
+     * @return JavaScript代码
+     */
+    private String load() {
+        try {
+            ClassPathResource resource = new ClassPathResource(resourcePath);
+            return StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.error("无法加载{}", resourcePath, e);
+            throw new RuntimeException("无法加载" + resourcePath, e);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.mxy.browser.use.dom;
+
+import com.microsoft.playwright.Page;
+import com.mxy.browser.use.concurrent.BrowserUseExecutors;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 增量DOM服务
+ *
+ * 页面内的MutationObserver记录发生变化的子树，每次提取只序列化并传回这些子树，
+ * 在Java侧替换上一次DOM树中对应的部分，避免每一步都重新遍历整个页面。
+ * 导航到新文档、滚动或脏子树过大时由页面脚本返回完整DOM树。
+ *
+ * 已返回的DOM树不会再被修改：增量更新时复制从根到每个脏子树父节点的路径，未变化的子树在新旧两棵树之间共享。
+ * 共享子树的parent仍指向旧树中对应的祖先（标签和属性相同，只是子节点列表不同）。
+ * 每个页面使用一个实例，不应并发调用。
+ */
+@Slf4j
+public class IncrementalDomService {
+
+    /**
+     * Playwright页面对象
+     */
+    private final Page page;
+
+    /**
+     * 异步任务执行器
+     */
+    private final Executor executor;
+
+    /**
+     * 脏子树节点数占比超过该值时改为完整提取
+     */
+    private final double maxDirtyFraction;
+
+    /**
+     * 页面节点ID -> DOM节点
+     */
+    private final Map<String, DomNode> nodeMap = new HashMap<>();
+
+    /**
+     * DOM节点 -> 页面节点ID（按对象标识查找，DomNode的equals会递归比较整棵子树）
+     */
+    private final Map<DomNode, String> nodeIds = new IdentityHashMap<>();
+
+    /**
+     * 页面节点ID -> 父节点ID（共享子树的parent可能指向旧树，因此单独记录当前树中的父子关系）
+     */
+    private final Map<String, String> parentIds = new HashMap<>();
+
+    /**
+     * 高亮索引 -> DOM元素
+     */
+    private final Map<Integer, DomElement> selectorMap = new HashMap<>();
+
+    /**
+     * 当前DOM树根节点
+     */
+    private DomElement root;
+
+    /**
+     * 创建增量DOM服务
+     *
+     * @param page Playwright页面对象
+     * @param executor 异步任务执行器，为null时使用默认执行器
+     * @param maxDirtyFraction 脏子树节点数占比超过该值时改为完整提取
+     */
+    public IncrementalDomService(Page page, Executor executor, double maxDirtyFraction) {
+        this.page = page;
+        this.executor = BrowserUseExecutors.orDefault(executor);
+        this.maxDirtyFraction = maxDirtyFraction;
+    }
+
+    /**
+     * 获取页面的可点击元素
+     *
+     * @param highlightElements 是否高亮元素
+     * @param focusElement 焦点元素索引
+     * @param viewportExpansion 视口扩展像素
+     * @return DOM状态
+     */
+    public CompletableFuture<DomState> getClickableElements(
+            boolean highlightElements,
+            int focusElement,
+            int viewportExpansion) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if ("about:blank".equals(page.url())) {
+                    reset();
+                    DomElement emptyRoot = DomElement.builder()
+                            .tagName("body")
+                            .xpath("")
+                            .isVisible(false)
+                            .build();
+                    return new DomState(emptyRoot, new HashMap<>());
+                }
+
+                Map<String, Object> args = new HashMap<>();
+                args.put("doHighlightElements", highlightElements);
+                args.put("focusHighlightIndex", focusElement);
+                args.put("viewportExpansion", viewportExpansion);
+                args.put("maxDirtyFraction", maxDirtyFraction);
+
+                String json = InPageScript.INCREMENTAL_DOM_TREE.call(page, args);
+                DomGraphBuilder builder = new DomGraphBuilder();
+                DomTreeDecoder.DecodedDomTree decoded =
+                        DomTreeDecoder.decode(json, log.isDebugEnabled(), builder);
+
+                synchronized (this) {
+                    if (decoded.isFull() || root == null) {
+                        rebuild(decoded, builder);
+                    } else {
+                        patch(decoded, builder);
+                    }
+
+                    if (log.isDebugEnabled()) {
+                        log.debug("增量DOM提取: full={}, 子树数={}, 性能指标={}",
+                                decoded.isFull(), decoded.getPatches().size(), decoded.getPerfMetrics());
+                    }
+                    return new DomState(root, new HashMap<>(selectorMap));
+                }
+            } catch (Exception e) {
+                log.error("增量构建DOM树失败", e);
+                reset();
+                throw new RuntimeException("增量构建DOM树失败: " + e.getMessage(), e);
+            }
+        }, executor);
+    }
+
+    /**
+     * 丢弃已缓存的DOM树，下一次提取时页面脚本仍可能返回增量结果，
+     * 因此同时清除页面内状态以强制完整提取
+     */
+    public synchronized void reset() {
+        nodeMap.clear();
+        nodeIds.clear();
+        parentIds.clear();
+        selectorMap.clear();
+        root = null;
+        try {
+            if (!page.isClosed()) {
+                page.evaluate("() => { const s = window.__browserUseIncrementalDom; if (s) s.fullRequired = true; }");
+            }
+        } catch (Exception e) {
+            log.debug("重置页面内DOM状态失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 根据完整提取结果重建DOM树
+     *
+     * @param decoded 解码后的页面脚本数据
+     * @param builder 解码得到的节点
+     */
+    private void rebuild(DomTreeDecoder.DecodedDomTree decoded, DomGraphBuilder builder) throws IOException {
+        nodeMap.clear();
+        nodeIds.clear();
+        parentIds.clear();
+        selectorMap.clear();
+        root = null;
+
+        addNodes(builder);
+
+        DomElement rootNode = builder.getRoot(decoded.getRootId());
+        if (rootNode == null) {
+            throw new IOException("无法构建DOM树：找不到根节点");
+        }
+        root = rootNode;
+    }
+
+    /**
+     * 用脏子树替换DOM树中对应的部分
+     * 被替换子树的祖先先复制再修改，上一次返回的DOM树保持不变
+     *
+     * @param decoded 解码后的页面脚本数据
+     * @param builder 解码得到的节点
+     */
+    private void patch(DomTreeDecoder.DecodedDomTree decoded, DomGraphBuilder builder) throws IOException {
+        // 先移除旧子树，再加入新节点，避免新旧节点ID冲突
+        Map<String, String> patchParents = new HashMap<>();
+        Map<String, Integer> positions = new HashMap<>();
+        for (String id : decoded.getPatches()) {
+            DomNode old = nodeMap.get(id);
+            if (!(old instanceof DomElement)) {
+                throw new IOException("增量更新的子树根节点不存在: " + id);
+            }
+            String parentId = parentIds.get(id);
+            int position = -1;
+            if (parentId != null) {
+                DomNode parent = nodeMap.get(parentId);
+                if (!(parent instanceof DomElement)) {
+                    throw new IOException("增量更新的子树父节点不存在: " + id);
+                }
+                position = indexOf(((DomElement) parent).getChildren(), old);
+            }
+            patchParents.put(id, parentId);
+            positions.put(id, position);
+            removeSubtree(old);
+        }
+
+        addNodes(builder);
+
+        Map<String, DomElement> copies = new HashMap<>();
+        for (Map.Entry<String, String> entry : patchParents.entrySet()) {
+            DomNode replacement = nodeMap.get(entry.getKey());
+            if (!(replacement instanceof DomElement)) {
+                throw new IOException("增量更新缺少子树根节点: " + entry.getKey());
+            }
+            String parentId = entry.getValue();
+            if (parentId == null) {
+                root = (DomElement) replacement;
+                continue;
+            }
+            DomElement parent = copyForUpdate(parentId, copies);
+            replacement.setParent(parent);
+            parentIds.put(entry.getKey(), parentId);
+            int position = positions.get(entry.getKey());
+            if (position >= 0) {
+                parent.getChildren().set(position, replacement);
+            } else {
+                parent.getChildren().add(replacement);
+            }
+        }
+    }
+
+    /**
+     * 取得可修改的节点副本：复制节点（子节点列表也复制），并递归复制其祖先直到根节点
+     * 同一次更新中同一节点只复制一次
+     *
+     * @param id 节点ID
+     * @param copies 本次更新中已复制的节点
+     * @return 节点副本
+     */
+    private DomElement copyForUpdate(String id, Map<String, DomElement> copies) throws IOException {
+        DomElement copy = copies.get(id);
+        if (copy != null) {
+            return copy;
+        }
+        DomNode node = nodeMap.get(id);
+        if (!(node instanceof DomElement)) {
+            throw new IOException("增量更新的祖先节点不存在: " + id);
+        }
+        DomElement original = (DomElement) node;
+        copy = DomElement.builder()
+                .tagName(original.getTagName())
+                .xpath(original.getXpath())
+                .attributes(original.getAttributes())
+                .children(new ArrayList<>(original.getChildren()))
+                .isVisible(original.isVisible())
+                .isInteractive(original.isInteractive())
+                .isTopElement(original.isTopElement())
+                .isInViewport(original.isInViewport())
+                .highlightIndex(original.getHighlightIndex())
+                .shadowRoot(original.isShadowRoot())
+                .viewportInfo(original.getViewportInfo())
+                .build();
+        copies.put(id, copy);
+
+        String parentId = parentIds.get(id);
+        if (parentId == null) {
+            root = copy;
+        } else {
+            DomElement parent = copyForUpdate(parentId, copies);
+            int position = indexOf(parent.getChildren(), original);
+            if (position < 0) {
+                throw new IOException("增量更新的祖先节点不在父节点中: " + id);
+            }
+            parent.getChildren().set(position, copy);
+            copy.setParent(parent);
+        }
+
+        nodeMap.put(id, copy);
+        nodeIds.remove(original);
+        nodeIds.put(copy, id);
+        Integer highlightIndex = copy.getHighlightIndex();
+        if (highlightIndex != null && selectorMap.get(highlightIndex) == original) {
+            selectorMap.put(highlightIndex, copy);
+        }
+        return copy;
+    }
+
+    /**
+     * 加入解码后的节点（解码器已建立节点间的父子关系）
+     *
+     * @param builder 解码得到的节点
+     */
+    private void addNodes(DomGraphBuilder builder) {
+        for (Map.Entry<String, DomNode> entry : builder.getNodes().entrySet()) {
+            nodeMap.put(entry.getKey(), entry.getValue());
+            nodeIds.put(entry.getValue(), entry.getKey());
+        }
+        for (Map.Entry<String, DomNode> entry : builder.getNodes().entrySet()) {
+            if (entry.getValue() instanceof DomElement) {
+                for (DomNode child : ((DomElement) entry.getValue()).getChildren()) {
+                    String childId = nodeIds.get(child);
+                    if (childId != null) {
+                        parentIds.put(childId, entry.getKey());
+                    }
+                }
+            }
+        }
+        selectorMap.putAll(builder.getSelectorMap());
+    }
+
+    /**
+     * 从索引中移除整棵子树
+     *
+     * @param node 子树根节点
+     */
+    private void removeSubtree(DomNode node) {
+        String id = nodeIds.remove(node);
+        if (id != null && nodeMap.get(id) == node) {
+            nodeMap.remove(id);
+            parentIds.remove(id);
+        }
+        if (node instanceof DomElement) {
+            DomElement element = (DomElement) node;
+            Integer highlightIndex = element.getHighlightIndex();
+            if (highlightIndex != null && selectorMap.get(highlightIndex) == element) {
+                selectorMap.remove(highlightIndex);
+            }
+            for (DomNode child : element.getChildren()) {
+                removeSubtree(child);
+            }
+        }
+    }
+
+    /**
+     * 按对象标识查找子节点位置
+     *
+     * @param children 子节点列表
+     * @param node 要查找的节点
+     * @return 位置，不存在时返回-1
+     */
+    private static int indexOf(List<DomNode> children, DomNode node) {
+        for (int i = 0; i < children.size(); i++) {
+            if (children.get(i) == node) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
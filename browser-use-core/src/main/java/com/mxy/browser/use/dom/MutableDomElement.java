@@ -0,0 +1,90 @@
+package com.mxy.browser.use.dom;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 可修改的DOM元素节点
+ * 由页面脚本返回的数据解码得到，增量提取时复制并替换其中的子树
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class MutableDomElement extends DomElement {
+    
+    /**
+     * 元素标签名称
+     */
+    private String tagName;
+    
+    /**
+     * XPath路径
+     */
+    private String xpath;
+    
+    /**
+     * 元素属性
+     */
+    @Builder.Default
+    private Map<String, String> attributes = new HashMap<>();
+    
+    /**
+     * 子元素列表
+     */
+    @Builder.Default
+    private List<DomNode> children = new ArrayList<>();
+    
+    /**
+     * 父元素（不参与equals/hashCode/toString，避免父子循环引用导致无限递归）
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private DomElement parent;
+    
+    /**
+     * 元素是否可见
+     */
+    private boolean isVisible;
+    
+    /**
+     * 元素是否可交互
+     */
+    private boolean isInteractive;
+    
+    /**
+     * 元素是否为顶层元素
+     */
+    private boolean isTopElement;
+    
+    /**
+     * 元素是否在视口内
+     */
+    private boolean isInViewport;
+    
+    /**
+     * 高亮索引，用于在UI中标识和后续交互
+     * 由页面内元素注册表分配，同一文档内多次提取之间保持不变
+     */
+    private Integer highlightIndex;
+    
+    /**
+     * 元素是否有Shadow DOM
+     */
+    private boolean shadowRoot;
+    
+    /**
+     * 视口信息
+     */
+    private ViewportInfo viewportInfo;
+}
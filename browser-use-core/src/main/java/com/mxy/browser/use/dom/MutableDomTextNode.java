@@ -0,0 +1,36 @@
+package com.mxy.browser.use.dom;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 可修改的DOM文本节点
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class MutableDomTextNode extends DomTextNode {
+    
+    /**
+     * 文本内容
+     */
+    private String text;
+    
+    /**
+     * 是否可见
+     */
+    private boolean isVisible;
+    
+    /**
+     * 父节点（不参与equals/hashCode/toString，避免父子循环引用导致无限递归）
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private DomElement parent;
+}
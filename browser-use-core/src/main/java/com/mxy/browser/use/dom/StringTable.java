@@ -0,0 +1,80 @@
+package com.mxy.browser.use.dom;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 字符串表
+ * 相同的字符串只保存一份，以int编号引用；编号0固定表示null
+ */
+final class StringTable {
+
+    /**
+     * 表示null的编号
+     */
+    static final int NULL = 0;
+
+    /**
+     * 编号 -> 字符串
+     */
+    private final ArrayList<String> strings = new ArrayList<>();
+
+    /**
+     * 字符串 -> 编号（仅构建期间使用）
+     */
+    private Map<String, Integer> ids = new HashMap<>();
+
+    StringTable() {
+        strings.add(null);
+    }
+
+    /**
+     * 加入字符串并返回其编号
+     *
+     * @param value 字符串
+     * @return 编号
+     */
+    int intern(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        if (ids == null) {
+            throw new IllegalStateException("字符串表已冻结");
+        }
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = strings.size();
+            strings.add(value);
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * 获取编号对应的字符串
+     *
+     * @param id 编号
+     * @return 字符串
+     */
+    String get(int id) {
+        return strings.get(id);
+    }
+
+    /**
+     * 字符串数量（含null）
+     *
+     * @return 数量
+     */
+    int size() {
+        return strings.size();
+    }
+
+    /**
+     * 构建完成，释放反向索引
+     */
+    void freeze() {
+        strings.trimToSize();
+        ids = null;
+    }
+}
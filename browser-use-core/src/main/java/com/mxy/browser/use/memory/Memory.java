@@ -1,5 +1,9 @@
 package com.mxy.browser.use.memory;
 
+import com.mxy.browser.use.prompt.TokenEstimator;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 
 /**
@@ -50,4 +54,39 @@ public interface Memory {
      * 清除所有记忆
      */
     void clearAll();
-} 
\ No newline at end of file
+
+    /**
+     * 在token预算内渲染记忆，每条一行（"- 键: 值"）
+     * 从最新的记忆开始选取，放不下时更早的记忆只汇总为一行，输出按写入顺序排列
+     *
+     * @param tokenBudget token预算
+     * @return 渲染结果
+     */
+    default String render(int tokenBudget) {
+        List<String> keys = keys();
+        Deque<String> lines = new ArrayDeque<>();
+        int used = 0;
+        int omitted = 0;
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            String value = get(keys.get(i));
+            if (value == null) {
+                continue;
+            }
+            String line = "- " + keys.get(i) + ": " + value + "\n";
+            int tokens = TokenEstimator.estimate(line);
+            if (used + tokens > tokenBudget) {
+                omitted = i + 1;
+                break;
+            }
+            lines.addFirst(line);
+            used += tokens;
+        }
+
+        StringBuilder result = new StringBuilder();
+        if (omitted > 0) {
+            result.append("(更早的 ").append(omitted).append(" 条记录已省略)\n");
+        }
+        lines.forEach(result::append);
+        return result.toString();
+    }
+}
@@ -0,0 +1,306 @@
+package com.mxy.browser.use.memory;
+
+import com.mxy.browser.use.prompt.TokenEstimator;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 有界记忆实现
+ *
+ * 使用固定容量的环形缓冲区按写入顺序保存记忆，超过条目数、字节数或估算token数任一上限时
+ * 淘汰最早的记忆，长时间运行时内存占用和渲染到提示中的内容都不会无限增长。
+ * 重复写入同一个键时，旧记忆被移除，新记忆作为最新的一条追加到末尾。
+ */
+@Slf4j
+public class RingBufferMemory implements Memory {
+
+    /**
+     * 默认最大条目数
+     */
+    private static final int DEFAULT_MAX_ENTRIES = 64;
+
+    /**
+     * 默认最大字节数
+     */
+    private static final long DEFAULT_MAX_BYTES = 256L * 1024;
+
+    /**
+     * 默认最大估算token数
+     */
+    private static final int DEFAULT_MAX_TOKENS = 8000;
+
+    /**
+     * 每个条目的固定开销估算（字节）
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    /**
+     * 最大条目数（即环形缓冲区容量）
+     */
+    private final int maxEntries;
+
+    /**
+     * 最大字节数
+     */
+    private final long maxBytes;
+
+    /**
+     * 最大估算token数
+     */
+    private final int maxTokens;
+
+    /**
+     * 环形缓冲区中的键，已删除的槽位为null
+     */
+    private final String[] keys;
+
+    /**
+     * 环形缓冲区中的值
+     */
+    private final String[] values;
+
+    /**
+     * 每个槽位的字节数
+     */
+    private final long[] slotBytes;
+
+    /**
+     * 每个槽位的估算token数
+     */
+    private final int[] slotTokens;
+
+    /**
+     * 键 -> 槽位
+     */
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    /**
+     * 最早的槽位
+     */
+    private int head = 0;
+
+    /**
+     * 已使用的槽位数（包括已删除的槽位）
+     */
+    private int length = 0;
+
+    /**
+     * 当前字节数
+     */
+    private long bytes = 0;
+
+    /**
+     * 当前估算token数
+     */
+    private int tokens = 0;
+
+    /**
+     * 被淘汰的记忆数
+     */
+    private long evictions = 0;
+
+    /**
+     * 创建有界记忆
+     *
+     * @param maxEntries 最大条目数，小于等于0时使用默认值64
+     * @param maxBytes 最大字节数，小于等于0时使用默认值256KB
+     * @param maxTokens 最大估算token数，小于等于0时使用默认值8000
+     */
+    @Builder
+    private RingBufferMemory(int maxEntries, long maxBytes, int maxTokens) {
+        this.maxEntries = maxEntries > 0 ? maxEntries : DEFAULT_MAX_ENTRIES;
+        this.maxBytes = maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES;
+        this.maxTokens = maxTokens > 0 ? maxTokens : DEFAULT_MAX_TOKENS;
+        this.keys = new String[this.maxEntries];
+        this.values = new String[this.maxEntries];
+        this.slotBytes = new long[this.maxEntries];
+        this.slotTokens = new int[this.maxEntries];
+    }
+
+    @Override
+    public synchronized void add(String key, String value) {
+        if (key == null || key.isEmpty()) {
+            log.warn("无法添加记忆：键为空");
+            return;
+        }
+        String content = value != null ? value : "";
+        long entryBytes = 2L * (key.length() + content.length()) + ENTRY_OVERHEAD_BYTES;
+        int entryTokens = TokenEstimator.estimate(key) + TokenEstimator.estimate(content) + 1;
+        if (entryBytes > maxBytes || entryTokens > maxTokens) {
+            log.warn("记忆过大，未保存: {} ({} 字节, 约 {} token)", key, entryBytes, entryTokens);
+            return;
+        }
+
+        Integer previous = slots.get(key);
+        if (previous != null) {
+            remove(previous);
+        }
+        while (size() >= maxEntries || bytes + entryBytes > maxBytes || tokens + entryTokens > maxTokens) {
+            evictOldest();
+        }
+        if (length == maxEntries) {
+            compact();
+        }
+
+        int slot = (head + length) % maxEntries;
+        keys[slot] = key;
+        values[slot] = content;
+        slotBytes[slot] = entryBytes;
+        slotTokens[slot] = entryTokens;
+        slots.put(key, slot);
+        length++;
+        bytes += entryBytes;
+        tokens += entryTokens;
+        log.debug("添加记忆: {} -> {}", key, content);
+    }
+
+    @Override
+    public synchronized String get(String key) {
+        if (key == null || key.isEmpty()) {
+            return null;
+        }
+        Integer slot = slots.get(key);
+        return slot != null ? values[slot] : null;
+    }
+
+    @Override
+    public synchronized boolean has(String key) {
+        if (key == null || key.isEmpty()) {
+            return false;
+        }
+        return slots.containsKey(key);
+    }
+
+    /**
+     * 获取所有记忆键，按写入顺序排列（最早的在前）
+     *
+     * @return 记忆键列表
+     */
+    @Override
+    public synchronized List<String> keys() {
+        List<String> result = new ArrayList<>(slots.size());
+        for (int i = 0; i < length; i++) {
+            String key = keys[(head + i) % maxEntries];
+            if (key != null) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void clear(String key) {
+        if (key == null || key.isEmpty()) {
+            return;
+        }
+        Integer slot = slots.get(key);
+        if (slot != null) {
+            remove(slot);
+            log.debug("清除记忆: {}", key);
+        }
+    }
+
+    @Override
+    public synchronized void clearAll() {
+        for (int i = 0; i < maxEntries; i++) {
+            keys[i] = null;
+            values[i] = null;
+        }
+        slots.clear();
+        head = 0;
+        length = 0;
+        bytes = 0;
+        tokens = 0;
+        log.debug("清除所有记忆");
+    }
+
+    /**
+     * 获取当前记忆条目数
+     *
+     * @return 条目数
+     */
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    /**
+     * 获取被淘汰的记忆数
+     *
+     * @return 淘汰数
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * 删除槽位中的记忆，槽位留空，之后随最早的槽位一起回收
+     */
+    private void remove(int slot) {
+        slots.remove(keys[slot]);
+        bytes -= slotBytes[slot];
+        tokens -= slotTokens[slot];
+        keys[slot] = null;
+        values[slot] = null;
+    }
+
+    /**
+     * 淘汰最早的一条记忆
+     */
+    private void evictOldest() {
+        while (length > 0 && keys[head] == null) {
+            advanceHead();
+        }
+        if (length > 0) {
+            log.debug("淘汰记忆: {}", keys[head]);
+            remove(head);
+            advanceHead();
+            evictions++;
+        }
+    }
+
+    /**
+     * 回收最早的槽位
+     */
+    private void advanceHead() {
+        head = (head + 1) % maxEntries;
+        length--;
+    }
+
+    /**
+     * 把记忆移到缓冲区开头，回收中间已删除的槽位
+     */
+    private void compact() {
+        int count = slots.size();
+        String[] liveKeys = new String[count];
+        String[] liveValues = new String[count];
+        long[] liveBytes = new long[count];
+        int[] liveTokens = new int[count];
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            int slot = (head + i) % maxEntries;
+            if (keys[slot] != null) {
+                liveKeys[n] = keys[slot];
+                liveValues[n] = values[slot];
+                liveBytes[n] = slotBytes[slot];
+                liveTokens[n] = slotTokens[slot];
+                n++;
+            }
+        }
+        for (int i = 0; i < maxEntries; i++) {
+            keys[i] = i < count ? liveKeys[i] : null;
+            values[i] = i < count ? liveValues[i] : null;
+            slotBytes[i] = i < count ? liveBytes[i] : 0;
+            slotTokens[i] = i < count ? liveTokens[i] : 0;
+            if (i < count) {
+                slots.put(liveKeys[i], i);
+            }
+        }
+        head = 0;
+        length = count;
+    }
+}
@@ -0,0 +1,117 @@
+package com.mxy.browser.use.pacing;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按域名自适应的节奏策略
+ *
+ * 每个域名维护一个放慢级别：级别0采用FAST，级别1采用HUMAN，更高级别在HUMAN的基础上每级停顿再翻倍。
+ * 检测到反爬虫信号时该域名升一级，连续若干次动作顺利完成后降一级。
+ */
+@Slf4j
+public class AdaptivePacingPolicy implements PacingPolicy {
+
+    /**
+     * 默认最高放慢级别
+     */
+    private static final int DEFAULT_MAX_LEVEL = 4;
+
+    /**
+     * 默认降级所需的连续成功次数
+     */
+    private static final int DEFAULT_RECOVER_AFTER_SUCCESSES = 50;
+
+    /**
+     * 最高放慢级别
+     */
+    private final int maxLevel;
+
+    /**
+     * 降级所需的连续成功次数
+     */
+    private final int recoverAfterSuccesses;
+
+    /**
+     * 域名 -> 放慢状态
+     */
+    private final Map<String, DomainState> domains = new ConcurrentHashMap<>();
+
+    /**
+     * 创建自适应节奏策略
+     */
+    public AdaptivePacingPolicy() {
+        this(DEFAULT_MAX_LEVEL, DEFAULT_RECOVER_AFTER_SUCCESSES);
+    }
+
+    /**
+     * 创建自适应节奏策略
+     *
+     * @param maxLevel 最高放慢级别（至少为1）
+     * @param recoverAfterSuccesses 降级所需的连续成功次数
+     */
+    public AdaptivePacingPolicy(int maxLevel, int recoverAfterSuccesses) {
+        this.maxLevel = Math.max(maxLevel, 1);
+        this.recoverAfterSuccesses = Math.max(recoverAfterSuccesses, 1);
+    }
+
+    @Override
+    public PacingProfile profileFor(String domain) {
+        DomainState state = domains.get(domain);
+        int level = state != null ? state.level : 0;
+        if (level == 0) {
+            return PacingProfile.FAST;
+        }
+        return level == 1 ? PacingProfile.HUMAN : PacingProfile.HUMAN.scale(1L << (level - 1));
+    }
+
+    @Override
+    public boolean observesBotDetection() {
+        return true;
+    }
+
+    @Override
+    public void recordBotDetection(String domain) {
+        DomainState state = domains.computeIfAbsent(domain, d -> new DomainState());
+        synchronized (state) {
+            state.successes = 0;
+            if (state.level < maxLevel) {
+                state.level++;
+                log.warn("检测到反爬虫信号，放慢{}的操作节奏到级别{}", domain, state.level);
+            }
+        }
+    }
+
+    @Override
+    public void recordSuccess(String domain) {
+        DomainState state = domains.get(domain);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            if (state.level > 0 && ++state.successes >= recoverAfterSuccesses) {
+                state.level--;
+                state.successes = 0;
+                log.info("{}连续{}次操作正常，操作节奏恢复到级别{}", domain, recoverAfterSuccesses, state.level);
+            }
+        }
+    }
+
+    /**
+     * 单个域名的放慢状态
+     */
+    private static final class DomainState {
+
+        /**
+         * 放慢级别
+         */
+        private volatile int level;
+
+        /**
+         * 当前级别下的连续成功次数
+         */
+        private int successes;
+    }
+}
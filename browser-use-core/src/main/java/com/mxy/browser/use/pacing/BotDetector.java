@@ -0,0 +1,50 @@
+package com.mxy.browser.use.pacing;
+
+import com.microsoft.playwright.Page;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 反爬虫信号检测
+ * 根据HTTP状态码、页面标题和URL中的关键字以及常见验证码组件判断页面是否触发了反爬虫机制
+ */
+@Slf4j
+public final class BotDetector {
+
+    /**
+     * 页面内检测脚本，一次调用完成所有检查
+     */
+    private static final String DETECT_JS = "() => {\n"
+            + "  const text = (document.title + ' ' + location.href).toLowerCase();\n"
+            + "  if (/captcha|verify you are human|are you a robot|unusual traffic|access denied|人机验证|安全验证|滑动验证/.test(text)) return true;\n"
+            + "  return !!document.querySelector('iframe[src*=\"recaptcha\"], iframe[src*=\"hcaptcha\"], "
+            + "iframe[src*=\"challenges.cloudflare.com\"], #challenge-form, .g-recaptcha, .h-captcha');\n"
+            + "}";
+
+    private BotDetector() {
+    }
+
+    /**
+     * 根据HTTP状态码判断是否被限流或拒绝
+     *
+     * @param status HTTP状态码
+     * @return 是否为反爬虫信号
+     */
+    public static boolean isBlockedStatus(int status) {
+        return status == 403 || status == 429;
+    }
+
+    /**
+     * 检查当前页面是否出现反爬虫信号
+     *
+     * @param page 页面对象
+     * @return 是否检测到，检查失败（如页面正在导航）时返回false
+     */
+    public static boolean detect(Page page) {
+        try {
+            return Boolean.TRUE.equals(page.evaluate(DETECT_JS));
+        } catch (Exception e) {
+            log.debug("反爬虫信号检测失败: {}", e.getMessage());
+            return false;
+        }
+    }
+}
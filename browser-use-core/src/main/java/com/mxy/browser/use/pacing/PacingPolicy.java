@@ -0,0 +1,93 @@
+package com.mxy.browser.use.pacing;
+
+/**
+ * 节奏策略
+ * 决定在某个域名上执行动作时采用的节奏参数
+ *
+ * 内置三种策略：
+ * human：模拟人工操作，与原有行为一致；
+ * fast：不停顿、直接填充文本、不高亮，适合内部站点；
+ * adaptive：按域名自适应，默认与fast相同，仅在检测到反爬虫时对该域名逐级放慢。
+ */
+public interface PacingPolicy {
+
+    /**
+     * 获取某个域名的节奏参数
+     *
+     * @param domain 域名，无法确定时为空字符串
+     * @return 节奏参数
+     */
+    PacingProfile profileFor(String domain);
+
+    /**
+     * 是否需要在动作后检查反爬虫信号
+     * 检查需要额外一次页面调用，只有会据此调整节奏的策略才需要
+     *
+     * @return 是否检查
+     */
+    default boolean observesBotDetection() {
+        return false;
+    }
+
+    /**
+     * 记录在某个域名上检测到反爬虫信号
+     *
+     * @param domain 域名
+     */
+    default void recordBotDetection(String domain) {
+    }
+
+    /**
+     * 记录在某个域名上的动作顺利完成
+     *
+     * @param domain 域名
+     */
+    default void recordSuccess(String domain) {
+    }
+
+    /**
+     * 模拟人工操作的策略
+     *
+     * @return 节奏策略
+     */
+    static PacingPolicy human() {
+        return domain -> PacingProfile.HUMAN;
+    }
+
+    /**
+     * 最高吞吐的策略
+     *
+     * @return 节奏策略
+     */
+    static PacingPolicy fast() {
+        return domain -> PacingProfile.FAST;
+    }
+
+    /**
+     * 按域名自适应的策略
+     *
+     * @return 节奏策略，每次调用返回独立的实例
+     */
+    static PacingPolicy adaptive() {
+        return new AdaptivePacingPolicy();
+    }
+
+    /**
+     * 按名称获取内置策略
+     *
+     * @param name human、fast或adaptive（不区分大小写）
+     * @return 节奏策略
+     */
+    static PacingPolicy of(String name) {
+        switch (name == null ? "" : name.trim().toLowerCase()) {
+            case "human":
+                return human();
+            case "fast":
+                return fast();
+            case "adaptive":
+                return adaptive();
+            default:
+                throw new IllegalArgumentException("未知的节奏策略: " + name);
+        }
+    }
+}
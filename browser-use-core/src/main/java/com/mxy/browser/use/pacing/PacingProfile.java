@@ -0,0 +1,108 @@
+package com.mxy.browser.use.pacing;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 节奏参数
+ * 描述执行一个动作时的停顿、按键间隔、输入方式以及是否高亮元素
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class PacingProfile {
+
+    /**
+     * 模拟人工操作：点击前随机停顿300~800毫秒，逐字输入，高亮操作的元素
+     */
+    public static final PacingProfile HUMAN = PacingProfile.builder()
+            .minActionDelayMillis(300)
+            .maxActionDelayMillis(800)
+            .typeDelayMillis(300)
+            .pressDelayMillis(50)
+            .keystrokeDelayMillis(50)
+            .fillText(false)
+            .highlightActions(true)
+            .build();
+
+    /**
+     * 最高吞吐：不停顿，直接填充文本，不高亮
+     */
+    public static final PacingProfile FAST = PacingProfile.builder()
+            .minActionDelayMillis(0)
+            .maxActionDelayMillis(0)
+            .typeDelayMillis(0)
+            .pressDelayMillis(0)
+            .keystrokeDelayMillis(0)
+            .fillText(true)
+            .highlightActions(false)
+            .build();
+
+    /**
+     * 点击前停顿的最小值（毫秒）
+     */
+    private long minActionDelayMillis;
+
+    /**
+     * 点击前停顿的最大值（毫秒）
+     */
+    private long maxActionDelayMillis;
+
+    /**
+     * 选中原有文本后、开始输入前的停顿（毫秒）
+     */
+    private long typeDelayMillis;
+
+    /**
+     * 鼠标按下到抬起的间隔（毫秒）
+     */
+    private long pressDelayMillis;
+
+    /**
+     * 逐字输入时的按键间隔（毫秒）
+     */
+    private long keystrokeDelayMillis;
+
+    /**
+     * 是否一次性填充文本而不是逐字输入
+     */
+    private boolean fillText;
+
+    /**
+     * 是否高亮操作的元素
+     */
+    private boolean highlightActions;
+
+    /**
+     * 取得本次点击前的停顿时间
+     *
+     * @return 最小值与最大值之间的随机毫秒数
+     */
+    public long nextActionDelayMillis() {
+        if (maxActionDelayMillis <= minActionDelayMillis) {
+            return Math.max(minActionDelayMillis, 0);
+        }
+        return ThreadLocalRandom.current().nextLong(minActionDelayMillis, maxActionDelayMillis + 1);
+    }
+
+    /**
+     * 将所有停顿和间隔按倍数放大
+     *
+     * @param factor 倍数
+     * @return 新的节奏参数
+     */
+    public PacingProfile scale(double factor) {
+        return toBuilder()
+                .minActionDelayMillis(Math.round(minActionDelayMillis * factor))
+                .maxActionDelayMillis(Math.round(maxActionDelayMillis * factor))
+                .typeDelayMillis(Math.round(typeDelayMillis * factor))
+                .pressDelayMillis(Math.round(pressDelayMillis * factor))
+                .keystrokeDelayMillis(Math.round(keystrokeDelayMillis * factor))
+                .build();
+    }
+}
@@ -0,0 +1,156 @@
+package com.mxy.browser.use.prompt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BM25相关度打分
+ *
+ * 对一组文档（如页面元素的文本和属性）按查询（如任务描述）计算BM25分数。
+ * 分词：拉丁字母和数字按连续片段切分并转小写；中日韩文字没有空格，按相邻两字切分（单字文本保留单字）。
+ */
+public final class Bm25Ranker {
+
+    /**
+     * 词频饱和参数
+     */
+    private static final double K1 = 1.2;
+
+    /**
+     * 文档长度归一化参数
+     */
+    private static final double B = 0.75;
+
+    /**
+     * 每个文档的词频
+     */
+    private final List<Map<String, Integer>> termFrequencies = new ArrayList<>();
+
+    /**
+     * 每个文档的长度（词数）
+     */
+    private final List<Integer> lengths = new ArrayList<>();
+
+    /**
+     * 词 -> 包含该词的文档数
+     */
+    private final Map<String, Integer> documentFrequencies = new HashMap<>();
+
+    /**
+     * 所有文档的总词数
+     */
+    private long totalLength;
+
+    /**
+     * 添加文档
+     *
+     * @param text 文档文本
+     * @return 文档编号（从0开始，按添加顺序）
+     */
+    public int add(String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        List<String> terms = tokenize(text);
+        for (String term : terms) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        for (String term : frequencies.keySet()) {
+            documentFrequencies.merge(term, 1, Integer::sum);
+        }
+        termFrequencies.add(frequencies);
+        lengths.add(terms.size());
+        totalLength += terms.size();
+        return termFrequencies.size() - 1;
+    }
+
+    /**
+     * 计算所有文档对查询的分数
+     *
+     * @param query 查询文本
+     * @return 按文档编号排列的分数
+     */
+    public double[] score(String query) {
+        int count = termFrequencies.size();
+        double[] scores = new double[count];
+        if (count == 0) {
+            return scores;
+        }
+        double averageLength = Math.max((double) totalLength / count, 1.0);
+        Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+        for (String term : queryTerms) {
+            Integer df = documentFrequencies.get(term);
+            if (df == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (count - df + 0.5) / (df + 0.5));
+            for (int i = 0; i < count; i++) {
+                Integer tf = termFrequencies.get(i).get(term);
+                if (tf == null) {
+                    continue;
+                }
+                double norm = K1 * (1 - B + B * lengths.get(i) / averageLength);
+                scores[i] += idf * tf * (K1 + 1) / (tf + norm);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * 分词
+     *
+     * @param text 文本，可以为null
+     * @return 词列表
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        StringBuilder word = new StringBuilder();
+        int previousCjk = -1;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = Character.codePointAt(text, i);
+            i += Character.charCount(codePoint);
+            if (TokenEstimator.isCjk(codePoint)) {
+                flush(word, terms);
+                if (previousCjk >= 0) {
+                    terms.add(new StringBuilder().appendCodePoint(previousCjk).appendCodePoint(codePoint).toString());
+                } else if (!nextIsCjk(text, i)) {
+                    // 孤立的单个汉字
+                    terms.add(new String(Character.toChars(codePoint)));
+                }
+                previousCjk = codePoint;
+            } else {
+                previousCjk = -1;
+                if (Character.isLetterOrDigit(codePoint)) {
+                    word.appendCodePoint(codePoint);
+                } else {
+                    flush(word, terms);
+                }
+            }
+        }
+        flush(word, terms);
+        return terms;
+    }
+
+    /**
+     * 判断指定位置的字符是否为中日韩文字
+     */
+    private static boolean nextIsCjk(String text, int index) {
+        return index < text.length() && TokenEstimator.isCjk(Character.codePointAt(text, index));
+    }
+
+    /**
+     * 把当前拉丁词加入词列表
+     */
+    private static void flush(StringBuilder word, List<String> terms) {
+        if (word.length() > 0) {
+            terms.add(word.toString().toLowerCase(Locale.ROOT));
+            word.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.mxy.browser.use.prompt;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 已发送给LLM的元素记录
+ *
+ * 与对话式消息历史配合使用：记录当前页面已在之前的提示中列出过的元素指纹，
+ * 之后的提示只列出新出现或发生变化的元素，未变化的元素合并为一行摘要。
+ * 页面URL变化或对话历史被清空时需要重置，下一次提示重新列出完整的元素列表。
+ */
+public final class ElementDelta {
+
+    /**
+     * 记录对应的页面URL
+     */
+    private String url;
+
+    /**
+     * 已列出的元素指纹
+     */
+    private final Set<String> known = new HashSet<>();
+
+    /**
+     * 开始为指定页面构建提示，页面URL变化时清空记录
+     *
+     * @param pageUrl 页面URL
+     */
+    void begin(String pageUrl) {
+        if (!Objects.equals(url, pageUrl)) {
+            known.clear();
+            url = pageUrl;
+        }
+    }
+
+    /**
+     * 元素是否已在之前的提示中列出
+     *
+     * @param hash 元素指纹
+     * @return 是否已列出
+     */
+    boolean isKnown(String hash) {
+        return hash != null && known.contains(hash);
+    }
+
+    /**
+     * 是否已有列出的元素（即本次提示是增量提示）
+     *
+     * @return 是否有记录
+     */
+    boolean hasHistory() {
+        return !known.isEmpty();
+    }
+
+    /**
+     * 记录已列出的元素
+     *
+     * @param hash 元素指纹
+     */
+    void remember(String hash) {
+        if (hash != null) {
+            known.add(hash);
+        }
+    }
+
+    /**
+     * 清空记录
+     */
+    public void reset() {
+        known.clear();
+        url = null;
+    }
+}
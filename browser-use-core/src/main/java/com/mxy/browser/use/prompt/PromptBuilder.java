@@ -0,0 +1,365 @@
+package com.mxy.browser.use.prompt;
+
+import com.mxy.browser.use.browser.BrowserState;
+import com.mxy.browser.use.dom.DomElement;
+import com.mxy.browser.use.dom.DomTextIndex;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 按token预算构建LLM提示（用户部分）
+ *
+ * 可交互元素按与任务的相关度排序（元素文本和属性上的BM25，视口内元素加权），
+ * 在预算内从相关度最高的元素开始选取，再按页面顺序输出。每个元素的文本截断到固定长度，
+ * 过长的class列表和看起来是动态生成的id、class不输出。
+ * 配合对话式消息历史使用时（传入ElementDelta），之前的提示中已列出且没有变化的元素只汇总为一行，
+ * 新出现或有变化的元素以*标记。
+ * 任务和步骤等每步变化的内容放在提示末尾，系统提示和之前的对话保持不变，便于模型服务端复用前缀缓存。
+ */
+@Getter
+public class PromptBuilder {
+
+    /**
+     * 默认token预算
+     */
+    private static final int DEFAULT_TOKEN_BUDGET = 4000;
+
+    /**
+     * 默认每个元素文本的最大字符数
+     */
+    private static final int DEFAULT_MAX_ELEMENT_TEXT_LENGTH = 100;
+
+    /**
+     * 视口内元素的相关度加权
+     */
+    private static final double VIEWPORT_BOOST = 1.5;
+
+    /**
+     * 视口内元素的基础分，使与任务无关的元素中视口内的排在前面
+     */
+    private static final double VIEWPORT_BASE_SCORE = 0.01;
+
+    /**
+     * 输出class时允许的最多类名数
+     */
+    private static final int MAX_CLASS_NAMES = 3;
+
+    /**
+     * 参与相关度计算的属性
+     */
+    private static final String[] RANKED_ATTRIBUTES = {
+            "placeholder", "aria-label", "name", "id", "title", "alt", "value", "type"
+    };
+
+    /**
+     * 动态生成的标识（长数字串、哈希、React useId、CSS-in-JS和CSS Modules类名）
+     */
+    private static final Pattern DYNAMIC_TOKEN = Pattern.compile(
+            "\\d{3,}|[0-9a-fA-F]{8,}|^:r|^(css|sc|jsx|emotion|svelte)-|^_[a-zA-Z0-9]{5,}$|__[a-zA-Z0-9-]{5}$");
+
+    /**
+     * 提示末尾的任务和步骤信息
+     */
+    private static final PromptTemplate TAIL = PromptTemplate.compile(
+            "\n任务: {{task}}\n当前步骤: {{step}}/{{maxSteps}}\n");
+
+    /**
+     * 连续空白
+     */
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * 整个提示的token预算
+     */
+    private final int tokenBudget;
+
+    /**
+     * 每个元素文本的最大字符数
+     */
+    private final int maxElementTextLength;
+
+    /**
+     * 私有构造函数，使用Builder模式创建实例
+     */
+    @Builder
+    private PromptBuilder(int tokenBudget, int maxElementTextLength) {
+        this.tokenBudget = tokenBudget > 0 ? tokenBudget : DEFAULT_TOKEN_BUDGET;
+        this.maxElementTextLength = maxElementTextLength > 0 ? maxElementTextLength : DEFAULT_MAX_ELEMENT_TEXT_LENGTH;
+    }
+
+    /**
+     * 构建用户提示
+     *
+     * @param task 任务描述，用于元素相关度排序
+     * @param state 页面状态，可以为null
+     * @param step 当前步骤
+     * @param maxSteps 最大步骤数
+     * @param history 历史操作（已格式化），为null时不输出历史部分
+     * @return 用户提示
+     */
+    public String build(String task, BrowserState state, int step, int maxSteps, String history) {
+        return build(task, state, step, maxSteps, history, null);
+    }
+
+    /**
+     * 构建用户提示，只列出之前的提示中没有列出过的元素
+     *
+     * @param task 任务描述，用于元素相关度排序
+     * @param state 页面状态，可以为null
+     * @param step 当前步骤
+     * @param maxSteps 最大步骤数
+     * @param history 历史操作（已格式化），为null时不输出历史部分
+     * @param delta 已发送的元素记录，为null时列出完整的元素列表；本次列出的元素会加入记录
+     * @return 用户提示
+     */
+    public String build(String task, BrowserState state, int step, int maxSteps, String history,
+                        ElementDelta delta) {
+        StringBuilder prompt = new StringBuilder();
+        String tail = TAIL.render(Map.of("task", task != null ? task : "", "step", step, "maxSteps", maxSteps));
+
+        if (state == null) {
+            prompt.append("无法获取当前页面状态，浏览器可能未正确初始化或加载。\n");
+            prompt.append(tail);
+            return prompt.toString();
+        }
+
+        prompt.append("当前页面: ").append(state.getTitle())
+                .append(" (URL: ").append(state.getUrl()).append(")\n\n");
+        prompt.append("可交互元素:\n");
+
+        String historySection = history != null ? "\n历史操作:\n" + history : "";
+        int elementBudget = tokenBudget - TokenEstimator.estimate(prompt) - TokenEstimator.estimate(historySection)
+                - TokenEstimator.estimate(tail);
+
+        Map<Integer, DomElement> selectorMap = state.getSelectorMap();
+        if (selectorMap == null || selectorMap.isEmpty()) {
+            prompt.append("(当前页面没有可交互元素)\n");
+        } else {
+            appendElements(prompt, task, state, elementBudget, delta);
+        }
+
+        prompt.append(historySection);
+        prompt.append(tail);
+        return prompt.toString();
+    }
+
+    /**
+     * 在预算内按相关度选取元素，按页面顺序输出
+     */
+    private void appendElements(StringBuilder prompt, String task, BrowserState state, int budget,
+                                ElementDelta delta) {
+        DomTextIndex textIndex = state.getTextIndex();
+        Map<Integer, String> hashes = state.getElementHashes();
+        boolean incremental = false;
+        if (delta != null) {
+            delta.begin(state.getUrl());
+            incremental = delta.hasHistory();
+        }
+
+        // 之前已列出且没有变化的元素不再参与选取
+        List<Candidate> candidates = new ArrayList<>(state.getSelectorMap().size());
+        Bm25Ranker ranker = new Bm25Ranker();
+        int unchanged = 0;
+        for (Map.Entry<Integer, DomElement> entry : state.getSelectorMap().entrySet()) {
+            String hash = hashes.get(entry.getKey());
+            if (delta != null && delta.isKnown(hash)) {
+                unchanged++;
+                continue;
+            }
+            DomElement element = entry.getValue();
+            String text = normalize(textIndex.getAllText(element));
+            ranker.add(rankingText(element, text));
+            candidates.add(new Candidate(candidates.size(), entry.getKey(), element, text, hash));
+        }
+
+        double[] scores = ranker.score(task);
+        for (Candidate candidate : candidates) {
+            double score = scores[candidate.position];
+            if (candidate.element.isInViewport()) {
+                score = score * VIEWPORT_BOOST + VIEWPORT_BASE_SCORE;
+            }
+            candidate.score = score;
+        }
+
+        List<Candidate> ranked = new ArrayList<>(candidates);
+        ranked.sort(Comparator.comparingDouble((Candidate c) -> -c.score).thenComparingInt(c -> c.position));
+
+        // 相关度最高的元素总是输出，其余元素在预算内依次选取
+        int used = 0;
+        List<Candidate> selected = new ArrayList<>();
+        for (Candidate candidate : ranked) {
+            String line = (incremental ? "*" : "") + formatElement(candidate);
+            int tokens = TokenEstimator.estimate(line);
+            if (!selected.isEmpty() && used + tokens > budget) {
+                continue;
+            }
+            candidate.line = line;
+            selected.add(candidate);
+            used += tokens;
+        }
+
+        selected.sort(Comparator.comparingInt(c -> c.position));
+        for (Candidate candidate : selected) {
+            prompt.append(candidate.line);
+            if (delta != null) {
+                delta.remember(candidate.hash);
+            }
+        }
+        if (unchanged > 0) {
+            prompt.append("(标记*的为新出现或有变化的元素；另有 ").append(unchanged)
+                    .append(" 个元素与之前步骤相同，未重复列出)\n");
+        }
+        int omitted = candidates.size() - selected.size();
+        if (omitted > 0) {
+            prompt.append("(另有 ").append(omitted).append(" 个与任务相关度较低的元素未列出)\n");
+        }
+    }
+
+    /**
+     * 格式化单个元素
+     */
+    private String formatElement(Candidate candidate) {
+        DomElement element = candidate.element;
+        StringBuilder line = new StringBuilder();
+        line.append("[").append(candidate.index).append("] ")
+                .append(element.getTagName()).append(": \"").append(truncate(candidate.text)).append("\"");
+
+        appendAttribute(line, "type", element.getType());
+        if (isStable(element.getName())) {
+            appendAttribute(line, "name", element.getName());
+        }
+        appendAttribute(line, "placeholder", truncate(normalize(element.getPlaceholder())));
+        if (candidate.text.isEmpty()) {
+            appendAttribute(line, "aria-label", truncate(normalize(element.getAriaLabel())));
+        }
+        if (isStable(element.getId())) {
+            appendAttribute(line, "id", element.getId());
+        }
+        String className = conciseClassName(element.getClassName());
+        appendAttribute(line, "class", className);
+        return line.append("\n").toString();
+    }
+
+    /**
+     * 追加非空属性
+     */
+    private static void appendAttribute(StringBuilder line, String name, String value) {
+        if (value != null && !value.isEmpty()) {
+            line.append(" (").append(name).append("=").append(value).append(")");
+        }
+    }
+
+    /**
+     * 类名较少且都不是动态生成时返回类名，否则返回null
+     */
+    private static String conciseClassName(String className) {
+        String normalized = normalize(className);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        String[] names = normalized.split(" ");
+        if (names.length > MAX_CLASS_NAMES) {
+            return null;
+        }
+        for (String name : names) {
+            if (!isStable(name)) {
+                return null;
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * 判断标识是否非空且不像动态生成的
+     */
+    private static boolean isStable(String value) {
+        return value != null && !value.isEmpty() && !DYNAMIC_TOKEN.matcher(value).find();
+    }
+
+    /**
+     * 构建参与相关度计算的文本：标签名、元素文本和主要属性
+     */
+    private static String rankingText(DomElement element, String text) {
+        StringBuilder ranking = new StringBuilder(element.getTagName() != null ? element.getTagName() : "");
+        ranking.append(' ').append(text);
+        for (String attribute : RANKED_ATTRIBUTES) {
+            String value = element.getAttributes().get(attribute);
+            if (value != null) {
+                ranking.append(' ').append(value);
+            }
+        }
+        return ranking.toString();
+    }
+
+    /**
+     * 合并连续空白
+     */
+    private static String normalize(String text) {
+        return text == null ? "" : WHITESPACE.matcher(text).replaceAll(" ").trim();
+    }
+
+    /**
+     * 截断过长的文本
+     */
+    private String truncate(String text) {
+        if (text.length() <= maxElementTextLength) {
+            return text;
+        }
+        return text.substring(0, maxElementTextLength) + "…";
+    }
+
+    /**
+     * 候选元素
+     */
+    private static final class Candidate {
+
+        /**
+         * 在选择器映射中的位置（页面顺序）
+         */
+        private final int position;
+
+        /**
+         * 高亮索引
+         */
+        private final int index;
+
+        /**
+         * DOM元素
+         */
+        private final DomElement element;
+
+        /**
+         * 规范化后的元素文本
+         */
+        private final String text;
+
+        /**
+         * 元素指纹
+         */
+        private final String hash;
+
+        /**
+         * 相关度分数
+         */
+        private double score;
+
+        /**
+         * 格式化后的行
+         */
+        private String line;
+
+        Candidate(int position, int index, DomElement element, String text, String hash) {
+            this.position = position;
+            this.index = index;
+            this.element = element;
+            this.text = text;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.mxy.browser.use.prompt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 编译后的提示模板
+ *
+ * 模板中的 {{name}} 为变量，其余为原样输出的文本。模板只在编译时解析一次，
+ * 渲染时按片段顺序拼接，不再扫描模板文本。
+ */
+public final class PromptTemplate {
+
+    /**
+     * 变量开始标记
+     */
+    private static final String OPEN = "{{";
+
+    /**
+     * 变量结束标记
+     */
+    private static final String CLOSE = "}}";
+
+    /**
+     * 模板片段：文本片段或变量名
+     */
+    private final List<String> segments;
+
+    /**
+     * 片段是否为变量
+     */
+    private final boolean[] variable;
+
+    /**
+     * 模板中的变量名（按首次出现顺序）
+     */
+    private final Set<String> variableNames;
+
+    /**
+     * 文本片段的总长度，用于预估渲染结果的长度
+     */
+    private final int literalLength;
+
+    private PromptTemplate(List<String> segments, boolean[] variable, Set<String> variableNames, int literalLength) {
+        this.segments = segments;
+        this.variable = variable;
+        this.variableNames = Collections.unmodifiableSet(variableNames);
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * 编译模板
+     *
+     * @param template 模板文本
+     * @return 编译后的模板
+     */
+    public static PromptTemplate compile(String template) {
+        List<String> segments = new ArrayList<>();
+        List<Boolean> flags = new ArrayList<>();
+        Set<String> names = new LinkedHashSet<>();
+        int literalLength = 0;
+
+        int position = 0;
+        while (position < template.length()) {
+            int open = template.indexOf(OPEN, position);
+            int close = open >= 0 ? template.indexOf(CLOSE, open + OPEN.length()) : -1;
+            if (close < 0) {
+                break;
+            }
+            String name = template.substring(open + OPEN.length(), close).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("模板变量名为空，位置: " + open);
+            }
+            if (open > position) {
+                segments.add(template.substring(position, open));
+                flags.add(false);
+                literalLength += open - position;
+            }
+            segments.add(name);
+            flags.add(true);
+            names.add(name);
+            position = close + CLOSE.length();
+        }
+        if (position < template.length()) {
+            segments.add(template.substring(position));
+            flags.add(false);
+            literalLength += template.length() - position;
+        }
+
+        boolean[] variable = new boolean[flags.size()];
+        for (int i = 0; i < variable.length; i++) {
+            variable[i] = flags.get(i);
+        }
+        return new PromptTemplate(List.copyOf(segments), variable, names, literalLength);
+    }
+
+    /**
+     * 获取模板中的变量名
+     *
+     * @return 变量名（只读）
+     */
+    public Set<String> getVariableNames() {
+        return variableNames;
+    }
+
+    /**
+     * 渲染模板
+     *
+     * @param variables 变量值
+     * @return 渲染结果
+     * @throws IllegalArgumentException 缺少模板中的变量时抛出
+     */
+    public String render(Map<String, ?> variables) {
+        StringBuilder result = new StringBuilder(literalLength + 16 * variableNames.size());
+        for (int i = 0; i < variable.length; i++) {
+            String segment = segments.get(i);
+            if (!variable[i]) {
+                result.append(segment);
+                continue;
+            }
+            if (!variables.containsKey(segment)) {
+                throw new IllegalArgumentException("缺少模板变量: " + segment);
+            }
+            result.append(variables.get(segment));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package com.mxy.browser.use.prompt;
+
+/**
+ * 本地Token数估算
+ *
+ * 不调用分词器，按常见BPE分词器的经验比例估算：中日韩字符约每字1个token，
+ * 其他文本约每4个字符1个token。用于控制提示长度，不要求精确。
+ */
+public final class TokenEstimator {
+
+    /**
+     * 非中日韩文本每个token的平均字符数
+     */
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private TokenEstimator() {
+    }
+
+    /**
+     * 估算文本的token数
+     *
+     * @param text 文本，可以为null
+     * @return 估算的token数
+     */
+    public static int estimate(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return 0;
+        }
+        int tokens = 0;
+        int otherChars = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = Character.codePointAt(text, i);
+            i += Character.charCount(codePoint);
+            if (isCjk(codePoint)) {
+                tokens++;
+            } else {
+                otherChars++;
+            }
+        }
+        return tokens + (otherChars + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * 判断字符是否为中日韩文字
+     *
+     * @param codePoint 字符
+     * @return 是否为中日韩文字
+     */
+    static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,87 @@
+package com.mxy.browser.use.trajectory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * 基于文件的轨迹存储
+ * 每个任务一个JSON文件，文件名为任务描述的SHA-256摘要
+ */
+@Slf4j
+public class FileTrajectoryStore implements TrajectoryStore {
+
+    /**
+     * JSON处理器
+     */
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 轨迹文件目录
+     */
+    private final Path directory;
+
+    /**
+     * 创建基于文件的轨迹存储
+     *
+     * @param directory 轨迹文件目录，不存在时自动创建
+     */
+    public FileTrajectoryStore(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Optional<Trajectory> load(String task) {
+        Path file = fileFor(task);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            Trajectory trajectory = objectMapper.readValue(file.toFile(), Trajectory.class);
+            log.debug("加载轨迹: {} ({} 步)", file, trajectory.getSteps().size());
+            return Optional.of(trajectory);
+        } catch (IOException e) {
+            log.warn("加载轨迹失败: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void save(Trajectory trajectory) {
+        Path file = fileFor(trajectory.getTask());
+        try {
+            Files.createDirectories(directory);
+            // 先写临时文件再原子替换，避免并发读取到不完整的轨迹
+            Path tempFile = Files.createTempFile(directory, "trajectory", ".tmp");
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(tempFile.toFile(), trajectory);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("保存轨迹: {} ({} 步)", file, trajectory.getSteps().size());
+        } catch (IOException e) {
+            log.warn("保存轨迹失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void delete(String task) {
+        try {
+            Files.deleteIfExists(fileFor(task));
+        } catch (IOException e) {
+            log.warn("删除轨迹失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取任务对应的轨迹文件
+     */
+    private Path fileFor(String task) {
+        String name = Hashing.sha256().hashString(task != null ? task : "", StandardCharsets.UTF_8).toString();
+        return directory.resolve(name + ".json");
+    }
+}
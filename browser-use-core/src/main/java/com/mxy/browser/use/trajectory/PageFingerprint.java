@@ -0,0 +1,104 @@
+package com.mxy.browser.use.trajectory;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.mxy.browser.use.browser.BrowserState;
+import com.mxy.browser.use.dom.DomElement;
+import com.mxy.browser.use.dom.DomTextIndex;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * 页面指纹
+ * 由页面URL和可交互元素摘要组成，用于判断回放时页面是否与录制时一致
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageFingerprint {
+
+    /**
+     * 参与摘要计算的元素文本最大长度
+     */
+    private static final int MAX_TEXT_LENGTH = 100;
+
+    /**
+     * 页面URL（不含片段标识）
+     */
+    private String url;
+
+    /**
+     * 可交互元素摘要
+     */
+    private String elementsHash;
+
+    /**
+     * 根据浏览器状态计算页面指纹
+     * 摘要包含元素索引，因为回放的动作通过索引引用元素
+     *
+     * @param state 浏览器状态，可以为null（如空白页）
+     * @return 页面指纹
+     */
+    public static PageFingerprint of(BrowserState state) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        String url = "";
+        if (state != null) {
+            url = stripFragment(state.getUrl());
+            if (state.getSelectorMap() != null) {
+                DomTextIndex textIndex = state.getTextIndex();
+                for (Map.Entry<Integer, DomElement> entry : new TreeMap<>(state.getSelectorMap()).entrySet()) {
+                    DomElement element = entry.getValue();
+                    String text = textIndex.getAllText(element);
+                    if (text.length() > MAX_TEXT_LENGTH) {
+                        text = text.substring(0, MAX_TEXT_LENGTH);
+                    }
+                    hasher.putInt(entry.getKey());
+                    putField(hasher, element.getTagName());
+                    putField(hasher, element.getId());
+                    putField(hasher, element.getName());
+                    putField(hasher, element.getType());
+                    putField(hasher, element.getAriaLabel());
+                    putField(hasher, element.getPlaceholder());
+                    putField(hasher, text);
+                }
+            }
+        }
+        return new PageFingerprint(url, hasher.hash().toString());
+    }
+
+    /**
+     * 判断两个指纹是否一致
+     *
+     * @param other 另一个指纹
+     * @return 是否一致
+     */
+    public boolean matches(PageFingerprint other) {
+        return other != null
+                && Objects.equals(url, other.url)
+                && Objects.equals(elementsHash, other.elementsHash);
+    }
+
+    /**
+     * 写入一个字段（带分隔符，避免相邻字段拼接产生歧义）
+     */
+    private static void putField(Hasher hasher, String value) {
+        hasher.putString(value != null ? value : "", StandardCharsets.UTF_8).putChar('\u0000');
+    }
+
+    /**
+     * 去除URL中的片段标识
+     */
+    private static String stripFragment(String url) {
+        if (url == null) {
+            return "";
+        }
+        int hashIndex = url.indexOf('#');
+        return hashIndex >= 0 ? url.substring(0, hashIndex) : url;
+    }
+}
@@ -0,0 +1,55 @@
+package com.mxy.browser.use.trajectory;
+
+import com.mxy.browser.use.action.Action;
+import com.mxy.browser.use.action.ActionFactory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 任务轨迹
+ * 记录一次成功运行中每一步的页面指纹和动作，供后续运行直接回放
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Trajectory {
+
+    /**
+     * 任务描述
+     */
+    private String task;
+
+    /**
+     * 录制时间（毫秒时间戳）
+     */
+    private long recordedAt;
+
+    /**
+     * 轨迹步骤
+     */
+    @Builder.Default
+    private List<TrajectoryStep> steps = new ArrayList<>();
+
+    /**
+     * 追加一个步骤
+     *
+     * @param fingerprint 步骤开始时的页面指纹
+     * @param actions 该步执行的动作
+     */
+    public void addStep(PageFingerprint fingerprint, List<Action> actions) {
+        TrajectoryStep trajectoryStep = TrajectoryStep.builder()
+                .step(steps.size() + 1)
+                .fingerprint(fingerprint)
+                .build();
+        for (Action action : actions) {
+            trajectoryStep.getActions().add(ActionFactory.toJson(action));
+        }
+        steps.add(trajectoryStep);
+    }
+}
@@ -0,0 +1,55 @@
+package com.mxy.browser.use.trajectory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mxy.browser.use.action.Action;
+import com.mxy.browser.use.action.ActionFactory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 轨迹步骤
+ * 记录某一步开始时的页面指纹以及该步执行的动作
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrajectoryStep {
+
+    /**
+     * 步骤序号
+     */
+    private int step;
+
+    /**
+     * 步骤开始时的页面指纹
+     */
+    private PageFingerprint fingerprint;
+
+    /**
+     * 执行的动作（与LLM输出相同的JSON格式）
+     */
+    @Builder.Default
+    private List<JsonNode> actions = new ArrayList<>();
+
+    /**
+     * 将记录的动作还原为动作对象
+     *
+     * @return 动作列表
+     */
+    public List<Action> toActions() {
+        List<Action> result = new ArrayList<>();
+        for (JsonNode actionNode : actions) {
+            Action action = ActionFactory.fromJson(actionNode);
+            if (action != null) {
+                result.add(action);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,32 @@
+package com.mxy.browser.use.trajectory;
+
+import java.util.Optional;
+
+/**
+ * 轨迹存储接口
+ * 按任务描述保存和加载轨迹
+ */
+public interface TrajectoryStore {
+
+    /**
+     * 加载任务的轨迹
+     *
+     * @param task 任务描述
+     * @return 轨迹，不存在时为空
+     */
+    Optional<Trajectory> load(String task);
+
+    /**
+     * 保存轨迹（覆盖同一任务的旧轨迹）
+     *
+     * @param trajectory 轨迹
+     */
+    void save(Trajectory trajectory);
+
+    /**
+     * 删除任务的轨迹
+     *
+     * @param task 任务描述
+     */
+    void delete(String task);
+}
@@ -0,0 +1,233 @@
+/**
+ * DOM树构建脚本
+ *
+ * 遍历document.body，序列化可见元素、文本节点及其交互状态，
+ * 为可交互、可见、位于顶层且在视口（含扩展区域）内的元素分配高亮索引，
+ * 高亮索引由页面内的元素注册表分配，同一文档内多次构建之间保持稳定，
+ * 并可在页面上绘制高亮框。同源iframe的内容作为iframe元素的子节点一并返回。
+ *
+ * 返回值：{ rootId, map: { id: node }, perfMetrics }
+ * 元素节点：{ tagName, xpath, attributes, children, isVisible, isInteractive,
+ *            isTopElement, isInViewport, shadowRoot, highlightIndex? }
+ * 文本节点：{ type: "TEXT_NODE", text, isVisible }
+ */
+(args) => {
+  const {
+    doHighlightElements = true,
+    focusHighlightIndex = -1,
+    viewportExpansion = 0,
+    debugMode = false,
+  } = args || {};
+
+  const HIGHLIGHT_CONTAINER_ID = 'playwright-highlight-container';
+  const REGISTRY_KEY = '__browserUseElements';
+  const SKIP_TAGS = new Set(['script', 'style', 'noscript', 'template', 'head', 'meta', 'link']);
+  const INTERACTIVE_TAGS = new Set([
+    'a', 'button', 'input', 'select', 'textarea', 'details', 'summary', 'option', 'label',
+  ]);
+  const INTERACTIVE_ROLES = new Set([
+    'button', 'link', 'checkbox', 'radio', 'menuitem', 'menuitemcheckbox', 'menuitemradio',
+    'tab', 'switch', 'option', 'combobox', 'textbox', 'searchbox', 'slider', 'spinbutton', 'listbox',
+  ]);
+
+  const startTime = performance.now();
+  const map = {};
+  const highlighted = [];
+  let nextId = 0;
+
+  // ---------- 稳定元素注册表（每个文档一份，与增量提取脚本共享） ----------
+  // 元素 -> 高亮索引保存在WeakMap中，索引 -> 元素保存为WeakRef，动作可直接按索引定位元素
+  let registry = window[REGISTRY_KEY];
+  if (!registry) {
+    registry = { indices: new WeakMap(), elements: new Map(), nextIndex: 0 };
+    Object.defineProperty(window, REGISTRY_KEY, { value: registry, enumerable: false });
+  }
+
+  const highlightIndexOf = (element) => {
+    let index = registry.indices.get(element);
+    if (index === undefined) {
+      index = registry.nextIndex++;
+      registry.indices.set(element, index);
+      registry.elements.set(index, new WeakRef(element));
+    }
+    return index;
+  };
+
+  const pruneRegistry = () => {
+    for (const [index, ref] of registry.elements) {
+      if (!ref.deref()) registry.elements.delete(index);
+    }
+  };
+
+  const isInteractive = (element, tagName, style, parentStyle) => {
+    if (element.hasAttribute('disabled') || element.getAttribute('aria-disabled') === 'true') return false;
+    if (INTERACTIVE_TAGS.has(tagName)) {
+      return !(tagName === 'input' && element.type === 'hidden');
+    }
+    const role = element.getAttribute('role');
+    if (role && INTERACTIVE_ROLES.has(role)) return true;
+    if (element.hasAttribute('onclick') || element.isContentEditable) return true;
+    const tabIndex = element.getAttribute('tabindex');
+    if (tabIndex !== null && tabIndex !== '-1') return true;
+    // 只把指针样式的起点视为可交互，避免其所有子元素都被标记
+    return style.cursor === 'pointer' && (!parentStyle || parentStyle.cursor !== 'pointer');
+  };
+
+  const isInViewport = (rect, offset) => {
+    if (viewportExpansion === -1) return true;
+    const top = rect.top + offset.y;
+    const left = rect.left + offset.x;
+    return top + rect.height >= -viewportExpansion
+      && top <= window.innerHeight + viewportExpansion
+      && left + rect.width >= -viewportExpansion
+      && left <= window.innerWidth + viewportExpansion;
+  };
+
+  const isTopElement = (element, rect) => {
+    const doc = element.ownerDocument;
+    const view = doc.defaultView || window;
+    const x = rect.left + rect.width / 2;
+    const y = rect.top + rect.height / 2;
+    if (x < 0 || y < 0 || x > view.innerWidth || y > view.innerHeight) return true;
+    const root = element.getRootNode();
+    const hit = (root instanceof view.ShadowRoot ? root : doc).elementFromPoint(x, y);
+    for (let node = hit; node; node = node.parentElement) {
+      if (node === element) return true;
+    }
+    return false;
+  };
+
+  const collectAttributes = (element) => {
+    const attributes = {};
+    for (const attribute of element.attributes) {
+      attributes[attribute.name] = attribute.value;
+    }
+    return attributes;
+  };
+
+  /**
+   * 序列化以node为根的子树
+   * offset为所在iframe相对顶层视口的偏移，用于视口判断和高亮定位
+   */
+  const serialize = (node, xpath, parentVisible, parentStyle, offset) => {
+    if (node.nodeType === Node.TEXT_NODE) {
+      const text = node.textContent.trim();
+      if (!text) return null;
+      const id = String(nextId++);
+      map[id] = { type: 'TEXT_NODE', text, isVisible: parentVisible };
+      return id;
+    }
+    if (node.nodeType !== Node.ELEMENT_NODE) return null;
+
+    const element = node;
+    const tagName = element.tagName.toLowerCase();
+    if (SKIP_TAGS.has(tagName) || element.id === HIGHLIGHT_CONTAINER_ID) return null;
+
+    const view = element.ownerDocument.defaultView || window;
+    const style = view.getComputedStyle(element);
+    const rect = element.getBoundingClientRect();
+    const isVisible = rect.width > 0 && rect.height > 0
+      && style.visibility !== 'hidden' && style.display !== 'none';
+    const interactive = isInteractive(element, tagName, style, parentStyle);
+    const inViewport = isInViewport(rect, offset);
+    const isTop = isVisible && inViewport ? isTopElement(element, rect) : false;
+
+    const id = String(nextId++);
+    const data = {
+      tagName,
+      xpath,
+      attributes: collectAttributes(element),
+      children: [],
+      isVisible,
+      isInteractive: interactive,
+      isTopElement: isTop,
+      isInViewport: inViewport,
+      shadowRoot: !!element.shadowRoot,
+    };
+    if (interactive && isVisible && isTop && inViewport) {
+      data.highlightIndex = highlightIndexOf(element);
+      highlighted.push({ index: data.highlightIndex, element, offset });
+    }
+    map[id] = data;
+
+    // 同源iframe：把其文档的body作为子树
+    if (tagName === 'iframe') {
+      try {
+        const body = element.contentDocument && element.contentDocument.body;
+        if (body) {
+          const frameOffset = { x: offset.x + rect.left, y: offset.y + rect.top };
+          const childId = serialize(body, 'html[1]/body[1]', isVisible, null, frameOffset);
+          if (childId !== null) data.children.push(childId);
+        }
+      } catch (e) {
+        // 跨域iframe无法访问
+      }
+      return id;
+    }
+
+    // 子元素的XPath由父路径加同名兄弟序号得到，避免逐个向上回溯
+    const tagCounts = {};
+    const childNodes = element.shadowRoot
+      ? [...element.shadowRoot.childNodes, ...element.childNodes]
+      : element.childNodes;
+    for (const child of childNodes) {
+      let childXpath = xpath;
+      if (child.nodeType === Node.ELEMENT_NODE) {
+        const childTag = child.tagName.toLowerCase();
+        tagCounts[childTag] = (tagCounts[childTag] || 0) + 1;
+        childXpath = xpath + '/' + childTag + '[' + tagCounts[childTag] + ']';
+      }
+      const childId = serialize(child, childXpath, isVisible, style, offset);
+      if (childId !== null) data.children.push(childId);
+    }
+    return id;
+  };
+
+  const drawHighlights = () => {
+    const existing = document.getElementById(HIGHLIGHT_CONTAINER_ID);
+    if (existing) existing.remove();
+    if (!doHighlightElements || !document.body) return;
+
+    const container = document.createElement('div');
+    container.id = HIGHLIGHT_CONTAINER_ID;
+    container.style.cssText = 'position:fixed;top:0;left:0;width:100%;height:100%;pointer-events:none;z-index:2147483647;';
+    const colors = ['#FF0000', '#00AA00', '#0000FF', '#FF8800', '#AA00AA', '#008888', '#888800', '#FF0088'];
+    for (const { index, element, offset } of highlighted) {
+      if (focusHighlightIndex >= 0 && index !== focusHighlightIndex) continue;
+      const rect = element.getBoundingClientRect();
+      const color = colors[index % colors.length];
+      const box = document.createElement('div');
+      box.style.cssText = `position:fixed;border:2px solid ${color};box-sizing:border-box;`
+        + `top:${rect.top + offset.y}px;left:${rect.left + offset.x}px;width:${rect.width}px;height:${rect.height}px;`;
+      const label = document.createElement('div');
+      label.textContent = String(index);
+      label.style.cssText = `position:absolute;top:-2px;right:-2px;background:${color};color:#fff;`
+        + 'font:11px sans-serif;padding:1px 4px;border-radius:2px;';
+      box.appendChild(label);
+      container.appendChild(box);
+    }
+    document.body.appendChild(container);
+  };
+
+  const existing = document.getElementById(HIGHLIGHT_CONTAINER_ID);
+  if (existing) existing.remove();
+
+  pruneRegistry();
+  const rootId = document.body
+    ? serialize(document.body, 'html[1]/body[1]', true, null, { x: 0, y: 0 })
+    : null;
+  const buildMs = performance.now() - startTime;
+
+  drawHighlights();
+
+  const result = { rootId, map };
+  if (debugMode) {
+    result.perfMetrics = {
+      nodes: nextId,
+      highlighted: highlighted.length,
+      buildMs,
+      totalMs: performance.now() - startTime,
+    };
+  }
+  return result;
+}
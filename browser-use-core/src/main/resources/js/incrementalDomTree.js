@@ -0,0 +1,429 @@
+/**
+ * 增量DOM树提取脚本
+ *
+ * 首次调用时在页面中安装MutationObserver，记录发生变化的子树（脏子树）。
+ * 之后每次调用只序列化脏子树，返回的节点格式与buildDomTree.js相同。
+ * 节点ID保存在以DOM节点为键的WeakMap中，高亮索引由与buildDomTree.js共享的元素注册表分配，
+ * 二者在同一文档的多次提取之间保持稳定。
+ * 同源iframe的内容与buildDomTree.js一样作为iframe元素的子节点返回，iframe文档内的变化使整个iframe子树变脏。
+ * 未变化的可交互元素的遮挡和视口状态可能因其他子树的变化而改变，每次提取都重新检查，
+ * 状态改变的元素也作为脏子树返回。
+ *
+ * 以下情况返回完整的DOM树（full = true）：
+ * 新文档（导航后首次调用）、文档级变更、视口或滚动位置变化、视口扩展参数变化、
+ * 脏子树节点数超过上次完整提取的maxDirtyFraction。
+ *
+ * 返回值为JSON字符串：
+ * { full, rootId, map: { id: node }, patches: [子树根节点ID], totalNodes, perfMetrics }
+ */
+(args) => {
+  const {
+    doHighlightElements = true,
+    focusHighlightIndex = -1,
+    viewportExpansion = 0,
+    maxDirtyFraction = 0.3,
+  } = args || {};
+
+  const STATE_KEY = '__browserUseIncrementalDom';
+  const REGISTRY_KEY = '__browserUseElements';
+  const HIGHLIGHT_CONTAINER_ID = 'playwright-highlight-container';
+  const SKIP_TAGS = new Set(['script', 'style', 'noscript', 'template', 'head', 'meta', 'link']);
+  const INTERACTIVE_TAGS = new Set([
+    'a', 'button', 'input', 'select', 'textarea', 'details', 'summary', 'option', 'label',
+  ]);
+  const INTERACTIVE_ROLES = new Set([
+    'button', 'link', 'checkbox', 'radio', 'menuitem', 'menuitemcheckbox', 'menuitemradio',
+    'tab', 'switch', 'option', 'combobox', 'textbox', 'searchbox', 'slider', 'spinbutton', 'listbox',
+  ]);
+
+  const startTime = performance.now();
+
+  const isOverlayNode = (node) => {
+    const element = node && node.nodeType === Node.ELEMENT_NODE ? node : node && node.parentElement;
+    return !!(element && element.closest && element.closest('#' + HIGHLIGHT_CONTAINER_ID));
+  };
+
+  // ---------- 页面内状态（每个文档一份） ----------
+  let state = window[STATE_KEY];
+  const freshDocument = !state;
+  if (!state) {
+    state = {
+      ids: new WeakMap(),
+      nextId: 1,
+      serialized: new WeakSet(),
+      highlighted: new Map(),
+      interactive: new Map(),
+      frames: new Map(),
+      observedDocuments: new WeakSet(),
+      dirty: new Set(),
+      fullRequired: true,
+      totalNodes: 0,
+      body: null,
+      viewportKey: null,
+    };
+    Object.defineProperty(window, STATE_KEY, { value: state, enumerable: false });
+  }
+
+  /**
+   * 监听文档的变化
+   * host为包含该文档的顶层文档中的iframe元素，iframe文档内的任何变化都使该iframe变脏
+   */
+  const observeDocument = (doc, host) => {
+    if (state.observedDocuments.has(doc)) return;
+    state.observedDocuments.add(doc);
+    new MutationObserver((records) => {
+      if (host) {
+        state.dirty.add(host);
+        return;
+      }
+      for (const record of records) {
+        if (isOverlayNode(record.target)) continue;
+        if (record.type === 'childList') {
+          const nodes = [...record.addedNodes, ...record.removedNodes];
+          if (nodes.length > 0 && nodes.every((n) => n.id === HIGHLIGHT_CONTAINER_ID)) continue;
+        }
+        const target = record.type === 'characterData' ? record.target.parentNode : record.target;
+        if (!target || target.nodeType !== Node.ELEMENT_NODE) {
+          state.fullRequired = true;
+          continue;
+        }
+        state.dirty.add(target);
+      }
+    }).observe(doc, { childList: true, subtree: true, attributes: true, characterData: true });
+  };
+  observeDocument(document, null);
+
+  // ---------- 稳定元素注册表（每个文档一份，与其他提取脚本共享） ----------
+  // 元素 -> 高亮索引保存在WeakMap中，索引 -> 元素保存为WeakRef，动作可直接按索引定位元素
+  let registry = window[REGISTRY_KEY];
+  if (!registry) {
+    registry = { indices: new WeakMap(), elements: new Map(), nextIndex: 0 };
+    Object.defineProperty(window, REGISTRY_KEY, { value: registry, enumerable: false });
+  }
+
+  const highlightIndexOf = (element) => {
+    let index = registry.indices.get(element);
+    if (index === undefined) {
+      index = registry.nextIndex++;
+      registry.indices.set(element, index);
+      registry.elements.set(index, new WeakRef(element));
+    }
+    return index;
+  };
+
+  const pruneRegistry = () => {
+    for (const [index, ref] of registry.elements) {
+      if (!ref.deref()) registry.elements.delete(index);
+    }
+  };
+
+  // ---------- 序列化辅助函数 ----------
+  const nodeId = (node) => {
+    let id = state.ids.get(node);
+    if (id === undefined) {
+      id = state.nextId++;
+      state.ids.set(node, id);
+    }
+    return String(id);
+  };
+
+  const isInteractive = (element, tagName, style, parentStyle) => {
+    if (element.hasAttribute('disabled') || element.getAttribute('aria-disabled') === 'true') return false;
+    if (INTERACTIVE_TAGS.has(tagName)) {
+      return !(tagName === 'input' && element.type === 'hidden');
+    }
+    const role = element.getAttribute('role');
+    if (role && INTERACTIVE_ROLES.has(role)) return true;
+    if (element.hasAttribute('onclick') || element.isContentEditable) return true;
+    const tabIndex = element.getAttribute('tabindex');
+    if (tabIndex !== null && tabIndex !== '-1') return true;
+    // 只把指针样式的起点视为可交互，避免其所有子元素都被标记
+    return style.cursor === 'pointer' && (!parentStyle || parentStyle.cursor !== 'pointer');
+  };
+
+  const isInViewport = (rect, offset) => {
+    if (viewportExpansion === -1) return true;
+    const top = rect.top + offset.y;
+    const left = rect.left + offset.x;
+    return top + rect.height >= -viewportExpansion
+      && top <= window.innerHeight + viewportExpansion
+      && left + rect.width >= -viewportExpansion
+      && left <= window.innerWidth + viewportExpansion;
+  };
+
+  const isTopElement = (element, rect) => {
+    const doc = element.ownerDocument;
+    const view = doc.defaultView || window;
+    const x = rect.left + rect.width / 2;
+    const y = rect.top + rect.height / 2;
+    if (x < 0 || y < 0 || x > view.innerWidth || y > view.innerHeight) return true;
+    const root = element.getRootNode();
+    const hit = (root instanceof view.ShadowRoot ? root : doc).elementFromPoint(x, y);
+    for (let node = hit; node; node = node.parentElement) {
+      if (node === element) return true;
+    }
+    return false;
+  };
+
+  const xpathOf = (element) => {
+    const segments = [];
+    for (let node = element; node && node.nodeType === Node.ELEMENT_NODE; node = node.parentNode) {
+      let index = 1;
+      for (let sibling = node.previousElementSibling; sibling; sibling = sibling.previousElementSibling) {
+        if (sibling.tagName === node.tagName) index++;
+      }
+      segments.unshift(node.tagName.toLowerCase() + '[' + index + ']');
+    }
+    return segments.join('/');
+  };
+
+  const collectAttributes = (element) => {
+    const attributes = {};
+    for (const attribute of element.attributes) {
+      attributes[attribute.name] = attribute.value;
+    }
+    return attributes;
+  };
+
+  /**
+   * 序列化以node为根的子树，写入out，返回节点ID（被跳过时返回null）
+   * offset为所在iframe相对顶层视口的偏移，host为包含该节点的顶层文档中的iframe元素（位于顶层文档时为null）
+   */
+  const serialize = (node, out, xpath, parentVisible, parentStyle, offset, host) => {
+    if (node.nodeType === Node.TEXT_NODE) {
+      const text = node.textContent.trim();
+      if (!text) return null;
+      const id = nodeId(node);
+      out[id] = { type: 'TEXT_NODE', text, isVisible: parentVisible };
+      return id;
+    }
+    if (node.nodeType !== Node.ELEMENT_NODE) return null;
+
+    const element = node;
+    const tagName = element.tagName.toLowerCase();
+    if (SKIP_TAGS.has(tagName) || element.id === HIGHLIGHT_CONTAINER_ID) return null;
+
+    const view = element.ownerDocument.defaultView || window;
+    const style = view.getComputedStyle(element);
+    const rect = element.getBoundingClientRect();
+    const isVisible = rect.width > 0 && rect.height > 0
+      && style.visibility !== 'hidden' && style.display !== 'none';
+    const interactive = isInteractive(element, tagName, style, parentStyle);
+    const inViewport = isInViewport(rect, offset);
+    const isTop = isVisible && inViewport ? isTopElement(element, rect) : false;
+
+    const id = nodeId(element);
+    const data = {
+      tagName,
+      xpath,
+      attributes: collectAttributes(element),
+      children: [],
+      isVisible,
+      isInteractive: interactive,
+      isTopElement: isTop,
+      isInViewport: inViewport,
+      shadowRoot: !!element.shadowRoot,
+    };
+    if (interactive && isVisible && isTop && inViewport) {
+      data.highlightIndex = highlightIndexOf(element);
+      state.highlighted.set(data.highlightIndex, { element, offset, host });
+    }
+    if (interactive && isVisible) {
+      state.interactive.set(element, { offset, host, flags: flagsOf(isTop, inViewport) });
+    }
+    out[id] = data;
+    state.serialized.add(element);
+
+    // 同源iframe：把其文档的body作为子树
+    if (tagName === 'iframe') {
+      try {
+        const frameDocument = element.contentDocument;
+        const frameBody = frameDocument && frameDocument.body;
+        if (frameBody) {
+          const frameHost = host || element;
+          observeDocument(frameDocument, frameHost);
+          state.frames.set(element, { document: frameDocument, host: frameHost });
+          const frameOffset = { x: offset.x + rect.left, y: offset.y + rect.top };
+          const childId = serialize(frameBody, out, 'html[1]/body[1]', isVisible, null, frameOffset, frameHost);
+          if (childId !== null) data.children.push(childId);
+        }
+      } catch (e) {
+        // 跨域iframe无法访问
+      }
+      return id;
+    }
+
+    // 子元素的XPath由父路径加同名兄弟序号得到，避免逐个向上回溯
+    const tagCounts = {};
+    const childNodes = element.shadowRoot
+      ? [...element.shadowRoot.childNodes, ...element.childNodes]
+      : element.childNodes;
+    for (const child of childNodes) {
+      let childXpath = xpath;
+      if (child.nodeType === Node.ELEMENT_NODE) {
+        const childTag = child.tagName.toLowerCase();
+        tagCounts[childTag] = (tagCounts[childTag] || 0) + 1;
+        childXpath = xpath + '/' + childTag + '[' + tagCounts[childTag] + ']';
+      }
+      const childId = serialize(child, out, childXpath, isVisible, style, offset, host);
+      if (childId !== null) data.children.push(childId);
+    }
+    return id;
+  };
+
+  const flagsOf = (isTop, inViewport) => (isTop ? 'T' : '-') + (inViewport ? 'V' : '-');
+
+  /**
+   * 重新检查上次序列化的可交互元素的遮挡和视口状态，返回状态改变的元素所在的脏子树根
+   */
+  const staleInteractiveRoots = () => {
+    const stale = [];
+    for (const [element, entry] of state.interactive) {
+      if (!element.isConnected) {
+        state.interactive.delete(element);
+        continue;
+      }
+      const rect = element.getBoundingClientRect();
+      const inViewport = isInViewport(rect, entry.offset);
+      const isTop = rect.width > 0 && rect.height > 0 && inViewport ? isTopElement(element, rect) : false;
+      if (flagsOf(isTop, inViewport) !== entry.flags) stale.push(entry.host || element);
+    }
+    return stale;
+  };
+
+  /**
+   * 检查已序列化的iframe是否加载了新文档，新文档中的变化不会被原来的监听器记录
+   */
+  const markReloadedFrames = () => {
+    for (const [frame, entry] of state.frames) {
+      if (!frame.isConnected) {
+        state.frames.delete(frame);
+        continue;
+      }
+      let frameDocument = null;
+      try {
+        frameDocument = frame.contentDocument;
+      } catch (e) {
+        // 跨域iframe无法访问
+      }
+      if (frameDocument !== entry.document) state.dirty.add(entry.host);
+    }
+  };
+
+  const parentStyleOf = (element) => {
+    const parent = element.parentElement;
+    return parent ? window.getComputedStyle(parent) : null;
+  };
+
+  const isParentVisible = (element) => {
+    const parent = element.parentElement;
+    if (!parent) return true;
+    const rect = parent.getBoundingClientRect();
+    return rect.width > 0 && rect.height > 0;
+  };
+
+  // ---------- 高亮 ----------
+  const drawHighlights = () => {
+    const existing = document.getElementById(HIGHLIGHT_CONTAINER_ID);
+    if (existing) existing.remove();
+    if (!doHighlightElements || !document.body) return;
+
+    const container = document.createElement('div');
+    container.id = HIGHLIGHT_CONTAINER_ID;
+    container.style.cssText = 'position:fixed;top:0;left:0;width:100%;height:100%;pointer-events:none;z-index:2147483647;';
+    const colors = ['#FF0000', '#00AA00', '#0000FF', '#FF8800', '#AA00AA', '#008888', '#888800', '#FF0088'];
+    for (const [index, { element, offset }] of state.highlighted) {
+      if (focusHighlightIndex >= 0 && index !== focusHighlightIndex) continue;
+      const rect = element.getBoundingClientRect();
+      if (rect.width === 0 || rect.height === 0) continue;
+      const color = colors[index % colors.length];
+      const box = document.createElement('div');
+      box.style.cssText = `position:fixed;border:2px solid ${color};box-sizing:border-box;`
+        + `top:${rect.top + offset.y}px;left:${rect.left + offset.x}px;width:${rect.width}px;height:${rect.height}px;`;
+      const label = document.createElement('div');
+      label.textContent = String(index);
+      label.style.cssText = `position:absolute;top:-2px;right:-2px;background:${color};color:#fff;`
+        + 'font:11px sans-serif;padding:1px 4px;border-radius:2px;';
+      box.appendChild(label);
+      container.appendChild(box);
+    }
+    document.body.appendChild(container);
+  };
+
+  // ---------- 提取 ----------
+  const body = document.body;
+  const viewportKey = [window.scrollX, window.scrollY, window.innerWidth, window.innerHeight, viewportExpansion].join(',');
+
+  // 仅在已有基线且没有需要全量重建的信号时尝试增量提取
+  // 滚动和视口变化会改变所有元素的遮挡和视口状态（即使不限制视口范围），因此总是完整提取
+  let roots = [];
+  let full = freshDocument || state.fullRequired || state.body !== body
+    || state.viewportKey !== viewportKey || !body;
+  if (!full) {
+    markReloadedFrames();
+    // 只保留没有脏祖先、且上次已序列化的子树根
+    for (const node of [...state.dirty, ...staleInteractiveRoots()]) {
+      // head等body之外的变化不影响提取结果
+      if (!node.isConnected || !body.contains(node)) continue;
+      let root = node;
+      while (root && !state.serialized.has(root)) root = root.parentElement;
+      if (!root) {
+        full = true;
+        break;
+      }
+      roots.push(root);
+    }
+    if (!full) {
+      roots = [...new Set(roots)];
+      roots = roots.filter((root) => !roots.some((other) => other !== root && other.contains(root)));
+      const dirtyNodes = roots.reduce((sum, root) => sum + root.getElementsByTagName('*').length + 1, 0);
+      full = dirtyNodes > maxDirtyFraction * Math.max(state.totalNodes, 1) || roots.includes(body);
+    }
+  }
+
+  const out = {};
+  let rootId = null;
+  if (full) {
+    pruneRegistry();
+    state.highlighted.clear();
+    state.interactive.clear();
+    state.frames.clear();
+    state.serialized = new WeakSet();
+    rootId = body ? serialize(body, out, xpathOf(body), true, null, { x: 0, y: 0 }, null) : null;
+    state.totalNodes = body ? body.getElementsByTagName('*').length + 1 : 0;
+    roots = [];
+  } else {
+    for (const root of roots) {
+      for (const [index, { element, host }] of state.highlighted) {
+        if (!element.isConnected || root.contains(host || element)) state.highlighted.delete(index);
+      }
+      for (const [element, { host }] of state.interactive) {
+        if (root.contains(host || element)) state.interactive.delete(element);
+      }
+      for (const frame of state.frames.keys()) {
+        if (root.contains(state.frames.get(frame).host)) state.frames.delete(frame);
+      }
+      serialize(root, out, xpathOf(root), isParentVisible(root), parentStyleOf(root), { x: 0, y: 0 }, null);
+    }
+    rootId = state.ids.has(body) ? String(state.ids.get(body)) : null;
+  }
+
+  state.dirty.clear();
+  state.fullRequired = false;
+  state.body = body;
+  state.viewportKey = viewportKey;
+
+  drawHighlights();
+
+  return JSON.stringify({
+    full,
+    rootId,
+    map: out,
+    patches: roots.map((root) => String(state.ids.get(root))),
+    totalNodes: state.totalNodes,
+    perfMetrics: {
+      serializedNodes: Object.keys(out).length,
+      durationMs: performance.now() - startTime,
+    },
+  });
+}
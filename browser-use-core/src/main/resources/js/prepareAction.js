@@ -0,0 +1,99 @@
+/**
+ * 动作准备脚本
+ *
+ * 一次调用内完成元素定位、滚动、可见性与遮挡检查、高亮，输入动作还会聚焦元素并选中原有内容，
+ * 返回元素中心点坐标供Playwright发送可信的鼠标/键盘事件。
+ * 任一检查不通过时返回失败原因，由调用方回退到完整的Playwright操作流程。
+ *
+ * 元素优先按高亮索引从DOM提取脚本维护的元素注册表中直接取得，注册表中没有时才按id或XPath查找。
+ *
+ * 参数：{ index, id, xpath, action: 'click' | 'type', highlight }
+ * 返回：{ ok: true, x, y } 或 { ok: false, reason }
+ */
+(args) => {
+  const { index = -1, id, xpath, action = 'click', highlight = true } = args || {};
+  const REGISTRY_KEY = '__browserUseElements';
+  const TEXT_INPUT_TYPES = new Set([
+    'text', 'search', 'email', 'url', 'tel', 'password', 'number', 'date', 'datetime-local', 'month', 'time', 'week', '',
+  ]);
+
+  // 定位元素：优先注册表，其次id，最后XPath
+  const registry = window[REGISTRY_KEY];
+  const ref = registry && index >= 0 ? registry.elements.get(index) : null;
+  let element = ref ? ref.deref() || null : null;
+  if (!element && id) element = document.getElementById(id);
+  if (!element && xpath) {
+    try {
+      element = document.evaluate(xpath, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;
+    } catch (e) {
+      element = null;
+    }
+  }
+  if (!element || !element.isConnected) return { ok: false, reason: 'not-found' };
+  // iframe内元素的坐标不在主页面视口坐标系中
+  if (element.ownerDocument !== document) return { ok: false, reason: 'in-frame' };
+  if (element.disabled || element.getAttribute('aria-disabled') === 'true') return { ok: false, reason: 'disabled' };
+
+  element.scrollIntoView({ block: 'center', inline: 'center', behavior: 'instant' });
+
+  const style = window.getComputedStyle(element);
+  const rect = element.getBoundingClientRect();
+  if (rect.width === 0 || rect.height === 0 || style.visibility === 'hidden' || style.display === 'none') {
+    return { ok: false, reason: 'not-visible' };
+  }
+
+  const x = rect.left + rect.width / 2;
+  const y = rect.top + rect.height / 2;
+  if (x < 0 || y < 0 || x > window.innerWidth || y > window.innerHeight) {
+    return { ok: false, reason: 'outside-viewport' };
+  }
+
+  // 中心点必须命中元素本身或其后代（包括Shadow DOM内部），否则视为被遮挡
+  const elementRoot = element.getRootNode();
+  const hit = (elementRoot instanceof ShadowRoot ? elementRoot : document).elementFromPoint(x, y);
+  let covered = true;
+  for (let node = hit; node; ) {
+    if (node === element) {
+      covered = false;
+      break;
+    }
+    const root = node.getRootNode();
+    node = node.parentElement || (root instanceof ShadowRoot ? root.host : null);
+  }
+  if (covered) return { ok: false, reason: 'obscured' };
+
+  if (action === 'type') {
+    const tagName = element.tagName;
+    const editable = element.isContentEditable || tagName === 'TEXTAREA'
+      || (tagName === 'INPUT' && TEXT_INPUT_TYPES.has((element.getAttribute('type') || '').toLowerCase()));
+    if (!editable || element.readOnly) return { ok: false, reason: 'not-editable' };
+
+    element.focus();
+    try {
+      if (typeof element.select === 'function') {
+        element.select();
+      } else {
+        const range = document.createRange();
+        range.selectNodeContents(element);
+        const selection = window.getSelection();
+        selection.removeAllRanges();
+        selection.addRange(range);
+      }
+    } catch (e) {
+      return { ok: false, reason: 'not-selectable' };
+    }
+    if (document.activeElement !== element && !element.contains(document.activeElement)) {
+      return { ok: false, reason: 'not-focused' };
+    }
+  }
+
+  if (highlight) {
+    const oldOutline = element.style.outline;
+    element.style.outline = '2px solid red';
+    setTimeout(() => {
+      element.style.outline = oldOutline;
+    }, 3000);
+  }
+
+  return { ok: true, x, y };
+}
@@ -0,0 +1,49 @@
+package com.mxy.browser.use.agent;
+
+import com.mxy.browser.use.browser.BrowserContext;
+import com.mxy.browser.use.browser.BrowserLease;
+import com.mxy.browser.use.browser.BrowserPool;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 代理调度器测试（使用模拟的浏览器池和代理）
+ */
+class AgentSchedulerTest {
+
+    @Test
+    void pooledAgentsGetTheLeasedContextAndNoSharedBrowserIsCreated() throws Exception {
+        BrowserContext context = mock(BrowserContext.class);
+        BrowserLease lease = mock(BrowserLease.class);
+        when(lease.getContext()).thenReturn(context);
+        BrowserPool pool = mock(BrowserPool.class);
+        when(pool.lease()).thenReturn(CompletableFuture.completedFuture(lease));
+        Agent agent = mock(Agent.class);
+        AgentResult expected = mock(AgentResult.class);
+        when(agent.run()).thenReturn(expected);
+        AtomicReference<BrowserContext> received = new AtomicReference<>();
+
+        try (AgentScheduler scheduler = AgentScheduler.builder().browserPool(pool).build()) {
+            assertNull(scheduler.getBrowser());
+
+            AgentResult result = scheduler.submit(leased -> {
+                received.set(leased);
+                return agent;
+            }).get(10, TimeUnit.SECONDS);
+
+            assertSame(expected, result);
+        }
+        assertSame(context, received.get());
+        verify(agent).close();
+        verify(lease).close();
+    }
+}
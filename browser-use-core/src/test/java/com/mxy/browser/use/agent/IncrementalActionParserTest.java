@@ -0,0 +1,112 @@
+package com.mxy.browser.use.agent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 增量动作解析器测试
+ */
+class IncrementalActionParserTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void returnsEachActionAsSoonAsItCompletes() {
+        IncrementalActionParser parser = new IncrementalActionParser(objectMapper);
+
+        assertTrue(parser.feed("{\"reasoning\":\"先点击\",\"actions\":[{\"type\":\"click\",").isEmpty());
+        List<JsonNode> first = parser.feed("\"parameters\":{\"index\":1}},{\"type\":");
+        assertEquals(1, first.size());
+        assertEquals("click", first.get(0).get("type").asText());
+        assertEquals(1, first.get(0).get("parameters").get("index").asInt());
+        assertFalse(parser.isComplete());
+
+        List<JsonNode> second = parser.feed("\"done\",\"parameters\":{}}]}");
+        assertEquals(1, second.size());
+        assertEquals("done", second.get(0).get("type").asText());
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    void parsesTheSameActionsWhateverTheChunkBoundaries() {
+        String response = "{\"reasoning\":\"a {b} [c]\",\"actions\":["
+                + "{\"type\":\"input_text\",\"parameters\":{\"index\":2,\"text\":\"x}y\"}},"
+                + "{\"type\":\"go_to_url\",\"parameters\":{\"url\":\"https://example.com/?q=[1]\"}}]}";
+
+        for (int size = 1; size <= response.length(); size++) {
+            IncrementalActionParser parser = new IncrementalActionParser(objectMapper);
+            List<JsonNode> actions = new ArrayList<>();
+            for (int i = 0; i < response.length(); i += size) {
+                actions.addAll(parser.feed(response.substring(i, Math.min(i + size, response.length()))));
+            }
+            assertEquals(2, actions.size(), "分块大小 " + size);
+            assertEquals("x}y", actions.get(0).get("parameters").get("text").asText());
+            assertEquals("https://example.com/?q=[1]", actions.get(1).get("parameters").get("url").asText());
+            assertTrue(parser.isComplete());
+        }
+    }
+
+    @Test
+    void ignoresEscapedQuotesAndBracesInsideStrings() {
+        IncrementalActionParser parser = new IncrementalActionParser(objectMapper);
+        List<JsonNode> actions = parser.feed("{\"actions\":[{\"type\":\"input_text\",\"parameters\":"
+                + "{\"text\":\"say \\\"}]\\\" and C:\\\\\"}},{\"type\":\"done\"}]}");
+
+        assertEquals(2, actions.size());
+        assertEquals("say \"}]\" and C:\\", actions.get(0).get("parameters").get("text").asText());
+        assertEquals("done", actions.get(1).get("type").asText());
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    void escapeSplitAcrossChunksIsCarriedOver() {
+        IncrementalActionParser parser = new IncrementalActionParser(objectMapper);
+        List<JsonNode> actions = new ArrayList<>();
+        actions.addAll(parser.feed("{\"actions\":[{\"type\":\"input_text\",\"parameters\":{\"text\":\"a\\"));
+        actions.addAll(parser.feed("\"}\"}}]}"));
+
+        assertEquals(1, actions.size());
+        assertEquals("a\"}", actions.get(0).get("parameters").get("text").asText());
+    }
+
+    @Test
+    void skipsPreambleAndCodeFence() {
+        IncrementalActionParser parser = new IncrementalActionParser(objectMapper);
+        List<JsonNode> actions = new ArrayList<>();
+        actions.addAll(parser.feed("好的，计划如下 [说明]:\n```json\n"));
+        actions.addAll(parser.feed("{\"actions\":[{\"type\":\"scroll\"}]}\n```\n{\"actions\":[{\"type\":\"done\"}]}"));
+
+        assertEquals(1, actions.size());
+        assertEquals("scroll", actions.get(0).get("type").asText());
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    void onlyReadsTheTopLevelActionsArray() {
+        IncrementalActionParser parser = new IncrementalActionParser(objectMapper);
+        List<JsonNode> actions = parser.feed("{\"plan\":{\"actions\":[{\"type\":\"nested\"}]},"
+                + "\"actions\":[{\"type\":\"click\",\"parameters\":{\"index\":3}}],"
+                + "\"notes\":[{\"type\":\"other\"}]}");
+
+        assertEquals(1, actions.size());
+        assertEquals("click", actions.get(0).get("type").asText());
+    }
+
+    @Test
+    void keyContainingActionsIsNotTheActionsArray() {
+        IncrementalActionParser parser = new IncrementalActionParser(objectMapper);
+        List<JsonNode> actions = parser.feed("{\"reasoning\":\"actions\",\"other\":[{\"type\":\"x\"}],"
+                + "\"actions\":[{\"type\":\"done\"}]}");
+
+        assertEquals(1, actions.size());
+        assertEquals("done", actions.get(0).get("type").asText());
+    }
+}
@@ -0,0 +1,158 @@
+package com.mxy.browser.use.agent;
+
+import com.mxy.browser.use.action.Action;
+import com.mxy.browser.use.action.ClickAction;
+import com.mxy.browser.use.action.TypeAction;
+import com.mxy.browser.use.browser.BrowserState;
+import com.mxy.browser.use.dom.DomElement;
+import com.mxy.browser.use.dom.DomNode;
+import com.mxy.browser.use.dom.DomTextNode;
+import com.mxy.browser.use.trajectory.FileTrajectoryStore;
+import com.mxy.browser.use.trajectory.PageFingerprint;
+import com.mxy.browser.use.trajectory.Trajectory;
+import com.mxy.browser.use.trajectory.TrajectoryStep;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 轨迹录制与回放测试
+ */
+class TrajectoryReplayTest {
+
+    private static final String TASK = "搜索手机并加入购物车";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void fingerprintIgnoresTheFragmentButNotTheIndexedElements() {
+        PageFingerprint search = PageFingerprint.of(page("https://shop.example.com/search#top", "搜索", "登录"));
+
+        assertTrue(search.matches(PageFingerprint.of(page("https://shop.example.com/search", "搜索", "登录"))));
+        assertFalse(search.matches(PageFingerprint.of(page("https://shop.example.com/search?q=1", "搜索", "登录"))));
+        assertFalse(search.matches(PageFingerprint.of(page("https://shop.example.com/search", "搜索", "注册"))));
+        // 元素相同但索引顺序不同，回放的动作会引用到错误的元素
+        assertFalse(search.matches(PageFingerprint.of(page("https://shop.example.com/search", "登录", "搜索"))));
+        assertFalse(search.matches(null));
+        assertTrue(PageFingerprint.of(null).matches(PageFingerprint.of(null)));
+    }
+
+    @Test
+    void recordedTrajectorySurvivesTheFileStore() throws IOException {
+        FileTrajectoryStore store = new FileTrajectoryStore(directory.resolve("trajectories"));
+        Trajectory trajectory = Trajectory.builder().task(TASK).recordedAt(1L).build();
+        trajectory.addStep(PageFingerprint.of(page("https://shop.example.com", "搜索框", "搜索")),
+                List.of(new TypeAction(0, "手机"), new ClickAction(1)));
+        trajectory.addStep(PageFingerprint.of(page("https://shop.example.com/search", "加入购物车")),
+                List.of(new ClickAction(0)));
+
+        assertTrue(store.load(TASK).isEmpty());
+        store.save(trajectory);
+        Trajectory loaded = store.load(TASK).orElseThrow();
+
+        assertEquals(TASK, loaded.getTask());
+        assertEquals(2, loaded.getSteps().size());
+        for (int i = 0; i < trajectory.getSteps().size(); i++) {
+            TrajectoryStep expected = trajectory.getSteps().get(i);
+            TrajectoryStep actual = loaded.getSteps().get(i);
+            assertEquals(i + 1, actual.getStep());
+            assertTrue(expected.getFingerprint().matches(actual.getFingerprint()));
+            assertEquals(expected.toActions(), actual.toActions());
+        }
+        List<Action> firstStep = loaded.getSteps().get(0).toActions();
+        assertEquals(new TypeAction(0, "手机"), firstStep.get(0));
+        assertEquals(new ClickAction(1), firstStep.get(1));
+        assertTrue(store.load("其他任务").isEmpty());
+
+        store.delete(TASK);
+        assertTrue(store.load(TASK).isEmpty());
+    }
+
+    @Test
+    void unreadableTrajectoryIsTreatedAsMissing() throws IOException {
+        FileTrajectoryStore store = new FileTrajectoryStore(directory);
+        Trajectory trajectory = Trajectory.builder().task(TASK).build();
+        trajectory.addStep(PageFingerprint.of(null), List.of(new ClickAction(0)));
+        store.save(trajectory);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            Path file = files.findFirst().orElseThrow();
+            Files.writeString(file, "{\"task\":");
+        }
+        assertTrue(store.load(TASK).isEmpty());
+    }
+
+    @Test
+    void replayFollowsMatchingPagesAndStopsAtTheFirstDivergence() {
+        BrowserState home = page("https://shop.example.com", "搜索");
+        BrowserState results = page("https://shop.example.com/search", "商品");
+        BrowserState cart = page("https://shop.example.com/cart", "结算");
+        Trajectory trajectory = Trajectory.builder().task(TASK).build();
+        trajectory.addStep(PageFingerprint.of(home), List.of(new ClickAction(0)));
+        trajectory.addStep(PageFingerprint.of(results), List.of(new ClickAction(0)));
+        trajectory.addStep(PageFingerprint.of(cart), List.of(new ClickAction(0)));
+        TrajectoryReplay replay = new TrajectoryReplay(trajectory);
+
+        assertSame(trajectory.getSteps().get(0), replay.next(PageFingerprint.of(home)));
+        assertSame(trajectory.getSteps().get(1), replay.next(PageFingerprint.of(results)));
+        // 页面出现弹窗等变化后不再回放，即使之后又回到录制时的页面
+        assertNull(replay.next(PageFingerprint.of(page("https://shop.example.com/cart", "关闭弹窗", "结算"))));
+        assertNull(replay.next(PageFingerprint.of(cart)));
+    }
+
+    @Test
+    void replayEndsWithTheTrajectory() {
+        BrowserState home = page("https://shop.example.com", "搜索");
+        Trajectory trajectory = Trajectory.builder().task(TASK).build();
+        trajectory.addStep(PageFingerprint.of(home), List.of(new ClickAction(0)));
+        TrajectoryReplay replay = new TrajectoryReplay(trajectory);
+
+        assertEquals(1, replay.next(PageFingerprint.of(home)).getStep());
+        assertNull(replay.next(PageFingerprint.of(home)));
+    }
+
+    /**
+     * 构建页面状态，每段文本对应一个按索引顺序排列的按钮
+     */
+    private static BrowserState page(String url, String... buttons) {
+        DomElement body = element("body");
+        Map<Integer, DomElement> selectorMap = new LinkedHashMap<>();
+        for (int i = 0; i < buttons.length; i++) {
+            DomElement button = element("button");
+            DomNode text = DomTextNode.builder().text(buttons[i]).isVisible(true).build();
+            text.setParent(button);
+            button.getChildren().add(text);
+            button.setParent(body);
+            body.getChildren().add(button);
+            selectorMap.put(i, button);
+        }
+        return BrowserState.builder().generation(1).url(url).title("商城")
+                .elementTree(body).selectorMap(selectorMap).build();
+    }
+
+    private static DomElement element(String tagName) {
+        return DomElement.builder()
+                .tagName(tagName)
+                .attributes(new HashMap<>())
+                .children(new ArrayList<>())
+                .isVisible(true)
+                .isInteractive(!"body".equals(tagName))
+                .build();
+    }
+}
@@ -0,0 +1,69 @@
+package com.mxy.browser.use.browser;
+
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Playwright;
+import com.microsoft.playwright.PlaywrightException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 浏览器上下文会话初始化测试（使用模拟的Playwright对象）
+ */
+class BrowserContextTest {
+
+    @Test
+    @Timeout(value = 30, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void sessionInitializesWhenTheFirstCdpConnectFails() throws Exception {
+        Playwright playwright = mock(Playwright.class);
+        BrowserType chromium = mock(BrowserType.class);
+        com.microsoft.playwright.Browser remote = mock(com.microsoft.playwright.Browser.class);
+        com.microsoft.playwright.BrowserContext playwrightContext = mock(com.microsoft.playwright.BrowserContext.class);
+        Page page = mock(Page.class);
+        List<Page> pages = new ArrayList<>();
+
+        when(playwright.chromium()).thenReturn(chromium);
+        when(chromium.connectOverCDP(anyString(), any(BrowserType.ConnectOverCDPOptions.class)))
+                .thenThrow(new PlaywrightException("connect ECONNREFUSED"))
+                .thenReturn(remote);
+        when(remote.newContext(any())).thenReturn(playwrightContext);
+        when(playwrightContext.pages()).thenReturn(pages);
+        when(playwrightContext.newPage()).thenAnswer(invocation -> {
+            pages.add(page);
+            return page;
+        });
+
+        BrowserConfig config = BrowserConfig.builder()
+                .cdpUrl("http://127.0.0.1:9222")
+                .remoteConnectRetries(2)
+                .build();
+        Browser browser = new Browser(config, null, () -> playwright);
+        BrowserContext context = new BrowserContext(browser, new BrowserContextConfig());
+        try {
+            // 重试在驱动线程上执行，会话初始化不能在驱动线程上等待浏览器实例
+            context.initializeSession().get(10, TimeUnit.SECONDS);
+
+            verify(chromium, times(2)).connectOverCDP(anyString(), any(BrowserType.ConnectOverCDPOptions.class));
+            BrowserSession session = context.getSession().get(10, TimeUnit.SECONDS);
+            assertSame(playwrightContext, session.getPlaywrightContext());
+            assertSame(page, context.getCurrentPage());
+            assertEquals(1, pages.size());
+        } finally {
+            context.close();
+            browser.close().get(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.mxy.browser.use.browser;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedConstruction;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 浏览器池测试（池内创建的浏览器和上下文均为模拟对象，异步任务在调用线程上执行）
+ */
+class BrowserPoolTest {
+
+    /**
+     * 按创建顺序记录的上下文
+     */
+    private final List<BrowserContext> contexts = new CopyOnWriteArrayList<>();
+
+    private MockedConstruction<Browser> browsers;
+
+    @BeforeEach
+    void setUp() {
+        browsers = mockConstruction(Browser.class, (browser, construction) -> {
+            when(browser.getPlaywrightBrowser()).thenReturn(CompletableFuture.completedFuture(null));
+            when(browser.close()).thenReturn(CompletableFuture.completedFuture(null));
+            when(browser.newContext(any())).thenAnswer(invocation -> {
+                BrowserContext context = mock(BrowserContext.class);
+                when(context.initializeSession()).thenReturn(CompletableFuture.completedFuture(null));
+                when(context.reset()).thenReturn(CompletableFuture.completedFuture(null));
+                when(context.isHealthy()).thenReturn(true);
+                contexts.add(context);
+                return CompletableFuture.completedFuture(context);
+            });
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        browsers.close();
+    }
+
+    @Test
+    void returnedContextIsResetAndLeasedAgain() throws Exception {
+        try (BrowserPool pool = pool(1, 2)) {
+            pool.start().get(5, TimeUnit.SECONDS);
+            assertEquals(1, pool.getIdleCount());
+
+            BrowserLease lease = pool.lease().get(5, TimeUnit.SECONDS);
+            BrowserContext first = lease.getContext();
+            verify(first).initializeSession();
+            // 借出后补足最少闲置数
+            assertEquals(2, pool.getTotalCount());
+            assertEquals(1, pool.getIdleCount());
+
+            lease.close();
+            lease.close();
+            verify(first, times(1)).reset();
+            assertEquals(2, pool.getIdleCount());
+
+            // 最近归还的上下文最先借出
+            try (BrowserLease again = pool.lease().get(5, TimeUnit.SECONDS)) {
+                assertSame(first, again.getContext());
+            }
+            assertEquals(2, contexts.size());
+            verify(first, never()).close();
+        }
+    }
+
+    @Test
+    void unhealthyIdleContextIsClosedAndReplaced() throws Exception {
+        try (BrowserPool pool = pool(1, 2)) {
+            pool.start().get(5, TimeUnit.SECONDS);
+            BrowserContext broken = contexts.get(0);
+            when(broken.isHealthy()).thenReturn(false);
+
+            try (BrowserLease lease = pool.lease().get(5, TimeUnit.SECONDS)) {
+                assertNotSame(broken, lease.getContext());
+                verify(broken).close();
+                assertEquals(2, pool.getTotalCount());
+            }
+        }
+    }
+
+    @Test
+    void contextThatFailsToResetIsClosedInsteadOfReturned() throws Exception {
+        try (BrowserPool pool = pool(1, 2)) {
+            pool.start().get(5, TimeUnit.SECONDS);
+            BrowserLease lease = pool.lease().get(5, TimeUnit.SECONDS);
+            BrowserContext dirty = lease.getContext();
+            CompletableFuture<Void> failedReset = new CompletableFuture<>();
+            failedReset.completeExceptionally(new IllegalStateException("页面已崩溃"));
+            when(dirty.reset()).thenReturn(failedReset);
+
+            lease.close();
+
+            verify(dirty).close();
+            assertEquals(1, pool.getTotalCount());
+            assertEquals(1, pool.getIdleCount());
+            try (BrowserLease next = pool.lease().get(5, TimeUnit.SECONDS)) {
+                assertNotSame(dirty, next.getContext());
+            }
+        }
+    }
+
+    @Test
+    void fullPoolServesWaitersInOrder() throws Exception {
+        try (BrowserPool pool = pool(1, 1)) {
+            BrowserLease first = pool.lease().get(5, TimeUnit.SECONDS);
+            CompletableFuture<BrowserLease> second = pool.lease();
+            CompletableFuture<BrowserLease> third = pool.lease();
+            assertFalse(second.isDone());
+            assertFalse(third.isDone());
+
+            first.close();
+            assertTrue(second.isDone());
+            assertFalse(third.isDone());
+            assertSame(first.getContext(), second.get().getContext());
+
+            second.get().close();
+            assertSame(first.getContext(), third.get(5, TimeUnit.SECONDS).getContext());
+            assertEquals(1, contexts.size());
+        }
+    }
+
+    @Test
+    void closingThePoolRejectsWaitersAndNewLeases() throws Exception {
+        BrowserPool pool = pool(1, 1);
+        BrowserLease lease = pool.lease().get(5, TimeUnit.SECONDS);
+        CompletableFuture<BrowserLease> waiting = pool.lease();
+
+        pool.close();
+
+        ExecutionException rejected = assertThrows(ExecutionException.class, waiting::get);
+        assertTrue(rejected.getCause() instanceof IllegalStateException);
+        assertThrows(ExecutionException.class, () -> pool.lease().get());
+        // 池关闭后归还的上下文直接关闭
+        lease.close();
+        verify(lease.getContext()).close();
+        verify(browsers.constructed().get(0)).close();
+    }
+
+    private static BrowserPool pool(int minIdle, int maxSize) {
+        return BrowserPool.builder()
+                .executor(Runnable::run)
+                .minIdle(minIdle)
+                .maxSize(maxSize)
+                .build();
+    }
+}
@@ -0,0 +1,131 @@
+package com.mxy.browser.use.browser;
+
+import com.microsoft.playwright.ElementHandle;
+import com.microsoft.playwright.Frame;
+import com.microsoft.playwright.JSHandle;
+import com.microsoft.playwright.Page;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 元素句柄缓存测试（使用模拟的页面）
+ */
+class ElementHandleCacheTest {
+
+    private Page page;
+
+    private Frame mainFrame;
+
+    private ElementHandle first;
+
+    private ElementHandle second;
+
+    @BeforeEach
+    void setUp() {
+        page = mock(Page.class);
+        mainFrame = mock(Frame.class);
+        first = mock(ElementHandle.class);
+        second = mock(ElementHandle.class);
+        JSHandle firstResult = mock(JSHandle.class);
+        JSHandle secondResult = mock(JSHandle.class);
+        when(firstResult.asElement()).thenReturn(first);
+        when(secondResult.asElement()).thenReturn(second);
+        when(page.mainFrame()).thenReturn(mainFrame);
+        when(page.evaluateHandle(anyString(), eq(1))).thenReturn(firstResult, secondResult);
+    }
+
+    @Test
+    void reusesTheHandleWithinADocument() {
+        ElementHandleCache cache = new ElementHandleCache();
+
+        assertSame(first, cache.get(page, 1));
+        assertSame(first, cache.get(page, 1));
+        verify(page, times(1)).evaluateHandle(anyString(), eq(1));
+    }
+
+    @Test
+    void mainFrameNavigationDisposesStaleHandles() {
+        ElementHandleCache cache = new ElementHandleCache();
+        cache.get(page, 1);
+        Consumer<Frame> listener = navigationListener();
+
+        listener.accept(mock(Frame.class));
+        assertSame(first, cache.get(page, 1), "子框架导航不影响缓存");
+
+        listener.accept(mainFrame);
+        assertSame(second, cache.get(page, 1));
+        verify(first).dispose();
+    }
+
+    @Test
+    void clearDisposesHandlesAndRemovesTheNavigationListener() {
+        ElementHandleCache cache = new ElementHandleCache();
+        cache.get(page, 1);
+        Consumer<Frame> listener = navigationListener();
+
+        cache.clear();
+
+        verify(first).dispose();
+        verify(page).offFrameNavigated(listener);
+
+        // 清空后重新缓存同一页面只注册一个新的监听器，旧监听器已移除
+        cache.get(page, 1);
+        ArgumentCaptor<Consumer<Frame>> listeners = listenerCaptor();
+        verify(page, times(2)).onFrameNavigated(listeners.capture());
+        assertNotSame(listener, listeners.getAllValues().get(1));
+        verify(page, never()).offFrameNavigated(listeners.getAllValues().get(1));
+    }
+
+    @Test
+    void closedPagesAreDroppedWithTheirListener() {
+        ElementHandleCache cache = new ElementHandleCache();
+        cache.get(page, 1);
+        Consumer<Frame> listener = navigationListener();
+        when(page.isClosed()).thenReturn(true);
+
+        Page other = mock(Page.class);
+        JSHandle missing = mock(JSHandle.class);
+        when(other.evaluateHandle(anyString(), any())).thenReturn(missing);
+        cache.get(other, 1);
+
+        verify(first).dispose();
+        verify(page).offFrameNavigated(listener);
+        verify(missing).dispose();
+    }
+
+    @Test
+    void invalidateDisposesTheHandle() {
+        ElementHandleCache cache = new ElementHandleCache();
+        cache.get(page, 1);
+
+        cache.invalidate(page, 1);
+
+        verify(first).dispose();
+        assertSame(second, cache.get(page, 1));
+    }
+
+    private Consumer<Frame> navigationListener() {
+        ArgumentCaptor<Consumer<Frame>> listener = listenerCaptor();
+        verify(page).onFrameNavigated(listener.capture());
+        return listener.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Consumer<Frame>> listenerCaptor() {
+        return ArgumentCaptor.forClass(Consumer.class);
+    }
+}
@@ -0,0 +1,138 @@
+package com.mxy.browser.use.browser;
+
+import com.microsoft.playwright.Request;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 网络空闲跟踪器测试（使用模拟的上下文和请求事件）
+ */
+class NetworkIdleTrackerTest {
+
+    private final BrowserContextConfig config = BrowserContextConfig.builder()
+            .networkIdleIgnoredResourceTypes(List.of("websocket", "eventsource"))
+            .networkIdleIgnoredUrlPatterns(List.of("google-analytics\\.com", "/beacon\\b"))
+            .networkIdleLongRequestMillis(200)
+            .build();
+
+    private com.microsoft.playwright.BrowserContext context;
+
+    private Consumer<Request> onRequest;
+
+    private Consumer<Request> onFinished;
+
+    private Consumer<Request> onFailed;
+
+    private NetworkIdleTracker tracker;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        context = mock(com.microsoft.playwright.BrowserContext.class);
+        tracker = new NetworkIdleTracker(config);
+        tracker.attach(context);
+
+        ArgumentCaptor<Consumer<Request>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(context).onRequest(captor.capture());
+        onRequest = captor.getValue();
+        verify(context).onRequestFinished(captor.capture());
+        onFinished = captor.getValue();
+        verify(context).onRequestFailed(captor.capture());
+        onFailed = captor.getValue();
+    }
+
+    @Test
+    void requestsCountUntilTheyFinishOrFail() {
+        Request page = request("document", "https://shop.example.com/");
+        Request api = request("fetch", "https://shop.example.com/api/items");
+
+        onRequest.accept(page);
+        onRequest.accept(api);
+        assertEquals(2, tracker.getInflightCount());
+
+        onFinished.accept(page);
+        assertEquals(1, tracker.getInflightCount());
+        onFailed.accept(api);
+        assertEquals(0, tracker.getInflightCount());
+        // 重复或未记录的结束事件不会让计数变为负数
+        onFinished.accept(page);
+        onFailed.accept(request("fetch", "https://shop.example.com/api/other"));
+        assertEquals(0, tracker.getInflightCount());
+    }
+
+    @Test
+    void ignoredResourceTypesAndUrlsAreNotCounted() {
+        onRequest.accept(request("websocket", "wss://shop.example.com/live"));
+        onRequest.accept(request("eventsource", "https://shop.example.com/events"));
+        onRequest.accept(request("script", "https://www.google-analytics.com/analytics.js"));
+        onRequest.accept(request("ping", "https://shop.example.com/beacon?e=view"));
+        assertEquals(0, tracker.getInflightCount());
+        assertEquals(0, tracker.millisUntilIdle(0));
+
+        onRequest.accept(request("ping", "https://shop.example.com/beacons/list"));
+        assertEquals(1, tracker.getInflightCount());
+    }
+
+    @Test
+    void idleNeedsNoRequestsAndAQuietWindow() {
+        Request api = request("fetch", "https://shop.example.com/api/items");
+        onRequest.accept(api);
+
+        // 有进行中的请求时至少等待一个轮询间隔
+        assertTrue(tracker.millisUntilIdle(0) >= 50);
+        onFinished.accept(api);
+        assertEquals(0, tracker.millisUntilIdle(0));
+        // 请求刚结束，还需等满时间窗口
+        long wait = tracker.millisUntilIdle(10_000);
+        assertTrue(wait > 9_000 && wait <= 10_000, String.valueOf(wait));
+    }
+
+    @Test
+    void longRunningRequestsAreTreatedAsPolling() throws InterruptedException {
+        Request poll = request("xhr", "https://shop.example.com/api/poll");
+        onRequest.accept(poll);
+        assertEquals(1, tracker.getInflightCount());
+
+        Thread.sleep(300);
+        assertEquals(0, tracker.getInflightCount());
+        assertEquals(0, tracker.millisUntilIdle(250));
+        // 长轮询结束不算作网络活动
+        onFinished.accept(poll);
+        assertEquals(0, tracker.millisUntilIdle(250));
+    }
+
+    @Test
+    void detachRemovesTheSameListenersAndClearsRequests() {
+        onRequest.accept(request("fetch", "https://shop.example.com/api/items"));
+        com.microsoft.playwright.BrowserContext next = mock(com.microsoft.playwright.BrowserContext.class);
+
+        // 附加到新上下文前先从旧上下文移除
+        tracker.attach(next);
+
+        verify(context).offRequest(onRequest);
+        verify(context).offRequestFinished(onFinished);
+        verify(context).offRequestFailed(onFailed);
+        verify(next).onRequest(onRequest);
+        assertEquals(0, tracker.getInflightCount());
+
+        tracker.detach();
+        verify(next).offRequest(onRequest);
+    }
+
+    private static Request request(String resourceType, String url) {
+        Request request = mock(Request.class);
+        when(request.resourceType()).thenReturn(resourceType);
+        when(request.url()).thenReturn(url);
+        return request;
+    }
+}
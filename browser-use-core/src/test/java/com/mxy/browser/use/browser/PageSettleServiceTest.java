@@ -0,0 +1,96 @@
+package com.mxy.browser.use.browser;
+
+import com.microsoft.playwright.Page;
+import com.mxy.browser.use.concurrent.ActorMailbox;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 页面稳定检测测试（使用模拟的页面）
+ * 检测期间驱动线程只执行短暂的检查调用，等待在驱动线程之外进行
+ */
+@Timeout(value = 30, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+class PageSettleServiceTest {
+
+    private final ActorMailbox mailbox = new ActorMailbox("settle-test");
+
+    private final BrowserContextConfig config = BrowserContextConfig.builder()
+            .minimumWaitPageLoadTime(0)
+            .waitForNetworkIdlePageLoadTime(0.2)
+            .maximumWaitPageLoadTime(5)
+            .build();
+
+    @Test
+    void waitingForDomQuietDoesNotHoldTheDriverThread() throws Exception {
+        Page page = mock(Page.class);
+        // 前4次检查时DOM刚刚变化，之后保持静默
+        AtomicInteger checks = new AtomicInteger();
+        when(page.evaluate(anyString())).thenAnswer(invocation -> checks.incrementAndGet() < 5 ? 0.0 : 10_000.0);
+        PageSettleService service = new PageSettleService(config, mailbox, null);
+
+        CompletableFuture<Boolean> stable = mailbox.submit(() -> service.waitForStable(page, null))
+                .thenCompose(Function.identity());
+
+        // 等待期间同一驱动上的其他调用可以立即执行
+        assertEquals("other", mailbox.submit(() -> "other").get(1, TimeUnit.SECONDS));
+        assertFalse(stable.isDone());
+
+        assertTrue(stable.get(10, TimeUnit.SECONDS));
+        // 达到静默后网络检查跳过，再复查一次DOM
+        assertEquals(6, checks.get());
+    }
+
+    @Test
+    void networkIdlePollsPumpEventsOnTheDriverThread() throws Exception {
+        Page page = mock(Page.class);
+        NetworkIdleTracker tracker = new NetworkIdleTracker(config);
+        PageSettleService service = new PageSettleService(config, mailbox, null);
+
+        CompletableFuture<Boolean> idle = service.awaitNetworkIdle(page, tracker, 200, 2000);
+
+        assertEquals("other", mailbox.submit(() -> "other").get(1, TimeUnit.SECONDS));
+        assertTrue(idle.get(10, TimeUnit.SECONDS));
+        verify(page, atLeast(2)).waitForTimeout(1);
+    }
+
+    @Test
+    void closedPageIsNeverStable() throws Exception {
+        Page page = mock(Page.class);
+        when(page.isClosed()).thenReturn(true);
+        PageSettleService service = new PageSettleService(config, mailbox, null);
+
+        assertFalse(service.waitForStable(page, new NetworkIdleTracker(config)).get(10, TimeUnit.SECONDS));
+        verify(page, never()).evaluate(anyString());
+    }
+
+    @Test
+    void pageThatNeverSettlesGivesUpAtTheMaximumWait() throws Exception {
+        Page page = mock(Page.class);
+        when(page.evaluate(anyString())).thenReturn(0.0);
+        BrowserContextConfig shortWait = BrowserContextConfig.builder()
+                .minimumWaitPageLoadTime(0)
+                .waitForNetworkIdlePageLoadTime(0.2)
+                .maximumWaitPageLoadTime(0.5)
+                .build();
+        PageSettleService service = new PageSettleService(shortWait, mailbox, null);
+
+        long start = System.currentTimeMillis();
+        assertFalse(service.waitForStable(page, null).get(10, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 500);
+    }
+}
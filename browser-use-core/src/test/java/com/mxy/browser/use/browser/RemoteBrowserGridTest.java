@@ -0,0 +1,160 @@
+package com.mxy.browser.use.browser;
+
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.PlaywrightException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 远程浏览器集群调度测试（使用模拟的WebSocket节点）
+ */
+class RemoteBrowserGridTest {
+
+    private static final String NODE_A = "ws://node-a:3000";
+
+    private static final String NODE_B = "ws://node-b:3000";
+
+    private static final long QUARANTINE_MILLIS = 60_000;
+
+    private BrowserType browserType;
+
+    /**
+     * 节点地址 -> 最近一次连接得到的浏览器
+     */
+    private final Map<String, com.microsoft.playwright.Browser> connected = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        browserType = mock(BrowserType.class);
+        when(browserType.connect(any(), any())).thenAnswer(invocation -> {
+            com.microsoft.playwright.Browser browser = mock(com.microsoft.playwright.Browser.class);
+            when(browser.isConnected()).thenReturn(true);
+            connected.put(invocation.getArgument(0), browser);
+            return browser;
+        });
+    }
+
+    @Test
+    void contextsArePlacedOnTheLeastLoadedNode() {
+        RemoteBrowserGrid grid = grid(QUARANTINE_MILLIS);
+
+        com.microsoft.playwright.Browser first = grid.acquire();
+        com.microsoft.playwright.Browser second = grid.acquire();
+        com.microsoft.playwright.Browser third = grid.acquire();
+
+        assertSame(connected.get(NODE_A), first);
+        assertSame(connected.get(NODE_B), second);
+        assertSame(first, third);
+        grid.release(third, false);
+        grid.release(first, false);
+        assertSame(first, grid.acquire());
+        // 已连接的节点复用同一个连接，peek不计入负载
+        assertSame(first, grid.peek());
+        grid.release(second, false);
+        assertSame(second, grid.acquire());
+        verify(browserType, times(1)).connect(eq(NODE_A), any());
+        verify(browserType, times(1)).connect(eq(NODE_B), any());
+    }
+
+    @Test
+    void unreachableNodeIsQuarantined() {
+        doThrow(new PlaywrightException("connect ECONNREFUSED")).when(browserType).connect(eq(NODE_A), any());
+        RemoteBrowserGrid grid = grid(QUARANTINE_MILLIS);
+
+        com.microsoft.playwright.Browser first = grid.acquire();
+        assertSame(connected.get(NODE_B), first);
+        // 隔离期内即使节点A负载更低也不再尝试连接
+        assertSame(first, grid.acquire());
+        assertSame(first, grid.acquire());
+        verify(browserType, times(1)).connect(eq(NODE_A), any());
+    }
+
+    @Test
+    void quarantinedNodeRejoinsAfterTheQuarantine() {
+        com.microsoft.playwright.Browser recovered = mock(com.microsoft.playwright.Browser.class);
+        when(recovered.isConnected()).thenReturn(true);
+        doThrow(new PlaywrightException("connect ECONNREFUSED")).doReturn(recovered)
+                .when(browserType).connect(eq(NODE_A), any());
+        RemoteBrowserGrid grid = grid(0);
+
+        com.microsoft.playwright.Browser first = grid.acquire();
+        assertSame(connected.get(NODE_B), first);
+        // 隔离期已满，节点A的负载更低，重新连接成功
+        assertSame(recovered, grid.acquire());
+    }
+
+    @Test
+    void failedContextQuarantinesItsNode() {
+        RemoteBrowserGrid grid = grid(QUARANTINE_MILLIS);
+        com.microsoft.playwright.Browser nodeA = grid.acquire();
+
+        grid.release(nodeA, true);
+
+        com.microsoft.playwright.Browser next = grid.acquire();
+        assertSame(connected.get(NODE_B), next);
+        assertSame(next, grid.acquire());
+    }
+
+    @Test
+    void unexpectedDisconnectQuarantinesTheNode() {
+        RemoteBrowserGrid grid = grid(QUARANTINE_MILLIS);
+        com.microsoft.playwright.Browser nodeA = grid.acquire();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<com.microsoft.playwright.Browser>> handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(nodeA).onDisconnected(handler.capture());
+
+        when(nodeA.isConnected()).thenReturn(false);
+        handler.getValue().accept(nodeA);
+        // 断开后仍可释放其上的上下文
+        grid.release(nodeA, false);
+
+        com.microsoft.playwright.Browser next = grid.acquire();
+        assertSame(connected.get(NODE_B), next);
+        assertSame(next, grid.acquire());
+    }
+
+    @Test
+    void noReachableNodeFailsTheAcquire() {
+        doThrow(new PlaywrightException("connect ECONNREFUSED")).when(browserType).connect(any(), any());
+        RemoteBrowserGrid grid = grid(QUARANTINE_MILLIS);
+
+        RuntimeException error = assertThrows(RuntimeException.class, grid::acquire);
+        assertEquals("没有可用的远程浏览器节点", error.getMessage());
+        assertThrows(RuntimeException.class, grid::acquire);
+        verify(browserType, times(1)).connect(eq(NODE_A), any());
+        verify(browserType, times(1)).connect(eq(NODE_B), any());
+    }
+
+    @Test
+    void closeDisconnectsEveryNode() {
+        RemoteBrowserGrid grid = grid(QUARANTINE_MILLIS);
+        grid.acquire();
+        grid.acquire();
+
+        grid.close();
+
+        verify(connected.get(NODE_A)).close();
+        verify(connected.get(NODE_B)).close();
+    }
+
+    private RemoteBrowserGrid grid(long quarantineMillis) {
+        return new RemoteBrowserGrid(browserType, List.of(NODE_A, NODE_B), 1000, quarantineMillis);
+    }
+}
@@ -0,0 +1,161 @@
+package com.mxy.browser.use.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 磁盘段存储测试
+ */
+class DiskSegmentStoreTest {
+
+    /**
+     * 记录头长度，与DiskSegmentStore中的格式一致
+     */
+    private static final int HEADER_BYTES = 24;
+
+    private static final long LARGE = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopenRestoresIndex() throws IOException {
+        try (DiskSegmentStore store = new DiskSegmentStore(directory, LARGE, LARGE)) {
+            store.put("a", "响应A", 120);
+            store.put("b", "response-b", 30);
+            store.put("a", "响应A2", 150);
+        }
+
+        try (DiskSegmentStore store = new DiskSegmentStore(directory, LARGE, LARGE)) {
+            assertEquals(2, store.size());
+            DiskSegmentStore.Value a = store.get("a");
+            assertEquals("响应A2", a.response);
+            assertEquals(150, a.latencyMillis);
+            assertEquals("response-b", store.get("b").response);
+        }
+    }
+
+    @Test
+    void tornTailIsTruncatedOnRecovery() throws IOException {
+        try (DiskSegmentStore store = new DiskSegmentStore(directory, LARGE, LARGE)) {
+            store.put("a", "first", 1);
+            store.put("b", "second", 2);
+        }
+        Path segment = onlySegment();
+        long firstRecord = recordBytes("a", "first");
+        truncate(segment, Files.size(segment) - 3);
+
+        try (DiskSegmentStore store = new DiskSegmentStore(directory, LARGE, LARGE)) {
+            assertEquals("first", store.get("a").response);
+            assertNull(store.get("b"));
+            assertEquals(firstRecord, Files.size(segment));
+            assertEquals(firstRecord, store.totalBytes());
+
+            // 截断后追加的记录紧接在有效数据之后，再次打开仍可读取
+            store.put("c", "third", 3);
+        }
+        try (DiskSegmentStore store = new DiskSegmentStore(directory, LARGE, LARGE)) {
+            assertEquals("first", store.get("a").response);
+            assertEquals("third", store.get("c").response);
+            assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    void partialHeaderIsTruncatedOnRecovery() throws IOException {
+        try (DiskSegmentStore store = new DiskSegmentStore(directory, LARGE, LARGE)) {
+            store.put("a", "first", 1);
+        }
+        Path segment = onlySegment();
+        long firstRecord = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[HEADER_BYTES - 1]));
+        }
+
+        try (DiskSegmentStore store = new DiskSegmentStore(directory, LARGE, LARGE)) {
+            assertEquals("first", store.get("a").response);
+            assertEquals(firstRecord, Files.size(segment));
+        }
+    }
+
+    @Test
+    void checksumMismatchDropsTheRecordAndEverythingAfterIt() throws IOException {
+        try (DiskSegmentStore store = new DiskSegmentStore(directory, LARGE, LARGE)) {
+            store.put("a", "first", 1);
+            store.put("b", "second", 2);
+            store.put("c", "third", 3);
+        }
+        Path segment = onlySegment();
+        long firstRecord = recordBytes("a", "first");
+        // 翻转第二条记录值中的一个字节
+        flipByte(segment, firstRecord + HEADER_BYTES + 1);
+
+        try (DiskSegmentStore store = new DiskSegmentStore(directory, LARGE, LARGE)) {
+            assertEquals("first", store.get("a").response);
+            assertNull(store.get("b"));
+            assertNull(store.get("c"));
+            assertEquals(1, store.size());
+            assertEquals(firstRecord, Files.size(segment));
+        }
+    }
+
+    @Test
+    void oldestSegmentIsDeletedWhenTotalSizeIsExceeded() throws IOException {
+        long record = recordBytes("k0", "value-0");
+        try (DiskSegmentStore store = new DiskSegmentStore(directory, record * 2, record * 4)) {
+            for (int i = 0; i < 6; i++) {
+                store.put("k" + i, "value-" + i, i);
+            }
+            assertNull(store.get("k0"));
+            assertNull(store.get("k1"));
+            assertNotNull(store.get("k5"));
+            assertTrue(store.totalBytes() <= record * 4);
+        }
+        assertFalse(Files.exists(directory.resolve("segment-00000001.log")));
+
+        try (DiskSegmentStore store = new DiskSegmentStore(directory, record * 2, record * 4)) {
+            assertEquals(4, store.size());
+            assertEquals("value-2", store.get("k2").response);
+        }
+    }
+
+    private Path onlySegment() {
+        Path segment = directory.resolve("segment-00000001.log");
+        assertTrue(Files.exists(segment));
+        return segment;
+    }
+
+    private static long recordBytes(String key, String value) {
+        return HEADER_BYTES + key.getBytes(StandardCharsets.UTF_8).length
+                + value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void truncate(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static void flipByte(Path path, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, position);
+            buffer.put(0, (byte) (buffer.get(0) ^ 0x01));
+            channel.write(buffer.rewind(), position);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.mxy.browser.use.dom;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DOM文本索引测试，结果与逐个元素遍历子树的实现对照
+ */
+class DomTextIndexTest {
+
+    private static final List<String> QUERIES = List.of(
+            "登录", "用户名", "SIGN in", "sign", "in 忘", "Help", "隐藏", "footer", "n", "不存在");
+
+    private DomElement body;
+
+    private DomElement form;
+
+    private DomElement footer;
+
+    private final List<DomElement> all = new ArrayList<>();
+
+    /**
+     * body > [form > [label > "用户名", button > ["Sign", "In"], "忘记密码？"], div > "隐藏"(不可见), footer > [a > "Help"], "页脚"]
+     */
+    @BeforeEach
+    void setUp() {
+        body = element("body");
+        form = element("form");
+        DomElement label = element("label");
+        DomElement button = element("button");
+        DomElement hidden = element("div");
+        footer = element("footer");
+        DomElement link = element("a");
+
+        append(body, form, hidden, footer, text("页脚", true));
+        append(form, label, button, text("忘记密码？", true));
+        append(label, text("用户名", true));
+        append(button, text("Sign", true), text("In", true));
+        append(hidden, text("隐藏", false));
+        append(footer, link);
+        append(link, text("Help", true));
+    }
+
+    @Test
+    void textMatchesTheSubtreeWalk() {
+        DomTextIndex index = DomTextIndex.build(body);
+
+        for (DomElement element : all) {
+            assertEquals(element.getAllText(), index.getAllText(element));
+            for (String query : QUERIES) {
+                assertEquals(element.containsText(query), index.containsText(element, query),
+                        element.getTagName() + " / " + query);
+            }
+        }
+        assertTrue(index.containsText(form, "sign in"));
+        assertFalse(index.containsText(body, "隐藏"));
+    }
+
+    @Test
+    void searchMatchesTheRecursiveSearchInPreOrder() {
+        DomTextIndex index = DomTextIndex.build(body);
+
+        for (String query : QUERIES) {
+            assertEquals(recursiveSearch(body, query), index.findElementsWithText(query), query);
+            assertEquals(recursiveSearch(form, query), index.findElementsWithText(form, query), query);
+            assertEquals(recursiveSearch(footer, query), index.findElementsWithText(footer, query), query);
+            assertEquals(recursiveSearch(body, query), body.findElementsWithText(query), query);
+        }
+        assertEquals(List.of(body, footer, all.get(all.size() - 1)), index.findElementsWithText("HELP"));
+    }
+
+    @Test
+    void elementsOutsideTheIndexFallBackToTheSubtreeWalk() {
+        DomTextIndex index = DomTextIndex.build(form);
+        DomElement outside = element("section");
+        append(outside, text("外部 Help", true));
+
+        assertEquals("外部 Help", index.getAllText(outside));
+        assertTrue(index.containsText(outside, "help"));
+        assertEquals(List.of(outside), index.findElementsWithText(outside, "外部"));
+        assertTrue(index.findElementsWithText("页脚").isEmpty());
+    }
+
+    @Test
+    void emptyQueriesAndEmptyTreesMatchNothing() {
+        DomTextIndex index = DomTextIndex.build(body);
+
+        assertFalse(index.containsText(body, ""));
+        assertFalse(index.containsText(body, null));
+        assertTrue(index.findElementsWithText("").isEmpty());
+        assertTrue(index.findElementsWithText(null).isEmpty());
+        assertTrue(DomTextIndex.build(null).findElementsWithText("登录").isEmpty());
+        assertTrue(DomTextIndex.build(element("div")).findElementsWithText("登录").isEmpty());
+    }
+
+    /**
+     * 原先的递归实现：每个元素重新拼接子树文本后判断
+     */
+    private static List<DomElement> recursiveSearch(DomElement element, String query) {
+        List<DomElement> result = new ArrayList<>();
+        if (element.containsText(query)) {
+            result.add(element);
+        }
+        for (DomNode child : element.getChildren()) {
+            if (child instanceof DomElement) {
+                result.addAll(recursiveSearch((DomElement) child, query));
+            }
+        }
+        return result;
+    }
+
+    private DomElement element(String tagName) {
+        DomElement element = DomElement.builder()
+                .tagName(tagName)
+                .xpath(tagName)
+                .attributes(new HashMap<>())
+                .children(new ArrayList<>())
+                .isVisible(true)
+                .build();
+        all.add(element);
+        return element;
+    }
+
+    private static DomTextNode text(String text, boolean visible) {
+        return DomTextNode.builder().text(text).isVisible(visible).build();
+    }
+
+    private static void append(DomElement parent, DomNode... children) {
+        for (DomNode child : children) {
+            child.setParent(parent);
+            parent.getChildren().add(child);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.mxy.browser.use.dom;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DOM树解码器测试
+ * 以原先基于ObjectMapper树模型的解码结果作为参照
+ */
+class DomTreeDecoderTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 录制的页面脚本返回值：
+     * body > [header > [nav > [a(0) > 文本, a > 文本]], iframe(登录框，偏移后位于视口内) > body > [input(1), button(2) > 文本],
+     * iframe(偏移后位于视口外) > body > [button > 文本], 文本]
+     * 子节点先于父节点出现、ID混用数字和字符串、部分可选字段缺失，并带有未知字段和性能指标
+     */
+    private static final String RECORDED = "{\"rootId\":\"1\",\"map\":{"
+            + "\"4\":{\"tagName\":\"a\",\"xpath\":\"html[1]/body[1]/header[1]/nav[1]/a[1]\","
+            + "\"attributes\":{\"href\":\"/home\",\"data-count\":3,\"data-empty\":null,\"data-obj\":{\"x\":1}},"
+            + "\"children\":[5],\"isVisible\":true,\"isInteractive\":true,\"isTopElement\":true,"
+            + "\"isInViewport\":true,\"shadowRoot\":false,\"highlightIndex\":0},"
+            + "\"5\":{\"type\":\"TEXT_NODE\",\"text\":\"首页\",\"isVisible\":true},"
+            + "\"1\":{\"tagName\":\"body\",\"xpath\":\"html[1]/body[1]\",\"attributes\":{},"
+            + "\"children\":[\"2\",\"8\",\"14\",\"17\"],\"isVisible\":true,\"isInteractive\":false,"
+            + "\"isTopElement\":false,\"isInViewport\":true,\"shadowRoot\":false,"
+            + "\"viewport\":{\"width\":1280,\"height\":720,\"scrollX\":0}},"
+            + "\"2\":{\"tagName\":\"header\",\"xpath\":\"html[1]/body[1]/header[1]\",\"attributes\":{\"class\":\"top\"},"
+            + "\"children\":[\"3\"],\"isVisible\":true,\"isInteractive\":false,\"isTopElement\":false,"
+            + "\"isInViewport\":true,\"shadowRoot\":true},"
+            + "\"3\":{\"tagName\":\"nav\",\"xpath\":\"html[1]/body[1]/header[1]/nav[1]\",\"attributes\":{},"
+            + "\"children\":[\"4\",\"6\",null,{\"bad\":1}],\"isVisible\":true,\"extra\":[1,[2,3]]},"
+            + "\"6\":{\"tagName\":\"a\",\"xpath\":\"html[1]/body[1]/header[1]/nav[1]/a[2]\","
+            + "\"children\":[\"7\"],\"isVisible\":false,\"isInteractive\":true},"
+            + "\"7\":{\"type\":\"TEXT_NODE\",\"text\":\"隐藏\"},"
+            + "\"8\":{\"tagName\":\"iframe\",\"xpath\":\"html[1]/body[1]/iframe[1]\",\"attributes\":{\"src\":\"/login\"},"
+            + "\"children\":[\"9\"],\"isVisible\":true,\"isInteractive\":false,\"isTopElement\":true,"
+            + "\"isInViewport\":true,\"shadowRoot\":false},"
+            + "\"9\":{\"tagName\":\"body\",\"xpath\":\"html[1]/body[1]\",\"attributes\":{},"
+            + "\"children\":[\"10\",\"11\"],\"isVisible\":true,\"isInteractive\":false,\"isTopElement\":false,"
+            + "\"isInViewport\":true,\"shadowRoot\":false},"
+            + "\"10\":{\"tagName\":\"input\",\"xpath\":\"html[1]/body[1]/input[1]\","
+            + "\"attributes\":{\"name\":\"user\",\"type\":\"text\"},\"children\":[],\"isVisible\":true,"
+            + "\"isInteractive\":true,\"isTopElement\":true,\"isInViewport\":true,\"shadowRoot\":false,"
+            + "\"highlightIndex\":1},"
+            + "\"11\":{\"tagName\":\"button\",\"xpath\":\"html[1]/body[1]/button[1]\",\"attributes\":{},"
+            + "\"children\":[\"12\"],\"isVisible\":true,\"isInteractive\":true,\"isTopElement\":true,"
+            + "\"isInViewport\":true,\"shadowRoot\":false,\"highlightIndex\":2},"
+            + "\"12\":{\"type\":\"TEXT_NODE\",\"text\":\"登录\",\"isVisible\":true},"
+            + "\"14\":{\"tagName\":\"iframe\",\"xpath\":\"html[1]/body[1]/iframe[2]\",\"attributes\":{},"
+            + "\"children\":[\"15\"],\"isVisible\":true,\"isInteractive\":false,\"isTopElement\":false,"
+            + "\"isInViewport\":false,\"shadowRoot\":false},"
+            + "\"15\":{\"tagName\":\"body\",\"xpath\":\"html[1]/body[1]\",\"attributes\":{},"
+            + "\"children\":[\"16\"],\"isVisible\":true,\"isInteractive\":false,\"isTopElement\":false,"
+            + "\"isInViewport\":false,\"shadowRoot\":false},"
+            + "\"16\":{\"tagName\":\"button\",\"xpath\":\"html[1]/body[1]/button[1]\",\"attributes\":{},"
+            + "\"children\":[\"13\"],\"isVisible\":true,\"isInteractive\":true,\"isTopElement\":false,"
+            + "\"isInViewport\":false,\"shadowRoot\":false},"
+            + "\"13\":{\"type\":\"TEXT_NODE\",\"text\":\"订阅\",\"isVisible\":true},"
+            + "\"17\":{\"type\":\"TEXT_NODE\",\"text\":\"版权所有\",\"isVisible\":true}"
+            + "},\"perfMetrics\":{\"nodeMetrics\":{\"totalNodes\":17},\"timings\":[1.5,2.25]},\"unused\":{\"a\":[1]}}";
+
+    @Test
+    void recordedPayloadDecodesLikeTheTreeModel() throws IOException {
+        DomGraphBuilder builder = new DomGraphBuilder();
+        DomTreeDecoder.DecodedDomTree decoded = DomTreeDecoder.decode(RECORDED, false, builder);
+        DomElement root = builder.getRoot(decoded.getRootId());
+
+        Map<Integer, DomElement> expectedSelectorMap = new HashMap<>();
+        DomElement expected = decodeWithTreeModel(RECORDED, expectedSelectorMap);
+
+        assertNotNull(root);
+        assertSameTree(expected, root);
+        assertEquals(expectedSelectorMap.keySet(), builder.getSelectorMap().keySet());
+        for (Map.Entry<Integer, DomElement> entry : expectedSelectorMap.entrySet()) {
+            assertEquals(entry.getValue().getXpath(), builder.getSelectorMap().get(entry.getKey()).getXpath());
+        }
+        assertEquals(expected.getAllText(), root.getAllText());
+    }
+
+    @Test
+    void iframeDocumentsAreChildrenOfTheirFrameElement() throws IOException {
+        DomGraphBuilder builder = new DomGraphBuilder();
+        DomTreeDecoder.DecodedDomTree decoded = DomTreeDecoder.decode(RECORDED, false, builder);
+        DomElement root = builder.getRoot(decoded.getRootId());
+
+        DomElement frame = (DomElement) root.getChildren().get(1);
+        DomElement frameBody = (DomElement) frame.getChildren().get(0);
+        assertEquals("iframe", frame.getTagName());
+        assertSame(frame, frameBody.getParent());
+        assertEquals("html[1]/body[1]", frameBody.getXpath());
+        // 框架内元素的视口判断已按框架偏移计算，位于视口内的元素带有高亮索引
+        assertSame(frameBody.getChildren().get(1), builder.getSelectorMap().get(2));
+        DomElement offscreenButton = (DomElement) ((DomElement) ((DomElement) root.getChildren().get(2))
+                .getChildren().get(0)).getChildren().get(0);
+        assertFalse(offscreenButton.isInViewport());
+        assertNull(offscreenButton.getHighlightIndex());
+        assertEquals(3, builder.getSelectorMap().size());
+    }
+
+    @Test
+    void missingAndMalformedFieldsFallBackToDefaults() throws IOException {
+        DomGraphBuilder builder = new DomGraphBuilder();
+        DomElement root = builder.getRoot(DomTreeDecoder.decode(RECORDED, false, builder).getRootId());
+
+        DomElement nav = (DomElement) ((DomElement) root.getChildren().get(0)).getChildren().get(0);
+        assertEquals(2, nav.getChildren().size());
+        DomElement hiddenLink = (DomElement) nav.getChildren().get(1);
+        assertTrue(hiddenLink.getAttributes().isEmpty());
+        assertFalse(hiddenLink.isTopElement());
+        assertFalse(hiddenLink.getChildren().get(0).isVisible());
+
+        Map<String, String> attributes = ((DomElement) nav.getChildren().get(0)).getAttributes();
+        assertEquals(Map.of("href", "/home", "data-count", "3", "data-empty", "null"), attributes);
+        assertEquals(1280, root.getViewportInfo().getWidth());
+        assertEquals(720, root.getViewportInfo().getHeight());
+    }
+
+    @Test
+    void metadataFieldsAreReadAndPerfMetricsOnlyOnRequest() throws IOException {
+        String patch = "{\"full\":false,\"patches\":[5,\"9\"],\"rootId\":null,\"map\":{}}";
+
+        DomTreeDecoder.DecodedDomTree incremental = DomTreeDecoder.decode(patch, true, new DomGraphBuilder());
+        assertFalse(incremental.isFull());
+        assertNull(incremental.getRootId());
+        assertEquals(List.of("5", "9"), incremental.getPatches());
+        assertNull(incremental.getPerfMetrics());
+
+        DomTreeDecoder.DecodedDomTree skipped = DomTreeDecoder.decode(RECORDED, false, new DomGraphBuilder());
+        assertTrue(skipped.isFull());
+        assertTrue(skipped.getPatches().isEmpty());
+        assertNull(skipped.getPerfMetrics());
+
+        JsonNode metrics = DomTreeDecoder.decode(RECORDED, true, new DomGraphBuilder()).getPerfMetrics();
+        assertEquals(objectMapper.readTree(RECORDED).get("perfMetrics"), metrics);
+    }
+
+    @Test
+    void nonObjectPayloadIsRejected() {
+        assertThrows(IOException.class, () -> DomTreeDecoder.decode("[]", false, new DomGraphBuilder()));
+        assertThrows(IOException.class, () -> DomTreeDecoder.decode("{\"map\":{\"1\":", false, new DomGraphBuilder()));
+    }
+
+    /**
+     * 参照实现：先读成JsonNode树，再两遍遍历构建节点和父子关系
+     */
+    private static DomElement decodeWithTreeModel(String json, Map<Integer, DomElement> selectorMap)
+            throws IOException {
+        JsonNode evalPage = objectMapper.readTree(json);
+        JsonNode jsNodeMap = evalPage.get("map");
+        Map<String, DomNode> nodeMap = new HashMap<>();
+
+        jsNodeMap.fields().forEachRemaining(entry -> {
+            DomNode node = parseNode(entry.getValue());
+            nodeMap.put(entry.getKey(), node);
+            if (node instanceof DomElement && ((DomElement) node).getHighlightIndex() != null) {
+                selectorMap.put(((DomElement) node).getHighlightIndex(), (DomElement) node);
+            }
+        });
+        jsNodeMap.fields().forEachRemaining(entry -> {
+            DomNode parent = nodeMap.get(entry.getKey());
+            if (!(parent instanceof DomElement) || !entry.getValue().has("children")) {
+                return;
+            }
+            entry.getValue().get("children").forEach(childId -> {
+                DomNode child = childId.isValueNode() ? nodeMap.get(childId.asText()) : null;
+                if (child != null) {
+                    child.setParent((DomElement) parent);
+                    ((DomElement) parent).getChildren().add(child);
+                }
+            });
+        });
+        return (DomElement) nodeMap.get(evalPage.get("rootId").asText());
+    }
+
+    private static DomNode parseNode(JsonNode nodeData) {
+        if ("TEXT_NODE".equals(nodeData.path("type").asText())) {
+            return DomTextNode.builder()
+                    .text(nodeData.path("text").asText())
+                    .isVisible(nodeData.path("isVisible").asBoolean())
+                    .build();
+        }
+        ViewportInfo viewportInfo = null;
+        if (nodeData.has("viewport")) {
+            viewportInfo = ViewportInfo.builder()
+                    .width(nodeData.get("viewport").get("width").asInt())
+                    .height(nodeData.get("viewport").get("height").asInt())
+                    .build();
+        }
+        Map<String, String> attributes = new HashMap<>();
+        if (nodeData.has("attributes")) {
+            nodeData.get("attributes").fields().forEachRemaining(attr -> {
+                if (attr.getValue().isValueNode()) {
+                    attributes.put(attr.getKey(), attr.getValue().asText());
+                }
+            });
+        }
+        return DomElement.builder()
+                .tagName(nodeData.get("tagName").asText())
+                .xpath(nodeData.get("xpath").asText())
+                .attributes(attributes)
+                .children(new ArrayList<>())
+                .isVisible(nodeData.path("isVisible").asBoolean())
+                .isInteractive(nodeData.path("isInteractive").asBoolean())
+                .isTopElement(nodeData.path("isTopElement").asBoolean())
+                .isInViewport(nodeData.path("isInViewport").asBoolean())
+                .highlightIndex(nodeData.has("highlightIndex") ? nodeData.get("highlightIndex").asInt() : null)
+                .shadowRoot(nodeData.path("shadowRoot").asBoolean())
+                .viewportInfo(viewportInfo)
+                .build();
+    }
+
+    private static void assertSameTree(DomNode expected, DomNode actual) {
+        assertEquals(expected.isVisible(), actual.isVisible());
+        if (expected instanceof DomTextNode) {
+            assertTrue(actual instanceof DomTextNode);
+            assertEquals(((DomTextNode) expected).getText(), ((DomTextNode) actual).getText());
+            return;
+        }
+        DomElement expectedElement = (DomElement) expected;
+        DomElement actualElement = (DomElement) actual;
+        assertEquals(expectedElement.getTagName(), actualElement.getTagName());
+        assertEquals(expectedElement.getXpath(), actualElement.getXpath());
+        assertEquals(expectedElement.getAttributes(), actualElement.getAttributes());
+        assertEquals(expectedElement.isInteractive(), actualElement.isInteractive());
+        assertEquals(expectedElement.isTopElement(), actualElement.isTopElement());
+        assertEquals(expectedElement.isInViewport(), actualElement.isInViewport());
+        assertEquals(expectedElement.isShadowRoot(), actualElement.isShadowRoot());
+        assertEquals(expectedElement.getHighlightIndex(), actualElement.getHighlightIndex());
+        assertEquals(expectedElement.getViewportInfo(), actualElement.getViewportInfo());
+        assertEquals(expectedElement.getChildren().size(), actualElement.getChildren().size());
+        for (int i = 0; i < expectedElement.getChildren().size(); i++) {
+            DomNode actualChild = actualElement.getChildren().get(i);
+            assertSame(actualElement, actualChild.getParent());
+            assertSameTree(expectedElement.getChildren().get(i), actualChild);
+        }
+    }
+}
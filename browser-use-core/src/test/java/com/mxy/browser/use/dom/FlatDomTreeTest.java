@@ -0,0 +1,142 @@
+package com.mxy.browser.use.dom;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 扁平DOM树测试
+ */
+class FlatDomTreeTest {
+
+    /**
+     * body > [form#login > [input(0), button(1) > 文本], 文本]，引用了未定义的节点99
+     */
+    private static final String PAGE = "{\"rootId\":\"1\",\"map\":{"
+            + "\"1\":{\"tagName\":\"body\",\"xpath\":\"html[1]/body[1]\",\"attributes\":{},"
+            + "\"children\":[\"2\",\"99\",\"6\"],\"isVisible\":true},"
+            + "\"2\":{\"tagName\":\"form\",\"xpath\":\"html[1]/body[1]/form[1]\","
+            + "\"attributes\":{\"id\":\"login\",\"class\":\"card\"},\"children\":[\"3\",\"4\"],\"isVisible\":true},"
+            + "\"3\":{\"tagName\":\"input\",\"xpath\":\"html[1]/body[1]/form[1]/input[1]\","
+            + "\"attributes\":{\"name\":\"user\",\"placeholder\":\"用户名\"},\"children\":[],\"isVisible\":true,"
+            + "\"isInteractive\":true,\"isTopElement\":true,\"isInViewport\":true,\"highlightIndex\":0},"
+            + "\"4\":{\"tagName\":\"button\",\"xpath\":\"html[1]/body[1]/form[1]/button[1]\",\"attributes\":{},"
+            + "\"children\":[\"5\"],\"isVisible\":true,\"isInteractive\":true,\"isTopElement\":true,"
+            + "\"isInViewport\":true,\"highlightIndex\":1,\"shadowRoot\":true},"
+            + "\"5\":{\"type\":\"TEXT_NODE\",\"text\":\"登录\",\"isVisible\":true},"
+            + "\"6\":{\"type\":\"TEXT_NODE\",\"text\":\"忘记密码\",\"isVisible\":false}"
+            + "}}";
+
+    @Test
+    void viewsExposeTheSameTreeAsTheObjectGraph() throws IOException {
+        DomState flat = flat(PAGE).toDomState();
+        DomGraphBuilder graphBuilder = new DomGraphBuilder();
+        DomTreeDecoder.DecodedDomTree decoded = DomTreeDecoder.decode(PAGE, false, graphBuilder);
+        DomState graph = new DomState(graphBuilder.getRoot(decoded.getRootId()), graphBuilder.getSelectorMap());
+
+        assertSameTree(graph.getElementTree(), flat.getElementTree());
+        assertEquals(graph.getSelectorMap().keySet(), flat.getSelectorMap().keySet());
+        for (Map.Entry<Integer, DomElement> entry : graph.getSelectorMap().entrySet()) {
+            assertEquals(entry.getValue().getXpath(), flat.getSelectorMap().get(entry.getKey()).getXpath());
+        }
+        assertEquals(graph.getElementTree().getAllText(), flat.getElementTree().getAllText());
+    }
+
+    @Test
+    void undefinedChildrenAreDroppedAndLinksAreConsistent() throws IOException {
+        FlatDomTree tree = flat(PAGE);
+        DomElement body = tree.getRootElement();
+
+        assertEquals(6, tree.size());
+        assertEquals(2, body.getChildren().size());
+        DomElement form = (DomElement) body.getChildren().get(0);
+        assertSame(body, form.getParent());
+        assertNull(body.getParent());
+        DomTextNode text = (DomTextNode) ((DomElement) form.getChildren().get(1)).getChildren().get(0);
+        assertEquals("登录", text.getText());
+        assertSame(form.getChildren().get(1), text.getParent());
+        assertFalse(((DomTextNode) body.getChildren().get(1)).isVisible());
+    }
+
+    @Test
+    void attributesAreReadWithoutCopying() throws IOException {
+        DomElement form = (DomElement) flat(PAGE).getRootElement().getChildren().get(0);
+
+        assertEquals("login", form.getId());
+        assertEquals("card", form.getClassName());
+        assertNull(form.getName());
+        assertNull(form.getAttribute("missing"));
+        Map<String, String> attributes = form.getAttributes();
+        assertEquals(2, attributes.size());
+        assertTrue(attributes.containsKey("class"));
+        assertEquals(Map.of("id", "login", "class", "card"), Map.copyOf(attributes));
+        assertSame(attributes, form.getAttributes());
+    }
+
+    @Test
+    void viewsAreCachedPerNode() throws IOException {
+        FlatDomTree tree = flat(PAGE);
+        DomElement body = tree.getRootElement();
+
+        assertSame(body, tree.getRootElement());
+        assertSame(body.getChildren(), body.getChildren());
+        DomState state = tree.toDomState();
+        DomElement form = (DomElement) body.getChildren().get(0);
+        assertSame(form.getChildren().get(0), state.getSelectorMap().get(0));
+        assertSame(state.getSelectorMap().get(1), tree.toDomState().getSelectorMap().get(1));
+    }
+
+    @Test
+    void everyMutatorRejectsWrites() throws IOException {
+        FlatDomTree tree = flat(PAGE);
+        DomElement body = tree.getRootElement();
+        DomElement form = (DomElement) body.getChildren().get(0);
+        DomNode text = body.getChildren().get(1);
+
+        assertThrows(UnsupportedOperationException.class, () -> form.setParent(null));
+        assertThrows(UnsupportedOperationException.class, () -> text.setParent(form));
+        assertThrows(UnsupportedOperationException.class, () -> form.getAttributes().put("id", "other"));
+        assertThrows(UnsupportedOperationException.class, () -> form.getAttributes().clear());
+        assertThrows(UnsupportedOperationException.class, () -> body.getChildren().add(text));
+        assertThrows(UnsupportedOperationException.class, () -> body.getChildren().remove(0));
+        assertEquals("login", form.getId());
+        assertSame(body, form.getParent());
+    }
+
+    private static FlatDomTree flat(String json) throws IOException {
+        FlatDomTree.Builder builder = new FlatDomTree.Builder();
+        DomTreeDecoder.DecodedDomTree decoded = DomTreeDecoder.decode(json, false, builder);
+        return builder.build(decoded.getRootId());
+    }
+
+    private static void assertSameTree(DomNode expected, DomNode actual) {
+        assertEquals(expected.isVisible(), actual.isVisible());
+        if (expected instanceof DomTextNode) {
+            assertTrue(actual instanceof DomTextNode);
+            assertEquals(((DomTextNode) expected).getText(), ((DomTextNode) actual).getText());
+            return;
+        }
+        DomElement expectedElement = (DomElement) expected;
+        DomElement actualElement = (DomElement) actual;
+        assertEquals(expectedElement.getTagName(), actualElement.getTagName());
+        assertEquals(expectedElement.getXpath(), actualElement.getXpath());
+        assertEquals(expectedElement.getAttributes(), actualElement.getAttributes());
+        assertEquals(expectedElement.isInteractive(), actualElement.isInteractive());
+        assertEquals(expectedElement.isTopElement(), actualElement.isTopElement());
+        assertEquals(expectedElement.isInViewport(), actualElement.isInViewport());
+        assertEquals(expectedElement.isShadowRoot(), actualElement.isShadowRoot());
+        assertEquals(expectedElement.getHighlightIndex(), actualElement.getHighlightIndex());
+        assertEquals(expectedElement.getChildren().size(), actualElement.getChildren().size());
+        for (int i = 0; i < expectedElement.getChildren().size(); i++) {
+            assertSameTree(expectedElement.getChildren().get(i), actualElement.getChildren().get(i));
+        }
+    }
+}
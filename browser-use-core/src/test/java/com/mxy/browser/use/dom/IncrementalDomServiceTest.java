@@ -0,0 +1,133 @@
+package com.mxy.browser.use.dom;
+
+import com.microsoft.playwright.Page;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 增量DOM服务测试（使用模拟的页面和录制的脚本返回值）
+ */
+class IncrementalDomServiceTest {
+
+    /**
+     * 完整提取：body > [div#a > [button(0), 文本], div#b > [a(1)]]
+     */
+    private static final String FULL = "{\"full\":true,\"rootId\":\"1\",\"map\":{"
+            + "\"1\":{\"tagName\":\"body\",\"xpath\":\"html[1]/body[1]\",\"attributes\":{},\"children\":[\"2\",\"5\"],"
+            + "\"isVisible\":true},"
+            + "\"2\":{\"tagName\":\"div\",\"xpath\":\"html[1]/body[1]/div[1]\",\"attributes\":{\"id\":\"a\"},"
+            + "\"children\":[\"3\",\"4\"],\"isVisible\":true},"
+            + "\"3\":{\"tagName\":\"button\",\"xpath\":\"html[1]/body[1]/div[1]/button[1]\",\"attributes\":{},"
+            + "\"children\":[],\"isVisible\":true,\"isInteractive\":true,\"isTopElement\":true,"
+            + "\"isInViewport\":true,\"highlightIndex\":0},"
+            + "\"4\":{\"type\":\"TEXT_NODE\",\"text\":\"说明\",\"isVisible\":true},"
+            + "\"5\":{\"tagName\":\"div\",\"xpath\":\"html[1]/body[1]/div[2]\",\"attributes\":{\"id\":\"b\"},"
+            + "\"children\":[\"6\"],\"isVisible\":true},"
+            + "\"6\":{\"tagName\":\"a\",\"xpath\":\"html[1]/body[1]/div[2]/a[1]\",\"attributes\":{},"
+            + "\"children\":[],\"isVisible\":true,\"isInteractive\":true,\"isTopElement\":true,"
+            + "\"isInViewport\":true,\"highlightIndex\":1}"
+            + "},\"totalNodes\":6}";
+
+    /**
+     * 增量提取：div#b的内容被替换为新的链接(2)
+     */
+    private static final String PATCH_B = "{\"full\":false,\"rootId\":\"1\",\"patches\":[\"5\"],\"map\":{"
+            + "\"5\":{\"tagName\":\"div\",\"xpath\":\"html[1]/body[1]/div[2]\",\"attributes\":{\"id\":\"b\"},"
+            + "\"children\":[\"7\"],\"isVisible\":true},"
+            + "\"7\":{\"tagName\":\"a\",\"xpath\":\"html[1]/body[1]/div[2]/a[1]\",\"attributes\":{\"href\":\"/next\"},"
+            + "\"children\":[],\"isVisible\":true,\"isInteractive\":true,\"isTopElement\":true,"
+            + "\"isInViewport\":true,\"highlightIndex\":2}"
+            + "},\"totalNodes\":6}";
+
+    /**
+     * 增量提取：按钮本身未变化，但被其他元素遮挡，页面脚本重新发送该按钮
+     */
+    private static final String PATCH_COVERED_BUTTON = "{\"full\":false,\"rootId\":\"1\",\"patches\":[\"3\"],\"map\":{"
+            + "\"3\":{\"tagName\":\"button\",\"xpath\":\"html[1]/body[1]/div[1]/button[1]\",\"attributes\":{},"
+            + "\"children\":[],\"isVisible\":true,\"isInteractive\":true,\"isTopElement\":false,"
+            + "\"isInViewport\":true}"
+            + "},\"totalNodes\":6}";
+
+    private Page page;
+
+    private IncrementalDomService service;
+
+    @BeforeEach
+    void setUp() {
+        page = mock(Page.class);
+        when(page.url()).thenReturn("https://example.com");
+        service = new IncrementalDomService(page, Runnable::run, 0.3);
+    }
+
+    @Test
+    void patchReplacesOnlyTheDirtySubtreeAndLeavesThePreviousTreeIntact() {
+        when(page.evaluate(anyString(), any())).thenReturn(FULL, PATCH_B);
+
+        DomState first = service.getClickableElements(true, -1, 0).join();
+        DomState second = service.getClickableElements(true, -1, 0).join();
+
+        DomElement oldBody = first.getElementTree();
+        DomElement newBody = second.getElementTree();
+        assertNotSame(oldBody, newBody);
+        // 未变化的子树在新旧两棵树之间共享
+        assertSame(oldBody.getChildren().get(0), newBody.getChildren().get(0));
+
+        DomElement oldB = (DomElement) oldBody.getChildren().get(1);
+        DomElement newB = (DomElement) newBody.getChildren().get(1);
+        assertNotSame(oldB, newB);
+        assertEquals("a", ((DomElement) oldB.getChildren().get(0)).getTagName());
+        assertEquals("/next", ((DomElement) newB.getChildren().get(0)).getAttributes().get("href"));
+
+        assertEquals(2, first.getSelectorMap().size());
+        assertTrue(first.getSelectorMap().containsKey(1));
+        assertEquals(2, second.getSelectorMap().size());
+        assertFalse(second.getSelectorMap().containsKey(1));
+        assertSame(newB.getChildren().get(0), second.getSelectorMap().get(2));
+        assertSame(first.getSelectorMap().get(0), second.getSelectorMap().get(0));
+    }
+
+    @Test
+    void resentElementWithStaleFlagsLeavesTheSelectorMap() {
+        when(page.evaluate(anyString(), any())).thenReturn(FULL, PATCH_COVERED_BUTTON);
+
+        DomState first = service.getClickableElements(true, -1, 0).join();
+        DomState second = service.getClickableElements(true, -1, 0).join();
+
+        assertTrue(first.getSelectorMap().containsKey(0));
+        assertFalse(second.getSelectorMap().containsKey(0));
+        DomElement newButton = (DomElement) ((DomElement) second.getElementTree().getChildren().get(0))
+                .getChildren().get(0);
+        assertFalse(newButton.isTopElement());
+        // 按钮之后的文本节点位置不变
+        assertSame(((DomElement) first.getElementTree().getChildren().get(0)).getChildren().get(1),
+                ((DomElement) second.getElementTree().getChildren().get(0)).getChildren().get(1));
+    }
+
+    @Test
+    void patchForAnUnknownSubtreeResetsThePageState() {
+        String unknown = PATCH_B.replace("[\"5\"]", "[\"42\"]").replace("\"5\":", "\"42\":");
+        when(page.evaluate(anyString(), any())).thenReturn(FULL, unknown);
+
+        service.getClickableElements(true, -1, 0).join();
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> service.getClickableElements(true, -1, 0).join());
+
+        assertTrue(error.getCause().getMessage().contains("增量构建DOM树失败"));
+        verify(page).evaluate(contains("fullRequired = true"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.mxy.browser.use.memory;
+
+import com.mxy.browser.use.prompt.TokenEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 有界记忆测试
+ */
+class RingBufferMemoryTest {
+
+    @Test
+    void evictsOldestEntriesWhenWrappingAround() {
+        RingBufferMemory memory = RingBufferMemory.builder().maxEntries(3).build();
+        for (int i = 1; i <= 7; i++) {
+            memory.add("k" + i, "v" + i);
+        }
+
+        assertEquals(List.of("k5", "k6", "k7"), memory.keys());
+        assertEquals(4, memory.getEvictions());
+        assertNull(memory.get("k4"));
+        assertEquals("v7", memory.get("k7"));
+    }
+
+    @Test
+    void rewritingAKeyMovesItToTheEnd() {
+        RingBufferMemory memory = RingBufferMemory.builder().maxEntries(3).build();
+        memory.add("a", "1");
+        memory.add("b", "2");
+        memory.add("c", "3");
+        memory.add("a", "4");
+
+        assertEquals(List.of("b", "c", "a"), memory.keys());
+        assertEquals("4", memory.get("a"));
+        assertEquals(0, memory.getEvictions());
+
+        memory.add("d", "5");
+        assertEquals(List.of("c", "a", "d"), memory.keys());
+        assertFalse(memory.has("b"));
+        assertEquals(1, memory.getEvictions());
+    }
+
+    @Test
+    void clearedSlotsAreReclaimedWithoutLosingOrder() {
+        RingBufferMemory memory = RingBufferMemory.builder().maxEntries(4).build();
+        // 先让最早的槽位移到缓冲区中部，再在中间留出空槽
+        for (int i = 1; i <= 6; i++) {
+            memory.add("k" + i, "v" + i);
+        }
+        memory.clear("k4");
+        memory.clear("k5");
+        memory.add("k7", "v7");
+        memory.add("k8", "v8");
+
+        assertEquals(List.of("k3", "k6", "k7", "k8"), memory.keys());
+        assertEquals(2, memory.getEvictions());
+        for (String key : memory.keys()) {
+            assertEquals("v" + key.substring(1), memory.get(key));
+        }
+
+        memory.add("k9", "v9");
+        assertEquals(List.of("k6", "k7", "k8", "k9"), memory.keys());
+    }
+
+    @Test
+    void evictsByTokenBudget() {
+        // 每条约 1 + 3 + 1 = 5 token
+        RingBufferMemory memory = RingBufferMemory.builder().maxTokens(12).build();
+        memory.add("k1", "aaaaaaaaaaaa");
+        memory.add("k2", "bbbbbbbbbbbb");
+        memory.add("k3", "cccccccccccc");
+
+        assertEquals(List.of("k2", "k3"), memory.keys());
+        assertEquals(1, memory.getEvictions());
+    }
+
+    @Test
+    void rejectsEntriesLargerThanTheWholeBudget() {
+        RingBufferMemory memory = RingBufferMemory.builder().maxTokens(10).build();
+        memory.add("small", "x");
+        memory.add("large", "y".repeat(100));
+
+        assertEquals(List.of("small"), memory.keys());
+        assertEquals(0, memory.getEvictions());
+    }
+
+    @Test
+    void clearAllResetsTheBuffer() {
+        RingBufferMemory memory = RingBufferMemory.builder().maxEntries(2).build();
+        memory.add("a", "1");
+        memory.add("b", "2");
+        memory.add("c", "3");
+        memory.clearAll();
+
+        assertEquals(0, memory.size());
+        memory.add("d", "4");
+        memory.add("e", "5");
+        assertEquals(List.of("d", "e"), memory.keys());
+    }
+
+    @Test
+    void renderKeepsNewestEntriesWithinBudget() {
+        RingBufferMemory memory = RingBufferMemory.builder().build();
+        for (int i = 1; i <= 10; i++) {
+            memory.add("step_" + i, "点击了第" + i + "个按钮");
+        }
+        String line = "- step_10: 点击了第10个按钮\n";
+        int budget = TokenEstimator.estimate(line) * 3;
+
+        String rendered = memory.render(budget);
+
+        assertTrue(rendered.startsWith("(更早的 7 条记录已省略)\n"), rendered);
+        assertTrue(rendered.endsWith(line), rendered);
+        assertTrue(rendered.indexOf("step_8") < rendered.indexOf("step_9"));
+        assertFalse(rendered.contains("step_7:"));
+    }
+
+    @Test
+    void renderWithLargeBudgetListsEverythingInOrder() {
+        RingBufferMemory memory = RingBufferMemory.builder().build();
+        memory.add("a", "1");
+        memory.add("b", "2");
+
+        assertEquals("- a: 1\n- b: 2\n", memory.render(1000));
+        assertEquals("", RingBufferMemory.builder().build().render(1000));
+    }
+}
@@ -0,0 +1,121 @@
+package com.mxy.browser.use.pacing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 节奏参数与节奏策略测试
+ */
+class AdaptivePacingPolicyTest {
+
+    private static final String SHOP = "shop.example.com";
+
+    private static final String INTRANET = "intranet.example.com";
+
+    @Test
+    void unknownDomainsRunAtFullSpeed() {
+        AdaptivePacingPolicy policy = new AdaptivePacingPolicy();
+
+        assertSame(PacingProfile.FAST, policy.profileFor(SHOP));
+        assertTrue(policy.observesBotDetection());
+        // 没有放慢过的域名不需要记录成功
+        policy.recordSuccess(SHOP);
+        assertSame(PacingProfile.FAST, policy.profileFor(SHOP));
+    }
+
+    @Test
+    void botDetectionSlowsOnlyThatDomainUpToTheMaximumLevel() {
+        AdaptivePacingPolicy policy = new AdaptivePacingPolicy(3, 2);
+
+        policy.recordBotDetection(SHOP);
+        assertSame(PacingProfile.HUMAN, policy.profileFor(SHOP));
+        assertSame(PacingProfile.FAST, policy.profileFor(INTRANET));
+
+        policy.recordBotDetection(SHOP);
+        assertEquals(PacingProfile.HUMAN.scale(2), policy.profileFor(SHOP));
+        policy.recordBotDetection(SHOP);
+        policy.recordBotDetection(SHOP);
+        PacingProfile slowest = policy.profileFor(SHOP);
+        assertEquals(PacingProfile.HUMAN.scale(4), slowest);
+        assertEquals(3200, slowest.getMaxActionDelayMillis());
+        assertFalse(slowest.isFillText());
+    }
+
+    @Test
+    void consecutiveSuccessesRecoverOneLevelAtATime() {
+        AdaptivePacingPolicy policy = new AdaptivePacingPolicy(4, 3);
+        policy.recordBotDetection(SHOP);
+        policy.recordBotDetection(SHOP);
+
+        policy.recordSuccess(SHOP);
+        policy.recordSuccess(SHOP);
+        // 再次检测到反爬虫信号时成功计数清零
+        policy.recordBotDetection(SHOP);
+        policy.recordSuccess(SHOP);
+        policy.recordSuccess(SHOP);
+        assertEquals(PacingProfile.HUMAN.scale(4), policy.profileFor(SHOP));
+
+        policy.recordSuccess(SHOP);
+        assertEquals(PacingProfile.HUMAN.scale(2), policy.profileFor(SHOP));
+        for (int i = 0; i < 6; i++) {
+            policy.recordSuccess(SHOP);
+        }
+        assertSame(PacingProfile.FAST, policy.profileFor(SHOP));
+        for (int i = 0; i < 10; i++) {
+            policy.recordSuccess(SHOP);
+        }
+        assertSame(PacingProfile.FAST, policy.profileFor(SHOP));
+    }
+
+    @Test
+    void scalingMultipliesEveryDelayAndKeepsTheFlags() {
+        PacingProfile doubled = PacingProfile.HUMAN.scale(2);
+
+        assertNotSame(PacingProfile.HUMAN, doubled);
+        assertEquals(600, doubled.getMinActionDelayMillis());
+        assertEquals(1600, doubled.getMaxActionDelayMillis());
+        assertEquals(600, doubled.getTypeDelayMillis());
+        assertEquals(100, doubled.getPressDelayMillis());
+        assertEquals(100, doubled.getKeystrokeDelayMillis());
+        assertEquals(PacingProfile.HUMAN.isHighlightActions(), doubled.isHighlightActions());
+        assertEquals(300, PacingProfile.HUMAN.getMinActionDelayMillis());
+        assertEquals(PacingProfile.FAST, PacingProfile.FAST.scale(8));
+    }
+
+    @Test
+    void actionDelayStaysWithinTheConfiguredRange() {
+        for (int i = 0; i < 200; i++) {
+            long delay = PacingProfile.HUMAN.nextActionDelayMillis();
+            assertTrue(delay >= 300 && delay <= 800, String.valueOf(delay));
+        }
+        assertEquals(0, PacingProfile.FAST.nextActionDelayMillis());
+        PacingProfile inverted = PacingProfile.builder().minActionDelayMillis(500).maxActionDelayMillis(100).build();
+        assertEquals(500, inverted.nextActionDelayMillis());
+    }
+
+    @Test
+    void builtInPoliciesAreLookedUpByName() {
+        assertSame(PacingProfile.HUMAN, PacingPolicy.of(" Human ").profileFor(SHOP));
+        assertSame(PacingProfile.FAST, PacingPolicy.of("FAST").profileFor(SHOP));
+        assertFalse(PacingPolicy.of("fast").observesBotDetection());
+        PacingPolicy adaptive = PacingPolicy.of("adaptive");
+        assertTrue(adaptive instanceof AdaptivePacingPolicy);
+        assertNotSame(adaptive, PacingPolicy.of("adaptive"));
+        assertThrows(IllegalArgumentException.class, () -> PacingPolicy.of("slow"));
+        assertThrows(IllegalArgumentException.class, () -> PacingPolicy.of(null));
+    }
+
+    @Test
+    void blockedStatusCodesAreBotSignals() {
+        assertTrue(BotDetector.isBlockedStatus(403));
+        assertTrue(BotDetector.isBlockedStatus(429));
+        assertFalse(BotDetector.isBlockedStatus(200));
+        assertFalse(BotDetector.isBlockedStatus(503));
+    }
+}
@@ -0,0 +1,159 @@
+package com.mxy.browser.use.prompt;
+
+import com.mxy.browser.use.browser.BrowserState;
+import com.mxy.browser.use.dom.DomElement;
+import com.mxy.browser.use.dom.DomNode;
+import com.mxy.browser.use.dom.DomTextNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 增量列出元素的提示测试
+ */
+class ElementDeltaTest {
+
+    private static final String HOME = "https://shop.example.com/";
+
+    private final PromptBuilder builder = PromptBuilder.builder().tokenBudget(100_000).build();
+
+    private final ElementDelta delta = new ElementDelta();
+
+    @Test
+    void unchangedElementsAreSummarizedAfterTheFirstPrompt() {
+        String first = build(page(HOME, 1, "搜索", "登录", "购物车"));
+        String second = build(page(HOME, 2, "搜索", "登录", "购物车"));
+
+        assertTrue(first.contains("[0] button: \"搜索\""), first);
+        assertTrue(first.contains("[2] button: \"购物车\""), first);
+        assertFalse(first.contains("*["), first);
+        assertFalse(first.contains("与之前步骤相同"), first);
+
+        assertFalse(second.contains("[0] "), second);
+        assertTrue(second.contains("另有 3 个元素与之前步骤相同，未重复列出"), second);
+    }
+
+    @Test
+    void onlyNewAndChangedElementsAreListedAndMarked() {
+        build(page(HOME, 1, "搜索", "登录", "购物车"));
+        String next = build(page(HOME, 2, "搜索", "退出", "购物车", "我的订单"));
+
+        assertFalse(next.contains("\"搜索\""), next);
+        assertTrue(next.contains("*[1] button: \"退出\""), next);
+        assertTrue(next.contains("*[3] button: \"我的订单\""), next);
+        assertTrue(next.contains("另有 2 个元素与之前步骤相同"), next);
+    }
+
+    @Test
+    void movedElementIsListedAgainBecauseItsIndexChanged() {
+        build(page(HOME, 1, "搜索", "登录"));
+        String next = build(page(HOME, 2, "公告", "搜索", "登录"));
+
+        assertTrue(next.contains("*[0] button: \"公告\""), next);
+        assertTrue(next.contains("*[1] button: \"搜索\""), next);
+        assertTrue(next.contains("*[2] button: \"登录\""), next);
+        assertFalse(next.contains("与之前步骤相同"), next);
+    }
+
+    @Test
+    void navigationAndResetStartOverWithTheFullList() {
+        build(page(HOME, 1, "搜索", "登录"));
+        String otherPage = build(page(HOME + "cart", 2, "搜索", "登录"));
+        assertTrue(otherPage.contains("[0] button: \"搜索\""), otherPage);
+        assertFalse(otherPage.contains("*["), otherPage);
+
+        delta.reset();
+        String afterReset = build(page(HOME + "cart", 3, "搜索", "登录"));
+        assertTrue(afterReset.contains("[1] button: \"登录\""), afterReset);
+        assertFalse(afterReset.contains("*["), afterReset);
+    }
+
+    @Test
+    void elementsLeftOutForBudgetAreListedLater() {
+        String[] texts = new String[60];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = "查看第" + i + "条公告详情";
+        }
+        PromptBuilder small = PromptBuilder.builder().tokenBudget(300).build();
+
+        String first = small.build("搜索商品", page(HOME, 1, texts), 1, 10, null, delta);
+        assertTrue(first.contains("个与任务相关度较低的元素未列出"), first);
+        String second = small.build("搜索商品", page(HOME, 2, texts), 2, 10, null, delta);
+
+        int listedFirst = countLines(first);
+        int listedSecond = countLines(second);
+        assertTrue(listedFirst > 0 && listedSecond > 0);
+        assertTrue(second.contains("另有 " + listedFirst + " 个元素与之前步骤相同"), second);
+        for (int i = 0; i < texts.length; i++) {
+            assertFalse(first.contains("[" + i + "] ") && second.contains("*[" + i + "] "), "元素 " + i + " 重复列出");
+        }
+    }
+
+    @Test
+    void elementHashesIgnoreExtractionDetails() {
+        BrowserState first = page(HOME, 1, "搜索", "登录");
+        BrowserState second = page(HOME, 7, "搜索", "登录");
+        BrowserState renamed = page(HOME, 7, "搜索", "注册");
+
+        assertEquals(first.getElementHashes(), second.getElementHashes());
+        assertEquals(first.getElementHashes().get(0), renamed.getElementHashes().get(0));
+        assertNotEquals(first.getElementHashes().get(1), renamed.getElementHashes().get(1));
+    }
+
+    private String build(BrowserState state) {
+        return builder.build("搜索商品", state, 2, 10, null, delta);
+    }
+
+    private static int countLines(String prompt) {
+        int count = 0;
+        for (String line : prompt.split("\n")) {
+            if (line.startsWith("[") || line.startsWith("*[")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 构建页面，每段文本对应一个按钮；每次提取的XPath带有不同的代数，模拟重新提取
+     */
+    private static BrowserState page(String url, long generation, String... texts) {
+        DomElement body = element("body", "html[1]/body[1]", null);
+        Map<Integer, DomElement> selectorMap = new LinkedHashMap<>();
+        for (int i = 0; i < texts.length; i++) {
+            DomElement button = element("button", "html[1]/body[1]/div[" + generation + "]/button[" + (i + 1) + "]",
+                    texts[i]);
+            button.setParent(body);
+            body.getChildren().add(button);
+            selectorMap.put(i, button);
+        }
+        return BrowserState.builder().generation(generation).url(url).title("商城")
+                .elementTree(body).selectorMap(selectorMap).build();
+    }
+
+    private static DomElement element(String tagName, String xpath, String text) {
+        List<DomNode> children = new ArrayList<>();
+        DomElement element = DomElement.builder()
+                .tagName(tagName)
+                .xpath(xpath)
+                .attributes(new HashMap<>())
+                .children(children)
+                .isVisible(true)
+                .isInteractive(!"body".equals(tagName))
+                .isInViewport(true)
+                .build();
+        if (text != null) {
+            children.add(DomTextNode.builder().text(text).isVisible(true).parent(element).build());
+        }
+        return element;
+    }
+}
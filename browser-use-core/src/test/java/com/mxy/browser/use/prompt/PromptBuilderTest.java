@@ -0,0 +1,151 @@
+package com.mxy.browser.use.prompt;
+
+import com.mxy.browser.use.browser.BrowserState;
+import com.mxy.browser.use.dom.DomElement;
+import com.mxy.browser.use.dom.DomNode;
+import com.mxy.browser.use.dom.DomTextNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按token预算构建提示的测试
+ */
+class PromptBuilderTest {
+
+    private static final String TAIL = "\n任务: 搜索商品\n当前步骤: 2/10\n";
+
+    @Test
+    void missingStateStillEndsWithTaskAndStep() {
+        String prompt = PromptBuilder.builder().build().build("搜索商品", null, 2, 10, null);
+
+        assertTrue(prompt.startsWith("无法获取当前页面状态"));
+        assertTrue(prompt.endsWith(TAIL));
+    }
+
+    @Test
+    void largeBudgetListsEveryElementInPageOrder() {
+        BrowserState state = page(20, 7);
+        String prompt = PromptBuilder.builder().tokenBudget(100_000).build().build("搜索商品", state, 2, 10, null);
+
+        int previous = -1;
+        for (int i = 0; i < 20; i++) {
+            int position = prompt.indexOf("[" + i + "] ");
+            assertTrue(position > previous, "元素 " + i + " 应按页面顺序输出");
+            previous = position;
+        }
+        assertFalse(prompt.contains("未列出"));
+        assertTrue(prompt.endsWith(TAIL));
+    }
+
+    @Test
+    void smallBudgetKeepsTheMostRelevantElementsAndStaysWithinBudget() {
+        BrowserState state = page(200, 150);
+        int budget = 300;
+        PromptBuilder builder = PromptBuilder.builder().tokenBudget(budget).build();
+
+        String prompt = builder.build("搜索商品", state, 2, 10, "- step_1: 打开首页\n");
+
+        // 与任务相关的元素在视口外、位置靠后，仍然优先选取
+        assertTrue(prompt.contains("[150] button: \"搜索商品\""), prompt);
+        assertTrue(prompt.contains("个与任务相关度较低的元素未列出"), prompt);
+        assertTrue(prompt.contains("\n历史操作:\n- step_1: 打开首页\n"), prompt);
+        assertTrue(prompt.endsWith(TAIL));
+
+        String summary = prompt.substring(prompt.indexOf("(另有 "), prompt.indexOf("\n历史操作"));
+        int tokens = TokenEstimator.estimate(prompt) - TokenEstimator.estimate(summary);
+        assertTrue(tokens <= budget, "提示约 " + tokens + " token，超过预算 " + budget);
+
+        int selected = 0;
+        int previous = -1;
+        for (int i = 0; i < 200; i++) {
+            int position = prompt.indexOf("[" + i + "] ");
+            if (position >= 0) {
+                assertTrue(position > previous, "选中的元素应按页面顺序输出");
+                previous = position;
+                selected++;
+            }
+        }
+        assertTrue(selected > 1 && selected < 200, "选中 " + selected + " 个元素");
+    }
+
+    @Test
+    void mostRelevantElementIsListedEvenWhenItExceedsTheBudget() {
+        BrowserState state = page(5, 3);
+        String prompt = PromptBuilder.builder().tokenBudget(1).build().build("搜索商品", state, 2, 10, null);
+
+        assertTrue(prompt.contains("[3] button: \"搜索商品\""), prompt);
+        assertTrue(prompt.contains("(另有 4 个与任务相关度较低的元素未列出)"), prompt);
+    }
+
+    @Test
+    void longTextIsTruncatedAndDynamicIdentifiersAreDropped() {
+        Map<String, String> stable = new HashMap<>();
+        stable.put("id", "submit");
+        stable.put("class", "btn primary");
+        Map<String, String> dynamic = new HashMap<>();
+        dynamic.put("id", "btn-8f3a9c2e1d");
+        dynamic.put("class", "css-1x2y3z btn");
+
+        DomElement body = element("body", new HashMap<>(), null, false);
+        DomElement first = element("button", stable, "x".repeat(50), true);
+        DomElement second = element("button", dynamic, "确定", true);
+        Map<Integer, DomElement> selectorMap = new LinkedHashMap<>();
+        selectorMap.put(0, append(body, first));
+        selectorMap.put(1, append(body, second));
+        BrowserState state = BrowserState.builder().url("https://example.com").title("测试")
+                .elementTree(body).selectorMap(selectorMap).build();
+
+        String prompt = PromptBuilder.builder().maxElementTextLength(10).build()
+                .build("提交", state, 1, 10, null);
+
+        assertTrue(prompt.contains("[0] button: \"xxxxxxxxxx…\" (id=submit) (class=btn primary)"), prompt);
+        assertTrue(prompt.contains("[1] button: \"确定\"\n"), prompt);
+        assertFalse(prompt.contains("8f3a9c2e1d"));
+        assertFalse(prompt.contains("css-1x2y3z"));
+    }
+
+    /**
+     * 构建包含count个按钮的页面，relevant处的按钮与任务相关，前10个按钮在视口内
+     */
+    private static BrowserState page(int count, int relevant) {
+        DomElement body = element("body", new HashMap<>(), null, false);
+        Map<Integer, DomElement> selectorMap = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String text = i == relevant ? "搜索商品" : "查看第" + i + "条公告详情";
+            selectorMap.put(i, append(body, element("button", new HashMap<>(), text, i < 10)));
+        }
+        return BrowserState.builder().generation(1).url("https://example.com").title("首页")
+                .elementTree(body).selectorMap(selectorMap).build();
+    }
+
+    private static DomElement element(String tagName, Map<String, String> attributes, String text,
+                                      boolean inViewport) {
+        List<DomNode> children = new ArrayList<>();
+        DomElement element = DomElement.builder()
+                .tagName(tagName)
+                .attributes(attributes)
+                .children(children)
+                .isVisible(true)
+                .isInteractive(!"body".equals(tagName))
+                .isInViewport(inViewport)
+                .build();
+        if (text != null) {
+            children.add(DomTextNode.builder().text(text).isVisible(true).parent(element).build());
+        }
+        return element;
+    }
+
+    private static DomElement append(DomElement parent, DomElement child) {
+        child.setParent(parent);
+        parent.getChildren().add(child);
+        return child;
+    }
+}
@@ -0,0 +1,51 @@
+package com.mxy.browser.use.prompt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Token数估算测试
+ */
+class TokenEstimatorTest {
+
+    @Test
+    void emptyTextHasNoTokens() {
+        assertEquals(0, TokenEstimator.estimate(null));
+        assertEquals(0, TokenEstimator.estimate(""));
+    }
+
+    @Test
+    void latinTextIsRoundedUpPerFourCharacters() {
+        assertEquals(1, TokenEstimator.estimate("a"));
+        assertEquals(1, TokenEstimator.estimate("abcd"));
+        assertEquals(2, TokenEstimator.estimate("abcde"));
+        assertEquals(25, TokenEstimator.estimate("x".repeat(100)));
+    }
+
+    @Test
+    void cjkCharactersCountOneTokenEach() {
+        assertEquals(4, TokenEstimator.estimate("点击按钮"));
+        assertEquals(3, TokenEstimator.estimate("ひらカ"));
+        assertEquals(2, TokenEstimator.estimate("한국"));
+        // 中文2个 + 其他字符5个（向上取整为2）
+        assertEquals(4, TokenEstimator.estimate("搜索 abcd"));
+    }
+
+    @Test
+    void supplementaryCharactersAreCountedOnce() {
+        String extensionB = new String(Character.toChars(0x20000));
+        assertEquals(2, extensionB.length());
+        assertEquals(1, TokenEstimator.estimate(extensionB));
+        assertTrue(TokenEstimator.isCjk(0x20000));
+        assertFalse(TokenEstimator.isCjk('a'));
+    }
+
+    @Test
+    void acceptsAnyCharSequence() {
+        StringBuilder text = new StringBuilder("登录").append("abcd");
+        assertEquals(3, TokenEstimator.estimate(text));
+    }
+}
@@ -3,6 +3,7 @@ package com.mxy.browser.use.samples;
 import com.mxy.browser.use.agent.Agent;
 import com.mxy.browser.use.browser.Browser;
 import com.mxy.browser.use.browser.BrowserConfig;
+import com.mxy.browser.use.trajectory.FileTrajectoryStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
@@ -16,6 +17,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+import java.nio.file.Paths;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -91,6 +93,7 @@ public class TaobaoShoppingSample {
                     .browser(browser)
                     .enableMemory(false)  // 禁用内存功能
                     .maxActionsPerStep(5) // 限制每步最大动作数
+                    .trajectoryStore(new FileTrajectoryStore(Paths.get("trajectories"))) // 录制并回放成功的轨迹
                     .build();
             
             return CompletableFuture.runAsync(() -> {